@@ -0,0 +1,152 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper;
+
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request object to calculate the weights, times and distances between all pairs of from and to points.
+ *
+ * @see GHMatrixResponse
+ */
+public class GHMatrixRequest {
+    private List<GHPoint> fromPoints = new ArrayList<>();
+    private List<GHPoint> toPoints = new ArrayList<>();
+    private List<String> fromPointHints = new ArrayList<>();
+    private List<String> toPointHints = new ArrayList<>();
+    private List<String> snapPreventions = new ArrayList<>();
+    private List<String> outArrays = new ArrayList<>();
+    private String profile = "";
+    private boolean failFast = true;
+    private final PMap hints = new PMap();
+
+    /**
+     * Uses the specified points as from and as to points, i.e. calculates a symmetric matrix.
+     */
+    public GHMatrixRequest setPoints(List<GHPoint> points) {
+        this.fromPoints = points;
+        this.toPoints = points;
+        return this;
+    }
+
+    public GHMatrixRequest setFromPoints(List<GHPoint> fromPoints) {
+        this.fromPoints = fromPoints;
+        return this;
+    }
+
+    public List<GHPoint> getFromPoints() {
+        return fromPoints;
+    }
+
+    public GHMatrixRequest setToPoints(List<GHPoint> toPoints) {
+        this.toPoints = toPoints;
+        return this;
+    }
+
+    public List<GHPoint> getToPoints() {
+        return toPoints;
+    }
+
+    public GHMatrixRequest setPointHints(List<String> pointHints) {
+        this.fromPointHints = pointHints;
+        this.toPointHints = pointHints;
+        return this;
+    }
+
+    public GHMatrixRequest setFromPointHints(List<String> fromPointHints) {
+        this.fromPointHints = fromPointHints;
+        return this;
+    }
+
+    public List<String> getFromPointHints() {
+        return fromPointHints;
+    }
+
+    public GHMatrixRequest setToPointHints(List<String> toPointHints) {
+        this.toPointHints = toPointHints;
+        return this;
+    }
+
+    public List<String> getToPointHints() {
+        return toPointHints;
+    }
+
+    public GHMatrixRequest setSnapPreventions(List<String> snapPreventions) {
+        this.snapPreventions = snapPreventions;
+        return this;
+    }
+
+    public List<String> getSnapPreventions() {
+        return snapPreventions;
+    }
+
+    /**
+     * Specifies which arrays should be part of the response, possible values are weights, times and distances.
+     */
+    public GHMatrixRequest setOutArrays(List<String> outArrays) {
+        this.outArrays = outArrays;
+        return this;
+    }
+
+    public List<String> getOutArrays() {
+        return outArrays;
+    }
+
+    public GHMatrixRequest setProfile(String profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    /**
+     * If true (default) the request fails as soon as a point cannot be found or two points are not connected.
+     * Otherwise the affected entries are marked as invalid or disconnected in the response.
+     */
+    public GHMatrixRequest setFailFast(boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    public PMap getHints() {
+        return hints;
+    }
+
+    /**
+     * This method sets a key value pair in the hints and is mainly used for deserialization with Jackson.
+     */
+    public GHMatrixRequest putHint(String fieldName, Object value) {
+        this.hints.putObject(fieldName, value);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "from: " + fromPoints.size() + ", to: " + toPoints.size() + ", profile: " + profile;
+    }
+}
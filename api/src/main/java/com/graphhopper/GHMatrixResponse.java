@@ -0,0 +1,131 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper;
+
+import com.graphhopper.util.PMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a {@link GHMatrixRequest}. The arrays are indexed by [from_index][to_index]. Entries of pairs that
+ * are not connected or that involve an invalid point have an infinite weight and distance and a time of
+ * {@link Long#MAX_VALUE}.
+ */
+public class GHMatrixResponse {
+    private final List<Throwable> errors = new ArrayList<>(4);
+    private final PMap hintsMap = new PMap();
+    private final List<Integer> invalidFromPoints = new ArrayList<>();
+    private final List<Integer> invalidToPoints = new ArrayList<>();
+    private final List<int[]> disconnectedPoints = new ArrayList<>();
+    private double[][] weights;
+    private long[][] times;
+    private double[][] distances;
+
+    public GHMatrixResponse() {
+    }
+
+    public GHMatrixResponse setWeights(double[][] weights) {
+        this.weights = weights;
+        return this;
+    }
+
+    public double[][] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @param times the times in milliseconds
+     */
+    public GHMatrixResponse setTimes(long[][] times) {
+        this.times = times;
+        return this;
+    }
+
+    public long[][] getTimes() {
+        return times;
+    }
+
+    /**
+     * @param distances the distances in meters
+     */
+    public GHMatrixResponse setDistances(double[][] distances) {
+        this.distances = distances;
+        return this;
+    }
+
+    public double[][] getDistances() {
+        return distances;
+    }
+
+    public boolean isConnected(int fromIndex, int toIndex) {
+        return !Double.isInfinite(weights[fromIndex][toIndex]);
+    }
+
+    public void addInvalidFromPoint(int fromIndex) {
+        invalidFromPoints.add(fromIndex);
+    }
+
+    public List<Integer> getInvalidFromPoints() {
+        return invalidFromPoints;
+    }
+
+    public void addInvalidToPoint(int toIndex) {
+        invalidToPoints.add(toIndex);
+    }
+
+    public List<Integer> getInvalidToPoints() {
+        return invalidToPoints;
+    }
+
+    public void addDisconnectedPair(int fromIndex, int toIndex) {
+        disconnectedPoints.add(new int[]{fromIndex, toIndex});
+    }
+
+    /**
+     * @return the [from_index, to_index] pairs of valid points that are not connected
+     */
+    public List<int[]> getDisconnectedPoints() {
+        return disconnectedPoints;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public List<Throwable> getErrors() {
+        return errors;
+    }
+
+    public GHMatrixResponse addError(Throwable error) {
+        this.errors.add(error);
+        return this;
+    }
+
+    public PMap getHints() {
+        return hintsMap;
+    }
+
+    @Override
+    public String toString() {
+        String str = weights == null ? "no matrix" : weights.length + "x" + (weights.length == 0 ? 0 : weights[0].length);
+        if (!errors.isEmpty())
+            str += ", errors: " + errors.toString();
+        return str;
+    }
+}
@@ -56,6 +56,10 @@ public class Parameters {
          * round trip algorithm (not yet for CH)
          */
         public static final String ROUND_TRIP = "round_trip";
+        /**
+         * one to all search over the CH graph (only for node-based CH, only for isochrones and shortest path trees)
+         */
+        public static final String PHAST = "phast";
 
         /**
          * All public properties for alternative routing.
@@ -97,6 +101,19 @@ public class Parameters {
         public static final String U_TURN_COSTS = "u_turn_costs";
         public static final String MAX_VISITED_NODES = "max_visited_nodes";
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
+        /**
+         * This property name configures at start if the node-based bidirectional algorithms reuse their search state
+         * per thread
+         */
+        public static final String INIT_POOLED_SEARCH_CONTEXT = ROUTING_INIT_PREFIX + "pooled_search_context";
+        /**
+         * This property name configures at start how many threads calculate the legs of via routes concurrently
+         */
+        public static final String INIT_LEG_THREADS = ROUTING_INIT_PREFIX + "leg_threads";
+        /**
+         * This property name configures at start how many bytes the edges of the areas of custom models can use in memory
+         */
+        public static final String INIT_AREA_CACHE_MAX_BYTES = ROUTING_INIT_PREFIX + "area_cache_max_bytes";
         /**
          * if true the response will contain turn instructions
          */
@@ -157,6 +174,36 @@ public class Parameters {
         public static final String INIT_DISABLING_ALLOWED = ROUTING_INIT_PREFIX + "ch.disabling_allowed";
     }
 
+    /**
+     * Properties for routing custom models with customizable contraction hierarchies
+     */
+    public static final class CCH {
+        public static final String PREPARE = "prepare.cch.";
+        /**
+         * This property name in HintsMap configures at runtime if CCH routing should be ignored.
+         */
+        public static final String DISABLE = "cch.disable";
+        /**
+         * This property name configures at start how many customized metrics are kept in memory.
+         */
+        public static final String INIT_CACHE_SIZE = ROUTING_INIT_PREFIX + "cch.cache_size";
+    }
+
+    /**
+     * Properties for routing requests with blocked areas on a partially contracted graph with landmarks (core-ALT)
+     */
+    public static final class Core {
+        public static final String PREPARE = "prepare.core.";
+        /**
+         * This property name in HintsMap configures at runtime if routing on the core should be ignored.
+         */
+        public static final String DISABLE = "core.disable";
+        /**
+         * Specifies the percentage of nodes that are contracted, the remaining nodes form the core
+         */
+        public static final String CONTRACTED_NODES = PREPARE + "contracted_nodes";
+    }
+
     /**
      * Properties for routing with landmark speedup
      */
@@ -0,0 +1,115 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.util.CustomModel;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.shapes.BBox;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Imports (or loads) the Andorra graph that is used by all benchmarks. The import happens only once per JVM and the
+ * graph is stored in the folder specified via the 'benchmark.graph_location' system property, so consecutive forks
+ * only load it. The OSM file can be changed via 'benchmark.osm_file', but note that a different file requires a new
+ * graph location.
+ */
+public class BenchmarkGraph {
+    public static final String PROFILE = "car";
+    public static final String CUSTOM_PROFILE = "car_custom";
+    private static final String[] OSM_FILE_CANDIDATES = {"core/files/andorra.osm.pbf", "../core/files/andorra.osm.pbf"};
+    private static GraphHopper hopper;
+
+    public static synchronized GraphHopper getGraphHopper() {
+        if (hopper == null) {
+            GraphHopperConfig config = new GraphHopperConfig();
+            config.putObject("datareader.file", getOSMFile());
+            config.putObject("graph.location", System.getProperty("benchmark.graph_location", "target/benchmark-andorra-gh"));
+            config.putObject("graph.flag_encoders", "car");
+            config.putObject("graph.encoded_values", "road_class,road_environment,max_speed,surface");
+            config.putObject("prepare.min_network_size", 200);
+            config.setProfiles(Arrays.asList(
+                    new Profile(PROFILE).setVehicle("car").setWeighting("fastest"),
+                    new CustomProfile(CUSTOM_PROFILE).setCustomModel(createCustomModel()).setVehicle("car")));
+            config.setCHProfiles(Collections.singletonList(new CHProfile(PROFILE)));
+            config.setLMProfiles(Collections.singletonList(new LMProfile(PROFILE)));
+            GraphHopper tmpHopper = new GraphHopperOSM().init(config);
+            tmpHopper.importOrLoad();
+            hopper = tmpHopper;
+        }
+        return hopper;
+    }
+
+    public static String getOSMFile() {
+        String osmFile = System.getProperty("benchmark.osm_file");
+        if (osmFile != null)
+            return osmFile;
+        for (String candidate : OSM_FILE_CANDIDATES) {
+            if (new File(candidate).exists())
+                return candidate;
+        }
+        throw new IllegalStateException("Cannot find andorra.osm.pbf, run the benchmarks from the main or the benchmark " +
+                "directory or specify -Dbenchmark.osm_file");
+    }
+
+    /**
+     * @return random node ids that are not isolated, i.e. suitable as start or end of a route
+     */
+    public static int[] createRandomNodes(GraphHopper hopper, Random random, int count) {
+        int[] nodes = new int[count];
+        BBox bounds = hopper.getGraphHopperStorage().getBounds();
+        for (int i = 0; i < count; ) {
+            double lat = bounds.minLat + random.nextDouble() * (bounds.maxLat - bounds.minLat);
+            double lon = bounds.minLon + random.nextDouble() * (bounds.maxLon - bounds.minLon);
+            Snap snap = hopper.getLocationIndex().findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            if (snap.isValid())
+                nodes[i++] = snap.getClosestNode();
+        }
+        return nodes;
+    }
+
+    private static CustomModel createCustomModel() {
+        CustomModel customModel = new CustomModel();
+        Map<String, Object> roadClassSpeed = new LinkedHashMap<>();
+        roadClassSpeed.put("primary", 0.9);
+        roadClassSpeed.put("residential", 0.6);
+        customModel.getSpeedFactor().put("road_class", roadClassSpeed);
+        Map<String, Object> surfacePriority = new LinkedHashMap<>();
+        surfacePriority.put("unpaved", 0.5);
+        surfacePriority.put("gravel", 0.7);
+        customModel.getPriority().put("surface", surfacePriority);
+        Map<String, Object> tunnelPriority = new LinkedHashMap<>();
+        tunnelPriority.put("tunnel", 0.8);
+        customModel.getPriority().put("road_environment", tunnelPriority);
+        customModel.setDistanceInfluence(70);
+        return customModel;
+    }
+}
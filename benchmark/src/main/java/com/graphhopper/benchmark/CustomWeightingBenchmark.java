@@ -0,0 +1,75 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the edge weight calculation of a custom model for all edges in both directions. The fastest weighting of
+ * the same vehicle serves as baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomWeightingBenchmark {
+    private Graph graph;
+    private Weighting customWeighting;
+    private Weighting fastestWeighting;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.getGraphHopper();
+        graph = hopper.getGraphHopperStorage();
+        customWeighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraph.CUSTOM_PROFILE), new PMap());
+        fastestWeighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap());
+    }
+
+    @Benchmark
+    public double customCalcEdgeWeight() {
+        return calcEdgeWeights(customWeighting);
+    }
+
+    @Benchmark
+    public double fastestCalcEdgeWeight() {
+        return calcEdgeWeights(fastestWeighting);
+    }
+
+    private double calcEdgeWeights(Weighting weighting) {
+        double sum = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            double weight = weighting.calcEdgeWeight(iter, false);
+            if (!Double.isInfinite(weight))
+                sum += weight;
+            weight = weighting.calcEdgeWeight(iter, true);
+            if (!Double.isInfinite(weight))
+                sum += weight;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the raw graph access: iterating the adjacent edges of every node and reading the properties of single
+ * edges and nodes. Both should not allocate anything per edge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmark {
+    private static final int EDGES_PER_INVOCATION = 10_000;
+    private Graph graph;
+    private NodeAccess nodeAccess;
+    private EdgeExplorer explorer;
+    private BooleanEncodedValue accessEnc;
+    private DecimalEncodedValue speedEnc;
+    private int[] edges;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.getGraphHopper();
+        graph = hopper.getGraphHopperStorage().getBaseGraph();
+        nodeAccess = graph.getNodeAccess();
+        explorer = graph.createEdgeExplorer();
+        FlagEncoder encoder = hopper.getEncodingManager().getEncoder("car");
+        accessEnc = encoder.getAccessEnc();
+        speedEnc = encoder.getAverageSpeedEnc();
+        Random random = new Random(123);
+        edges = new int[EDGES_PER_INVOCATION];
+        for (int i = 0; i < edges.length; i++)
+            edges[i] = random.nextInt(graph.getEdges());
+    }
+
+    @Benchmark
+    public long edgeIteratorTraversal() {
+        long sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                sum += iter.getAdjNode();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double edgeIteratorTraversalWithFlags() {
+        double sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (iter.get(accessEnc))
+                    sum += iter.getDistance() / iter.get(speedEnc);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double edgeAccessors() {
+        double sum = 0;
+        for (int edge : edges) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            sum += edgeState.getDistance() + edgeState.get(speedEnc);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double nodeAccessors() {
+        double sum = 0;
+        for (int i = 0; i < edges.length; i++) {
+            int node = edges[i] % graph.getNodes();
+            sum += nodeAccess.getLat(node) + nodeAccess.getLon(node);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.shapes.BBox;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the snapping of random coordinates within the bounds of the graph, and of a random walk like a GPX track
+ * point by point or as one batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationIndexBenchmark {
+    private static final int POINTS = 1000;
+    private LocationIndex locationIndex;
+    private EdgeFilter edgeFilter;
+    private double[] lats;
+    private double[] lons;
+    private double[] trackLats;
+    private double[] trackLons;
+    private int index;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.getGraphHopper();
+        locationIndex = hopper.getLocationIndex();
+        edgeFilter = DefaultEdgeFilter.allEdges(hopper.getEncodingManager().getEncoder("car"));
+        BBox bounds = hopper.getGraphHopperStorage().getBounds();
+        Random random = new Random(123);
+        lats = new double[POINTS];
+        lons = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = bounds.minLat + random.nextDouble() * (bounds.maxLat - bounds.minLat);
+            lons[i] = bounds.minLon + random.nextDouble() * (bounds.maxLon - bounds.minLon);
+        }
+        trackLats = new double[POINTS];
+        trackLons = new double[POINTS];
+        trackLats[0] = (bounds.minLat + bounds.maxLat) / 2;
+        trackLons[0] = (bounds.minLon + bounds.maxLon) / 2;
+        for (int i = 1; i < POINTS; i++) {
+            // steps of up to about 100m
+            trackLats[i] = Math.max(bounds.minLat, Math.min(bounds.maxLat, trackLats[i - 1] + (random.nextDouble() - 0.5) * 0.002));
+            trackLons[i] = Math.max(bounds.minLon, Math.min(bounds.maxLon, trackLons[i - 1] + (random.nextDouble() - 0.5) * 0.002));
+        }
+    }
+
+    @Benchmark
+    public int findClosest() {
+        index = (index + 1) % POINTS;
+        return locationIndex.findClosest(lats[index], lons[index], edgeFilter).getClosestNode();
+    }
+
+    @Benchmark
+    public int findClosestTrack() {
+        int sum = 0;
+        for (int i = 0; i < POINTS; i++) {
+            sum += locationIndex.findClosest(trackLats[i], trackLons[i], edgeFilter).getClosestNode();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int findClosestBatchTrack() {
+        int sum = 0;
+        for (Snap snap : locationIndex.findClosestBatch(trackLats, trackLons, edgeFilter)) {
+            sum += snap.getClosestNode();
+        }
+        return sum;
+    }
+}
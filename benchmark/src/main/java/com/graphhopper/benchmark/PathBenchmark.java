@@ -0,0 +1,90 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.routing.DijkstraBidirectionRef;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.details.PathDetailsFromEdges;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the post-processing of a calculated route: the polyline encoding of its points and the calculation of
+ * the path details. The routes are calculated once during the setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathBenchmark {
+    private static final int PATHS = 100;
+    private static final List<String> PATH_DETAILS = Arrays.asList(Parameters.Details.AVERAGE_SPEED,
+            Parameters.Details.STREET_NAME, Parameters.Details.EDGE_ID, Parameters.Details.TIME, Parameters.Details.DISTANCE);
+    private GraphHopper hopper;
+    private Weighting weighting;
+    private PathDetailsBuilderFactory pathDetailsBuilderFactory;
+    private final List<Path> paths = new ArrayList<>();
+    private final List<PointList> pointLists = new ArrayList<>();
+    private int index;
+
+    @Setup
+    public void setup() {
+        hopper = BenchmarkGraph.getGraphHopper();
+        weighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap());
+        pathDetailsBuilderFactory = hopper.getPathDetailsBuilderFactory();
+        Random random = new Random(123);
+        int[] fromNodes = BenchmarkGraph.createRandomNodes(hopper, random, PATHS * 2);
+        int[] toNodes = BenchmarkGraph.createRandomNodes(hopper, random, PATHS * 2);
+        for (int i = 0; i < fromNodes.length && paths.size() < PATHS; i++) {
+            Path path = new DijkstraBidirectionRef(hopper.getGraphHopperStorage(), weighting, TraversalMode.NODE_BASED).
+                    calcPath(fromNodes[i], toNodes[i]);
+            if (path.isFound() && path.getEdgeCount() > 0) {
+                paths.add(path);
+                pointLists.add(path.calcPoints());
+            }
+        }
+    }
+
+    @Benchmark
+    public String encodePolyline() {
+        index = (index + 1) % pointLists.size();
+        return WebHelper.encodePolyline(pointLists.get(index));
+    }
+
+    @Benchmark
+    public Object calcPathDetails() {
+        index = (index + 1) % paths.size();
+        return PathDetailsFromEdges.calcDetails(paths.get(index), hopper.getEncodingManager(), weighting, PATH_DETAILS,
+                pathDetailsBuilderFactory, 0);
+    }
+}
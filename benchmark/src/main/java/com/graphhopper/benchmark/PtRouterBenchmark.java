@@ -0,0 +1,123 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.gtfs.GraphHopperGtfs;
+import com.graphhopper.gtfs.PtRouter;
+import com.graphhopper.gtfs.PtRouterImpl;
+import com.graphhopper.gtfs.Request;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.TranslationMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the label setting search on the time-expanded graph with the RAPTOR search on the timetable for public
+ * transit queries between random stops of the sample feed around Beatty, with and without a time window (profile).
+ * The feed can be changed via 'benchmark.gtfs_file' and the OSM file via 'benchmark.gtfs_osm_file'.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PtRouterBenchmark {
+    private static final int QUERIES = 100;
+    private static final String[] GTFS_FILE_CANDIDATES = {"reader-gtfs/files/sample-feed.zip", "../reader-gtfs/files/sample-feed.zip"};
+    private static final String[] OSM_FILE_CANDIDATES = {"reader-gtfs/files/beatty.osm", "../reader-gtfs/files/beatty.osm"};
+    // BEATTY_AIRPORT, BULLFROG, STAGECOACH, NADAV, NANAA, DADAN, EMSI
+    private static final double[][] STOPS = {{36.868446, -116.784582}, {36.88108, -116.81797}, {36.915682, -116.751677},
+            {36.914893, -116.76821}, {36.914944, -116.761472}, {36.909489, -116.768242}, {36.905697, -116.76218}};
+    @Param({Request.ALGORITHM_LABEL_SETTING, Request.ALGORITHM_RAPTOR})
+    private String algorithm;
+    @Param({"false", "true"})
+    private boolean profile;
+    private GraphHopperGtfs graphHopperGtfs;
+    private PtRouter ptRouter;
+    private Request[] requests;
+    private int index;
+
+    @Setup
+    public void setup() {
+        GraphHopperConfig config = new GraphHopperConfig();
+        config.putObject("graph.flag_encoders", "car,foot");
+        config.putObject("datareader.file", getFile("benchmark.gtfs_osm_file", OSM_FILE_CANDIDATES));
+        config.putObject("gtfs.file", getFile("benchmark.gtfs_file", GTFS_FILE_CANDIDATES));
+        String graphLocation = System.getProperty("benchmark.gtfs_graph_location", "target/benchmark-beatty-gtfs-gh");
+        config.putObject("graph.location", graphLocation);
+        // the import is fast and the transit data cannot be loaded if a previous fork was not closed properly
+        Helper.removeDir(new File(graphLocation));
+        graphHopperGtfs = new GraphHopperGtfs(config);
+        graphHopperGtfs.init(config);
+        graphHopperGtfs.importOrLoad();
+        ptRouter = PtRouterImpl.createFactory(new TranslationMap().doImport(), graphHopperGtfs, graphHopperGtfs.getLocationIndex(),
+                graphHopperGtfs.getGtfsStorage()).createWithoutRealtimeFeed();
+
+        Random random = new Random(123);
+        ZoneId zoneId = ZoneId.of("America/Los_Angeles");
+        requests = new Request[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int fromIndex = random.nextInt(STOPS.length);
+            // the start and the destination must be different
+            int toIndex = (fromIndex + 1 + random.nextInt(STOPS.length - 1)) % STOPS.length;
+            double[] from = STOPS[fromIndex];
+            double[] to = STOPS[toIndex];
+            Request request = new Request(from[0], from[1], to[0], to[1]);
+            Instant departure = LocalDateTime.of(2007, 1, 1, 6 + random.nextInt(14), random.nextInt(60)).atZone(zoneId).toInstant();
+            request.setEarliestDepartureTime(departure);
+            request.setProfileQuery(profile);
+            request.setAlgorithm(algorithm);
+            requests[i] = request;
+        }
+        // the timetable for raptor is created lazily, this should not be measured
+        ptRouter.route(requests[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphHopperGtfs.close();
+    }
+
+    private static String getFile(String property, String[] candidates) {
+        String file = System.getProperty(property);
+        if (file != null)
+            return file;
+        for (String candidate : candidates) {
+            if (new File(candidate).exists())
+                return candidate;
+        }
+        throw new IllegalStateException("Cannot find " + candidates[0] + ", run the benchmarks from the main or the " +
+                "benchmark directory or specify -D" + property);
+    }
+
+    @Benchmark
+    public int route() {
+        index = (index + 1) % QUERIES;
+        GHResponse response = ptRouter.route(requests[index]);
+        return response.getAll().size();
+    }
+}
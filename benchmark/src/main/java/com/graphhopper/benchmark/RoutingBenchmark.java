@@ -0,0 +1,96 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
+import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single point-to-point queries between random nodes without snapping and path extraction overhead, i.e.
+ * only the search itself including the creation of the algorithm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+    private static final int QUERIES = 1000;
+    @Param({"false", "true"})
+    public boolean pooledSearchContext;
+    private Graph graph;
+    private Weighting weighting;
+    private RoutingAlgorithmFactorySimple factory;
+    private AlgorithmOptions dijkstraOptions;
+    private CHRoutingAlgorithmFactory chFactory;
+    private LMRoutingAlgorithmFactory lmFactory;
+    private AlgorithmOptions lmOptions;
+    private int[] fromNodes;
+    private int[] toNodes;
+    private int index;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.getGraphHopper();
+        graph = hopper.getGraphHopperStorage();
+        weighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap());
+        factory = new RoutingAlgorithmFactorySimple().setPooledSearchContext(pooledSearchContext);
+        dijkstraOptions = AlgorithmOptions.start().algorithm(Parameters.Algorithms.DIJKSTRA_BI).weighting(weighting).
+                traversalMode(TraversalMode.NODE_BASED).build();
+        chFactory = new CHRoutingAlgorithmFactory(hopper.getGraphHopperStorage().getRoutingCHGraph(BenchmarkGraph.PROFILE))
+                .setPooledSearchContext(pooledSearchContext);
+        lmFactory = hopper.getLMPreparationHandler().getPreparation(BenchmarkGraph.PROFILE).getRoutingAlgorithmFactory()
+                .setPooledSearchContext(pooledSearchContext);
+        lmOptions = AlgorithmOptions.start().algorithm(Parameters.Algorithms.ASTAR_BI).weighting(weighting).
+                traversalMode(TraversalMode.NODE_BASED).build();
+        Random random = new Random(123);
+        fromNodes = BenchmarkGraph.createRandomNodes(hopper, random, QUERIES);
+        toNodes = BenchmarkGraph.createRandomNodes(hopper, random, QUERIES);
+    }
+
+    @Benchmark
+    public double dijkstraBidirection() {
+        index = (index + 1) % QUERIES;
+        return factory.createAlgo(graph, dijkstraOptions).calcPath(fromNodes[index], toNodes[index]).getWeight();
+    }
+
+    @Benchmark
+    public double ch() {
+        index = (index + 1) % QUERIES;
+        return chFactory.createAlgo(new PMap()).calcPath(fromNodes[index], toNodes[index]).getWeight();
+    }
+
+    @Benchmark
+    public double lm() {
+        index = (index + 1) % QUERIES;
+        return lmFactory.createAlgo(graph, lmOptions).calcPath(fromNodes[index], toNodes[index]).getWeight();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the shortest path tree search that is used for the /isochrone and /spt endpoints. The andorra graph is
+ * small and every search settles less than 2000 labels, so we also use a synthetic grid graph where a search settles
+ * a few hundred thousand labels, like a long isochrone on a real country would. {@link #search} passes an IsoLabel
+ * object for every settled label to the consumer, {@link #searchLabels} only passes the label ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShortestPathTreeBenchmark {
+    private static final int QUERIES = 100;
+    private static final int GRID_SIZE = 500;
+    @Param({"andorra", "grid"})
+    private String graphName;
+    @Param({"NODE_BASED", "EDGE_BASED"})
+    private TraversalMode traversalMode;
+    @Param({"1800000"})
+    private long timeLimit;
+    private Graph graph;
+    private Weighting weighting;
+    private int[] fromNodes;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(123);
+        if (graphName.equals("grid")) {
+            CarFlagEncoder encoder = new CarFlagEncoder();
+            GraphHopperStorage storage = new GraphBuilder(EncodingManager.create(encoder)).create();
+            createGrid(storage, encoder);
+            graph = storage;
+            weighting = new FastestWeighting(encoder);
+            fromNodes = new int[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                int row = GRID_SIZE / 4 + random.nextInt(GRID_SIZE / 2);
+                int column = GRID_SIZE / 4 + random.nextInt(GRID_SIZE / 2);
+                fromNodes[i] = row * GRID_SIZE + column;
+            }
+        } else {
+            GraphHopper hopper = BenchmarkGraph.getGraphHopper();
+            graph = hopper.getGraphHopperStorage();
+            weighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap());
+            fromNodes = BenchmarkGraph.createRandomNodes(hopper, random, QUERIES);
+        }
+    }
+
+    private static void createGrid(GraphHopperStorage storage, CarFlagEncoder encoder) {
+        NodeAccess na = storage.getNodeAccess();
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int column = 0; column < GRID_SIZE; column++) {
+                int node = row * GRID_SIZE + column;
+                na.setNode(node, 42 + row * 0.001, 1 + column * 0.001);
+                if (column > 0)
+                    storage.edge(node - 1, node, 100, true).set(encoder.getAverageSpeedEnc(), 60);
+                if (row > 0)
+                    storage.edge(node - GRID_SIZE, node, 100, true).set(encoder.getAverageSpeedEnc(), 60);
+            }
+        }
+        storage.freeze();
+    }
+
+    @Benchmark
+    public int search(Blackhole blackhole) {
+        index = (index + 1) % QUERIES;
+        ShortestPathTree tree = new ShortestPathTree(graph, weighting, false, traversalMode);
+        tree.setTimeLimit(timeLimit);
+        tree.search(fromNodes[index], label -> blackhole.consume(label.time));
+        return tree.getVisitedNodes();
+    }
+
+    @Benchmark
+    public int searchLabels(Blackhole blackhole) {
+        index = (index + 1) % QUERIES;
+        ShortestPathTree tree = new ShortestPathTree(graph, weighting, false, traversalMode);
+        tree.setTimeLimit(timeLimit);
+        tree.searchLabels(fromNodes[index], label -> blackhole.consume(tree.getTime(label)));
+        return tree.getVisitedNodes();
+    }
+}
@@ -26,12 +26,18 @@ import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.DefaultWeightingFactory;
 import com.graphhopper.routing.Router;
 import com.graphhopper.routing.RouterConfig;
+import com.graphhopper.routing.RoutingMetrics;
 import com.graphhopper.routing.WeightingFactory;
+import com.graphhopper.routing.cch.CCHMetricCache;
+import com.graphhopper.routing.cch.CCHStorage;
+import com.graphhopper.routing.ch.CHParameters;
 import com.graphhopper.routing.ch.CHPreparationHandler;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.DefaultEncodedValueFactory;
 import com.graphhopper.routing.ev.EncodedValueFactory;
 import com.graphhopper.routing.ev.EnumEncodedValue;
 import com.graphhopper.routing.ev.RoadEnvironment;
+import com.graphhopper.routing.lm.CoreRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LMConfig;
 import com.graphhopper.routing.lm.LMPreparationHandler;
 import com.graphhopper.routing.lm.LandmarkStorage;
@@ -43,13 +49,16 @@ import com.graphhopper.routing.util.parsers.TagParserFactory;
 import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
 import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.AreaEdgesCache;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.*;
+import com.graphhopper.util.Parameters.CCH;
 import com.graphhopper.util.Parameters.CH;
+import com.graphhopper.util.Parameters.Core;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
@@ -60,6 +69,8 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.graphhopper.util.Helper.*;
 import static com.graphhopper.util.Parameters.Algorithms.RoundTrip;
@@ -84,6 +95,8 @@ public class GraphHopper implements GraphHopperAPI {
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
     private boolean sortGraph = false;
+    private String sortOrder = "dfs";
+    private boolean adjacencyIndex = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -102,6 +115,23 @@ public class GraphHopper implements GraphHopperAPI {
     // preparation handlers
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
+    private boolean upDownCHEnabled = false;
+    private final Map<String, UpDownCHGraph> upDownCHGraphs = new LinkedHashMap<>();
+    private boolean cchEnabled = false;
+    private int cchCacheSize = 10;
+    private CCHStorage cchStorage;
+    private CCHMetricCache cchMetricCache;
+    private boolean coreEnabled = false;
+    private int coreContractedNodes = 95;
+    // the partially contracted graphs for the LM profiles, keyed by profile name
+    private final Map<String, CHConfig> coreConfigs = new LinkedHashMap<>();
+    private final Map<String, RoutingCHGraph> coreGraphs = new LinkedHashMap<>();
+    private long areaCacheMaxBytes = 50_000_000;
+    // created on demand once the location index is available
+    private AreaEdgesCache areaEdgesCache;
+    // shared by all routers and created on demand if routing.leg_threads is larger than one
+    private ExecutorService legExecutor;
+    private RoutingMetrics routingMetrics = RoutingMetrics.NOOP;
 
     // for data reader
     private String dataReaderFile;
@@ -185,6 +215,18 @@ public class GraphHopper implements GraphHopperAPI {
         return pathBuilderFactory;
     }
 
+    /**
+     * Sets the metrics that receive the durations of the stages of every route request
+     */
+    public GraphHopper setRoutingMetrics(RoutingMetrics routingMetrics) {
+        this.routingMetrics = routingMetrics;
+        return this;
+    }
+
+    public RoutingMetrics getRoutingMetrics() {
+        return routingMetrics;
+    }
+
     /**
      * Configures the underlying storage and response to be used on a well equipped server. Result
      * also optimized for usage in the web module i.e. try reduce network IO.
@@ -422,6 +464,102 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Specifies how the graph is sorted if sorting is enabled: 'dfs' orders the nodes by a depth-first search and
+     * 'hilbert' orders them along a Hilbert curve over their coordinates and groups the edges by their lower node.
+     */
+    public GraphHopper setSortOrder(String sortOrder) {
+        ensureNotLoaded();
+        this.sortOrder = sortOrder;
+        return this;
+    }
+
+    /**
+     * Stores the adjacency of the frozen graph as compressed sparse rows after import, which
+     * makes edge iteration more cache friendly on large graphs at the cost of some extra storage.
+     */
+    public GraphHopper setAdjacencyIndex(boolean adjacencyIndex) {
+        ensureNotLoaded();
+        this.adjacencyIndex = adjacencyIndex;
+        return this;
+    }
+
+    /**
+     * Enables customizable contraction hierarchies (CCH). The metric-independent part is prepared once for all
+     * profiles and requests for custom profiles that do not use CH are then routed on a hierarchy that is customized
+     * for their custom model, see {@link CCHMetricCache}.
+     */
+    public GraphHopper setCCHEnabled(boolean cchEnabled) {
+        ensureNotLoaded();
+        this.cchEnabled = cchEnabled;
+        return this;
+    }
+
+    public boolean isCCHEnabled() {
+        return cchEnabled;
+    }
+
+    /**
+     * Enables a compact copy of every prepared CHGraph that only contains the edges of the upward and downward
+     * searches with precalculated weights, see {@link UpDownCHGraph}. It is stored next to the CHGraph and speeds up
+     * the CH queries at the cost of additional memory.
+     */
+    public GraphHopper setUpDownCHEnabled(boolean upDownCHEnabled) {
+        ensureNotLoaded();
+        this.upDownCHEnabled = upDownCHEnabled;
+        return this;
+    }
+
+    public boolean isUpDownCHEnabled() {
+        return upDownCHEnabled;
+    }
+
+    /**
+     * Enables a partially contracted graph for every node-based LM profile. Requests with a block area are then routed
+     * on its core of uncontracted nodes with the landmarks of the profile, as long as all blocked edges lie in the
+     * core, see {@link CoreRoutingAlgorithmFactory}.
+     */
+    public GraphHopper setCoreEnabled(boolean coreEnabled) {
+        ensureNotLoaded();
+        this.coreEnabled = coreEnabled;
+        return this;
+    }
+
+    public boolean isCoreEnabled() {
+        return coreEnabled;
+    }
+
+    /**
+     * Sets the percentage of nodes that are contracted for the core graphs. The remaining nodes form the core, so a
+     * smaller percentage covers more blocked edges but makes the queries slower.
+     */
+    public GraphHopper setCoreContractedNodes(int coreContractedNodes) {
+        ensureNotLoaded();
+        if (coreContractedNodes < 0 || coreContractedNodes > 100)
+            throw new IllegalArgumentException("The percentage of contracted nodes must be in [0, 100], but was: " + coreContractedNodes);
+        this.coreContractedNodes = coreContractedNodes;
+        return this;
+    }
+
+    /**
+     * Sets the number of customized CCH metrics that are kept in memory
+     */
+    public GraphHopper setCCHCacheSize(int cchCacheSize) {
+        ensureNotLoaded();
+        this.cchCacheSize = cchCacheSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum memory of the edges of custom model areas that are kept in memory, 0 disables the cache and the
+     * areas are intersected with every edge instead
+     */
+    public GraphHopper setAreaCacheMaxBytes(long areaCacheMaxBytes) {
+        ensureNotLoaded();
+        this.areaCacheMaxBytes = areaCacheMaxBytes;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -490,6 +628,8 @@ public class GraphHopper implements GraphHopperAPI {
         dataAccessType = DAType.fromString(graphDATypeStr);
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        sortOrder = ghConfig.getString("graph.sort_order", sortOrder);
+        adjacencyIndex = ghConfig.getBool("graph.adjacency_index", adjacencyIndex);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
         EncodingManager encodingManager = createEncodingManager(ghConfig);
         if (encodingManager != null) {
@@ -537,6 +677,14 @@ public class GraphHopper implements GraphHopperAPI {
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setCHDisablingAllowed(ghConfig.getBool(CH.INIT_DISABLING_ALLOWED, routerConfig.isCHDisablingAllowed()));
         routerConfig.setLMDisablingAllowed(ghConfig.getBool(Landmark.INIT_DISABLING_ALLOWED, routerConfig.isLMDisablingAllowed()));
+        routerConfig.setPooledSearchContext(ghConfig.getBool(Routing.INIT_POOLED_SEARCH_CONTEXT, routerConfig.isPooledSearchContext()));
+        routerConfig.setLegThreads(ghConfig.getInt(Routing.INIT_LEG_THREADS, routerConfig.getLegThreads()));
+        upDownCHEnabled = ghConfig.getBool(CH.PREPARE + "up_down", upDownCHEnabled);
+        cchEnabled = ghConfig.getBool(CCH.PREPARE + "enabled", cchEnabled);
+        cchCacheSize = ghConfig.getInt(CCH.INIT_CACHE_SIZE, cchCacheSize);
+        coreEnabled = ghConfig.getBool(Core.PREPARE + "enabled", coreEnabled);
+        setCoreContractedNodes(ghConfig.getInt(Core.CONTRACTED_NODES, coreContractedNodes));
+        areaCacheMaxBytes = ghConfig.getLong(Routing.INIT_AREA_CACHE_MAX_BYTES, areaCacheMaxBytes);
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
@@ -587,6 +735,8 @@ public class GraphHopper implements GraphHopperAPI {
         removeTempElevationFiles = ghConfig.getBool("graph.elevation.clear", removeTempElevationFiles);
 
         DAType elevationDAType = DAType.fromString(ghConfig.getString("graph.elevation.dataaccess", "MMAP"));
+        int maxCachedTiles = ghConfig.getInt("graph.elevation.tile_cache.max_tiles", Integer.MAX_VALUE);
+        long maxCachedBytes = ghConfig.getLong("graph.elevation.tile_cache.max_bytes", Long.MAX_VALUE);
         ElevationProvider elevationProvider = ElevationProvider.NOOP;
         if (eleProviderStr.equalsIgnoreCase("srtm")) {
             elevationProvider = new SRTMProvider(cacheDirStr);
@@ -607,6 +757,7 @@ public class GraphHopper implements GraphHopperAPI {
         if (!baseURL.isEmpty())
             elevationProvider.setBaseURL(baseURL);
         elevationProvider.setDAType(elevationDAType);
+        elevationProvider.setTileCacheLimits(maxCachedTiles, maxCachedBytes);
         return elevationProvider;
     }
 
@@ -772,6 +923,11 @@ public class GraphHopper implements GraphHopperAPI {
 
         ghStorage.addCHGraphs(chConfigs);
 
+        if (coreEnabled) {
+            initCoreConfigs();
+            ghStorage.addCHGraphs(new ArrayList<>(coreConfigs.values()));
+        }
+
         if (!new File(graphHopperFolder).exists())
             return false;
 
@@ -901,6 +1057,24 @@ public class GraphHopper implements GraphHopperAPI {
         }
     }
 
+    private void initCoreConfigs() {
+        if (!coreConfigs.isEmpty())
+            return;
+        if (!lmPreparationHandler.isEnabled())
+            throw new IllegalArgumentException("The core graphs need landmarks, so you need to configure LM profiles to use " + Core.PREPARE + "enabled");
+
+        for (LMProfile lmProfile : lmPreparationHandler.getLMProfiles()) {
+            Profile profile = profilesByName.get(lmProfile.getProfile());
+            // the core is searched node-based with the landmarks of the profile
+            if (lmProfile.usesOtherPreparation() || profile.isTurnCosts())
+                continue;
+            String coreName = profile.getName() + "_core";
+            if (profilesByName.containsKey(coreName))
+                throw new IllegalArgumentException("Cannot store the core graph of profile '" + profile.getName() + "', because there is a profile with the name '" + coreName + "'");
+            coreConfigs.put(profile.getName(), CHConfig.nodeBased(coreName, createWeighting(profile, new PMap(), true)));
+        }
+    }
+
     /**
      * Does the preparation and creates the location index
      */
@@ -917,14 +1091,13 @@ public class GraphHopper implements GraphHopperAPI {
         // Later: move this into the GraphStorage.optimize method
         // Or: Doing it after preparation to optimize shortcuts too. But not possible yet #12
 
-        if (sortGraph) {
+        // sorting happens before everything else, so that the location index and the CH and LM preparations all
+        // refer to the sorted node and edge ids
+        if (sortGraph && ghStorage.getProperties().get(SORT_KEY).isEmpty()) {
             if (ghStorage.isCHPossible() && isCHPrepared())
                 throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
 
-            GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
-            GHUtility.sortDFS(ghStorage, newGraph);
-            logger.info("graph sorted (" + getMemInfo() + ")");
-            ghStorage = newGraph;
+            sortGraph();
         }
 
         if (!hasInterpolated() && hasElevation()) {
@@ -935,6 +1108,20 @@ public class GraphHopper implements GraphHopperAPI {
 
         importPublicTransit();
 
+        if (adjacencyIndex && !ghStorage.hasAdjacencyIndex()) {
+            ensureWriteAccess();
+            ghStorage.freeze();
+            StopWatch sw = new StopWatch().start();
+            ghStorage.createAdjacencyIndex();
+            logger.info("created adjacency index, took: " + sw.stop().getSeconds() + "s, " + getMemInfo());
+        }
+
+        if (cchEnabled)
+            loadOrPrepareCCH();
+
+        if (coreEnabled)
+            loadOrPrepareCore();
+
         if (lmPreparationHandler.isEnabled())
             lmPreparationHandler.createPreparations(ghStorage, locationIndex);
         loadOrPrepareLM(closeEarly);
@@ -950,6 +1137,9 @@ public class GraphHopper implements GraphHopperAPI {
         } else {
             prepareCH(closeEarly);
         }
+
+        if (upDownCHEnabled && isCHPrepared())
+            loadOrPrepareUpDownCH();
     }
 
     protected void registerCustomEncodedValues(EncodingManager.Builder emBuilder) {
@@ -958,6 +1148,37 @@ public class GraphHopper implements GraphHopperAPI {
     protected void importPublicTransit() {
     }
 
+    private void sortGraph() {
+        if (!"dfs".equals(sortOrder) && !"hilbert".equals(sortOrder))
+            throw new IllegalArgumentException("Unknown sort order: " + sortOrder + ", use dfs or hilbert");
+
+        StopWatch sw = new StopWatch().start();
+        GraphHopperStorage unsortedGraph = ghStorage;
+        ghStorage = new GraphHopperStorage(GHUtility.guessDirectory(unsortedGraph), encodingManager,
+                unsortedGraph.getNodeAccess().is3D(), unsortedGraph.getTurnCostStorage() != null, defaultSegmentSize);
+        // the weightings of edge-based CH refer to the turn costs of the graph, so the CH configs are created again
+        if (chPreparationHandler.isEnabled()) {
+            chPreparationHandler.getCHConfigs().clear();
+            initCHPreparationHandler();
+            ghStorage.addCHGraphs(chPreparationHandler.getCHConfigs());
+        }
+        if (coreEnabled) {
+            coreConfigs.clear();
+            initCoreConfigs();
+            ghStorage.addCHGraphs(new ArrayList<>(coreConfigs.values()));
+        }
+        ghStorage.create(unsortedGraph.getNodes());
+        if ("dfs".equals(sortOrder))
+            GHUtility.sortDFS(unsortedGraph, ghStorage);
+        else
+            GHUtility.sortHilbert(unsortedGraph, ghStorage);
+        ghStorage.getProperties().putAll(unsortedGraph.getProperties().getAll());
+        ghStorage.getProperties().put(SORT_KEY, sortOrder);
+        unsortedGraph.close();
+        logger.info("graph sorted (" + sortOrder + "), took: " + sw.stop().getSeconds() + "s, " + getMemInfo());
+    }
+
+    private static final String SORT_KEY = "graph.sort_order";
     private static final String INTERPOLATION_KEY = "prepare.elevation_interpolation.done";
 
     private boolean hasInterpolated() {
@@ -991,7 +1212,16 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     protected WeightingFactory createWeightingFactory() {
-        return new DefaultWeightingFactory(ghStorage, encodingManager);
+        return new DefaultWeightingFactory(ghStorage, encodingManager, getAreaEdgesCache());
+    }
+
+    private synchronized AreaEdgesCache getAreaEdgesCache() {
+        // the edges of the areas are found via the location index, so we cannot use the cache before it exists
+        if (areaCacheMaxBytes <= 0 || locationIndex == null)
+            return null;
+        if (areaEdgesCache == null)
+            areaEdgesCache = new AreaEdgesCache(ghStorage, locationIndex, areaCacheMaxBytes);
+        return areaEdgesCache;
     }
 
     @Override
@@ -999,6 +1229,13 @@ public class GraphHopper implements GraphHopperAPI {
         return createRouter().route(request);
     }
 
+    /**
+     * Calculates the weights, times and distances between all from and to points of the given request.
+     */
+    public GHMatrixResponse matrix(GHMatrixRequest request) {
+        return createRouter().matrix(request);
+    }
+
     private Router createRouter() {
         if (ghStorage == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -1007,10 +1244,15 @@ public class GraphHopper implements GraphHopperAPI {
         if (locationIndex == null)
             throw new IllegalStateException("Location index not initialized");
 
-        Map<String, CHGraph> chGraphs = new LinkedHashMap<>();
+        Map<String, RoutingCHGraph> chGraphs = new LinkedHashMap<>();
         for (CHProfile chProfile : chPreparationHandler.getCHProfiles()) {
-            String chGraphName = chPreparationHandler.getPreparation(chProfile.getProfile()).getCHConfig().getName();
-            chGraphs.put(chProfile.getProfile(), ghStorage.getCHGraph(chGraphName));
+            UpDownCHGraph upDownCHGraph = upDownCHGraphs.get(chProfile.getProfile());
+            if (upDownCHGraph != null) {
+                chGraphs.put(chProfile.getProfile(), upDownCHGraph);
+            } else {
+                String chGraphName = chPreparationHandler.getPreparation(chProfile.getProfile()).getCHConfig().getName();
+                chGraphs.put(chProfile.getProfile(), ghStorage.getRoutingCHGraph(chGraphName));
+            }
         }
         Map<String, LandmarkStorage> landmarks = new LinkedHashMap<>();
         for (LMProfile lmp : lmPreparationHandler.getLMProfiles()) {
@@ -1021,10 +1263,23 @@ public class GraphHopper implements GraphHopperAPI {
                             : lmPreparationHandler.getPreparation(lmp.getProfile()).getLandmarkStorage());
         }
         return new Router(ghStorage, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks
+                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks, cchMetricCache,
+                coreGraphs, getLegExecutor(), routingMetrics
         );
     }
 
+    private synchronized ExecutorService getLegExecutor() {
+        if (routerConfig.getLegThreads() <= 1)
+            return null;
+        if (legExecutor == null)
+            legExecutor = Executors.newFixedThreadPool(routerConfig.getLegThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "leg-routing");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return legExecutor;
+    }
+
     protected LocationIndex createLocationIndex(Directory dir) {
         LocationIndexTree tmpIndex = new LocationIndexTree(ghStorage, dir);
         tmpIndex.setResolution(preciseIndexResolution);
@@ -1086,6 +1341,70 @@ public class GraphHopper implements GraphHopperAPI {
         }
     }
 
+    /**
+     * Loads the up/down CH graphs of all CH profiles or builds them from the prepared CHGraphs if they do not exist
+     * yet.
+     */
+    protected void loadOrPrepareUpDownCH() {
+        for (CHProfile profile : chPreparationHandler.getCHProfiles()) {
+            String chGraphName = chPreparationHandler.getPreparation(profile.getProfile()).getCHConfig().getName();
+            UpDownCHGraph upDownCHGraph = new UpDownCHGraph(ghStorage.getCHGraph(chGraphName), ghStorage.getDirectory());
+            if (defaultSegmentSize > 0)
+                upDownCHGraph.setSegmentSize(defaultSegmentSize);
+            if (!upDownCHGraph.loadExisting()) {
+                ensureWriteAccess();
+                StopWatch sw = new StopWatch().start();
+                upDownCHGraph.build();
+                upDownCHGraph.flush();
+                logger.info("built up/down CH graph for " + profile.getProfile() + ", arcs: " + Helper.nf(upDownCHGraph.getArcs())
+                        + ", took: " + sw.stop().getSeconds() + "s, " + getMemInfo());
+            }
+            upDownCHGraphs.put(profile.getProfile(), upDownCHGraph);
+        }
+    }
+
+    /**
+     * Loads the metric-independent CCH or contracts the graph in nested dissection order if it does not exist yet.
+     * This needs to happen before the CH and LM preparations, because they might close the graph early.
+     */
+    protected void loadOrPrepareCCH() {
+        cchStorage = new CCHStorage(ghStorage, ghStorage.getDirectory());
+        if (defaultSegmentSize > 0)
+            cchStorage.setSegmentSize(defaultSegmentSize);
+        if (!cchStorage.loadExisting()) {
+            ensureWriteAccess();
+            ghStorage.freeze();
+            StopWatch sw = new StopWatch().start();
+            cchStorage.build();
+            cchStorage.flush();
+            ghStorage.getProperties().put(CCH.PREPARE + "done", true);
+            logger.info("prepared CCH, arcs: " + Helper.nf(cchStorage.getArcs()) + ", took: " + sw.stop().getSeconds() + "s, " + getMemInfo());
+        }
+        cchMetricCache = new CCHMetricCache(cchStorage, cchCacheSize);
+    }
+
+    /**
+     * Contracts all but the most important nodes for the core graphs if they were not prepared yet. Like the CCH this
+     * needs to happen before the CH and LM preparations might close the graph early.
+     */
+    protected void loadOrPrepareCore() {
+        if (!"true".equals(ghStorage.getProperties().get(Core.PREPARE + "done"))) {
+            ensureWriteAccess();
+            ghStorage.freeze();
+            PMap pMap = new PMap().putObject(CHParameters.CONTRACTED_NODES, coreContractedNodes);
+            for (CHConfig coreConfig : coreConfigs.values()) {
+                StopWatch sw = new StopWatch().start();
+                PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, coreConfig).useBlockableCore().setParams(pMap);
+                pch.doWork();
+                logger.info("prepared core graph " + coreConfig.getName() + ", contracted nodes: " + coreContractedNodes + "%, shortcuts: "
+                        + Helper.nf(pch.getShortcuts()) + ", took: " + sw.stop().getSeconds() + "s, " + getMemInfo());
+            }
+            ghStorage.getProperties().put(Core.PREPARE + "done", true);
+        }
+        for (Map.Entry<String, CHConfig> entry : coreConfigs.entrySet())
+            coreGraphs.put(entry.getKey(), ghStorage.getRoutingCHGraph(entry.getValue().getName()));
+    }
+
     /**
      * For landmarks it is required to always call this method: either it creates the landmark data or it loads it.
      */
@@ -1156,6 +1475,19 @@ public class GraphHopper implements GraphHopperAPI {
         if (locationIndex != null)
             locationIndex.close();
 
+        if (cchStorage != null)
+            cchStorage.close();
+
+        for (UpDownCHGraph upDownCHGraph : upDownCHGraphs.values())
+            upDownCHGraph.close();
+
+        synchronized (this) {
+            if (legExecutor != null) {
+                legExecutor.shutdownNow();
+                legExecutor = null;
+            }
+        }
+
         try {
             lockFactory.forceRemove(fileLockName, true);
         } catch (Exception ex) {
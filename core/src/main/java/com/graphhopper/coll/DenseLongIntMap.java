@@ -0,0 +1,99 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+/**
+ * A map from long to int that stores the value of a key at the position of the key in a DataAccess, i.e. it needs 4
+ * bytes for every key of the range between the first inserted key and the largest key, but a lookup is a single read.
+ * This is the best choice if the keys are dense like the node ids of the planet file and the DataAccess is memory
+ * mapped so that the operating system only needs to keep the used parts in memory.
+ * <p>
+ * Keys smaller than the first inserted key are kept in a {@link GHLongIntBTree} on the heap. Missing keys return -1.
+ */
+public class DenseLongIntMap implements LongIntMap {
+    // 64GB of values
+    private static final long MAX_KEYS = 1L << 34;
+    private final int noEntryValue = -1;
+    private final DataAccess values;
+    private final GHLongIntBTree outOfRange;
+    private long capacity;
+    private long firstKey = Long.MIN_VALUE;
+    private long size;
+
+    public DenseLongIntMap(Directory dir) {
+        // big segments as the DataAccess of a dense map with planet node ids needs tens of GB
+        this.values = dir.find("dense_long_int_map").setSegmentSize(1 << 26).create(1 << 20);
+        this.capacity = values.getCapacity();
+        this.outOfRange = new GHLongIntBTree(200);
+    }
+
+    @Override
+    public int put(long key, int value) {
+        if (firstKey == Long.MIN_VALUE)
+            firstKey = key;
+        long index = key - firstKey;
+        if (index < 0 || index >= MAX_KEYS)
+            return outOfRange.put(key, value);
+
+        long pointer = index * 4;
+        if (pointer + 4 > capacity) {
+            // getCapacity is not cheap for all DataAccess implementations
+            values.ensureCapacity(pointer + 4);
+            capacity = values.getCapacity();
+        }
+        // the values are stored xor the noEntryValue so that the zeros of the new segments are missing entries
+        int oldValue = values.getInt(pointer) ^ noEntryValue;
+        values.setInt(pointer, value ^ noEntryValue);
+        if (oldValue == noEntryValue && value != noEntryValue)
+            size++;
+        else if (oldValue != noEntryValue && value == noEntryValue)
+            size--;
+        return oldValue;
+    }
+
+    @Override
+    public int get(long key) {
+        long index = key - firstKey;
+        if (firstKey == Long.MIN_VALUE || index < 0 || index >= MAX_KEYS)
+            return outOfRange.get(key);
+
+        long pointer = index * 4;
+        if (pointer + 4 > capacity)
+            return noEntryValue;
+        return values.getInt(pointer) ^ noEntryValue;
+    }
+
+    @Override
+    public long getSize() {
+        return size + outOfRange.getSize();
+    }
+
+    @Override
+    public void optimize() {
+        outOfRange.optimize();
+    }
+
+    @Override
+    public int getMemoryUsage() {
+        return Math.round(capacity / Helper.MB) + outOfRange.getMemoryUsage();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import java.util.Arrays;
+
+/**
+ * A minimum heap of int ids with double values, implemented using a binary tree. Like {@link MinHeapWithUpdate} this
+ * heap keeps track of the positions of the elements in the tree, but it uses double values and grows automatically.
+ * <p>
+ * Elements are removed and re-inserted when their value changes, just like it is done for a
+ * {@link java.util.PriorityQueue} with remove(o) and add(o). Since the tree operations are the same as for the
+ * {@link java.util.PriorityQueue} elements with equal values are polled in the same order, which means that a search
+ * using this heap settles the same nodes as a search using a {@link java.util.PriorityQueue}.
+ */
+public class DoubleMinHeapWithUpdate {
+    private static final int NOT_PRESENT = -1;
+    private int[] tree;
+    private double[] vals;
+    private int[] positions;
+    private int size;
+
+    /**
+     * @param ids the initial range of ids that can be stored in this heap, see {@link #ensureCapacity}
+     */
+    public DoubleMinHeapWithUpdate(int ids) {
+        // we use an offset of one to make the arithmetic a bit simpler, the 0th elements are not used
+        tree = new int[17];
+        vals = new double[17];
+        positions = new int[ids];
+        Arrays.fill(positions, NOT_PRESENT);
+    }
+
+    /**
+     * Makes sure ids in [0, ids[ can be stored in this heap. The heap must be empty when it is grown.
+     */
+    public void ensureCapacity(int ids) {
+        if (ids <= positions.length)
+            return;
+        if (size > 0)
+            throw new IllegalStateException("Cannot grow the heap while it is not empty, size: " + size);
+        positions = new int[Math.max(ids, positions.length + (positions.length >> 1))];
+        Arrays.fill(positions, NOT_PRESENT);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return true if the heap contains an element with the given id
+     */
+    public boolean contains(int id) {
+        return positions[id] != NOT_PRESENT;
+    }
+
+    /**
+     * Adds an element to the heap. It is illegal to push the same id twice (unless it was polled/removed before).
+     */
+    public void push(int id, double value) {
+        if (contains(id))
+            throw new IllegalStateException("Element with id: " + id + " was pushed already, you need to use the update method if you want to change its value");
+        size++;
+        if (size == tree.length) {
+            tree = Arrays.copyOf(tree, tree.length * 2);
+            vals = Arrays.copyOf(vals, vals.length * 2);
+        }
+        percolateUp(size, id, value);
+    }
+
+    /**
+     * Changes the value of the element with the given id by removing it and pushing it again. If the heap does not
+     * contain the id it is simply pushed.
+     */
+    public void update(int id, double value) {
+        if (contains(id))
+            remove(id);
+        push(id, value);
+    }
+
+    /**
+     * Removes the element with the given id from the heap. It is illegal to remove elements that are not contained
+     * in the heap.
+     */
+    public void remove(int id) {
+        int index = positions[id];
+        if (index == NOT_PRESENT)
+            throw new IllegalStateException("The heap does not contain: " + id);
+        positions[id] = NOT_PRESENT;
+        int last = size--;
+        if (index == last)
+            return;
+        int movedId = tree[last];
+        double movedVal = vals[last];
+        percolateDown(index, movedId, movedVal);
+        if (tree[index] == movedId)
+            percolateUp(index, movedId, movedVal);
+    }
+
+    /**
+     * @return the id of the next element to be polled
+     */
+    public int peekId() {
+        return tree[1];
+    }
+
+    /**
+     * @return the value of the next element to be polled
+     */
+    public double peekValue() {
+        return vals[1];
+    }
+
+    /**
+     * Extracts the element with minimum value from the heap
+     */
+    public int poll() {
+        if (size == 0)
+            throw new IllegalStateException("Cannot poll an empty heap");
+        int id = tree[1];
+        positions[id] = NOT_PRESENT;
+        int last = size--;
+        if (last > 1)
+            percolateDown(1, tree[last], vals[last]);
+        return id;
+    }
+
+    public void clear() {
+        for (int i = 1; i <= size; i++)
+            positions[tree[i]] = NOT_PRESENT;
+        size = 0;
+    }
+
+    private void percolateUp(int index, int id, double val) {
+        while (index > 1) {
+            int parent = index >> 1;
+            if (val >= vals[parent])
+                break;
+            set(index, tree[parent], vals[parent]);
+            index = parent;
+        }
+        set(index, id, val);
+    }
+
+    private void percolateDown(int index, int id, double val) {
+        while (index << 1 <= size) {
+            int child = index << 1;
+            if (child < size && vals[child] > vals[child + 1])
+                // use the second child if it exists and has a smaller value
+                child++;
+            if (val <= vals[child])
+                break;
+            set(index, tree[child], vals[child]);
+            index = child;
+        }
+        set(index, id, val);
+    }
+
+    private void set(int index, int id, double val) {
+        tree[index] = id;
+        vals[index] = val;
+        positions[id] = index;
+    }
+}
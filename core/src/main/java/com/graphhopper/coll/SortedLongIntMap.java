@@ -0,0 +1,184 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+/**
+ * A map from long to int for keys that are mostly inserted in increasing order like the node ids of an OSM file. The
+ * keys are stored in pages of up to 1024 entries. Every page stores its first key on the heap and the other keys as int
+ * offsets to it together with the values in a DataAccess, i.e. 8 bytes per entry that can live off-heap. A lookup is a
+ * binary search over the first keys of the pages followed by a binary search within the page.
+ * <p>
+ * Existing keys can be updated in any order. New keys that are not larger than all keys inserted so far are kept in a
+ * {@link GHLongIntBTree} on the heap, so this is only memory efficient if there are few of them. Missing keys return -1.
+ */
+public class SortedLongIntMap implements LongIntMap {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final String NAME = "sorted_long_int_map";
+    private final int noEntryValue = -1;
+    private final Directory dir;
+    private DataAccess entries;
+    private long capacity;
+    private LongArrayList pageKeys = new LongArrayList();
+    private IntArrayList pageSizes = new IntArrayList();
+    private long size;
+    private long lastKey = Long.MIN_VALUE;
+    private final GHLongIntBTree unsorted;
+    private int generation;
+
+    public SortedLongIntMap(Directory dir) {
+        this.dir = dir;
+        this.entries = dir.find(NAME + generation).create(1 << 20);
+        this.capacity = entries.getCapacity();
+        this.unsorted = new GHLongIntBTree(200);
+    }
+
+    @Override
+    public int put(long key, int value) {
+        long index = indexOf(key);
+        if (index >= 0) {
+            int oldValue = entries.getInt(index * 8 + 4);
+            entries.setInt(index * 8 + 4, value);
+            return oldValue;
+        }
+        if (key <= lastKey)
+            return unsorted.put(key, value);
+
+        append(key, value);
+        return noEntryValue;
+    }
+
+    private void append(long key, int value) {
+        int page = pageKeys.size() - 1;
+        if (page < 0 || pageSizes.get(page) == PAGE_SIZE || !fitsInPage(key - pageKeys.get(page))) {
+            page++;
+            pageKeys.add(key);
+            pageSizes.add(0);
+        }
+        int pageSize = pageSizes.get(page);
+        long pointer = (((long) page << PAGE_BITS) + pageSize) * 8;
+        if (pointer + 8 > capacity) {
+            // getCapacity is not cheap for all DataAccess implementations
+            entries.ensureCapacity(pointer + 8);
+            capacity = entries.getCapacity();
+        }
+        entries.setInt(pointer, (int) (key - pageKeys.get(page)));
+        entries.setInt(pointer + 4, value);
+        pageSizes.set(page, pageSize + 1);
+        lastKey = key;
+        size++;
+    }
+
+    @Override
+    public int get(long key) {
+        long index = indexOf(key);
+        if (index >= 0)
+            return entries.getInt(index * 8 + 4);
+        return key <= lastKey ? unsorted.get(key) : noEntryValue;
+    }
+
+    /**
+     * @return the index of the entry with the specified key or -1 if there is none
+     */
+    private long indexOf(long key) {
+        if (key > lastKey || size == 0)
+            return -1;
+        int low = 0, high = pageKeys.size() - 1;
+        if (key < pageKeys.get(low))
+            return -1;
+        // find the last page starting at or before the key
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (pageKeys.get(mid) <= key)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        int page = low;
+        long offset = key - pageKeys.get(page);
+        if (!fitsInPage(offset))
+            return -1;
+        long pageStart = (long) page << PAGE_BITS;
+        int lo = 0, hi = pageSizes.get(page) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midOffset = entries.getInt((pageStart + mid) * 8);
+            if (midOffset < offset)
+                lo = mid + 1;
+            else if (midOffset > offset)
+                hi = mid - 1;
+            else
+                return pageStart + mid;
+        }
+        return -1;
+    }
+
+    private static boolean fitsInPage(long offset) {
+        // the offset is negative if the subtraction overflowed
+        return offset >= 0 && offset <= Integer.MAX_VALUE;
+    }
+
+    @Override
+    public long getSize() {
+        return size + unsorted.getSize();
+    }
+
+    /**
+     * Removes the keys with the noEntryValue from the pages, e.g. after all OSM node ids were inserted and only some
+     * were marked as used.
+     */
+    @Override
+    public void optimize() {
+        DataAccess oldEntries = entries;
+        LongArrayList oldPageKeys = pageKeys;
+        IntArrayList oldPageSizes = pageSizes;
+        generation++;
+        entries = dir.find(NAME + generation).create(1 << 20);
+        capacity = entries.getCapacity();
+        pageKeys = new LongArrayList();
+        pageSizes = new IntArrayList();
+        size = 0;
+        long oldLastKey = lastKey;
+        lastKey = Long.MIN_VALUE;
+        for (int page = 0; page < oldPageKeys.size(); page++) {
+            long pageStart = (long) page << PAGE_BITS;
+            for (int i = 0; i < oldPageSizes.get(page); i++) {
+                long pointer = (pageStart + i) * 8;
+                int value = oldEntries.getInt(pointer + 4);
+                if (value != noEntryValue)
+                    append(oldPageKeys.get(page) + oldEntries.getInt(pointer), value);
+            }
+        }
+        // keys up to the old last key must still be looked up in the tree
+        lastKey = Math.max(lastKey, oldLastKey);
+        dir.remove(oldEntries);
+        unsorted.optimize();
+    }
+
+    @Override
+    public int getMemoryUsage() {
+        long bytes = capacity + pageKeys.buffer.length * 8L + pageSizes.buffer.length * 4L;
+        return Math.round(bytes / Helper.MB) + unsorted.getMemoryUsage();
+    }
+}
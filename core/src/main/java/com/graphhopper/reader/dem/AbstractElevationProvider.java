@@ -19,7 +19,6 @@ package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.Directory;
-import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,7 +36,11 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     Downloader downloader;
     final File cacheDir;
     String baseUrl;
-    Directory dir;
+    volatile ElevationTileDirectory dir;
+    final HeightTileCache<Object> tileCache = new HeightTileCache<>(tile -> {
+        if (dir != null)
+            dir.evict(tile.getHeights());
+    });
     DAType daType = DAType.MMAP;
     boolean interpolate = false;
     boolean autoRemoveTemporary = true;
@@ -96,14 +99,44 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
         return this;
     }
 
+    @Override
+    public ElevationProvider setTileCacheLimits(int maxTiles, long maxBytes) {
+        tileCache.setMaxTiles(maxTiles).setMaxBytes(maxBytes);
+        return this;
+    }
+
+    /**
+     * @return the cache of the decoded tiles, e.g. to read the hit, miss and eviction counts
+     */
+    public HeightTileCache<?> getTileCache() {
+        return tileCache;
+    }
+
+    /**
+     * Forgets all cached tiles and closes their DataAccess objects. Removes the decoded files too if
+     * autoRemoveTemporary is true.
+     */
+    void releaseTiles() {
+        if (tileCache.getHits() + tileCache.getMisses() > 0)
+            logger.info(this.toString() + " Elevation Provider, tile cache " + tileCache);
+        tileCache.clear();
+        if (dir != null) {
+            // for memory mapped type we remove temporary files
+            if (autoRemoveTemporary)
+                dir.clear();
+            else
+                dir.close();
+        }
+    }
+
 
-    protected Directory getDirectory() {
+    protected synchronized Directory getDirectory() {
         if (dir != null)
             return dir;
 
         logger.info(this.toString() + " Elevation Provider, from: " + baseUrl + ", to: " + cacheDir + ", as: " + daType +
                 " using interpolate: " + interpolate);
-        return dir = new GHDirectory(cacheDir.getAbsolutePath(), daType);
+        return dir = new ElevationTileDirectory(cacheDir.getAbsolutePath(), daType);
     }
 
     /**
@@ -39,6 +39,11 @@ public interface ElevationProvider {
             return this;
         }
 
+        @Override
+        public ElevationProvider setTileCacheLimits(int maxTiles, long maxBytes) {
+            return this;
+        }
+
         @Override
         public void release() {
         }
@@ -73,6 +78,12 @@ public interface ElevationProvider {
      */
     ElevationProvider setDAType(DAType daType);
 
+    /**
+     * Limits the number of decoded tiles and the sum of their bytes that are kept open. If a limit is exceeded the
+     * least recently used tiles are closed. Default is no limit.
+     */
+    ElevationProvider setTileCacheLimits(int maxTiles, long maxBytes);
+
     /**
      * Configuration option to use bilinear interpolation to find the elevation at a point from the
      * surrounding elevation points. Has only an effect if called before the first getEle call.
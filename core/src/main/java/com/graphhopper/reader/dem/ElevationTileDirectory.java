@@ -0,0 +1,70 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.graphhopper.util.Helper.removeDir;
+
+/**
+ * The directory of the decoded elevation tiles. It can be used from multiple threads and allows to forget the
+ * DataAccess of an evicted tile while keeping its file, so that the tile can be loaded again later.
+ */
+class ElevationTileDirectory extends GHDirectory {
+    private final Set<String> evictedNames = new HashSet<>();
+
+    ElevationTileDirectory(String location, DAType defaultType) {
+        super(location, defaultType);
+    }
+
+    @Override
+    public synchronized DataAccess find(String name, DAType type) {
+        evictedNames.remove(name);
+        return super.find(name, type);
+    }
+
+    /**
+     * Removes the specified DataAccess from this directory without closing it or removing its file. A newer DataAccess
+     * with the same name is kept.
+     */
+    synchronized void evict(DataAccess da) {
+        if (map.remove(da.getName(), da) && da.getType().isStoring())
+            evictedNames.add(da.getName());
+    }
+
+    @Override
+    public synchronized void close() {
+        super.close();
+        evictedNames.clear();
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        for (String name : evictedNames) {
+            removeDir(new File(location + name));
+        }
+        evictedNames.clear();
+    }
+}
@@ -46,6 +46,9 @@ public class HeightTile {
     private boolean interpolate;
     private final double MIN_ELEVATION_METERS = -12_000;
     private final double MAX_ELEVATION_METERS = 9_000;
+    // the number of threads currently reading this tile or -1 if the tile was closed
+    private final AtomicInteger readers = new AtomicInteger();
+    private volatile boolean evicted;
 
     public HeightTile(int minLat, int minLon, int width, int height, double precision, int horizontalDegree, int verticalDegree) {
         this.minLat = minLat;
@@ -79,6 +82,48 @@ public class HeightTile {
         this.heights = da;
     }
 
+    DataAccess getHeights() {
+        return heights;
+    }
+
+    long getCapacity() {
+        return heights.getCapacity();
+    }
+
+    /**
+     * Marks this tile as being read by the current thread. Every successful call has to be followed by a call of
+     * {@link #release()}.
+     *
+     * @return false if the tile was already closed
+     */
+    boolean acquire() {
+        while (true) {
+            int current = readers.get();
+            if (current < 0)
+                return false;
+            if (readers.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    void release() {
+        if (readers.decrementAndGet() == 0 && evicted)
+            tryClose();
+    }
+
+    /**
+     * Closes the underlying DataAccess as soon as no thread reads this tile anymore.
+     */
+    void evict() {
+        evicted = true;
+        tryClose();
+    }
+
+    private void tryClose() {
+        if (readers.compareAndSet(0, -1))
+            heights.close();
+    }
+
     private short getHeightSample(int x, int y) {
         // always keep in mind factor 2 because of short value
         return heights.getShort(2 * (y * width + x));
@@ -0,0 +1,208 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache for the HeightTiles of an elevation provider. The number of tiles and the sum of their
+ * capacities can be limited; if one of the limits is exceeded the least recently used tiles are evicted. Every tile
+ * is loaded only once, even if several threads request it at the same time.
+ * <p>
+ * Tiles are returned acquired and the caller has to call {@link HeightTile#release()} after reading. An evicted
+ * tile is closed as soon as the last reader released it.
+ */
+public class HeightTileCache<K> {
+    private final LinkedHashMap<K, HeightTile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final ConcurrentHashMap<K, FutureTask<HeightTile>> loadingTiles = new ConcurrentHashMap<>();
+    private final Consumer<HeightTile> evictionListener;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private int maxTiles = Integer.MAX_VALUE;
+    private long maxBytes = Long.MAX_VALUE;
+    private long bytes;
+
+    /**
+     * @param evictionListener is called for every evicted tile before it is closed. It is called while the cache is
+     *                         locked, i.e. before the key of the tile can be loaded again, so it must not use the cache
+     */
+    public HeightTileCache(Consumer<HeightTile> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Limits the number of cached tiles. Default is no limit.
+     */
+    public HeightTileCache<K> setMaxTiles(int maxTiles) {
+        if (maxTiles < 1)
+            throw new IllegalArgumentException("the tile cache needs to hold at least one tile but was " + maxTiles);
+        this.maxTiles = maxTiles;
+        return this;
+    }
+
+    /**
+     * Limits the sum of the capacities of the cached tiles. The most recently used tile is always kept, even if it
+     * exceeds this limit. Default is no limit.
+     */
+    public HeightTileCache<K> setMaxBytes(long maxBytes) {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("the maximum bytes of the tile cache must be positive but was " + maxBytes);
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Returns the acquired tile for the specified key. If the tile is not cached it is created via the specified
+     * loader, which can return null if no tile should be cached for this key.
+     */
+    public HeightTile get(K key, Function<K, HeightTile> loader) {
+        boolean firstTry = true;
+        while (true) {
+            HeightTile tile;
+            synchronized (tiles) {
+                tile = tiles.get(key);
+            }
+            if (tile == null) {
+                tile = load(key, loader, firstTry);
+                if (tile == null)
+                    return null;
+            } else if (firstTry) {
+                hits.increment();
+            }
+            firstTry = false;
+            // the tile could have been evicted and closed in the meantime, then we just try again
+            if (tile.acquire())
+                return tile;
+        }
+    }
+
+    private HeightTile load(K key, Function<K, HeightTile> loader, boolean countHit) {
+        FutureTask<HeightTile> task = new FutureTask<>(() -> loader.apply(key));
+        FutureTask<HeightTile> existingTask = loadingTiles.putIfAbsent(key, task);
+        if (existingTask != null) {
+            // another thread loads this tile, so for this thread it is a hit
+            if (countHit)
+                hits.increment();
+            return getResult(existingTask);
+        }
+        try {
+            synchronized (tiles) {
+                // another thread could have finished loading just before we registered our task
+                HeightTile tile = tiles.get(key);
+                if (tile != null) {
+                    if (countHit)
+                        hits.increment();
+                    return tile;
+                }
+            }
+            misses.increment();
+            task.run();
+            HeightTile tile = getResult(task);
+            if (tile != null)
+                put(key, tile);
+            return tile;
+        } finally {
+            loadingTiles.remove(key, task);
+        }
+    }
+
+    private HeightTile getResult(FutureTask<HeightTile> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading elevation tile", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    private void put(K key, HeightTile tile) {
+        List<HeightTile> evictedTiles = new ArrayList<>();
+        synchronized (tiles) {
+            tiles.put(key, tile);
+            bytes += tile.getCapacity();
+            Iterator<Map.Entry<K, HeightTile>> iter = tiles.entrySet().iterator();
+            while ((tiles.size() > maxTiles || bytes > maxBytes) && tiles.size() > 1) {
+                HeightTile eldest = iter.next().getValue();
+                iter.remove();
+                bytes -= eldest.getCapacity();
+                // a loader for the same key must not find the DataAccess of the evicted tile, which is closed below
+                evictionListener.accept(eldest);
+                evictedTiles.add(eldest);
+            }
+        }
+        for (HeightTile evicted : evictedTiles) {
+            evictions.increment();
+            evicted.evict();
+        }
+    }
+
+    /**
+     * Removes all tiles without closing them.
+     */
+    public void clear() {
+        synchronized (tiles) {
+            tiles.clear();
+            bytes = 0;
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        synchronized (tiles) {
+            return tiles.size();
+        }
+    }
+
+    public long getBytes() {
+        synchronized (tiles) {
+            return bytes;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "tiles: " + getSize() + ", bytes: " + getBytes() + ", hits: " + getHits() + ", misses: " + getMisses()
+                + ", evictions: " + getEvictions();
+    }
+}
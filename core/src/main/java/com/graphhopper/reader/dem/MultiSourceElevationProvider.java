@@ -76,6 +76,13 @@ public class MultiSourceElevationProvider implements ElevationProvider {
         return this;
     }
 
+    @Override
+    public ElevationProvider setTileCacheLimits(int maxTiles, long maxBytes) {
+        srtmProvider.setTileCacheLimits(maxTiles, maxBytes);
+        globalProvider.setTileCacheLimits(maxTiles, maxBytes);
+        return this;
+    }
+
     @Override
     public void setInterpolate(boolean interpolate) {
         srtmProvider.setInterpolate(interpolate);
@@ -60,7 +60,9 @@ public class DateRangeParser implements ConditionalValueParser {
         return Calendar.getInstance(Helper.UTC, Locale.US);
     }
 
-    static ParsedCalendar parseDateString(String dateString) throws ParseException {
+    // synchronized because the date formats are shared and not thread-safe, e.g. for the parallel way processing of
+    // the OSMReader
+    static synchronized ParsedCalendar parseDateString(String dateString) throws ParseException {
         // Replace occurrences of public holidays
         dateString = dateString.replaceAll("(,( )*)?(PH|SH)", "");
         dateString = dateString.trim();
@@ -0,0 +1,55 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntSet;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+
+/**
+ * Bidirectional A* on a partially contracted graph. The upward searches of CH lead into the core of uncontracted
+ * nodes, which is then searched like a normal graph with the help of a (landmark) approximation. Edges can be
+ * excluded from the search, but only if they connect two core nodes, because no shortcut must skip them, and if the
+ * witness searches of the contraction did not use them, see
+ * {@link com.graphhopper.routing.ch.PrepareContractionHierarchies#useBlockableCore()}.
+ *
+ * @see AStarBidirectionCH
+ */
+public class AStarBidirectionCore extends AStarBidirectionCH {
+    private final IntSet blockedEdges;
+
+    /**
+     * @param blockedEdges the original (or virtual) edge ids that must not be used by the path
+     */
+    public AStarBidirectionCore(RoutingCHGraph graph, IntSet blockedEdges) {
+        super(graph);
+        this.blockedEdges = blockedEdges;
+    }
+
+    @Override
+    protected boolean accept(RoutingCHEdgeIteratorState edge, SPTEntry currEdge, boolean reverse) {
+        if (!edge.isShortcut() && blockedEdges.contains(edge.getOrigEdge()))
+            return false;
+        return super.accept(edge, currEdge, reverse);
+    }
+
+    @Override
+    public String getName() {
+        return "astarbi|core";
+    }
+}
@@ -23,6 +23,7 @@ import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.storage.CHEdgeFilter;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
 import com.graphhopper.storage.RoutingCHEdgeIteratorState;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.EdgeExplorer;
@@ -37,6 +38,8 @@ import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 public abstract class AbstractBidirectionEdgeCHNoSOD extends AbstractBidirCHAlgo {
     private final EdgeExplorer innerInExplorer;
     private final EdgeExplorer innerOutExplorer;
+    private final RoutingCHEdgeExplorer allLevelsInEdgeExplorer;
+    private final RoutingCHEdgeExplorer allLevelsOutEdgeExplorer;
 
     public AbstractBidirectionEdgeCHNoSOD(RoutingCHGraph graph) {
         super(graph, TraversalMode.EDGE_BASED);
@@ -48,26 +51,35 @@ public abstract class AbstractBidirectionEdgeCHNoSOD extends AbstractBidirCHAlgo
         BooleanEncodedValue accessEnc = graph.getWeighting().getFlagEncoder().getAccessEnc();
         innerInExplorer = graph.getBaseGraph().createEdgeExplorer(DefaultEdgeFilter.inEdges(accessEnc));
         innerOutExplorer = graph.getBaseGraph().createEdgeExplorer(DefaultEdgeFilter.outEdges(accessEnc));
+        allLevelsInEdgeExplorer = graph.createAllLevelsInEdgeExplorer();
+        allLevelsOutEdgeExplorer = graph.createAllLevelsOutEdgeExplorer();
     }
 
     @Override
     protected void postInitFrom() {
         // We use the levelEdgeFilter to filter out edges leading or coming from lower rank nodes.
-        // For the first step though we need all edges, so we need to ignore this filter.
+        // For the first step though we need all edges, so we need to ignore this filter and also need to use an
+        // explorer that includes the edges leading to lower level nodes.
+        RoutingCHEdgeExplorer tmpExplorer = outEdgeExplorer;
+        outEdgeExplorer = allLevelsOutEdgeExplorer;
         if (fromOutEdge == ANY_EDGE) {
             fillEdgesFromUsingFilter(CHEdgeFilter.ALL_EDGES);
         } else {
             fillEdgesFromUsingFilter(edgeState -> edgeState.getOrigEdgeFirst() == fromOutEdge);
         }
+        outEdgeExplorer = tmpExplorer;
     }
 
     @Override
     protected void postInitTo() {
+        RoutingCHEdgeExplorer tmpExplorer = inEdgeExplorer;
+        inEdgeExplorer = allLevelsInEdgeExplorer;
         if (toInEdge == ANY_EDGE) {
             fillEdgesToUsingFilter(CHEdgeFilter.ALL_EDGES);
         } else {
             fillEdgesToUsingFilter(edgeState -> edgeState.getOrigEdgeLast() == toInEdge);
         }
+        inEdgeExplorer = tmpExplorer;
     }
 
     @Override
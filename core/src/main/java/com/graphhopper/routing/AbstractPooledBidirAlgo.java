@@ -0,0 +1,225 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.weighting.BalancedWeightApproximator;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * Common subclass for node-based bidirectional Dijkstra and A* algorithms that store their shortest path trees in a
+ * reusable {@link BidirSearchContext} instead of creating hash maps, priority queues and {@link SPTEntry}s for every
+ * search. Apart from this these algorithms work exactly like the {@link AbstractBidirAlgo}s: they explore the graph
+ * in the same order and find the same paths.
+ *
+ * @see PooledNonCHBidirAlgo
+ * @see PooledBidirCHAlgo
+ */
+public abstract class AbstractPooledBidirAlgo implements BidirRoutingAlgorithm {
+    protected int from;
+    protected int to;
+    protected BidirSearchContext.Tree fwdTree;
+    protected BidirSearchContext.Tree bwdTree;
+    protected int currFrom;
+    protected int currTo;
+    protected double currFromWeight;
+    protected double currToWeight;
+    protected int bestNode = -1;
+    protected double bestWeight = Double.MAX_VALUE;
+    protected boolean finishedFrom;
+    protected boolean finishedTo;
+    protected BalancedWeightApproximator weightApprox;
+    protected int maxVisitedNodes = Integer.MAX_VALUE;
+    int visitedCountFrom;
+    int visitedCountTo;
+    private boolean alreadyRun;
+
+    /**
+     * @return the number of nodes of the graph, i.e. the size of the arrays needed for the search
+     */
+    protected abstract int getNodes();
+
+    /**
+     * Relaxes all edges leaving (or entering if reverse is true) the given node using
+     * {@link #relax(int, int, int, double, boolean)}
+     */
+    protected abstract void explore(int node, boolean reverse);
+
+    protected abstract Path createPath(SPTEntry fwdEntry, SPTEntry bwdEntry, double weight);
+
+    protected abstract Path createEmptyPath();
+
+    protected abstract boolean finished();
+
+    @Override
+    public List<Path> calcPaths(int from, int to) {
+        return Collections.singletonList(calcPath(from, to));
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPath(from, to, ANY_EDGE, ANY_EDGE);
+    }
+
+    @Override
+    public Path calcPath(int from, int to, int fromOutEdge, int toInEdge) {
+        if (fromOutEdge != ANY_EDGE || toInEdge != ANY_EDGE)
+            throw new IllegalArgumentException("Restricting the start/target edges is only possible for edge-based graph traversal");
+        checkAlreadyRun();
+        BidirSearchContext context = BidirSearchContext.acquire(getNodes());
+        try {
+            fwdTree = context.fwd;
+            bwdTree = context.bwd;
+            init(from, to);
+            runAlgo();
+            return extractPath();
+        } finally {
+            context.release();
+        }
+    }
+
+    protected void init(int from, int to) {
+        this.from = from;
+        this.to = to;
+        if (weightApprox != null)
+            weightApprox.setFromTo(from, to);
+        currFrom = from;
+        currFromWeight = calcHeapWeight(from, 0, false);
+        fwdTree.set(from, 0, -1, EdgeIterator.NO_EDGE);
+        fwdTree.heap.push(from, currFromWeight);
+        currTo = to;
+        currToWeight = calcHeapWeight(to, 0, true);
+        bwdTree.set(to, 0, -1, EdgeIterator.NO_EDGE);
+        bwdTree.heap.push(to, currToWeight);
+        if (from == to) {
+            bestNode = to;
+            bestWeight = 0;
+        }
+        finishedFrom = !fillEdges(false);
+        finishedTo = !fillEdges(true);
+    }
+
+    protected void runAlgo() {
+        while (!finished() && !isMaxVisitedNodesExceeded()) {
+            if (!finishedFrom)
+                finishedFrom = !fillEdges(false);
+
+            if (!finishedTo)
+                finishedTo = !fillEdges(true);
+        }
+    }
+
+    private boolean fillEdges(boolean reverse) {
+        BidirSearchContext.Tree tree = reverse ? bwdTree : fwdTree;
+        if (tree.heap.isEmpty())
+            return false;
+        double weight = tree.heap.peekValue();
+        int node = tree.heap.poll();
+        if (reverse) {
+            currTo = node;
+            currToWeight = weight;
+            visitedCountTo++;
+        } else {
+            currFrom = node;
+            currFromWeight = weight;
+            visitedCountFrom++;
+        }
+        if (!nodeCanBeSkipped(node, reverse))
+            explore(node, reverse);
+        return true;
+    }
+
+    protected boolean nodeCanBeSkipped(int node, boolean reverse) {
+        return false;
+    }
+
+    /**
+     * Updates the shortest path tree of the search in the given direction if the node adjNode can be reached with a
+     * smaller weight via the given edge and checks if the forward and backward search meet at adjNode.
+     */
+    protected void relax(int node, int adjNode, int edge, double weight, boolean reverse) {
+        BidirSearchContext.Tree tree = reverse ? bwdTree : fwdTree;
+        if (!tree.contains(adjNode)) {
+            tree.set(adjNode, weight, node, edge);
+            tree.heap.push(adjNode, calcHeapWeight(adjNode, weight, reverse));
+        } else if (tree.getWeight(adjNode) > weight) {
+            tree.set(adjNode, weight, node, edge);
+            tree.heap.update(adjNode, calcHeapWeight(adjNode, weight, reverse));
+        } else
+            return;
+
+        BidirSearchContext.Tree otherTree = reverse ? fwdTree : bwdTree;
+        if (!otherTree.contains(adjNode))
+            return;
+        double pathWeight = weight + otherTree.getWeight(adjNode);
+        if (pathWeight < bestWeight) {
+            bestNode = adjNode;
+            bestWeight = pathWeight;
+        }
+    }
+
+    private double calcHeapWeight(int node, double weight, boolean reverse) {
+        return weightApprox == null ? weight : weight + weightApprox.approximate(node, reverse);
+    }
+
+    protected Path extractPath() {
+        if (!finished())
+            return createEmptyPath();
+        if (bestNode < 0)
+            return createPath(null, null, bestWeight);
+        return createPath(fwdTree.createEntry(bestNode), bwdTree.createEntry(bestNode), bestWeight);
+    }
+
+    /**
+     * Turns this algorithm into a bidirectional A* using the given approximation for the forward and backward search
+     */
+    public AbstractPooledBidirAlgo setApproximation(WeightApproximator approx) {
+        weightApprox = new BalancedWeightApproximator(approx);
+        return this;
+    }
+
+    public WeightApproximator getApproximation() {
+        return weightApprox == null ? null : weightApprox.getApproximation();
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedCountFrom + visitedCountTo;
+    }
+
+    @Override
+    public void setMaxVisitedNodes(int numberOfNodes) {
+        this.maxVisitedNodes = numberOfNodes;
+    }
+
+    protected boolean isMaxVisitedNodesExceeded() {
+        return maxVisitedNodes < getVisitedNodes();
+    }
+
+    protected void checkAlreadyRun() {
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per call");
+
+        alreadyRun = true;
+    }
+}
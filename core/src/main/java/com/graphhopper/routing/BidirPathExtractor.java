@@ -91,6 +91,7 @@ public class BidirPathExtractor {
     }
 
     protected void setExtractionTime(long nanos) {
+        path.setExtractionNanos(nanos);
         path.setDebugInfo("path extraction: " + nanos / 1000 + " μs");
     }
 
@@ -0,0 +1,136 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.DoubleMinHeapWithUpdate;
+
+import java.util.Arrays;
+
+/**
+ * The state of a node-based bidirectional search stored in primitive arrays that are indexed by node id. The arrays
+ * are sized to the graph and reused for every search that is run by the same thread, see {@link #acquire}. Resetting
+ * them costs O(1): every entry is tagged with the epoch of the search that wrote it and entries of older searches are
+ * simply ignored.
+ * <p>
+ * This needs about 50 bytes per node of the graph for every thread running a search, so it is only worth it if the
+ * allocation of the hash maps, queues and {@link SPTEntry}s of the other bidirectional algorithms becomes a problem.
+ *
+ * @see AbstractPooledBidirAlgo
+ */
+public class BidirSearchContext {
+    private static final ThreadLocal<BidirSearchContext> CONTEXTS = ThreadLocal.withInitial(BidirSearchContext::new);
+    final Tree fwd = new Tree();
+    final Tree bwd = new Tree();
+    private boolean inUse;
+
+    /**
+     * Returns the search context of the current thread reset for a search on a graph with the given number of nodes.
+     * If the context of the current thread is still in use, e.g. because a search is run while another one is not
+     * finished yet, a new context is returned. The context needs to be given back using {@link #release} when the
+     * search is finished.
+     */
+    static BidirSearchContext acquire(int nodes) {
+        BidirSearchContext context = CONTEXTS.get();
+        if (context.inUse)
+            context = new BidirSearchContext();
+        context.inUse = true;
+        context.fwd.reset(nodes);
+        context.bwd.reset(nodes);
+        return context;
+    }
+
+    void release() {
+        inUse = false;
+    }
+
+    /**
+     * The shortest path tree of one search direction
+     */
+    static class Tree {
+        private double[] weights = new double[0];
+        private int[] parents = new int[0];
+        private int[] edges = new int[0];
+        private int[] epochs = new int[0];
+        private int epoch;
+        final DoubleMinHeapWithUpdate heap = new DoubleMinHeapWithUpdate(0);
+
+        void reset(int nodes) {
+            heap.clear();
+            heap.ensureCapacity(nodes);
+            if (nodes > epochs.length) {
+                int capacity = Math.max(nodes, epochs.length + (epochs.length >> 1));
+                weights = new double[capacity];
+                parents = new int[capacity];
+                edges = new int[capacity];
+                epochs = new int[capacity];
+                epoch = 0;
+            }
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(epochs, 0);
+                epoch = 1;
+            }
+        }
+
+        boolean contains(int node) {
+            return epochs[node] == epoch;
+        }
+
+        /**
+         * @param parent the parent node in the shortest path tree or -1 for the root
+         * @param edge   the edge leading to this node or {@link com.graphhopper.util.EdgeIterator#NO_EDGE} for the root
+         */
+        void set(int node, double weight, int parent, int edge) {
+            epochs[node] = epoch;
+            weights[node] = weight;
+            parents[node] = parent;
+            edges[node] = edge;
+        }
+
+        /**
+         * @return the weight of the shortest path found so far from the root to the given node, or infinity if the
+         * node was not reached yet
+         */
+        double getWeight(int node) {
+            return contains(node) ? weights[node] : Double.POSITIVE_INFINITY;
+        }
+
+        int getParent(int node) {
+            return parents[node];
+        }
+
+        int getEdge(int node) {
+            return edges[node];
+        }
+
+        /**
+         * Builds the {@link SPTEntry} chain leading from the given node to the root, so that the existing path
+         * extractors can be used.
+         */
+        SPTEntry createEntry(int node) {
+            SPTEntry entry = new SPTEntry(edges[node], node, weights[node]);
+            SPTEntry curr = entry;
+            while (parents[curr.adjNode] >= 0) {
+                int parent = parents[curr.adjNode];
+                curr.parent = new SPTEntry(edges[parent], parent, weights[parent]);
+                curr = curr.parent;
+            }
+            return entry;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.graphhopper.routing.util.CustomModel;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.weighting.*;
+import com.graphhopper.routing.weighting.custom.AreaEdgesCache;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.GraphHopperStorage;
@@ -36,10 +37,20 @@ import static com.graphhopper.util.Helper.toLowerCase;
 public class DefaultWeightingFactory implements WeightingFactory {
     private final GraphHopperStorage ghStorage;
     private final EncodingManager encodingManager;
+    private final AreaEdgesCache areaEdgesCache;
 
     public DefaultWeightingFactory(GraphHopperStorage ghStorage, EncodingManager encodingManager) {
+        this(ghStorage, encodingManager, null);
+    }
+
+    /**
+     * @param areaEdgesCache the cache for the edges of custom model areas or null if the areas should be intersected
+     *                       with every edge
+     */
+    public DefaultWeightingFactory(GraphHopperStorage ghStorage, EncodingManager encodingManager, AreaEdgesCache areaEdgesCache) {
         this.ghStorage = ghStorage;
         this.encodingManager = encodingManager;
+        this.areaEdgesCache = areaEdgesCache;
     }
 
     @Override
@@ -76,7 +87,7 @@ public class DefaultWeightingFactory implements WeightingFactory {
             CustomProfile customProfile = (CustomProfile) profile;
             queryCustomModel = queryCustomModel == null ?
                     customProfile.getCustomModel() : CustomModel.merge(customProfile.getCustomModel(), queryCustomModel);
-            weighting = new CustomWeighting(encoder, encodingManager, turnCostProvider, queryCustomModel);
+            weighting = new CustomWeighting(encoder, encodingManager, turnCostProvider, queryCustomModel, areaEdgesCache);
         } else if ("shortest".equalsIgnoreCase(weightingStr)) {
             weighting = new ShortestWeighting(encoder, turnCostProvider);
         } else if ("fastest".equalsIgnoreCase(weightingStr)) {
@@ -0,0 +1,125 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.NodeBasedCHBidirPathExtractor;
+import com.graphhopper.storage.*;
+
+/**
+ * Node-based bidirectional CH Dijkstra, or A* if an approximation is set, using a pooled {@link BidirSearchContext}.
+ * Finds the same paths as {@link DijkstraBidirectionCH}, {@link DijkstraBidirectionCHNoSOD} and
+ * {@link AStarBidirectionCH}.
+ */
+public class PooledBidirCHAlgo extends AbstractPooledBidirAlgo {
+    private final RoutingCHGraph graph;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final CHEdgeFilter levelEdgeFilter;
+    private boolean stallOnDemand = true;
+
+    public PooledBidirCHAlgo(RoutingCHGraph graph) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("Edge-based CH is not supported by " + getClass().getSimpleName());
+        this.graph = graph;
+        inEdgeExplorer = graph.createInEdgeExplorer();
+        outEdgeExplorer = graph.createOutEdgeExplorer();
+        levelEdgeFilter = new AbstractBidirCHAlgo.CHLevelEdgeFilter(graph);
+    }
+
+    /**
+     * Enables or disables the stall-on-demand used by {@link DijkstraBidirectionCH}, enabled by default
+     */
+    public PooledBidirCHAlgo setStallOnDemand(boolean stallOnDemand) {
+        this.stallOnDemand = stallOnDemand;
+        return this;
+    }
+
+    @Override
+    protected int getNodes() {
+        return graph.getNodes();
+    }
+
+    @Override
+    protected boolean finished() {
+        // we need to finish BOTH searches for CH!
+        if (finishedFrom && finishedTo)
+            return true;
+
+        return currFromWeight >= bestWeight && currToWeight >= bestWeight;
+    }
+
+    @Override
+    protected boolean nodeCanBeSkipped(int node, boolean reverse) {
+        if (!stallOnDemand)
+            return false;
+        // see DijkstraBidirectionCH: the node is stallable if one of its neighbors proves that the node was reached
+        // via a suboptimal path
+        BidirSearchContext.Tree tree = reverse ? bwdTree : fwdTree;
+        int incEdge = tree.getEdge(node);
+        double nodeWeight = tree.getWeight(node);
+        RoutingCHEdgeIterator iter = (reverse ? outEdgeExplorer : inEdgeExplorer).setBaseNode(node);
+        while (iter.next()) {
+            if (iter.getEdge() == incEdge)
+                continue;
+            // we have to be careful because of rounded shortcut weights in combination with virtual via nodes, see #1574
+            final double precision = 0.001;
+            if (tree.contains(iter.getAdjNode())
+                    && tree.getWeight(iter.getAdjNode()) + iter.getWeight(!reverse) - nodeWeight < -precision)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void explore(int node, boolean reverse) {
+        BidirSearchContext.Tree tree = reverse ? bwdTree : fwdTree;
+        int incEdge = tree.getEdge(node);
+        double nodeWeight = tree.getWeight(node);
+        RoutingCHEdgeIterator iter = (reverse ? inEdgeExplorer : outEdgeExplorer).setBaseNode(node);
+        while (iter.next()) {
+            if (iter.getEdge() == incEdge || !levelEdgeFilter.accept(iter))
+                continue;
+            double weight = iter.getWeight(reverse) + nodeWeight;
+            if (Double.isInfinite(weight))
+                continue;
+            relax(node, iter.getAdjNode(), iter.getEdge(), weight, reverse);
+        }
+    }
+
+    @Override
+    protected Path createPath(SPTEntry fwdEntry, SPTEntry bwdEntry, double weight) {
+        return new NodeBasedCHBidirPathExtractor(graph).extract(fwdEntry, bwdEntry, weight);
+    }
+
+    @Override
+    protected Path createEmptyPath() {
+        return new Path(graph.getBaseGraph());
+    }
+
+    @Override
+    public String getName() {
+        if (weightApprox != null)
+            return "astarbi|ch";
+        return stallOnDemand ? "dijkstrabi|ch" : "dijkstrabi|ch|no_sod";
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + graph.getWeighting();
+    }
+}
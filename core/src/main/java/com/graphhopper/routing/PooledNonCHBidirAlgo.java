@@ -0,0 +1,107 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+
+/**
+ * Node-based bidirectional Dijkstra, or A* if an approximation is set, using a pooled {@link BidirSearchContext}.
+ * Finds the same paths as {@link DijkstraBidirectionRef} and {@link AStarBidirection} for node-based traversal.
+ */
+public class PooledNonCHBidirAlgo extends AbstractPooledBidirAlgo {
+    private final Graph graph;
+    private final Weighting weighting;
+    private final EdgeExplorer edgeExplorer;
+    private final EdgeFilter inEdgeFilter;
+    private final EdgeFilter outEdgeFilter;
+    private double stoppingCriterionOffset;
+
+    public PooledNonCHBidirAlgo(Graph graph, Weighting weighting) {
+        if (weighting.hasTurnCosts())
+            throw new IllegalStateException("Weightings supporting turn costs cannot be used with node-based traversal mode");
+        this.graph = graph;
+        this.weighting = weighting;
+        edgeExplorer = graph.createEdgeExplorer();
+        outEdgeFilter = DefaultEdgeFilter.outEdges(weighting.getFlagEncoder().getAccessEnc());
+        inEdgeFilter = DefaultEdgeFilter.inEdges(weighting.getFlagEncoder().getAccessEnc());
+    }
+
+    @Override
+    protected int getNodes() {
+        return graph.getNodes();
+    }
+
+    @Override
+    protected void init(int from, int to) {
+        super.init(from, to);
+        stoppingCriterionOffset = weightApprox == null ? 0 : weightApprox.approximate(to, true) + weightApprox.getSlack();
+    }
+
+    @Override
+    protected boolean finished() {
+        if (finishedFrom || finishedTo)
+            return true;
+
+        return currFromWeight + currToWeight >= bestWeight + stoppingCriterionOffset;
+    }
+
+    @Override
+    protected void explore(int node, boolean reverse) {
+        BidirSearchContext.Tree tree = reverse ? bwdTree : fwdTree;
+        int incEdge = tree.getEdge(node);
+        double nodeWeight = tree.getWeight(node);
+        EdgeFilter accessFilter = reverse ? inEdgeFilter : outEdgeFilter;
+        EdgeIterator iter = edgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            // we exclude u-turns for node-based traversal already here
+            if (iter.getEdge() == incEdge || !accessFilter.accept(iter))
+                continue;
+            double weight = GHUtility.calcWeightWithTurnWeight(weighting, iter, reverse, incEdge) + nodeWeight;
+            if (Double.isInfinite(weight))
+                continue;
+            relax(node, iter.getAdjNode(), iter.getEdge(), weight, reverse);
+        }
+    }
+
+    @Override
+    protected Path createPath(SPTEntry fwdEntry, SPTEntry bwdEntry, double weight) {
+        return new BidirPathExtractor(graph, weighting).extract(fwdEntry, bwdEntry, weight);
+    }
+
+    @Override
+    protected Path createEmptyPath() {
+        return new Path(graph);
+    }
+
+    @Override
+    public String getName() {
+        return weightApprox == null ? Parameters.Algorithms.DIJKSTRA_BI : Parameters.Algorithms.ASTAR_BI + "|" + weightApprox;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + weighting;
+    }
+}
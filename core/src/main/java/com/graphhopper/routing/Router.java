@@ -19,25 +19,37 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.GHMatrixRequest;
+import com.graphhopper.GHMatrixResponse;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.config.Profile;
+import com.graphhopper.routing.cch.CCHMetricCache;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.lm.CoreRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.routing.matrix.CHMatrixCalculator;
+import com.graphhopper.routing.matrix.DistanceMatrix;
+import com.graphhopper.routing.matrix.FlexibleMatrixCalculator;
+import com.graphhopper.routing.matrix.MatrixCalculator;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CustomModel;
 import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
 import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.exceptions.PointOutOfBoundsException;
@@ -45,10 +57,12 @@ import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
 import static com.graphhopper.util.Parameters.Algorithms.ALT_ROUTE;
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
 import static com.graphhopper.util.Parameters.Algorithms.ROUND_TRIP;
 import static com.graphhopper.util.Parameters.Routing.*;
 
@@ -65,13 +79,18 @@ public class Router {
     // like a 'graph database'
     private final Map<String, RoutingCHGraph> chGraphs;
     private final Map<String, LandmarkStorage> landmarks;
+    private final CCHMetricCache cchMetricCache;
+    private final Map<String, RoutingCHGraph> coreGraphs;
+    private final ExecutorService legExecutor;
+    private final RoutingMetrics routingMetrics;
     private final boolean chEnabled;
     private final boolean lmEnabled;
 
     public Router(GraphHopperStorage ghStorage, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
                   TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
-                  Map<String, CHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+                  Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks, CCHMetricCache cchMetricCache,
+                  Map<String, RoutingCHGraph> coreGraphs, ExecutorService legExecutor, RoutingMetrics routingMetrics) {
         this.ghStorage = ghStorage;
         this.encodingManager = ghStorage.getEncodingManager();
         this.locationIndex = locationIndex;
@@ -80,11 +99,12 @@ public class Router {
         this.translationMap = translationMap;
         this.routerConfig = routerConfig;
         this.weightingFactory = weightingFactory;
-        this.chGraphs = new LinkedHashMap<>(chGraphs.size());
-        for (Map.Entry<String, CHGraph> e : chGraphs.entrySet()) {
-            this.chGraphs.put(e.getKey(), new RoutingCHGraphImpl(e.getValue()));
-        }
+        this.chGraphs = chGraphs;
         this.landmarks = landmarks;
+        this.cchMetricCache = cchMetricCache;
+        this.coreGraphs = coreGraphs;
+        this.legExecutor = legExecutor;
+        this.routingMetrics = routingMetrics;
         // note that his is not the same as !ghStorage.getCHConfigs().isEmpty(), because the GHStorage might have some
         // CHGraphs that were not built yet (and possibly no CH profiles were configured).
         this.chEnabled = !chGraphs.isEmpty();
@@ -115,7 +135,9 @@ public class Router {
             if (maxVisitedNodesForRequest > routerConfig.getMaxVisitedNodes())
                 throw new IllegalArgumentException("The max_visited_nodes parameter has to be below or equal to:" + routerConfig.getMaxVisitedNodes());
 
+            final boolean useCCH = useCCH(request, profile, disableCH);
             Weighting weighting = createWeighting(profile, request.getHints(), request.getPoints(), disableCH);
+            final boolean useCore = useCore(request, profile, weighting, disableCH, disableLM);
             AlgorithmOptions algoOpts = AlgorithmOptions.start().
                     algorithm(request.getAlgorithm()).
                     traversalMode(traversalMode).
@@ -127,9 +149,9 @@ public class Router {
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
                 return routeRoundTrip(request, algoOpts, weighting, profile, disableLM);
             } else if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())) {
-                return routeAlt(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM);
+                return routeAlt(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM, useCCH, useCore);
             } else {
-                return routeVia(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM);
+                return routeVia(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM, useCCH, useCore);
             }
         } catch (MultiplePointsNotFoundException ex) {
             GHResponse ghRsp = new GHResponse();
@@ -144,13 +166,108 @@ public class Router {
         }
     }
 
+    /**
+     * Calculates the weights, times and distances between all pairs of from and to points of the given request. For
+     * CH profiles this uses {@link CHMatrixCalculator}, otherwise one Dijkstra search per from point.
+     */
+    public GHMatrixResponse matrix(GHMatrixRequest request) {
+        GHMatrixResponse ghRsp = new GHMatrixResponse();
+        try {
+            validateMatrixRequest(request);
+            final boolean disableCH = getDisableCH(request.getHints());
+            Profile profile = profilesByName.get(request.getProfile());
+            if (profile == null)
+                throw new IllegalArgumentException("The requested profile '" + request.getProfile() + "' does not exist.\nAvailable profiles: " + profilesByName.keySet());
+            final boolean useCH = chEnabled && !disableCH;
+            if (useCH && profile.isTurnCosts())
+                throw new IllegalArgumentException("Matrix requests for profiles with turn costs are not supported for speed mode, you need to disable speed mode with `ch.disable=true`");
+            TraversalMode traversalMode = profile.isTurnCosts() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED;
+            int maxVisitedNodesForRequest = request.getHints().getInt(Parameters.Routing.MAX_VISITED_NODES, routerConfig.getMaxVisitedNodes());
+            if (maxVisitedNodesForRequest > routerConfig.getMaxVisitedNodes())
+                throw new IllegalArgumentException("The max_visited_nodes parameter has to be below or equal to:" + routerConfig.getMaxVisitedNodes());
+
+            List<GHPoint> fromPoints = request.getFromPoints();
+            List<GHPoint> toPoints = request.getToPoints();
+            List<GHPoint> points = new ArrayList<>(fromPoints.size() + toPoints.size());
+            points.addAll(fromPoints);
+            points.addAll(toPoints);
+            List<String> pointHints = new ArrayList<>();
+            if (!request.getFromPointHints().isEmpty() || !request.getToPointHints().isEmpty()) {
+                pointHints.addAll(request.getFromPointHints().isEmpty() ? Collections.nCopies(fromPoints.size(), "") : request.getFromPointHints());
+                pointHints.addAll(request.getToPointHints().isEmpty() ? Collections.nCopies(toPoints.size(), "") : request.getToPointHints());
+            }
+
+            Weighting weighting = createWeighting(profile, request.getHints(), points, disableCH);
+            StopWatch sw = new StopWatch().start();
+            List<Snap> snaps = ViaRouting.snap(encodingManager, points, weighting, locationIndex, request.getSnapPreventions(), pointHints);
+            List<Snap> validSnaps = new ArrayList<>(snaps.size());
+            for (int i = 0; i < snaps.size(); i++) {
+                Snap snap = snaps.get(i);
+                if (snap.isValid()) {
+                    validSnaps.add(snap);
+                } else if (request.isFailFast()) {
+                    ghRsp.addError(i < fromPoints.size()
+                            ? new PointNotFoundException("Cannot find from_points: " + i, i)
+                            : new PointNotFoundException("Cannot find to_points: " + (i - fromPoints.size()), i - fromPoints.size()));
+                } else if (i < fromPoints.size()) {
+                    ghRsp.addInvalidFromPoint(i);
+                } else {
+                    ghRsp.addInvalidToPoint(i - fromPoints.size());
+                }
+            }
+            if (ghRsp.hasErrors())
+                return ghRsp;
+            // the query graph changes the closest nodes of the snaps to virtual nodes where necessary
+            QueryGraph queryGraph = QueryGraph.create(ghStorage, validSnaps);
+            int[] fromNodes = new int[fromPoints.size()];
+            int[] toNodes = new int[toPoints.size()];
+            for (int i = 0; i < snaps.size(); i++) {
+                int node = snaps.get(i).isValid() ? snaps.get(i).getClosestNode() : -1;
+                if (i < fromNodes.length)
+                    fromNodes[i] = node;
+                else
+                    toNodes[i - fromNodes.length] = node;
+            }
+            ghRsp.getHints().putObject("took.lookup", sw.stop().getMillis());
+
+            sw = new StopWatch().start();
+            MatrixCalculator matrixCalculator = useCH
+                    ? new CHMatrixCalculator(new QueryRoutingCHGraph(getRoutingCHGraph(profile.getName()), queryGraph))
+                    : new FlexibleMatrixCalculator(queryGraph, weighting, traversalMode).setMaxVisitedNodes(maxVisitedNodesForRequest);
+            DistanceMatrix matrix = matrixCalculator.calcMatrix(fromNodes, toNodes);
+            ghRsp.getHints().putObject("took.matrix", sw.stop().getMillis());
+            ghRsp.getHints().putObject("visited_nodes.sum", matrixCalculator.getVisitedNodes());
+
+            for (int fromIndex = 0; fromIndex < fromNodes.length; fromIndex++) {
+                for (int toIndex = 0; toIndex < toNodes.length; toIndex++) {
+                    if (fromNodes[fromIndex] < 0 || toNodes[toIndex] < 0 || matrix.isConnected(fromIndex, toIndex))
+                        continue;
+                    if (request.isFailFast()) {
+                        Map<String, Object> details = new HashMap<>(2);
+                        details.put("from", fromIndex);
+                        details.put("to", toIndex);
+                        throw new ConnectionNotFoundException("Connection between locations not found: from_points " + fromIndex + " and to_points " + toIndex, details);
+                    }
+                    ghRsp.addDisconnectedPair(fromIndex, toIndex);
+                }
+            }
+            ghRsp.setWeights(matrix.getWeights()).setTimes(matrix.getTimes()).setDistances(matrix.getDistances());
+            return ghRsp;
+        } catch (IllegalArgumentException ex) {
+            ghRsp.addError(ex);
+            return ghRsp;
+        }
+    }
+
     protected GHResponse routeRoundTrip(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean disableLM) {
         GHResponse ghRsp = new GHResponse();
+        long start = System.nanoTime();
         StopWatch sw = new StopWatch().start();
         double startHeading = request.getHeadings().isEmpty() ? Double.NaN : request.getHeadings().get(0);
         RoundTripRouting.Params params = new RoundTripRouting.Params(request.getHints(), startHeading, routerConfig.getMaxRoundTripRetries());
         List<Snap> qResults = RoundTripRouting.lookup(request.getPoints(), weighting, locationIndex, params);
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        long snapped = System.nanoTime();
 
         // use A* for round trips
         AlgorithmOptions roundTripAlgoOpts = AlgorithmOptions
@@ -159,26 +276,32 @@ public class Router {
                 .build();
         roundTripAlgoOpts.getHints().putObject(Parameters.Algorithms.AStarBi.EPSILON, 2);
         QueryGraph queryGraph = QueryGraph.create(ghStorage, qResults);
+        long queryGraphCreated = System.nanoTime();
         FlexiblePathCalculator pathCalculator = createFlexiblePathCalculator(queryGraph, profile, roundTripAlgoOpts, disableLM);
 
         RoundTripRouting.Result result = RoundTripRouting.calcPaths(qResults, pathCalculator);
+        long routed = System.nanoTime();
         // we merge the different legs of the roundtrip into one response path
         ResponsePath responsePath = concatenatePaths(request, weighting, queryGraph, result.paths, getWaypoints(qResults));
         ghRsp.add(responsePath);
+        recordStages(profile, start, snapped, queryGraphCreated, routed - queryGraphCreated, routed, result.paths, result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (qResults.size() - 1));
         return ghRsp;
     }
 
-    protected GHResponse routeAlt(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM) {
+    protected GHResponse routeAlt(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM, boolean useCCH, boolean useCore) {
         if (request.getPoints().size() > 2)
             throw new IllegalArgumentException("Currently alternative routes work only with start and end point. You tried to use: " + request.getPoints().size() + " points");
         GHResponse ghRsp = new GHResponse();
+        long start = System.nanoTime();
         StopWatch sw = new StopWatch().start();
         List<Snap> qResults = ViaRouting.lookup(encodingManager, request.getPoints(), weighting, locationIndex, request.getSnapPreventions(), request.getPointHints());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        long snapped = System.nanoTime();
         QueryGraph queryGraph = QueryGraph.create(ghStorage, qResults);
-        PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM);
+        long queryGraphCreated = System.nanoTime();
+        PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM, useCCH, useCore);
 
         if (passThrough)
             throw new IllegalArgumentException("Alternative paths and " + PASS_THROUGH + " at the same time is currently not supported");
@@ -188,6 +311,7 @@ public class Router {
         ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, qResults, weighting.getFlagEncoder().getAccessEnc(), pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
         if (result.paths.isEmpty())
             throw new RuntimeException("Empty paths for alternative route calculation not expected");
+        long routed = System.nanoTime();
 
         // each path represents a different alternative and we do the path merging for each of them
         PathMerger pathMerger = createPathMerger(request, weighting, queryGraph);
@@ -196,34 +320,65 @@ public class Router {
             ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
             ghRsp.add(responsePath);
         }
+        recordStages(profile, start, snapped, queryGraphCreated, result.legNanos, routed, result.paths, result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (qResults.size() - 1));
         return ghRsp;
     }
 
-    protected GHResponse routeVia(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM) {
+    protected GHResponse routeVia(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM, boolean useCCH, boolean useCore) {
         GHResponse ghRsp = new GHResponse();
+        long start = System.nanoTime();
         StopWatch sw = new StopWatch().start();
         List<Snap> qResults = ViaRouting.lookup(encodingManager, request.getPoints(), weighting, locationIndex, request.getSnapPreventions(), request.getPointHints());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        long snapped = System.nanoTime();
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
         QueryGraph queryGraph = QueryGraph.create(ghStorage, qResults);
-        PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM);
-        ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, qResults, weighting.getFlagEncoder().getAccessEnc(), pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        long queryGraphCreated = System.nanoTime();
+        ViaRouting.Result result = legExecutor == null
+                ? ViaRouting.calcPaths(request.getPoints(), queryGraph, qResults, weighting.getFlagEncoder().getAccessEnc(),
+                createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM, useCCH, useCore), request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough)
+                : ViaRouting.calcPathsConcurrently(request.getPoints(), queryGraph, qResults, weighting.getFlagEncoder().getAccessEnc(),
+                () -> createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM, useCCH, useCore), legExecutor,
+                request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
+        long routed = System.nanoTime();
 
         // here each path represents one leg of the via-route and we merge them all together into one response path
         ResponsePath responsePath = concatenatePaths(request, weighting, queryGraph, result.paths, getWaypoints(qResults));
         responsePath.addDebugInfo(result.debug);
         ghRsp.add(responsePath);
+        recordStages(profile, start, snapped, queryGraphCreated, result.legNanos, routed, result.paths, result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (qResults.size() - 1));
         return ghRsp;
     }
 
+    /**
+     * Passes the durations of the stages of a route request to the {@link RoutingMetrics}. The path merging ends now.
+     *
+     * @param legNanos the summed durations of the path calculations of the legs including the path extraction. With
+     *                 concurrent legs this is not the time between the creation of the query graph and routed
+     */
+    private void recordStages(Profile profile, long start, long snapped, long queryGraphCreated, long legNanos, long routed, List<Path> paths, long visitedNodes) {
+        long merged = System.nanoTime();
+        long extractionNanos = 0;
+        for (int i = 0; i < paths.size(); i++)
+            extractionNanos += paths.get(i).getExtractionNanos();
+        String name = profile.getName();
+        routingMetrics.recordStage(name, RoutingMetrics.Stage.SNAP, snapped - start);
+        routingMetrics.recordStage(name, RoutingMetrics.Stage.QUERY_GRAPH, queryGraphCreated - snapped);
+        // like the extraction times these are summed over the legs, so both stay meaningful for concurrent legs
+        routingMetrics.recordStage(name, RoutingMetrics.Stage.ROUTING, Math.max(0, legNanos - extractionNanos));
+        routingMetrics.recordStage(name, RoutingMetrics.Stage.PATH_EXTRACTION, extractionNanos);
+        routingMetrics.recordStage(name, RoutingMetrics.Stage.PATH_MERGING, merged - routed);
+        routingMetrics.recordVisitedNodes(name, visitedNodes);
+    }
+
     private Weighting createWeighting(Profile profile, PMap requestHints, List<GHPoint> points, boolean disableCH) {
         if (chEnabled && !disableCH) {
             // todo: do not allow things like short_fastest.distance_factor or u_turn_costs unless CH is disabled
@@ -245,19 +400,66 @@ public class Router {
         }
     }
 
-    private PathCalculator createPathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, boolean disableCH, boolean disableLM) {
-        if (chEnabled && !disableCH) {
+    private PathCalculator createPathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, boolean disableCH, boolean disableLM, boolean useCCH, boolean useCore) {
+        if ((chEnabled && !disableCH) || useCCH || useCore) {
             PMap opts = new PMap(algoOpts.getHints());
             opts.putObject(ALGORITHM, algoOpts.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, algoOpts.getMaxVisitedNodes());
-            return createCHPathCalculator(queryGraph, profile, opts);
+            if (useCore)
+                return createCorePathCalculator(queryGraph, profile, algoOpts, opts);
+            return useCCH
+                    ? createCCHPathCalculator(queryGraph, profile, algoOpts, opts)
+                    : createCHPathCalculator(queryGraph, profile, opts);
         } else {
             return createFlexiblePathCalculator(queryGraph, profile, algoOpts, disableLM);
         }
     }
 
     private PathCalculator createCHPathCalculator(QueryGraph queryGraph, Profile profile, PMap opts) {
-        return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
+        return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph)
+                .setPooledSearchContext(routerConfig.isPooledSearchContext()), opts);
+    }
+
+    private PathCalculator createCCHPathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, PMap opts) {
+        String key = CCHMetricCache.createKey(profile.getName(), algoOpts.getHints().getObject(CustomModel.KEY, null));
+        return new CHPathCalculator(new CHRoutingAlgorithmFactory(cchMetricCache.getRoutingCHGraph(key, algoOpts.getWeighting()), queryGraph)
+                .setPooledSearchContext(routerConfig.isPooledSearchContext()), opts);
+    }
+
+    private PathCalculator createCorePathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, PMap opts) {
+        GraphEdgeIdFinder.BlockArea blockArea = ((BlockAreaWeighting) algoOpts.getWeighting()).getBlockArea();
+        return new CHPathCalculator(new CoreRoutingAlgorithmFactory(coreGraphs.get(profile.getName()), queryGraph,
+                landmarks.get(profile.getName()), blockArea).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount()), opts);
+    }
+
+    /**
+     * Requests with a block area can be routed on the core of a partially contracted graph with landmarks instead of
+     * LM or Dijkstra if CH is not used and all blocked edges lie in the core, see {@link CoreRoutingAlgorithmFactory}.
+     * Like for CH the weighting of the preparation is used, so requests with their own custom model are excluded.
+     */
+    private boolean useCore(GHRequest request, Profile profile, Weighting weighting, boolean disableCH, boolean disableLM) {
+        RoutingCHGraph coreGraph = coreGraphs.get(profile.getName());
+        return coreGraph != null && (!chEnabled || disableCH) && !disableLM
+                && landmarks.containsKey(profile.getName()) && weighting instanceof BlockAreaWeighting
+                && !request.getHints().getBool(Parameters.Core.DISABLE, false)
+                && !request.getHints().has(CustomModel.KEY)
+                && (Helper.isEmpty(request.getAlgorithm()) || ASTAR_BI.equalsIgnoreCase(request.getAlgorithm()))
+                && request.getHeadings().isEmpty() && request.getCurbsides().isEmpty()
+                && !getPassThrough(request.getHints())
+                && CoreRoutingAlgorithmFactory.isBlockedInCore(coreGraph, ((BlockAreaWeighting) weighting).getBlockArea());
+    }
+
+    /**
+     * Custom profiles can be routed with customizable contraction hierarchies if CH is not used, but only for the
+     * features the node-based CH algorithms support.
+     */
+    private boolean useCCH(GHRequest request, Profile profile, boolean disableCH) {
+        return cchMetricCache != null && (!chEnabled || disableCH)
+                && profile instanceof CustomProfile && !profile.isTurnCosts()
+                && !request.getHints().getBool(Parameters.CCH.DISABLE, false)
+                && !ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())
+                && request.getHeadings().isEmpty() && request.getCurbsides().isEmpty()
+                && !getPassThrough(request.getHints()) && !request.getHints().has(Parameters.Routing.BLOCK_AREA);
     }
 
     private FlexiblePathCalculator createFlexiblePathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, boolean disableLM) {
@@ -269,9 +471,10 @@ public class Router {
                 throw new IllegalArgumentException("Cannot find LM preparation for the requested profile: '" + profile.getName() + "'" +
                         "\nYou can try disabling LM using " + Parameters.Landmark.DISABLE + "=true" +
                         "\navailable LM profiles: " + landmarks.keySet());
-            algorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
+            algorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount())
+                    .setPooledSearchContext(routerConfig.isPooledSearchContext());
         } else {
-            algorithmFactory = new RoutingAlgorithmFactorySimple();
+            algorithmFactory = new RoutingAlgorithmFactorySimple().setPooledSearchContext(routerConfig.isPooledSearchContext());
         }
         return new FlexiblePathCalculator(queryGraph, algorithmFactory, algoOpts);
     }
@@ -370,6 +573,37 @@ public class Router {
         }
     }
 
+    protected void validateMatrixRequest(GHMatrixRequest request) {
+        if (Helper.isEmpty(request.getProfile()))
+            throw new IllegalArgumentException("You need to specify a profile to perform a matrix request, see docs/core/profiles.md");
+        if (request.getHints().has("vehicle") && !Helper.isEmpty(request.getHints().getString("vehicle", "")))
+            throw new IllegalArgumentException("GHMatrixRequest may not contain a vehicle, use the profile parameter instead, see docs/core/profiles.md");
+        if (request.getHints().has("weighting"))
+            throw new IllegalArgumentException("GHMatrixRequest may not contain a weighting, use the profile parameter instead, see docs/core/profiles.md");
+
+        if (request.getFromPoints().isEmpty())
+            throw new IllegalArgumentException("You have to pass at least one from point");
+        if (request.getToPoints().isEmpty())
+            throw new IllegalArgumentException("You have to pass at least one to point");
+        checkIfPointsAreInBounds(request.getFromPoints());
+        checkIfPointsAreInBounds(request.getToPoints());
+
+        if (request.getFromPointHints().size() > 0 && request.getFromPointHints().size() != request.getFromPoints().size())
+            throw new IllegalArgumentException("If you pass from_point_hints, you need to pass exactly one hint for every from point, empty hints will be ignored");
+        if (request.getToPointHints().size() > 0 && request.getToPointHints().size() != request.getToPoints().size())
+            throw new IllegalArgumentException("If you pass to_point_hints, you need to pass exactly one hint for every to point, empty hints will be ignored");
+        for (String outArray : request.getOutArrays()) {
+            if (!"weights".equals(outArray) && !"times".equals(outArray) && !"distances".equals(outArray))
+                throw new IllegalArgumentException("Unknown out_arrays value '" + outArray + "', possible values are: weights, times, distances");
+        }
+
+        boolean disableCH = getDisableCH(request.getHints());
+        if (chEnabled && !routerConfig.isCHDisablingAllowed() && disableCH)
+            throw new IllegalArgumentException("Disabling CH not allowed on the server-side");
+        if (chEnabled && !disableCH && request.getHints().has(Parameters.Routing.BLOCK_AREA))
+            throw new IllegalArgumentException("When CH is enabled the " + Parameters.Routing.BLOCK_AREA + " cannot be specified");
+    }
+
     private List<String> getTurnCostProfiles() {
         List<String> turnCostProfiles = new ArrayList<>();
         for (Profile p : profilesByName.values()) {
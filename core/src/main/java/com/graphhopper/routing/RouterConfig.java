@@ -31,6 +31,8 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private boolean pooledSearchContext = false;
+    private int legThreads = 1;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -114,4 +116,30 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public boolean isPooledSearchContext() {
+        return pooledSearchContext;
+    }
+
+    /**
+     * This method enables the reuse of the search state of the node-based bidirectional algorithms per thread. This
+     * avoids most of the allocations per request, but every thread keeps arrays sized to the graph.
+     */
+    public void setPooledSearchContext(boolean pooledSearchContext) {
+        this.pooledSearchContext = pooledSearchContext;
+    }
+
+    public int getLegThreads() {
+        return legThreads;
+    }
+
+    /**
+     * This method sets the number of threads that are shared by all requests to calculate the legs of via routes
+     * concurrently. With the default of one thread the legs are calculated sequentially on the request thread.
+     */
+    public void setLegThreads(int legThreads) {
+        if (legThreads < 1)
+            throw new IllegalArgumentException("routing.leg_threads must be at least 1 but was " + legThreads);
+        this.legThreads = legThreads;
+    }
 }
@@ -37,21 +37,40 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
  * @author Peter Karich
  */
 public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
+    private boolean pooledSearchContext;
+
+    /**
+     * If enabled the node-based bidirectional algorithms reuse the search context of the current thread, see
+     * {@link BidirSearchContext}
+     */
+    public RoutingAlgorithmFactorySimple setPooledSearchContext(boolean pooledSearchContext) {
+        this.pooledSearchContext = pooledSearchContext;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
         Weighting weighting = g.wrapWeighting(opts.getWeighting());
+        boolean pooled = pooledSearchContext && !opts.getTraversalMode().isEdgeBased();
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            ra = pooled
+                    ? new PooledNonCHBidirAlgo(g, weighting)
+                    : new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
             ra = new Dijkstra(g, weighting, opts.getTraversalMode());
 
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
-            AStarBidirection aStarBi = new AStarBidirection(g, weighting,
-                    opts.getTraversalMode());
-            aStarBi.setApproximation(getApproximation(ASTAR_BI, opts.getHints(), weighting, g.getNodeAccess()));
-            ra = aStarBi;
+            WeightApproximator approx = getApproximation(ASTAR_BI, opts.getHints(), weighting, g.getNodeAccess());
+            if (pooled) {
+                ra = new PooledNonCHBidirAlgo(g, weighting).setApproximation(approx);
+            } else {
+                AStarBidirection aStarBi = new AStarBidirection(g, weighting,
+                        opts.getTraversalMode());
+                aStarBi.setApproximation(approx);
+                ra = aStarBi;
+            }
 
         } else if (DIJKSTRA_ONE_TO_MANY.equalsIgnoreCase(algoStr)) {
             ra = new DijkstraOneToMany(g, weighting, opts.getTraversalMode());
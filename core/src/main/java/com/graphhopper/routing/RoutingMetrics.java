@@ -0,0 +1,60 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+/**
+ * Receives the durations of the stages of every routing request, e.g. to expose them as histograms per profile. The
+ * methods are called on the hot path and implementations should neither block nor allocate.
+ */
+public interface RoutingMetrics {
+    RoutingMetrics NOOP = new RoutingMetrics() {
+        @Override
+        public void recordStage(String profile, Stage stage, long nanos) {
+        }
+
+        @Override
+        public void recordVisitedNodes(String profile, long visitedNodes) {
+        }
+    };
+
+    enum Stage {
+        /**
+         * finding the closest edges for the request points
+         */
+        SNAP,
+        QUERY_GRAPH,
+        /**
+         * running the routing algorithms without the path extraction. Like the path extraction this is summed over
+         * the legs, so it can be longer than the request if the legs were calculated concurrently
+         */
+        ROUTING,
+        PATH_EXTRACTION,
+        /**
+         * merging the paths including the instructions and path details
+         */
+        PATH_MERGING,
+        /**
+         * creating the response, e.g. the JSON of the web service
+         */
+        SERIALIZATION
+    }
+
+    void recordStage(String profile, Stage stage, long nanos);
+
+    void recordVisitedNodes(String profile, long visitedNodes);
+}
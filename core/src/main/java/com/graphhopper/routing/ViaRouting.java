@@ -31,7 +31,13 @@ import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -54,33 +60,58 @@ public class ViaRouting {
         if (points.size() < 2)
             throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + points.size());
 
+        List<Snap> snaps = snap(lookup, points, weighting, locationIndex, snapPreventions, pointHints);
+        IntArrayList pointsNotFound = new IntArrayList();
+        for (int placeIndex = 0; placeIndex < snaps.size(); placeIndex++) {
+            if (!snaps.get(placeIndex).isValid())
+                pointsNotFound.add(placeIndex);
+        }
+
+        if (!pointsNotFound.isEmpty())
+            throw new MultiplePointsNotFoundException(pointsNotFound);
+
+        return snaps;
+    }
+
+    /**
+     * Like {@link #lookup} but does not fail if some of the points cannot be found, the corresponding snaps are
+     * invalid instead.
+     */
+    public static List<Snap> snap(EncodedValueLookup lookup, List<GHPoint> points, Weighting weighting, LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints) {
         final EnumEncodedValue<RoadClass> roadClassEnc = lookup.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
         final EnumEncodedValue<RoadEnvironment> roadEnvEnc = lookup.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
         EdgeFilter edgeFilter = createEdgeFilter(weighting);
         EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
                 ? edgeFilter
                 : new SnapPreventionEdgeFilter(edgeFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+        if (pointHints.isEmpty()) {
+            // without point hints all points use the same filter and we can snap them together
+            double[] lats = new double[points.size()];
+            double[] lons = new double[points.size()];
+            for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
+                lats[placeIndex] = points.get(placeIndex).lat;
+                lons[placeIndex] = points.get(placeIndex).lon;
+            }
+            List<Snap> snaps = new ArrayList<>(locationIndex.findClosestBatch(lats, lons, strictEdgeFilter));
+            if (strictEdgeFilter != edgeFilter) {
+                for (int placeIndex = 0; placeIndex < snaps.size(); placeIndex++) {
+                    if (!snaps.get(placeIndex).isValid())
+                        snaps.set(placeIndex, locationIndex.findClosest(lats[placeIndex], lons[placeIndex], edgeFilter));
+                }
+            }
+            return snaps;
+        }
+
         List<Snap> snaps = new ArrayList<>(points.size());
-        IntArrayList pointsNotFound = new IntArrayList();
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
             GHPoint point = points.get(placeIndex);
-            Snap snap = null;
-            if (!pointHints.isEmpty())
-                snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
-                        pointHints.get(placeIndex), point, 100));
-            else if (!snapPreventions.isEmpty())
-                snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
-            if (snap == null || !snap.isValid())
-                snap = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            Snap snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
+                    pointHints.get(placeIndex), point, 100));
             if (!snap.isValid())
-                pointsNotFound.add(placeIndex);
+                snap = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
 
             snaps.add(snap);
         }
-
-        if (!pointsNotFound.isEmpty())
-            throw new MultiplePointsNotFoundException(pointsNotFound);
-
         return snaps;
     }
 
@@ -91,25 +122,11 @@ public class ViaRouting {
     }
 
     public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, BooleanEncodedValue accessEnc, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
-        if (!curbsides.isEmpty() && curbsides.size() != points.size())
-            throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
-        if (!curbsides.isEmpty() && !headings.isEmpty())
-            throw new IllegalArgumentException("You cannot use curbsides and headings or pass_through at the same time");
+        checkCurbsidesAndHeadings(points, curbsides, headings);
 
         final int legs = snaps.size() - 1;
         Result result = new Result(legs);
         for (int leg = 0; leg < legs; ++leg) {
-            Snap fromSnap = snaps.get(leg);
-            Snap toSnap = snaps.get(leg + 1);
-
-            // enforce headings
-            // at via-nodes and the target node the heading parameter is interpreted as the direction we want
-            // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
-            // all for these points (unless using pass through). see this forum discussion:
-            // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
-            double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
-            double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
-
             // enforce pass-through
             int incomingEdge = NO_EDGE;
             if (leg != 0) {
@@ -118,44 +135,163 @@ public class ViaRouting {
                 if (prevRoute.getEdgeCount() > 0)
                     incomingEdge = prevRoute.getFinalEdge().getEdge();
             }
+            EdgeRestrictions edgeRestrictions = buildLegEdgeRestrictions(leg, queryGraph, snaps, accessEnc, curbsides,
+                    forceCurbsides, headings, incomingEdge, passThrough);
 
-            // enforce curbsides
-            final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
-            final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+            // calculate paths
+            long legStart = System.nanoTime();
+            List<Path> paths = pathCalculator.calcPaths(snaps.get(leg).getClosestNode(), snaps.get(leg + 1).getClosestNode(), edgeRestrictions);
+            addLeg(result, paths, pathCalculator, System.nanoTime() - legStart);
+        }
 
-            EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
-                    fromHeading, toHeading, incomingEdge, passThrough,
-                    fromCurbside, toCurbside, accessEnc);
+        return result;
+    }
 
-            edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, forceCurbsides));
-            edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, forceCurbsides));
+    /**
+     * Like {@link #calcPaths} but calculates the legs concurrently using the given executor. Every leg uses its own
+     * path calculator, but they all share the query graph. The edge restrictions of all legs are resolved before the
+     * first leg is calculated. Legs with unfavored edges (from the headings) are calculated on the calling thread
+     * before the other legs are submitted, because unfavoring virtual edges modifies the query graph. With pass_through
+     * every leg depends on the previous one and all legs are calculated sequentially. The legs are returned in order
+     * regardless of when they were finished.
+     */
+    public static Result calcPathsConcurrently(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, BooleanEncodedValue accessEnc, Supplier<PathCalculator> pathCalculators, ExecutorService executor, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
+        final int legs = snaps.size() - 1;
+        if (passThrough || legs < 2)
+            return calcPaths(points, queryGraph, snaps, accessEnc, pathCalculators.get(), curbsides, forceCurbsides, headings, passThrough);
+        checkCurbsidesAndHeadings(points, curbsides, headings);
+
+        List<EdgeRestrictions> edgeRestrictions = new ArrayList<>(legs);
+        for (int leg = 0; leg < legs; ++leg)
+            edgeRestrictions.add(buildLegEdgeRestrictions(leg, queryGraph, snaps, accessEnc, curbsides, forceCurbsides, headings, NO_EDGE, false));
+
+        PathCalculator[] calculators = new PathCalculator[legs];
+        // written by the leg tasks, Future.get makes the values visible to this thread
+        final long[] legNanos = new long[legs];
+        List<List<Path>> legPaths = new ArrayList<>(Collections.nCopies(legs, null));
+        for (int leg = 0; leg < legs; ++leg) {
+            if (edgeRestrictions.get(leg).getUnfavoredEdges().isEmpty())
+                continue;
+            calculators[leg] = pathCalculators.get();
+            long legStart = System.nanoTime();
+            legPaths.set(leg, calculators[leg].calcPaths(snaps.get(leg).getClosestNode(), snaps.get(leg + 1).getClosestNode(), edgeRestrictions.get(leg)));
+            legNanos[leg] = System.nanoTime() - legStart;
+        }
 
-            // calculate paths
-            List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
-            result.debug += pathCalculator.getDebugString();
-
-            // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
-            // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
-            // a good method to decide how to combine the different legs
-            for (int i = 0; i < paths.size(); i++) {
-                Path path = paths.get(i);
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
-
-                result.paths.add(path);
-                result.debug += ", " + path.getDebugInfo();
+        List<Future<List<Path>>> futures = new ArrayList<>(Collections.nCopies(legs, null));
+        // set once a leg failed, so the legs of this request that did not start yet do not search in vain
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        try {
+            for (int leg = 0; leg < legs; ++leg) {
+                if (legPaths.get(leg) != null)
+                    continue;
+                final PathCalculator calculator = pathCalculators.get();
+                final int from = snaps.get(leg).getClosestNode();
+                final int to = snaps.get(leg + 1).getClosestNode();
+                final EdgeRestrictions restrictions = edgeRestrictions.get(leg);
+                final int legIndex = leg;
+                calculators[leg] = calculator;
+                futures.set(leg, executor.submit(() -> {
+                    if (cancelled.get())
+                        return Collections.<Path>emptyList();
+                    long legStart = System.nanoTime();
+                    List<Path> paths = calculator.calcPaths(from, to, restrictions);
+                    legNanos[legIndex] = System.nanoTime() - legStart;
+                    return paths;
+                }));
+            }
+            for (int leg = 0; leg < legs; ++leg) {
+                if (futures.get(leg) != null)
+                    legPaths.set(leg, futures.get(leg).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            // rethrow the exception of the first failing leg as if it was calculated on this thread
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // does nothing for finished legs, but skips the remaining ones if a leg failed. we do not interrupt the
+            // running legs, because the executor threads are shared with other requests
+            cancelled.set(true);
+            for (Future<List<Path>> future : futures) {
+                if (future != null)
+                    future.cancel(false);
             }
-
-            result.visitedNodes += pathCalculator.getVisitedNodes();
-            result.debug += "visited nodes sum: " + result.visitedNodes;
         }
 
+        Result result = new Result(legs);
+        for (int leg = 0; leg < legs; ++leg)
+            addLeg(result, legPaths.get(leg), calculators[leg], legNanos[leg]);
         return result;
     }
 
+    private static void checkCurbsidesAndHeadings(List<GHPoint> points, List<String> curbsides, List<Double> headings) {
+        if (!curbsides.isEmpty() && curbsides.size() != points.size())
+            throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
+        if (!curbsides.isEmpty() && !headings.isEmpty())
+            throw new IllegalArgumentException("You cannot use curbsides and headings or pass_through at the same time");
+    }
+
+    private static EdgeRestrictions buildLegEdgeRestrictions(int leg, QueryGraph queryGraph, List<Snap> snaps, BooleanEncodedValue accessEnc,
+                                                             List<String> curbsides, boolean forceCurbsides, List<Double> headings,
+                                                             int incomingEdge, boolean passThrough) {
+        Snap fromSnap = snaps.get(leg);
+        Snap toSnap = snaps.get(leg + 1);
+
+        // enforce headings
+        // at via-nodes and the target node the heading parameter is interpreted as the direction we want
+        // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
+        // all for these points (unless using pass through). see this forum discussion:
+        // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
+        double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
+        double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
+
+        // enforce curbsides
+        final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
+        final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+
+        EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
+                fromHeading, toHeading, incomingEdge, passThrough,
+                fromCurbside, toCurbside, accessEnc);
+
+        edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, forceCurbsides));
+        edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, forceCurbsides));
+        return edgeRestrictions;
+    }
+
+    private static void addLeg(Result result, List<Path> paths, PathCalculator pathCalculator, long legNanos) {
+        result.debug += pathCalculator.getDebugString();
+        result.legNanos += legNanos;
+
+        // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
+        // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
+        // a good method to decide how to combine the different legs
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+
+            result.paths.add(path);
+            result.debug += ", " + path.getDebugInfo();
+        }
+
+        result.visitedNodes += pathCalculator.getVisitedNodes();
+        result.debug += "visited nodes sum: " + result.visitedNodes;
+    }
+
     public static class Result {
         public List<Path> paths;
         public long visitedNodes;
+        /**
+         * the sum of the durations of the path calculations of all legs including the path extraction. If the legs
+         * were calculated concurrently this is more than the time the request waited for them
+         */
+        public long legNanos;
         public String debug = "";
 
         Result(int legs) {
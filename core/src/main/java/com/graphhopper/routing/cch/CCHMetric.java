@@ -0,0 +1,154 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+
+import java.util.Arrays;
+
+/**
+ * The arc weights of a {@link CCHStorage} for one weighting. Customizing the metric is very fast compared to a full
+ * CH preparation, because we only need to calculate the weights of the original edges and then run the basic
+ * customization, i.e. we process the nodes in the order of their rank and relax all arcs between the upper neighbors
+ * of every node. After the customization the weight of every arc is the weight of the shortest path between its nodes
+ * that only uses lower ranked nodes.
+ * <p>
+ * For every arc and direction we also store how its weight was obtained. A via value >= 0 is the rank of the lower
+ * node of the triangle that yields the weight. In this case the arc is a shortcut. A via value of -1 means there is
+ * no such path at all and a value <= -2 encodes the original edge -(via + 2) between the nodes of the arc.
+ */
+public class CCHMetric {
+    static final int NO_VIA = -1;
+    private final CCHStorage storage;
+    private final Weighting weighting;
+    private final double[] upWeights;
+    private final double[] downWeights;
+    private final int[] upVias;
+    private final int[] downVias;
+    private boolean customized;
+
+    public CCHMetric(CCHStorage storage, Weighting weighting) {
+        if (!storage.isInitialized())
+            throw new IllegalStateException("The CCH needs to be built or loaded before it can be customized");
+        if (weighting.hasTurnCosts())
+            throw new IllegalArgumentException("Customizable Contraction Hierarchies do not support turn costs, weighting: " + weighting);
+        this.storage = storage;
+        this.weighting = weighting;
+        int arcs = storage.getArcs();
+        upWeights = new double[arcs];
+        downWeights = new double[arcs];
+        upVias = new int[arcs];
+        downVias = new int[arcs];
+    }
+
+    public CCHMetric customize() {
+        if (customized)
+            throw new IllegalStateException("The metric was already customized");
+        Arrays.fill(upWeights, Double.POSITIVE_INFINITY);
+        Arrays.fill(downWeights, Double.POSITIVE_INFINITY);
+        Arrays.fill(upVias, NO_VIA);
+        Arrays.fill(downVias, NO_VIA);
+        initOriginalEdgeWeights();
+
+        // the arcs of a rank are sorted by the rank of their upper node, so for every arc x->v we can find all arcs
+        // v->u where u is another upper neighbor of x by walking along the arcs of v once
+        for (int x = 0; x < storage.getNodes(); x++) {
+            int end = storage.getEndArc(x);
+            for (int xv = storage.getFirstArc(x); xv < end; xv++) {
+                double xToV = upWeights[xv];
+                double vToX = downWeights[xv];
+                if (Double.isInfinite(xToV) && Double.isInfinite(vToX))
+                    continue;
+                int v = storage.getUpperRank(xv);
+                int vu = storage.getFirstArc(v);
+                for (int xu = xv + 1; xu < end; xu++) {
+                    int u = storage.getUpperRank(xu);
+                    while (storage.getUpperRank(vu) != u)
+                        vu++;
+                    double up = vToX + upWeights[xu];
+                    if (up < upWeights[vu]) {
+                        upWeights[vu] = up;
+                        upVias[vu] = x;
+                    }
+                    double down = downWeights[xu] + xToV;
+                    if (down < downWeights[vu]) {
+                        downWeights[vu] = down;
+                        downVias[vu] = x;
+                    }
+                }
+            }
+        }
+        customized = true;
+        return this;
+    }
+
+    private void initOriginalEdgeWeights() {
+        // todo: for #1835 move the access check into the weighting
+        BooleanEncodedValue accessEnc = weighting.getFlagEncoder().getAccessEnc();
+        AllEdgesIterator iter = storage.getGraph().getAllEdges();
+        while (iter.next()) {
+            int baseRank = storage.getRank(iter.getBaseNode());
+            int adjRank = storage.getRank(iter.getAdjNode());
+            if (baseRank == adjRank)
+                continue;
+            double fwdWeight = iter.get(accessEnc) ? weighting.calcEdgeWeight(iter, false) : Double.POSITIVE_INFINITY;
+            double bwdWeight = iter.getReverse(accessEnc) ? weighting.calcEdgeWeight(iter, true) : Double.POSITIVE_INFINITY;
+            int arc = storage.findArc(Math.min(baseRank, adjRank), Math.max(baseRank, adjRank));
+            double up = baseRank < adjRank ? fwdWeight : bwdWeight;
+            double down = baseRank < adjRank ? bwdWeight : fwdWeight;
+            int via = -2 - iter.getEdge();
+            if (up < upWeights[arc]) {
+                upWeights[arc] = up;
+                upVias[arc] = via;
+            }
+            if (down < downWeights[arc]) {
+                downWeights[arc] = down;
+                downVias[arc] = via;
+            }
+        }
+    }
+
+    public CCHStorage getStorage() {
+        return storage;
+    }
+
+    public Weighting getWeighting() {
+        return weighting;
+    }
+
+    public boolean isCustomized() {
+        return customized;
+    }
+
+    /**
+     * @param down true for the direction from the upper to the lower node of the arc
+     */
+    public double getWeight(int arc, boolean down) {
+        return down ? downWeights[arc] : upWeights[arc];
+    }
+
+    /**
+     * @param down true for the direction from the upper to the lower node of the arc
+     * @see CCHMetric for the meaning of the via values
+     */
+    public int getVia(int arc, boolean down) {
+        return down ? downVias[arc] : upVias[arc];
+    }
+}
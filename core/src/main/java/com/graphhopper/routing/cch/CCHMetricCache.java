@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.routing.util.CustomModel;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recently used customized metrics of a {@link CCHStorage} such that requests with the same custom
+ * model do not have to run the customization again. This class is thread-safe.
+ */
+public class CCHMetricCache {
+    private static final Logger logger = LoggerFactory.getLogger(CCHMetricCache.class);
+    private final CCHStorage storage;
+    private final Map<String, CCHMetric> metrics;
+
+    /**
+     * @param maxSize the maximum number of customized metrics kept in memory, every metric needs about 24 bytes per arc
+     */
+    public CCHMetricCache(CCHStorage storage, final int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("The CCH cache size must not be negative: " + maxSize);
+        this.storage = storage;
+        this.metrics = new LinkedHashMap<String, CCHMetric>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CCHMetric> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return a routing graph for the metric that belongs to the given key. If there is no such metric yet, we
+     * customize a new one for the given weighting
+     */
+    public CCHRoutingGraph getRoutingCHGraph(String key, Weighting weighting) {
+        CCHMetric metric;
+        synchronized (metrics) {
+            metric = metrics.get(key);
+        }
+        if (metric == null) {
+            // the customization takes a while for large graphs and we do not want to block requests using other
+            // metrics meanwhile. if the same metric is requested concurrently we might customize it twice though
+            StopWatch sw = new StopWatch().start();
+            metric = new CCHMetric(storage, weighting).customize();
+            logger.info("customized CCH metric for " + weighting + ", took: " + sw.stop().getSeconds() + "s");
+            synchronized (metrics) {
+                metrics.put(key, metric);
+            }
+        }
+        return new CCHRoutingGraph(metric);
+    }
+
+    public int size() {
+        synchronized (metrics) {
+            return metrics.size();
+        }
+    }
+
+    /**
+     * @return a key that is equal for two requests if and only if they use the same profile and custom model
+     */
+    public static String createKey(String profileName, CustomModel queryCustomModel) {
+        if (queryCustomModel == null)
+            return profileName;
+        StringBuilder sb = new StringBuilder(profileName).append('|').append(queryCustomModel);
+        // the custom model only contains the ids of its areas, but the same id can be used for different geometries
+        for (JsonFeature area : queryCustomModel.getAreas().values())
+            sb.append('|').append(area.getGeometry());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Exposes a customized {@link CCHMetric} as {@link RoutingCHGraph}, so it can be used with the usual CH algorithms,
+ * the {@link com.graphhopper.routing.querygraph.QueryRoutingCHGraph} and the
+ * {@link com.graphhopper.routing.ch.ShortcutUnpacker}.
+ * <p>
+ * The original edges keep their ids and are available at both of their nodes just like for the CHGraph. Every arc of
+ * the storage yields two directed shortcuts with the ids baseEdges + 2 * arc (upwards) and baseEdges + 2 * arc + 1
+ * (downwards). A shortcut is only included if its weight is smaller than the weight of the original edges between its
+ * nodes, which the metric indicates by a via rank >= 0. Like for the CHGraph shortcuts are only attached to their lower
+ * node: the upward shortcuts are out-edges and the downward shortcuts are in-edges of this node.
+ */
+public class CCHRoutingGraph implements RoutingCHGraph {
+    private final CCHStorage storage;
+    private final CCHMetric metric;
+    private final Graph baseGraph;
+    private final Weighting weighting;
+    private final BooleanEncodedValue accessEnc;
+    private final int baseEdges;
+
+    public CCHRoutingGraph(CCHMetric metric) {
+        if (!metric.isCustomized())
+            throw new IllegalArgumentException("The metric needs to be customized before it can be used for routing");
+        this.metric = metric;
+        this.storage = metric.getStorage();
+        this.baseGraph = storage.getGraph();
+        this.weighting = metric.getWeighting();
+        this.accessEnc = weighting.getFlagEncoder().getAccessEnc();
+        this.baseEdges = baseGraph.getEdges();
+    }
+
+    @Override
+    public int getNodes() {
+        return baseGraph.getNodes();
+    }
+
+    @Override
+    public int getEdges() {
+        return baseEdges + 2 * storage.getArcs();
+    }
+
+    @Override
+    public int getOtherNode(int chEdge, int node) {
+        if (chEdge < baseEdges)
+            return baseGraph.getOtherNode(chEdge, node);
+        int lowerNode = getLowerNode(chEdge);
+        return node == lowerNode ? getUpperNode(chEdge) : lowerNode;
+    }
+
+    @Override
+    public boolean isAdjacentToNode(int chEdge, int node) {
+        if (chEdge < baseEdges)
+            return baseGraph.isAdjacentToNode(chEdge, node);
+        return getLowerNode(chEdge) == node || getUpperNode(chEdge) == node;
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createInEdgeExplorer() {
+        return new CCHEdgeIterator(true);
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createOutEdgeExplorer() {
+        return new CCHEdgeIterator(false);
+    }
+
+    @Override
+    public RoutingCHEdgeIteratorState getEdgeIteratorState(int chEdge, int adjNode) {
+        CCHEdgeIteratorState edgeState = new CCHEdgeIteratorState();
+        if (chEdge < baseEdges) {
+            EdgeIteratorState origEdgeState = baseGraph.getEdgeIteratorState(chEdge, adjNode);
+            if (origEdgeState == null)
+                return null;
+            edgeState.setOriginal(origEdgeState);
+        } else {
+            int lowerNode = getLowerNode(chEdge);
+            int upperNode = getUpperNode(chEdge);
+            if (adjNode == upperNode)
+                edgeState.setShortcut(chEdge, lowerNode, upperNode);
+            else if (adjNode == lowerNode)
+                edgeState.setShortcut(chEdge, upperNode, lowerNode);
+            else
+                return null;
+        }
+        return edgeState;
+    }
+
+    @Override
+    public int getLevel(int node) {
+        return storage.getRank(node);
+    }
+
+    @Override
+    public double getTurnWeight(int inEdge, int viaNode, int outEdge) {
+        return weighting.calcTurnWeight(inEdge, viaNode, outEdge);
+    }
+
+    @Override
+    public Graph getBaseGraph() {
+        return baseGraph;
+    }
+
+    @Override
+    public boolean hasTurnCosts() {
+        return false;
+    }
+
+    @Override
+    public boolean isEdgeBased() {
+        return false;
+    }
+
+    @Override
+    public Weighting getWeighting() {
+        return weighting;
+    }
+
+    private int getArc(int shortcut) {
+        return (shortcut - baseEdges) >> 1;
+    }
+
+    private boolean isDown(int shortcut) {
+        return ((shortcut - baseEdges) & 1) == 1;
+    }
+
+    private int getShortcut(int arc, boolean down) {
+        return baseEdges + 2 * arc + (down ? 1 : 0);
+    }
+
+    private int getLowerNode(int shortcut) {
+        return storage.getNode(storage.getLowerRank(getArc(shortcut)));
+    }
+
+    private int getUpperNode(int shortcut) {
+        return storage.getNode(storage.getUpperRank(getArc(shortcut)));
+    }
+
+    /**
+     * @return the shortcut or original edge that represents the given arc in the given direction
+     */
+    private int getArcEdge(int arc, boolean down) {
+        int via = metric.getVia(arc, down);
+        if (via >= 0)
+            return getShortcut(arc, down);
+        if (via == CCHMetric.NO_VIA)
+            throw new IllegalStateException("There is no path for arc " + arc + ", down: " + down);
+        return -2 - via;
+    }
+
+    private class CCHEdgeIteratorState implements RoutingCHEdgeIteratorState {
+        EdgeIteratorState origEdgeState;
+        int shortcut = NO_EDGE;
+        int baseNode;
+        int adjNode;
+
+        void setOriginal(EdgeIteratorState origEdgeState) {
+            this.origEdgeState = origEdgeState;
+            this.shortcut = NO_EDGE;
+        }
+
+        void setShortcut(int shortcut, int baseNode, int adjNode) {
+            this.origEdgeState = null;
+            this.shortcut = shortcut;
+            this.baseNode = baseNode;
+            this.adjNode = adjNode;
+        }
+
+        @Override
+        public int getEdge() {
+            return isShortcut() ? shortcut : origEdgeState.getEdge();
+        }
+
+        @Override
+        public int getOrigEdge() {
+            return isShortcut() ? NO_EDGE : origEdgeState.getEdge();
+        }
+
+        @Override
+        public int getOrigEdgeFirst() {
+            return getEdge();
+        }
+
+        @Override
+        public int getOrigEdgeLast() {
+            return getEdge();
+        }
+
+        @Override
+        public int getBaseNode() {
+            return isShortcut() ? baseNode : origEdgeState.getBaseNode();
+        }
+
+        @Override
+        public int getAdjNode() {
+            return isShortcut() ? adjNode : origEdgeState.getAdjNode();
+        }
+
+        @Override
+        public boolean isShortcut() {
+            return shortcut != NO_EDGE;
+        }
+
+        // a shortcut v->u via x skips v->x and x->u, so we look up the arcs of x to both nodes of the shortcut
+
+        @Override
+        public int getSkippedEdge1() {
+            int arc = getArc(shortcut);
+            int x = metric.getVia(arc, isDown(shortcut));
+            if (isDown(shortcut))
+                return getArcEdge(storage.findArc(x, storage.getUpperRank(arc)), true);
+            return getArcEdge(storage.findArc(x, storage.getLowerRank(arc)), true);
+        }
+
+        @Override
+        public int getSkippedEdge2() {
+            int arc = getArc(shortcut);
+            int x = metric.getVia(arc, isDown(shortcut));
+            if (isDown(shortcut))
+                return getArcEdge(storage.findArc(x, storage.getLowerRank(arc)), false);
+            return getArcEdge(storage.findArc(x, storage.getUpperRank(arc)), false);
+        }
+
+        @Override
+        public double getWeight(boolean reverse) {
+            if (isShortcut())
+                return metric.getWeight(getArc(shortcut), isDown(shortcut));
+            return getOrigEdgeWeight(reverse, true);
+        }
+
+        /**
+         * @param needWeight if true this method will return as soon as its clear that the weight is finite (no need to
+         *                   do the full computation)
+         */
+        double getOrigEdgeWeight(boolean reverse, boolean needWeight) {
+            // todo: for #1835 move the access check into the weighting
+            boolean access = reverse ? origEdgeState.getReverse(accessEnc) : origEdgeState.get(accessEnc);
+            if (origEdgeState.getBaseNode() != origEdgeState.getAdjNode() && !access)
+                return Double.POSITIVE_INFINITY;
+            if (!needWeight)
+                return 0;
+            return weighting.calcEdgeWeight(origEdgeState, reverse);
+        }
+
+        @Override
+        public String toString() {
+            return getEdge() + " " + getBaseNode() + "-" + getAdjNode();
+        }
+    }
+
+    private class CCHEdgeIterator extends CCHEdgeIteratorState implements RoutingCHEdgeExplorer, RoutingCHEdgeIterator {
+        private final EdgeExplorer edgeExplorer;
+        private final boolean in;
+        private EdgeIterator edgeIterator;
+        private int node;
+        private int arc;
+        private int endArc;
+
+        CCHEdgeIterator(boolean in) {
+            this.edgeExplorer = baseGraph.createEdgeExplorer();
+            this.in = in;
+        }
+
+        @Override
+        public RoutingCHEdgeIterator setBaseNode(int baseNode) {
+            node = baseNode;
+            edgeIterator = edgeExplorer.setBaseNode(baseNode);
+            int rank = storage.getRank(baseNode);
+            arc = storage.getFirstArc(rank) - 1;
+            endArc = storage.getEndArc(rank);
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            if (edgeIterator != null) {
+                while (edgeIterator.next()) {
+                    setOriginal(edgeIterator);
+                    if (hasAccess())
+                        return true;
+                }
+                edgeIterator = null;
+            }
+            // the upward shortcuts start at this node and the downward shortcuts end at this node
+            while (++arc < endArc) {
+                if (metric.getVia(arc, in) >= 0) {
+                    setShortcut(getShortcut(arc, in), node, storage.getNode(storage.getUpperRank(arc)));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean hasAccess() {
+            // c.f. comment in DefaultEdgeFilter
+            if (getBaseNode() == getAdjNode())
+                return finiteWeight(false) || finiteWeight(true);
+            return finiteWeight(in);
+        }
+
+        private boolean finiteWeight(boolean reverse) {
+            return !Double.isInfinite(getOrigEdgeWeight(reverse, false));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.Storable;
+
+import java.util.Arrays;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy (CCH), see 'Customizable Contraction
+ * Hierarchies' by Dibbelt, Strasser and Wagner. For a given node ordering we contract all nodes without any witness
+ * searches. The resulting arcs are stored independent of any weighting and {@link CCHMetric} calculates the weights of
+ * these arcs for a given weighting.
+ * <p>
+ * Unlike the CHGraph this storage does not contain the base graph edges. Every pair of nodes that is connected by a
+ * base graph edge or a shortcut is represented by exactly one arc that is attached to its lower ranked node. The arcs
+ * of every rank are stored in one contiguous block sorted by the rank of their upper node, which allows finding the
+ * arc between two nodes via binary search.
+ * <p>
+ * The memory layout of the ranks is |node|first_arc| per rank, followed by the end of the arcs of the last rank. The
+ * memory layout of the arcs is |lower_rank|upper_rank| per arc.
+ */
+public class CCHStorage implements Storable<CCHStorage> {
+    private static final int BYTES_PER_RANK = 8;
+    private static final int BYTES_PER_ARC = 8;
+    private static final int R_NODE = 0;
+    private static final int R_FIRST_ARC = 4;
+    private static final int A_LOWER = 0;
+    private static final int A_UPPER = 4;
+
+    private final Graph graph;
+    private final DataAccess ranks;
+    private final DataAccess arcs;
+    private int nodeCount;
+    private int arcCount;
+    private int[] rankOfNode;
+    private boolean initialized;
+
+    public CCHStorage(Graph graph, Directory dir) {
+        this.graph = graph.getBaseGraph();
+        this.ranks = dir.find("cch_ranks");
+        this.arcs = dir.find("cch_arcs");
+    }
+
+    public void setSegmentSize(int bytes) {
+        ranks.setSegmentSize(bytes);
+        arcs.setSegmentSize(bytes);
+    }
+
+    @Override
+    public CCHStorage create(long initBytes) {
+        ranks.create(initBytes);
+        arcs.create(initBytes);
+        return this;
+    }
+
+    /**
+     * Contracts all nodes in the order calculated by {@link NestedDissectionOrdering}
+     */
+    public void build() {
+        build(new NestedDissectionOrdering(graph).calcNodesByRank());
+    }
+
+    /**
+     * Contracts all nodes in the given order. The graph must not change anymore afterwards.
+     *
+     * @param nodesByRank the nodes of the graph, the most important node comes last
+     */
+    public void build(int[] nodesByRank) {
+        if (initialized)
+            throw new IllegalStateException("The CCH was already built");
+        nodeCount = graph.getNodes();
+        if (nodesByRank.length != nodeCount)
+            throw new IllegalArgumentException("The node ordering must contain every node exactly once, size: " + nodesByRank.length + ", nodes: " + nodeCount);
+        rankOfNode = new int[nodeCount];
+        Arrays.fill(rankOfNode, -1);
+        for (int rank = 0; rank < nodeCount; rank++) {
+            if (rankOfNode[nodesByRank[rank]] >= 0)
+                throw new IllegalArgumentException("The node ordering contains node " + nodesByRank[rank] + " twice");
+            rankOfNode[nodesByRank[rank]] = rank;
+        }
+
+        IntArrayList[] upperNeighbors = new IntArrayList[nodeCount];
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int baseRank = rankOfNode[iter.getBaseNode()];
+            int adjRank = rankOfNode[iter.getAdjNode()];
+            if (baseRank != adjRank)
+                addUpperNeighbor(upperNeighbors, Math.min(baseRank, adjRank), Math.max(baseRank, adjRank));
+        }
+
+        ranks.create((long) (nodeCount + 1) * BYTES_PER_RANK);
+        // start with room for one arc per edge, the space for the fill-in is allocated as needed
+        arcs.create((long) graph.getEdges() * BYTES_PER_ARC);
+        long arc = 0;
+        for (int rank = 0; rank < nodeCount; rank++) {
+            ranks.setInt((long) rank * BYTES_PER_RANK + R_NODE, nodesByRank[rank]);
+            ranks.setInt((long) rank * BYTES_PER_RANK + R_FIRST_ARC, (int) arc);
+            IntArrayList neighbors = upperNeighbors[rank];
+            upperNeighbors[rank] = null;
+            if (neighbors == null)
+                continue;
+            int[] sorted = neighbors.toArray();
+            Arrays.sort(sorted);
+            int count = 0;
+            for (int i = 0; i < sorted.length; i++)
+                if (i == 0 || sorted[i] != sorted[i - 1])
+                    sorted[count++] = sorted[i];
+
+            arcs.ensureCapacity((arc + count) * BYTES_PER_ARC);
+            for (int i = 0; i < count; i++) {
+                arcs.setInt(arc * BYTES_PER_ARC + A_LOWER, rank);
+                arcs.setInt(arc * BYTES_PER_ARC + A_UPPER, sorted[i]);
+                arc++;
+            }
+            if (arc > Integer.MAX_VALUE / 2)
+                throw new IllegalStateException("Too many arcs for the CCH: " + arc);
+            // contracting the node connects all its upper neighbors with each other. it is sufficient to connect them
+            // with the lowest one, because the others will be connected once the lowest one is contracted
+            for (int i = 1; i < count; i++)
+                addUpperNeighbor(upperNeighbors, sorted[0], sorted[i]);
+        }
+        ranks.setInt((long) nodeCount * BYTES_PER_RANK + R_FIRST_ARC, (int) arc);
+        arcCount = (int) arc;
+        initialized = true;
+    }
+
+    private static void addUpperNeighbor(IntArrayList[] upperNeighbors, int rank, int upperRank) {
+        if (upperNeighbors[rank] == null)
+            upperNeighbors[rank] = new IntArrayList(4);
+        upperNeighbors[rank].add(upperRank);
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * @return the graph this CCH was built for, i.e. the base graph
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    public int getNodes() {
+        return nodeCount;
+    }
+
+    public int getArcs() {
+        return arcCount;
+    }
+
+    public int getRank(int node) {
+        return rankOfNode[node];
+    }
+
+    public int getNode(int rank) {
+        return ranks.getInt((long) rank * BYTES_PER_RANK + R_NODE);
+    }
+
+    /**
+     * @return the first arc of the given rank
+     */
+    public int getFirstArc(int rank) {
+        return ranks.getInt((long) rank * BYTES_PER_RANK + R_FIRST_ARC);
+    }
+
+    /**
+     * @return the arc after the last arc of the given rank
+     */
+    public int getEndArc(int rank) {
+        return getFirstArc(rank + 1);
+    }
+
+    public int getLowerRank(int arc) {
+        return arcs.getInt((long) arc * BYTES_PER_ARC + A_LOWER);
+    }
+
+    public int getUpperRank(int arc) {
+        return arcs.getInt((long) arc * BYTES_PER_ARC + A_UPPER);
+    }
+
+    /**
+     * @return the arc between the two given ranks or -1 if there is none
+     */
+    public int findArc(int lowerRank, int upperRank) {
+        int low = getFirstArc(lowerRank);
+        int high = getEndArc(lowerRank) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int rank = getUpperRank(mid);
+            if (rank < upperRank)
+                low = mid + 1;
+            else if (rank > upperRank)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    @Override
+    public void flush() {
+        if (!initialized)
+            return;
+        ranks.setHeader(0, BYTES_PER_RANK);
+        ranks.setHeader(1 * 4, nodeCount);
+        ranks.setHeader(2 * 4, arcCount);
+        ranks.flush();
+        arcs.setHeader(0, BYTES_PER_ARC);
+        arcs.flush();
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!ranks.loadExisting() || !arcs.loadExisting())
+            return false;
+
+        if (ranks.getHeader(0) != BYTES_PER_RANK || arcs.getHeader(0) != BYTES_PER_ARC)
+            throw new IllegalStateException("Number of bytes per CCH rank or arc does not match the current configuration: "
+                    + ranks.getHeader(0) + " vs. " + BYTES_PER_RANK + ", " + arcs.getHeader(0) + " vs. " + BYTES_PER_ARC);
+        nodeCount = ranks.getHeader(1 * 4);
+        if (nodeCount != graph.getNodes())
+            throw new IllegalStateException("The CCH does not match the graph: " + nodeCount + " vs. " + graph.getNodes() + " nodes");
+        arcCount = ranks.getHeader(2 * 4);
+        rankOfNode = new int[nodeCount];
+        for (int rank = 0; rank < nodeCount; rank++)
+            rankOfNode[getNode(rank)] = rank;
+        initialized = true;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        ranks.close();
+        arcs.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return ranks.isClosed() && arcs.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return ranks.getCapacity() + arcs.getCapacity();
+    }
+
+    @Override
+    public String toString() {
+        return "cch";
+    }
+}
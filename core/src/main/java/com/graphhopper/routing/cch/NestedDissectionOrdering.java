@@ -0,0 +1,191 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+/**
+ * Calculates a metric-independent node ordering for {@link CCHStorage} using nested dissection: the nodes are split
+ * into two cells, the nodes separating these cells get the highest ranks and both cells are ordered recursively.
+ * <p>
+ * The cells are found by geometric bisection, i.e. we split at the median coordinate of the axis with the larger
+ * extent. The separator is the smaller one of the two sets of boundary nodes of the cells. This is much simpler than
+ * flow based partitioners like InertialFlow and yields larger separators, but it does not depend on any weighting and
+ * works well enough for road networks where most edges are short.
+ */
+public class NestedDissectionOrdering {
+    private static final int MIN_CELL_SIZE = 8;
+    private final Graph graph;
+    private final EdgeExplorer explorer;
+    private final double[] lats;
+    private final double[] lons;
+    private final int[] cellIds;
+    private int cellCount;
+    private int[] nodesByRank;
+    private int nextRank;
+
+    public NestedDissectionOrdering(Graph graph) {
+        this.graph = graph;
+        this.explorer = graph.createEdgeExplorer();
+        int nodes = graph.getNodes();
+        lats = new double[nodes];
+        lons = new double[nodes];
+        cellIds = new int[nodes];
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < nodes; node++) {
+            lats[node] = na.getLat(node);
+            lons[node] = na.getLon(node);
+        }
+    }
+
+    /**
+     * @return the nodes of the graph sorted by their rank, i.e. the most important node comes last
+     */
+    public int[] calcNodesByRank() {
+        int nodes = graph.getNodes();
+        int[] cell = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            cell[node] = node;
+        nodesByRank = new int[nodes];
+        nextRank = 0;
+        dissect(cell, 0, nodes);
+        if (nextRank != nodes)
+            throw new IllegalStateException("Not all nodes were ordered: " + nextRank + " vs. " + nodes);
+        return nodesByRank;
+    }
+
+    private void dissect(int[] cell, int from, int to) {
+        if (to - from <= MIN_CELL_SIZE) {
+            assignRanks(cell, from, to);
+            return;
+        }
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            minLat = Math.min(minLat, lats[cell[i]]);
+            maxLat = Math.max(maxLat, lats[cell[i]]);
+            minLon = Math.min(minLon, lons[cell[i]]);
+            maxLon = Math.max(maxLon, lons[cell[i]]);
+        }
+        // we do not care about the exact projection, longitudes are only slightly stretched at typical latitudes
+        double[] coords = maxLat - minLat > maxLon - minLon ? lats : lons;
+        int mid = from + (to - from) / 2;
+        select(cell, from, to - 1, mid, coords);
+
+        int leftId = ++cellCount;
+        int rightId = ++cellCount;
+        for (int i = from; i < mid; i++)
+            cellIds[cell[i]] = leftId;
+        for (int i = mid; i < to; i++)
+            cellIds[cell[i]] = rightId;
+        int leftBoundary = countBoundaryNodes(cell, from, mid, rightId);
+        int rightBoundary = countBoundaryNodes(cell, mid, to, leftId);
+
+        // the separator is moved to the end of its cell and gets the highest ranks after both cells were ordered
+        int sepFrom, sepTo;
+        if (leftBoundary <= rightBoundary) {
+            sepFrom = moveBoundaryNodesToEnd(cell, from, mid, rightId);
+            sepTo = mid;
+            dissect(cell, from, sepFrom);
+            dissect(cell, mid, to);
+        } else {
+            sepFrom = moveBoundaryNodesToEnd(cell, mid, to, leftId);
+            sepTo = to;
+            dissect(cell, from, mid);
+            dissect(cell, mid, sepFrom);
+        }
+        assignRanks(cell, sepFrom, sepTo);
+    }
+
+    private void assignRanks(int[] cell, int from, int to) {
+        for (int i = from; i < to; i++)
+            nodesByRank[nextRank++] = cell[i];
+    }
+
+    private int countBoundaryNodes(int[] cell, int from, int to, int otherCellId) {
+        int count = 0;
+        for (int i = from; i < to; i++)
+            if (isBoundaryNode(cell[i], otherCellId))
+                count++;
+        return count;
+    }
+
+    /**
+     * Reorders the given range such that all nodes that have a neighbor in the other cell come last.
+     *
+     * @return the index of the first boundary node
+     */
+    private int moveBoundaryNodesToEnd(int[] cell, int from, int to, int otherCellId) {
+        int end = to;
+        int i = from;
+        while (i < end) {
+            if (isBoundaryNode(cell[i], otherCellId)) {
+                end--;
+                swap(cell, i, end);
+            } else {
+                i++;
+            }
+        }
+        return end;
+    }
+
+    private boolean isBoundaryNode(int node, int otherCellId) {
+        EdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            if (cellIds[iter.getAdjNode()] == otherCellId)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Partially sorts cell[left..right] such that the node with the k-th smallest coordinate ends up at index k,
+     * see https://en.wikipedia.org/wiki/Quickselect
+     */
+    private static void select(int[] cell, int left, int right, int k, double[] coords) {
+        while (left < right) {
+            double pivot = coords[cell[left + (right - left) / 2]];
+            int i = left, j = right;
+            while (i <= j) {
+                while (coords[cell[i]] < pivot)
+                    i++;
+                while (coords[cell[j]] > pivot)
+                    j--;
+                if (i <= j) {
+                    swap(cell, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)
+                right = j;
+            else if (k >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+}
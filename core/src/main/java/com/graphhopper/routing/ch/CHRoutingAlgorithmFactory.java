@@ -21,6 +21,7 @@ package com.graphhopper.routing.ch;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.Helper;
@@ -36,6 +37,7 @@ import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
  */
 public class CHRoutingAlgorithmFactory {
     private final RoutingCHGraph routingCHGraph;
+    private boolean pooledSearchContext;
 
     public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph, QueryGraph queryGraph) {
         this(new QueryRoutingCHGraph(routingCHGraph, queryGraph));
@@ -45,6 +47,15 @@ public class CHRoutingAlgorithmFactory {
         this.routingCHGraph = routingCHGraph;
     }
 
+    /**
+     * If enabled the node-based algorithms reuse the search context of the current thread, see
+     * {@link BidirSearchContext}
+     */
+    public CHRoutingAlgorithmFactory setPooledSearchContext(boolean pooledSearchContext) {
+        this.pooledSearchContext = pooledSearchContext;
+        return this;
+    }
+
     public BidirRoutingAlgorithm createAlgo(PMap opts) {
         BidirRoutingAlgorithm algo = routingCHGraph.isEdgeBased()
                 ? createAlgoEdgeBased(routingCHGraph, opts)
@@ -80,10 +91,14 @@ public class CHRoutingAlgorithmFactory {
         if (Helper.isEmpty(algo))
             algo = defaultAlgo;
         if (ASTAR_BI.equals(algo)) {
-            return new AStarBidirectionCH(g)
-                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+            WeightApproximator approx = RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess());
+            if (pooledSearchContext)
+                return new PooledBidirCHAlgo(g).setStallOnDemand(false).setApproximation(approx);
+            return new AStarBidirectionCH(g).setApproximation(approx);
         } else if (DIJKSTRA_BI.equals(algo) || Helper.isEmpty(algo)) {
-            if (opts.getBool("stall_on_demand", true)) {
+            if (pooledSearchContext) {
+                return new PooledBidirCHAlgo(g).setStallOnDemand(opts.getBool("stall_on_demand", true));
+            } else if (opts.getBool("stall_on_demand", true)) {
                 return new DijkstraBidirectionCH(g);
             } else {
                 return new DijkstraBidirectionCHNoSOD(g);
@@ -17,7 +17,10 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
 
@@ -119,6 +122,35 @@ class NodeBasedNodeContractor implements NodeContractor {
     @Override
     public IntContainer contractNode(int node) {
         long degree = findAndHandleShortcuts(node, this::addOrUpdateShortcut);
+        return finishContractingNode(node, degree);
+    }
+
+    /**
+     * Finds the shortcuts required to contract the given node without changing the graph. Different contractor
+     * instances sharing the same prepare graph can do this concurrently as long as the graph is not modified
+     * meanwhile, which is what the parallel contraction in {@link PrepareContractionHierarchies} does.
+     */
+    PendingContraction findShortcuts(int node) {
+        PendingContraction pendingContraction = new PendingContraction(node);
+        pendingContraction.degree = findAndHandleShortcuts(node, pendingContraction::addShortcut);
+        return pendingContraction;
+    }
+
+    /**
+     * Contracts a node using the shortcuts previously found by {@link #findShortcuts(int)}, possibly by another
+     * contractor instance.
+     */
+    IntContainer contractNode(PendingContraction pendingContraction) {
+        IntArrayList edges = pendingContraction.shortcutEdges;
+        for (int i = 0; i < pendingContraction.shortcutWeights.size(); i++) {
+            int e = 6 * i;
+            addOrUpdateShortcut(edges.get(e), edges.get(e + 1), pendingContraction.shortcutWeights.get(i),
+                    edges.get(e + 2), edges.get(e + 3), edges.get(e + 4), edges.get(e + 5));
+        }
+        return finishContractingNode(pendingContraction.node, pendingContraction.degree);
+    }
+
+    private IntContainer finishContractingNode(int node, long degree) {
         insertShortcuts(node);
         // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
         meanDegree = (meanDegree * 2 + degree) / 3;
@@ -252,6 +284,29 @@ class NodeBasedNodeContractor implements NodeContractor {
             prepareGraph.addShortcut(fromNode, toNode, -1, -1, incomingEdge, outgoingEdge, weight, inOrigEdgeCount + outOrigEdgeCount);
     }
 
+    /**
+     * Nodes in the given set will not be used for witness paths, see {@link NodeBasedWitnessPathSearcher#setIgnoredNodes}
+     */
+    void setIgnoredNodes(GHBitSet ignoredNodes) {
+        witnessPathSearcher.setIgnoredNodes(ignoredNodes);
+    }
+
+    /**
+     * Original edges between two nodes in the given set will not be used for witness paths, see
+     * {@link NodeBasedWitnessPathSearcher#setCoreNodes}
+     */
+    void setCoreNodes(GHBitSet coreNodes) {
+        witnessPathSearcher.setCoreNodes(coreNodes);
+    }
+
+    double getMeanDegree() {
+        return meanDegree;
+    }
+
+    void setMeanDegree(double meanDegree) {
+        this.meanDegree = meanDegree;
+    }
+
     @Override
     public long getAddedShortcutsCount() {
         return addedShortcutsCount;
@@ -280,6 +335,34 @@ class NodeBasedNodeContractor implements NodeContractor {
                             int incomingEdge, int inOrigEdgeCount);
     }
 
+    /**
+     * The shortcuts found for a node that is not contracted yet
+     */
+    static class PendingContraction {
+        private final int node;
+        private long degree;
+        // fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount for every shortcut
+        private final IntArrayList shortcutEdges = new IntArrayList();
+        private final DoubleArrayList shortcutWeights = new DoubleArrayList();
+
+        PendingContraction(int node) {
+            this.node = node;
+        }
+
+        int getNode() {
+            return node;
+        }
+
+        private void addShortcut(int fromNode, int toNode, double weight,
+                                 int outgoingEdge, int outOrigEdgeCount,
+                                 int incomingEdge, int inOrigEdgeCount) {
+            shortcutEdges.add(fromNode, toNode);
+            shortcutEdges.add(outgoingEdge, outOrigEdgeCount);
+            shortcutEdges.add(incomingEdge, inOrigEdgeCount);
+            shortcutWeights.add(weight);
+        }
+    }
+
     public static class Params {
         // default values were optimized for Unterfranken
         private float edgeDifferenceWeight = 10;
@@ -19,6 +19,7 @@ package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.routing.DijkstraOneToMany;
 import com.graphhopper.util.Helper;
 
@@ -40,6 +41,8 @@ public class NodeBasedWitnessPathSearcher {
     protected double[] weights;
     private IntFloatBinaryHeap heap;
     private int ignoreNode = -1;
+    private GHBitSet ignoredNodes;
+    private GHBitSet coreNodes;
     private int visitedNodes;
     private boolean doClear = true;
     private int currNode, to;
@@ -187,7 +190,27 @@ public class NodeBasedWitnessPathSearcher {
         ignoreNode = node;
     }
 
+    /**
+     * Additionally ignores all nodes contained in the given set, or none if it is null. The set is only read, so it
+     * can be shared between searchers running in different threads as long as it is not modified concurrently.
+     */
+    public void setIgnoredNodes(GHBitSet ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
+    /**
+     * Original edges between two nodes in the given set are not used for witness paths, because they might be blocked
+     * at query time. Use null to accept all edges.
+     */
+    public void setCoreNodes(GHBitSet coreNodes) {
+        this.coreNodes = coreNodes;
+    }
+
     private boolean accept(PrepareGraphEdgeIterator iter) {
+        if (ignoredNodes != null && ignoredNodes.contains(iter.getAdjNode()))
+            return false;
+        if (coreNodes != null && !iter.isShortcut() && coreNodes.contains(currNode) && coreNodes.contains(iter.getAdjNode()))
+            return false;
         return ignoreNode < 0 || iter.getAdjNode() != ignoreNode;
     }
 
@@ -17,8 +17,12 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.FloatArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.AbstractAlgoPreparation;
 import com.graphhopper.routing.util.TraversalMode;
@@ -30,8 +34,14 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -51,6 +61,9 @@ import static com.graphhopper.util.Helper.nf;
  * @author Peter Karich
  */
 public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
+    // in parallel mode we select the nodes contracted in one round among the 1% of the remaining nodes with the
+    // lowest priorities
+    private static final int PARALLEL_CANDIDATES_DIVISOR = 100;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final CHConfig chConfig;
     private final CHGraph chGraph;
@@ -63,6 +76,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private final Params params;
     private final Graph graph;
     private NodeContractor nodeContractor;
+    // one node contractor per thread, only used for parallel contraction
+    private NodeBasedNodeContractor[] parallelContractors;
+    private ExecutorService parallelExecutor;
+    private long parallelDijkstraCount;
+    private CHPreparationGraph prepareGraph;
     private final int nodes;
     private NodeOrderingProvider nodeOrderingProvider;
     private int maxLevel;
@@ -70,6 +88,9 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private MinHeapWithUpdate sortedNodes;
     private PMap pMap = new PMap();
     private int checkCounter;
+    private boolean blockableCore;
+    // the nodes that are not contracted, only set if the core needs to be blockable
+    private GHBitSet coreNodes;
 
     public static PrepareContractionHierarchies fromGraphHopperStorage(GraphHopperStorage ghStorage, CHConfig chConfig) {
         return new PrepareContractionHierarchies(ghStorage, chConfig);
@@ -98,6 +119,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         params.setNeighborUpdatePercentage(pMap.getInt(NEIGHBOR_UPDATES, params.getNeighborUpdatePercentage()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        params.setContractionThreads(pMap.getInt(CONTRACTION_THREADS, params.getContractionThreads()));
         return this;
     }
 
@@ -116,6 +138,20 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         return this;
     }
 
+    /**
+     * Prepares the graph such that original edges between two of the nodes that are not contracted (the core) can be
+     * blocked at query time. A first contraction run determines the core. The second run contracts all other nodes
+     * without using edges between two core nodes for witness paths, so every path avoiding such an edge is still
+     * covered by shortcuts. This doubles the preparation time and is only supported for node-based CH with a heuristic
+     * node ordering.
+     */
+    public PrepareContractionHierarchies useBlockableCore() {
+        if (chConfig.isEdgeBased())
+            throw new IllegalArgumentException("A blockable core is only supported for node-based CH, but was used for " + chConfig.getName());
+        blockableCore = true;
+        return this;
+    }
+
     @Override
     public void doSpecificWork() {
         if (!chGraph.isReadyForContraction()) {
@@ -124,8 +160,12 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         if (chGraph.getEdges() > chGraph.getOriginalEdges()) {
             throw new IllegalStateException("Given CHGraph has been contracted already");
         }
+        if (blockableCore && nodeOrderingProvider != null)
+            throw new IllegalStateException("A blockable core cannot be used with a fixed node ordering");
         allSW.start();
-        initFromGraph();
+        if (blockableCore)
+            findCoreNodes();
+        initFromGraph(false);
         runGraphContraction();
         allSW.stop();
         logFinalGraphStats();
@@ -152,12 +192,29 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         return chConfig.isEdgeBased();
     }
 
-    private void initFromGraph() {
+    /**
+     * Runs the contraction without adding shortcuts to the CH graph and keeps the nodes that were not contracted
+     */
+    private void findCoreNodes() {
+        logger.info("Finding the core nodes of {}, {}", chConfig.getName(), getMemInfo());
+        initFromGraph(true);
+        runGraphContraction();
+        coreNodes = new GHBitSetImpl(nodes);
+        for (int node = 0; node < nodes; node++) {
+            if (!isContracted(node))
+                coreNodes.add(node);
+        }
+        logger.info("Found {} core nodes of {}, contracting the other nodes", nf(coreNodes.getCardinality()), chConfig.getName());
+    }
+
+    /**
+     * @param findCore if true the shortcuts are only added to the prepare graph, but not to the CH graph
+     */
+    private void initFromGraph(boolean findCore) {
         // todo: this whole chain of initFromGraph() methods is just needed because PrepareContractionHierarchies does
         // not simply prepare contraction hierarchies, but instead it also serves as some kind of 'container' to give
         // access to the preparations in the GraphHopper class. If this was not so we could make this a lot cleaner here,
         // declare variables final and would not need all these close() methods...
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = chGraph.getBaseGraph().getTurnCostStorage();
             if (turnCostStorage == null) {
@@ -171,7 +228,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         } else {
             logger.info("Creating CH prepare graph, {}", getMemInfo());
             prepareGraph = CHPreparationGraph.nodeBased(graph.getNodes(), graph.getEdges());
-            NodeBasedNodeContractor.ShortcutHandler shortcutInserter = new NodeBasedShortcutInserter(chGraph);
+            NodeBasedNodeContractor.ShortcutHandler shortcutInserter = findCore ? new IgnoringShortcutHandler() : new NodeBasedShortcutInserter(chGraph);
             nodeContractor = new NodeBasedNodeContractor(prepareGraph, shortcutInserter, pMap);
         }
         maxLevel = nodes;
@@ -184,6 +241,25 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         CHPreparationGraph.buildFromGraph(prepareGraph, graph, getWeighting());
         logger.info("Finished building CH prepare graph, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
         nodeContractor.initFromGraph();
+        if (coreNodes != null)
+            ((NodeBasedNodeContractor) nodeContractor).setCoreNodes(coreNodes);
+        if (params.getContractionThreads() > 1 && nodeOrderingProvider == null) {
+            if (chConfig.getTraversalMode().isEdgeBased()) {
+                logger.warn("Parallel contraction is not supported for edge-based CH, using a single thread for {}", chConfig.getName());
+            } else {
+                parallelContractors = new NodeBasedNodeContractor[params.getContractionThreads()];
+                for (int i = 0; i < parallelContractors.length; i++) {
+                    parallelContractors[i] = new NodeBasedNodeContractor(prepareGraph, null, pMap);
+                    parallelContractors[i].initFromGraph();
+                    parallelContractors[i].setCoreNodes(coreNodes);
+                }
+                parallelExecutor = Executors.newFixedThreadPool(parallelContractors.length, r -> {
+                    Thread thread = new Thread(r, "ch-contraction-" + chConfig.getName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
     }
 
     private void setMaxLevelOnAllNodes() {
@@ -195,11 +271,22 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private void updatePrioritiesOfRemainingNodes() {
         periodicUpdateSW.start();
         sortedNodes.clear();
-        for (int node = 0; node < nodes; node++) {
-            if (isContracted(node))
-                continue;
-            float priority = calculatePriority(node);
-            sortedNodes.push(node, priority);
+        if (parallelContractors != null) {
+            IntArrayList remainingNodes = new IntArrayList();
+            for (int node = 0; node < nodes; node++) {
+                if (!isContracted(node) && !isCore(node))
+                    remainingNodes.add(node);
+            }
+            FloatArrayList priorities = calculatePrioritiesInParallel(remainingNodes);
+            for (int i = 0; i < remainingNodes.size(); i++)
+                sortedNodes.push(remainingNodes.get(i), priorities.get(i));
+        } else {
+            for (int node = 0; node < nodes; node++) {
+                if (isContracted(node) || isCore(node))
+                    continue;
+                float priority = calculatePriority(node);
+                sortedNodes.push(node, priority);
+            }
         }
         periodicUpdateSW.stop();
     }
@@ -234,60 +321,66 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
 
         // according to paper "Polynomial-time Construction of Contraction Hierarchies for Multi-criteria Objectives" by Funke and Storandt
         // we don't need to wait for all nodes to be contracted
-        final long nodesToAvoidContract = Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
+        // the core nodes are not in the queue if they are known already
+        final long nodesToAvoidContract = coreNodes != null ? 0 : Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
 
         // Recompute priority of (the given percentage of) uncontracted neighbors. Doing neighbor updates takes additional
         // time during preparation but keeps node priorities more up to date. this potentially improves query time and
         // reduces number of shortcuts.
         final boolean neighborUpdate = (params.getNeighborUpdatePercentage() != 0);
 
-        while (!sortedNodes.isEmpty()) {
-            stopIfInterrupted();
-            // periodically update priorities of ALL nodes
-            if (checkCounter > 0 && checkCounter % periodicUpdatesCount == 0) {
-                updatePrioritiesOfRemainingNodes();
-                updateCounter++;
-                if (sortedNodes.isEmpty())
-                    throw new IllegalStateException("Cannot prepare as no unprepared nodes where found. Called preparation twice?");
-            }
-
-            if (checkCounter % logSize == 0) {
-                logHeuristicStats(updateCounter);
-            }
+        if (parallelContractors != null) {
+            updateCounter = contractNodesInParallel(logSize, periodicUpdatesCount, nodesToAvoidContract, neighborUpdate);
+        } else {
+            while (!sortedNodes.isEmpty()) {
+                stopIfInterrupted();
+                // periodically update priorities of ALL nodes
+                if (checkCounter > 0 && checkCounter % periodicUpdatesCount == 0) {
+                    updatePrioritiesOfRemainingNodes();
+                    updateCounter++;
+                    if (sortedNodes.isEmpty())
+                        throw new IllegalStateException("Cannot prepare as no unprepared nodes where found. Called preparation twice?");
+                }
 
-            checkCounter++;
-            int polledNode = sortedNodes.poll();
+                if (checkCounter % logSize == 0) {
+                    logHeuristicStats(updateCounter);
+                }
 
-            if (!sortedNodes.isEmpty() && sortedNodes.size() < lastNodesLazyUpdates) {
-                lazyUpdateSW.start();
-                float priority = calculatePriority(polledNode);
-                if (priority > sortedNodes.peekValue()) {
-                    // current node got more important => insert as new value and contract it later
-                    sortedNodes.push(polledNode, priority);
+                checkCounter++;
+                int polledNode = sortedNodes.poll();
+
+                if (!sortedNodes.isEmpty() && sortedNodes.size() < lastNodesLazyUpdates) {
+                    lazyUpdateSW.start();
+                    float priority = calculatePriority(polledNode);
+                    if (priority > sortedNodes.peekValue()) {
+                        // current node got more important => insert as new value and contract it later
+                        sortedNodes.push(polledNode, priority);
+                        lazyUpdateSW.stop();
+                        continue;
+                    }
                     lazyUpdateSW.stop();
-                    continue;
                 }
-                lazyUpdateSW.stop();
-            }
-
-            // contract node v!
-            IntContainer neighbors = contractNode(polledNode, level);
-            level++;
-
-            if (sortedNodes.size() < nodesToAvoidContract)
-                // skipped nodes are already set to maxLevel
-                break;
 
-            // there might be multiple edges going to the same neighbor nodes -> only calculate priority once per node
-            for (IntCursor neighbor : neighbors) {
-                int nn = neighbor.value;
-                if (neighborUpdate && rand.nextInt(100) < params.getNeighborUpdatePercentage()) {
-                    neighborUpdateSW.start();
-                    float priority = calculatePriority(nn);
-                    sortedNodes.update(nn, priority);
-                    neighborUpdateSW.stop();
+                // contract node v!
+                IntContainer neighbors = contractNode(polledNode, level);
+                level++;
+
+                if (sortedNodes.size() < nodesToAvoidContract)
+                    // skipped nodes are already set to maxLevel
+                    break;
+
+                // there might be multiple edges going to the same neighbor nodes -> only calculate priority once per node
+                for (IntCursor neighbor : neighbors) {
+                    int nn = neighbor.value;
+                    if (neighborUpdate && rand.nextInt(100) < params.getNeighborUpdatePercentage() && !isCore(nn)) {
+                        neighborUpdateSW.start();
+                        float priority = calculatePriority(nn);
+                        sortedNodes.update(nn, priority);
+                        neighborUpdateSW.stop();
+                    }
                 }
             }
+
         }
 
         nodeContractor.finishContraction();
@@ -310,6 +403,168 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         _close();
     }
 
+    /**
+     * Contracts the nodes in rounds, such that the witness searches can run in parallel: in every round we poll the
+     * nodes with the lowest priorities from the queue and select those that are not adjacent to a node selected
+     * before. The shortcuts for the selected nodes are then searched concurrently on the unchanged prepare graph while
+     * the selected nodes are ignored for witness paths (otherwise two nodes could both skip a shortcut relying on a
+     * witness path via the other node). Finally the nodes are contracted and the shortcuts are inserted sequentially in
+     * the order of their priorities, so the result does not depend on the number of threads. The neighbor and periodic
+     * priority updates run in parallel as well, but there are no lazy updates.
+     *
+     * @return the number of periodic updates
+     */
+    private int contractNodesInParallel(long logSize, long periodicUpdatesCount, long nodesToAvoidContract, boolean neighborUpdate) {
+        NodeBasedNodeContractor contractor = (NodeBasedNodeContractor) nodeContractor;
+        PrepareGraphEdgeExplorer outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        PrepareGraphEdgeExplorer inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        GHBitSet selectedNodes = new GHBitSetImpl(nodes);
+        GHBitSet blockedNodes = new GHBitSetImpl(nodes);
+        IntArrayList independentSet = new IntArrayList();
+        IntArrayList blockedList = new IntArrayList();
+        IntArrayList skippedNodes = new IntArrayList();
+        FloatArrayList skippedPriorities = new FloatArrayList();
+        GHBitSet updatedNodes = new GHBitSetImpl(nodes);
+        IntArrayList neighborsToUpdate = new IntArrayList();
+        int level = 0;
+        int updateCounter = 0;
+        long contractedSinceUpdate = 0;
+        long nextLog = 0;
+        while (!sortedNodes.isEmpty()) {
+            stopIfInterrupted();
+            if (contractedSinceUpdate >= periodicUpdatesCount) {
+                updatePrioritiesOfRemainingNodes();
+                updateCounter++;
+                contractedSinceUpdate = 0;
+            }
+
+            if (checkCounter >= nextLog) {
+                logHeuristicStats(updateCounter);
+                nextLog += logSize;
+            }
+
+            // select an independent set among the candidates with the lowest priorities
+            int candidates = Math.max(1, sortedNodes.size() / PARALLEL_CANDIDATES_DIVISOR);
+            for (int i = 0; i < candidates && !sortedNodes.isEmpty(); i++) {
+                checkCounter++;
+                float priority = sortedNodes.peekValue();
+                int node = sortedNodes.poll();
+                if (blockedNodes.contains(node)) {
+                    skippedNodes.add(node);
+                    skippedPriorities.add(priority);
+                    continue;
+                }
+                independentSet.add(node);
+                selectedNodes.add(node);
+                blockNeighbors(node, outEdgeExplorer, blockedNodes, blockedList);
+                blockNeighbors(node, inEdgeExplorer, blockedNodes, blockedList);
+            }
+            for (int i = 0; i < skippedNodes.size(); i++)
+                sortedNodes.push(skippedNodes.get(i), skippedPriorities.get(i));
+
+            contractionSW.start();
+            for (NodeBasedNodeContractor c : parallelContractors)
+                c.setIgnoredNodes(selectedNodes);
+            List<NodeBasedNodeContractor.PendingContraction> pendingContractions = runInParallel(independentSet, NodeBasedNodeContractor::findShortcuts);
+            for (NodeBasedNodeContractor c : parallelContractors)
+                c.setIgnoredNodes(null);
+            for (NodeBasedNodeContractor.PendingContraction pendingContraction : pendingContractions) {
+                int node = pendingContraction.getNode();
+                chGraph.setLevel(node, level);
+                level++;
+                IntContainer neighbors = contractor.contractNode(pendingContraction);
+                for (IntCursor neighbor : neighbors) {
+                    int nn = neighbor.value;
+                    if (neighborUpdate && !updatedNodes.contains(nn) && rand.nextInt(100) < params.getNeighborUpdatePercentage() && !isCore(nn)) {
+                        neighborsToUpdate.add(nn);
+                        updatedNodes.add(nn);
+                    }
+                }
+            }
+            contractionSW.stop();
+            contractedSinceUpdate += independentSet.size();
+
+            if (sortedNodes.size() < nodesToAvoidContract)
+                // skipped nodes are already set to maxLevel
+                break;
+
+            neighborUpdateSW.start();
+            FloatArrayList priorities = calculatePrioritiesInParallel(neighborsToUpdate);
+            for (int i = 0; i < neighborsToUpdate.size(); i++)
+                sortedNodes.update(neighborsToUpdate.get(i), priorities.get(i));
+            neighborUpdateSW.stop();
+
+            for (int i = 0; i < independentSet.size(); i++)
+                selectedNodes.remove(independentSet.get(i));
+            for (int i = 0; i < blockedList.size(); i++)
+                blockedNodes.remove(blockedList.get(i));
+            for (int i = 0; i < neighborsToUpdate.size(); i++)
+                updatedNodes.remove(neighborsToUpdate.get(i));
+            independentSet.elementsCount = 0;
+            blockedList.elementsCount = 0;
+            skippedNodes.elementsCount = 0;
+            skippedPriorities.elementsCount = 0;
+            neighborsToUpdate.elementsCount = 0;
+        }
+        return updateCounter;
+    }
+
+    private void blockNeighbors(int node, PrepareGraphEdgeExplorer explorer, GHBitSet blockedNodes, IntArrayList blockedList) {
+        PrepareGraphEdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            if (!blockedNodes.contains(iter.getAdjNode())) {
+                blockedNodes.add(iter.getAdjNode());
+                blockedList.add(iter.getAdjNode());
+            }
+        }
+    }
+
+    private FloatArrayList calculatePrioritiesInParallel(IntArrayList nodes) {
+        List<Float> priorities = runInParallel(nodes, NodeBasedNodeContractor::calculatePriority);
+        FloatArrayList result = new FloatArrayList(priorities.size());
+        for (Float priority : priorities)
+            result.add(priority);
+        return result;
+    }
+
+    /**
+     * Runs the given task for all the given nodes using one node contractor per thread. The graph must not be changed
+     * meanwhile. The results are returned in the order of the given nodes.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> runInParallel(IntArrayList nodes, ContractorTask<T> task) {
+        double meanDegree = ((NodeBasedNodeContractor) nodeContractor).getMeanDegree();
+        Object[] results = new Object[nodes.size()];
+        List<Future<?>> futures = new ArrayList<>(parallelContractors.length);
+        for (int t = 0; t < parallelContractors.length; t++) {
+            final int thread = t;
+            final NodeBasedNodeContractor contractor = parallelContractors[t];
+            contractor.setMeanDegree(meanDegree);
+            futures.add(parallelExecutor.submit(() -> {
+                for (int i = thread; i < results.length; i += parallelContractors.length)
+                    results[i] = task.apply(contractor, nodes.get(i));
+            }));
+        }
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel contraction failed for " + chConfig.getName(), e.getCause());
+        }
+        List<T> list = new ArrayList<>(results.length);
+        for (Object result : results)
+            list.add((T) result);
+        return list;
+    }
+
+    @FunctionalInterface
+    private interface ContractorTask<T> {
+        T apply(NodeBasedNodeContractor contractor, int node);
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         nodeContractor.prepareContraction();
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
@@ -349,6 +604,10 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         return chGraph.getLevel(node) != maxLevel;
     }
 
+    private boolean isCore(int node) {
+        return coreNodes != null && coreNodes.contains(node);
+    }
+
     private void logHeuristicStats(int updateCounter) {
         logger.info(String.format(Locale.ROOT,
                 "%s, nodes: %10s, shortcuts: %10s, updates: %2d, checked-nodes: %10s, %s, %s, %s",
@@ -376,7 +635,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     }
 
     public long getDijkstraCount() {
-        return nodeContractor.getDijkstraCount();
+        long dijkstraCount = nodeContractor.getDijkstraCount() + parallelDijkstraCount;
+        if (parallelContractors != null)
+            for (NodeBasedNodeContractor contractor : parallelContractors)
+                dijkstraCount += contractor.getDijkstraCount();
+        return dijkstraCount;
     }
 
     public long getShortcuts() {
@@ -435,6 +698,14 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private void _close() {
         nodeContractor.close();
         sortedNodes = null;
+        prepareGraph = null;
+        if (parallelExecutor != null) {
+            parallelExecutor.shutdown();
+            parallelExecutor = null;
+            for (NodeBasedNodeContractor contractor : parallelContractors)
+                parallelDijkstraCount += contractor.getDijkstraCount();
+            parallelContractors = null;
+        }
     }
 
     void close() {
@@ -443,6 +714,32 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         cg.close();
     }
 
+    /**
+     * Used while finding the core nodes, when the shortcuts must not be added to the CH graph
+     */
+    private static class IgnoringShortcutHandler implements NodeBasedNodeContractor.ShortcutHandler {
+        @Override
+        public void startContractingNode() {
+        }
+
+        @Override
+        public void addOutShortcut(int prepareEdge, int node, int adjNode, int skipped1, int skipped2, double weight) {
+        }
+
+        @Override
+        public void addInShortcut(int prepareEdge, int node, int adjNode, int skipped1, int skipped2, double weight) {
+        }
+
+        @Override
+        public int finishContractingNode() {
+            return 0;
+        }
+
+        @Override
+        public void finishContraction() {
+        }
+    }
+
     private static class Params {
         /**
          * Specifies after how many contracted nodes a full refresh of the queue of remaining/not contracted nodes
@@ -478,6 +775,12 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
          * @see #periodicUpdatesPercentage
          */
         private int logMessagesPercentage;
+        /**
+         * The number of threads used to contract the nodes of this profile. A value of 1 means the nodes are
+         * contracted one after the other. Higher values enable the parallel contraction for node-based CH, which
+         * contracts independent sets of nodes and yields a different (but equally deterministic) node ordering.
+         */
+        private int contractionThreads = 1;
 
         static Params forTraversalMode(TraversalMode traversalMode) {
             if (traversalMode.isEdgeBased()) {
@@ -542,6 +845,16 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
             this.logMessagesPercentage = logMessagesPercentage;
         }
 
+        int getContractionThreads() {
+            return contractionThreads;
+        }
+
+        void setContractionThreads(int contractionThreads) {
+            if (contractionThreads < 1)
+                throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1");
+            this.contractionThreads = contractionThreads;
+        }
+
         private void checkPercentage(String name, int value) {
             if (value < 0 || value > 100) {
                 throw new IllegalArgumentException(name + " has to be in [0, 100], to disable it use 0");
@@ -135,6 +135,23 @@ public class UnsignedIntEncodedValue implements IntEncodedValue {
         }
     }
 
+    /**
+     * @return the index of the int in the {@link IntsRef} that holds the value for the specified direction. Together
+     * with {@link #getMask(boolean)} and {@link #getShift(boolean)} this allows reading the value directly from the
+     * flags like {@link #getInt(boolean, IntsRef)} does, e.g. in generated code.
+     */
+    public final int getDataIndex(boolean reverse) {
+        return reverse && storeTwoDirections ? bwdDataIndex : fwdDataIndex;
+    }
+
+    public final int getMask(boolean reverse) {
+        return reverse && storeTwoDirections ? bwdMask : fwdMask;
+    }
+
+    public final int getShift(boolean reverse) {
+        return reverse && storeTwoDirections ? bwdShift : fwdShift;
+    }
+
     @Override
     public int getMaxInt() {
         return maxValue;
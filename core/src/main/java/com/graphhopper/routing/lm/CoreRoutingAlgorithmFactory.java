@@ -0,0 +1,125 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.lm;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.routing.AStarBidirectionCore;
+import com.graphhopper.routing.BidirRoutingAlgorithm;
+import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+import static com.graphhopper.util.Parameters.Routing.ALGORITHM;
+import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
+
+/**
+ * Creates the algorithms for requests with a block area on a partially contracted graph (core-ALT). The nodes that
+ * were not contracted form the core. The blocked edges are excluded while searching the core and the landmarks of
+ * the LM preparation guide the search, because their weights are lower bounds for the shortcuts as well and blocking
+ * edges can only make the paths longer.
+ * <p>
+ * This only works if all blocked edges connect two core nodes, see {@link #isBlockedInCore}, and if the core graph
+ * was prepared with {@link com.graphhopper.routing.ch.PrepareContractionHierarchies#useBlockableCore()}. Otherwise a
+ * shortcut might be missing, because the contraction found a witness path using a blocked edge.
+ */
+public class CoreRoutingAlgorithmFactory extends CHRoutingAlgorithmFactory {
+    private final RoutingCHGraph queryCoreGraph;
+    private final QueryGraph queryGraph;
+    private final LandmarkStorage lms;
+    private final IntHashSet blockedEdges;
+    private int defaultActiveLandmarks;
+
+    public CoreRoutingAlgorithmFactory(RoutingCHGraph coreGraph, QueryGraph queryGraph, LandmarkStorage lms,
+                                       GraphEdgeIdFinder.BlockArea blockArea) {
+        this(new QueryRoutingCHGraph(coreGraph, queryGraph), queryGraph, lms, blockArea);
+    }
+
+    private CoreRoutingAlgorithmFactory(QueryRoutingCHGraph queryCoreGraph, QueryGraph queryGraph, LandmarkStorage lms,
+                                        GraphEdgeIdFinder.BlockArea blockArea) {
+        super(queryCoreGraph);
+        this.queryCoreGraph = queryCoreGraph;
+        this.queryGraph = queryGraph;
+        this.lms = lms;
+        this.defaultActiveLandmarks = Math.max(1, Math.min(lms.getLandmarkCount() / 2, 12));
+        GHIntHashSet blockedBaseEdges = blockArea.getBlockedEdges();
+        if (blockedBaseEdges == null)
+            throw new IllegalArgumentException("The edges of the block area need to be known in advance to route on the core");
+        blockedEdges = new IntHashSet(blockedBaseEdges);
+        // the cached edge ids do not include the virtual edges, but they all start or end at a virtual node
+        EdgeExplorer explorer = queryGraph.createEdgeExplorer();
+        for (int node = queryGraph.getBaseGraph().getNodes(); node < queryGraph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (blockArea.intersects(iter))
+                    blockedEdges.add(iter.getEdge());
+            }
+        }
+    }
+
+    public CoreRoutingAlgorithmFactory setDefaultActiveLandmarks(int defaultActiveLandmarks) {
+        this.defaultActiveLandmarks = defaultActiveLandmarks;
+        return this;
+    }
+
+    @Override
+    public BidirRoutingAlgorithm createAlgo(PMap opts) {
+        if (!lms.isInitialized())
+            throw new IllegalStateException("Initialize landmark storage before creating algorithms");
+        String algoStr = opts.getString(ALGORITHM, ASTAR_BI);
+        if (!Helper.isEmpty(algoStr) && !ASTAR_BI.equals(algoStr))
+            throw new IllegalArgumentException("Algorithm " + algoStr + " not supported for routing on the core. Try with "
+                    + Parameters.Core.DISABLE + "=true");
+        int activeLM = Math.max(1, opts.getInt(Parameters.Landmark.ACTIVE_COUNT, defaultActiveLandmarks));
+        AStarBidirectionCore algo = new AStarBidirectionCore(queryCoreGraph, blockedEdges);
+        algo.setApproximation(LMApproximator.forLandmarks(queryGraph, lms, activeLM));
+        if (opts.has(MAX_VISITED_NODES))
+            algo.setMaxVisitedNodes(opts.getInt(MAX_VISITED_NODES, Integer.MAX_VALUE));
+        return algo;
+    }
+
+    /**
+     * @return true if the edges of the block area are known and all of them connect two nodes of the core, i.e. no
+     * shortcut of the given core graph skips a blocked edge
+     */
+    public static boolean isBlockedInCore(RoutingCHGraph coreGraph, GraphEdgeIdFinder.BlockArea blockArea) {
+        GHIntHashSet blockedEdges = blockArea.getBlockedEdges();
+        if (blockedEdges == null)
+            return false;
+        Graph baseGraph = coreGraph.getBaseGraph();
+        // the nodes that were not contracted keep the highest level
+        int coreLevel = baseGraph.getNodes();
+        for (IntCursor cursor : blockedEdges) {
+            EdgeIteratorState edge = baseGraph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE);
+            if (coreGraph.getLevel(edge.getBaseNode()) != coreLevel || coreGraph.getLevel(edge.getAdjNode()) != coreLevel)
+                return false;
+        }
+        return true;
+    }
+}
@@ -57,6 +57,7 @@ public class LMPreparationHandler {
     private int preparationThreads;
     private ExecutorService threadPool;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
 
     public LMPreparationHandler() {
         setPreparationThreads(1);
@@ -73,6 +74,7 @@ public class LMPreparationHandler {
 
         landmarkCount = ghConfig.getInt(Parameters.Landmark.COUNT, landmarkCount);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
+        setLandmarkThreads(ghConfig.getInt(Landmark.PREPARE + "landmark_threads", landmarkThreads));
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
 
         for (String loc : ghConfig.getString(Landmark.PREPARE + "suggestions_location", "").split(",")) {
@@ -102,6 +104,21 @@ public class LMPreparationHandler {
         this.threadPool = java.util.concurrent.Executors.newFixedThreadPool(preparationThreads);
     }
 
+    public int getLandmarkThreads() {
+        return landmarkThreads;
+    }
+
+    /**
+     * This method changes the number of threads used to calculate the landmark weights of a single LM profile.
+     * Default is 1. Every thread needs memory for two additional Dijkstra explorations.
+     */
+    public LMPreparationHandler setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("prepare.lm.landmark_threads must be at least 1 but was " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
     public LMPreparationHandler setLMProfiles(LMProfile... lmProfiles) {
         return setLMProfiles(Arrays.asList(lmProfiles));
     }
@@ -254,6 +271,7 @@ public class LMPreparationHandler {
                     lmConfig, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
+                    setLandmarkThreads(landmarkThreads).
                     setLogDetails(logDetails);
             if (minNodes > 1)
                 tmpPrepareLM.setMinimumNodes(minNodes);
@@ -31,6 +31,7 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
 public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private final LandmarkStorage lms;
     private int defaultActiveLandmarks;
+    private boolean pooledSearchContext;
 
     public LMRoutingAlgorithmFactory(LandmarkStorage lms) {
         this.lms = lms;
@@ -42,6 +43,15 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return this;
     }
 
+    /**
+     * If enabled the node-based bidirectional algorithm reuses the search context of the current thread, see
+     * {@link BidirSearchContext}
+     */
+    public LMRoutingAlgorithmFactory setPooledSearchContext(boolean pooledSearchContext) {
+        this.pooledSearchContext = pooledSearchContext;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
         if (!lms.isInitialized())
@@ -57,6 +67,12 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             return algo;
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
+            if (pooledSearchContext && !opts.getTraversalMode().isEdgeBased()) {
+                PooledNonCHBidirAlgo algo = new PooledNonCHBidirAlgo(g, weighting);
+                algo.setApproximation(getApproximator(g, activeLM, epsilon));
+                algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+                return algo;
+            }
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
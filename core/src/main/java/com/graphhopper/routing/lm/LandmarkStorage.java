@@ -47,6 +47,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -92,6 +96,7 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private SpatialRuleLookup ruleLookup;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -166,6 +171,22 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         this.logDetails = logDetails;
     }
 
+    /**
+     * This method changes the number of threads used to calculate the weights from and to the landmarks of a
+     * subnetwork. Every landmark is handled by a single thread that writes only the 'column' of this landmark, so
+     * the result does not depend on the number of threads. Default is 1.
+     */
+    public LandmarkStorage setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads must be at least 1 but was " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
+    public int getLandmarkThreads() {
+        return landmarkThreads;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -430,37 +451,18 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, false, true);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, true, false);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        // the first landmark assigns the subnetwork id to all explored nodes and is therefore calculated before the others
+        if (!calcLandmarkWeights(0, tmpLandmarkNodeIds[0], blockedEdges, subnetworks, subnetworkId))
+            return false;
+        logLandmarkProgress(1, tmpLandmarkNodeIds.length, logOffset);
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        if (landmarkThreads <= 1 || tmpLandmarkNodeIds.length <= 2) {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                calcLandmarkWeights(lmIdx, tmpLandmarkNodeIds[lmIdx], blockedEdges, null, subnetworkId);
+                logLandmarkProgress(lmIdx + 1, tmpLandmarkNodeIds.length, logOffset);
             }
-
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+        } else {
+            calcLandmarkWeightsInParallel(tmpLandmarkNodeIds, blockedEdges, subnetworkId, logOffset);
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -468,6 +470,71 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         return true;
     }
 
+    /**
+     * Runs the forward and backward search for the specified landmark and stores the weights in the column of this
+     * landmark. If subnetworks is not null the subnetwork id is assigned to all explored nodes.
+     *
+     * @return false if the subnetwork id could not be assigned
+     */
+    private boolean calcLandmarkWeights(int lmIdx, int lmNodeId, IntHashSet blockedEdges, byte[] subnetworks, int subnetworkId) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+        }
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, true);
+        explorer.setStartNode(lmNodeId);
+        explorer.setFilter(blockedEdges, false, true);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
+        if (subnetworks != null && explorer.setSubnetworks(subnetworks, subnetworkId))
+            return false;
+
+        explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, false);
+        explorer.setStartNode(lmNodeId);
+        explorer.setFilter(blockedEdges, true, false);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        return subnetworks == null || !explorer.setSubnetworks(subnetworks, subnetworkId);
+    }
+
+    /**
+     * Calculates the weights of all but the first landmark concurrently. The 'from' and 'to' weights of one landmark
+     * share the same 4 bytes of a row (and e.g. the same int for RAMIntDataAccess), but the bytes of different landmarks
+     * never overlap. The capacity of the DataAccess is ensured before, so no locking is necessary.
+     */
+    private void calcLandmarkWeightsInParallel(int[] landmarkNodeIds, IntHashSet blockedEdges, int subnetworkId, int logOffset) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(landmarkThreads, landmarkNodeIds.length - 1), r -> {
+            Thread thread = new Thread(r, "lm-weights-" + lmConfig.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger finishedLandmarks = new AtomicInteger(1);
+        List<Future<?>> futures = new ArrayList<>(landmarkNodeIds.length - 1);
+        try {
+            for (int lmIdx = 1; lmIdx < landmarkNodeIds.length; lmIdx++) {
+                final int index = lmIdx;
+                futures.add(executor.submit(() -> {
+                    calcLandmarkWeights(index, landmarkNodeIds[index], blockedEdges, null, subnetworkId);
+                    logLandmarkProgress(finishedLandmarks.incrementAndGet(), landmarkNodeIds.length, logOffset);
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted while calculating landmark weights for " + lmConfig.getName(), e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Calculating landmark weights failed for " + lmConfig.getName(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void logLandmarkProgress(int finishedLandmarks, int landmarkCount, int logOffset) {
+        if (logDetails && (finishedLandmarks - 1) % logOffset == 0)
+            LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                    + "Progress " + (int) (100.0 * finishedLandmarks / landmarkCount) + "%");
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
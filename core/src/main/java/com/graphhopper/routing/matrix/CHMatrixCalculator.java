@@ -0,0 +1,253 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.ch.ShortcutUnpacker;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Calculates a many-to-many matrix on a node-based {@link RoutingCHGraph} using the bucket based approach
+ * described in 'Computing Many-to-Many Shortest Paths Using Highway Hierarchies' by Knopp et al. First we run one
+ * upward search from every target in backward direction and store the reached nodes and their weights in the
+ * buckets of these nodes. Then we run one upward search from every source in forward direction and scan the buckets
+ * of every settled node. The best meeting node for every pair of source and target yields the shortest path.
+ * <p>
+ * The times and distances are only calculated for the best meeting nodes by unpacking the shortcuts of the search
+ * trees. The totals are memoized per search tree entry and per edge such that every edge is only unpacked once.
+ */
+public class CHMatrixCalculator implements MatrixCalculator {
+    private final RoutingCHGraph graph;
+    private final Weighting weighting;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final int maxNodes;
+    private final ShortcutUnpacker shortcutUnpacker;
+    private final IntObjectMap<MatrixEntry> bestWeightMap;
+    private final PriorityQueue<MatrixEntry> heap;
+    private final IntObjectMap<List<BucketEntry>> buckets;
+    // the unpacked distance and time of every edge we already processed, keyed by edge id and end node
+    private final LongIntHashMap edgeTotalIndices = new LongIntHashMap();
+    private final DoubleArrayList edgeDistances = new DoubleArrayList();
+    private final LongArrayList edgeTimes = new LongArrayList();
+    private double unpackedDistance;
+    private long unpackedTime;
+    private int visitedNodes;
+
+    public CHMatrixCalculator(RoutingCHGraph graph) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("Matrix calculations are not supported for edge-based Contraction Hierarchies. Try with ch.disable=true");
+        this.graph = graph;
+        this.weighting = graph.getWeighting();
+        inEdgeExplorer = graph.createInEdgeExplorer();
+        outEdgeExplorer = graph.createOutEdgeExplorer();
+        maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        shortcutUnpacker = new ShortcutUnpacker(graph, (edge, reverse, prevOrNextEdgeId) -> {
+            unpackedDistance += edge.getDistance();
+            unpackedTime += weighting.calcEdgeMillis(edge, reverse);
+        }, false);
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        bestWeightMap = new GHIntObjectHashMap<>(size);
+        heap = new PriorityQueue<>(size);
+        buckets = new GHIntObjectHashMap<>(size);
+    }
+
+    @Override
+    public DistanceMatrix calcMatrix(int[] fromNodes, int[] toNodes) {
+        visitedNodes = 0;
+        buckets.clear();
+        DistanceMatrix matrix = new DistanceMatrix(fromNodes.length, toNodes.length);
+        for (int toIndex = 0; toIndex < toNodes.length; toIndex++) {
+            if (toNodes[toIndex] < 0)
+                continue;
+            for (MatrixEntry entry : runUpwardSearch(toNodes[toIndex], true)) {
+                List<BucketEntry> bucket = buckets.get(entry.adjNode);
+                if (bucket == null) {
+                    bucket = new ArrayList<>(4);
+                    buckets.put(entry.adjNode, bucket);
+                }
+                bucket.add(new BucketEntry(toIndex, entry));
+            }
+        }
+
+        double[] bestWeights = new double[toNodes.length];
+        MatrixEntry[] bestFwdEntries = new MatrixEntry[toNodes.length];
+        MatrixEntry[] bestBwdEntries = new MatrixEntry[toNodes.length];
+        for (int fromIndex = 0; fromIndex < fromNodes.length; fromIndex++) {
+            if (fromNodes[fromIndex] < 0)
+                continue;
+            Arrays.fill(bestWeights, Double.POSITIVE_INFINITY);
+            Arrays.fill(bestFwdEntries, null);
+            Arrays.fill(bestBwdEntries, null);
+            for (MatrixEntry fwdEntry : runUpwardSearch(fromNodes[fromIndex], false)) {
+                List<BucketEntry> bucket = buckets.get(fwdEntry.adjNode);
+                if (bucket == null)
+                    continue;
+                for (BucketEntry bucketEntry : bucket) {
+                    double weight = fwdEntry.weight + bucketEntry.entry.weight;
+                    if (weight < bestWeights[bucketEntry.toIndex]) {
+                        bestWeights[bucketEntry.toIndex] = weight;
+                        bestFwdEntries[bucketEntry.toIndex] = fwdEntry;
+                        bestBwdEntries[bucketEntry.toIndex] = bucketEntry.entry;
+                    }
+                }
+            }
+
+            for (int toIndex = 0; toIndex < toNodes.length; toIndex++) {
+                if (bestFwdEntries[toIndex] == null)
+                    continue;
+                MatrixEntry fwdEntry = bestFwdEntries[toIndex];
+                MatrixEntry bwdEntry = bestBwdEntries[toIndex];
+                calcTotals(fwdEntry, false);
+                calcTotals(bwdEntry, true);
+                matrix.set(fromIndex, toIndex, bestWeights[toIndex],
+                        fwdEntry.time + bwdEntry.time, fwdEntry.distance + bwdEntry.distance);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Runs an exhaustive Dijkstra search that only follows edges leading to nodes with a higher level.
+     *
+     * @return the entries of all settled nodes in the order they were settled
+     */
+    private List<MatrixEntry> runUpwardSearch(int node, boolean reverse) {
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        List<MatrixEntry> settled = new ArrayList<>();
+        bestWeightMap.clear();
+        MatrixEntry root = new MatrixEntry(NO_EDGE, node, 0);
+        bestWeightMap.put(node, root);
+        heap.add(root);
+        while (!heap.isEmpty()) {
+            MatrixEntry currEntry = heap.poll();
+            visitedNodes++;
+            settled.add(currEntry);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(currEntry.adjNode);
+            while (iter.next()) {
+                // for node-based traversal we can exclude u-turns already here
+                if (iter.getEdge() == currEntry.edge || !accept(iter))
+                    continue;
+                double weight = iter.getWeight(reverse) + currEntry.weight;
+                if (Double.isInfinite(weight))
+                    continue;
+                MatrixEntry entry = bestWeightMap.get(iter.getAdjNode());
+                if (entry == null) {
+                    entry = new MatrixEntry(iter.getEdge(), iter.getAdjNode(), weight);
+                    entry.parent = currEntry;
+                    bestWeightMap.put(iter.getAdjNode(), entry);
+                    heap.add(entry);
+                } else if (entry.weight > weight) {
+                    heap.remove(entry);
+                    entry.edge = iter.getEdge();
+                    entry.weight = weight;
+                    entry.parent = currEntry;
+                    heap.add(entry);
+                }
+            }
+        }
+        return settled;
+    }
+
+    private boolean accept(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in wrong direction are disconnected, so no need to exclude them
+        if (edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    /**
+     * Calculates the time and distance between the root of the search tree and the given entry, if this was not done
+     * already.
+     */
+    private void calcTotals(MatrixEntry entry, boolean reverse) {
+        if (entry.time >= 0)
+            return;
+        MatrixEntry parent = (MatrixEntry) entry.parent;
+        if (parent == null) {
+            entry.distance = 0;
+            entry.time = 0;
+            return;
+        }
+        calcTotals(parent, reverse);
+        // the edge is traversed from the parent to the entry in the forward tree and the other way around in the
+        // backward tree
+        int endNode = reverse ? parent.adjNode : entry.adjNode;
+        long key = ((long) entry.edge << 32) | endNode;
+        int index = edgeTotalIndices.getOrDefault(key, -1);
+        if (index < 0) {
+            unpackedDistance = 0;
+            unpackedTime = 0;
+            if (reverse)
+                shortcutUnpacker.visitOriginalEdgesBwd(entry.edge, entry.adjNode, false, NO_EDGE);
+            else
+                shortcutUnpacker.visitOriginalEdgesFwd(entry.edge, entry.adjNode, false, NO_EDGE);
+            index = edgeDistances.size();
+            edgeDistances.add(unpackedDistance);
+            edgeTimes.add(unpackedTime);
+            edgeTotalIndices.put(key, index);
+        }
+        entry.distance = parent.distance + edgeDistances.get(index);
+        entry.time = parent.time + edgeTimes.get(index);
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private static class MatrixEntry extends SPTEntry {
+        double distance;
+        long time = -1;
+
+        MatrixEntry(int edgeId, int adjNode, double weight) {
+            super(edgeId, adjNode, weight);
+        }
+    }
+
+    private static class BucketEntry {
+        final int toIndex;
+        final MatrixEntry entry;
+
+        BucketEntry(int toIndex, MatrixEntry entry) {
+            this.toIndex = toIndex;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Stores the weights, times and distances between a number of from and to nodes. Pairs that are not connected
+ * have an infinite weight and distance and a time of {@link Long#MAX_VALUE}.
+ */
+public class DistanceMatrix {
+    private final double[][] weights;
+    private final long[][] times;
+    private final double[][] distances;
+
+    public DistanceMatrix(int fromCount, int toCount) {
+        weights = new double[fromCount][toCount];
+        times = new long[fromCount][toCount];
+        distances = new double[fromCount][toCount];
+        for (int i = 0; i < fromCount; i++) {
+            Arrays.fill(weights[i], Double.POSITIVE_INFINITY);
+            Arrays.fill(times[i], Long.MAX_VALUE);
+            Arrays.fill(distances[i], Double.POSITIVE_INFINITY);
+        }
+    }
+
+    void set(int fromIndex, int toIndex, double weight, long time, double distance) {
+        weights[fromIndex][toIndex] = weight;
+        times[fromIndex][toIndex] = time;
+        distances[fromIndex][toIndex] = distance;
+    }
+
+    public int getFromCount() {
+        return weights.length;
+    }
+
+    public int getToCount() {
+        return weights.length == 0 ? 0 : weights[0].length;
+    }
+
+    public boolean isConnected(int fromIndex, int toIndex) {
+        return !Double.isInfinite(weights[fromIndex][toIndex]);
+    }
+
+    public double getWeight(int fromIndex, int toIndex) {
+        return weights[fromIndex][toIndex];
+    }
+
+    /**
+     * @return the time in milliseconds
+     */
+    public long getTime(int fromIndex, int toIndex) {
+        return times[fromIndex][toIndex];
+    }
+
+    /**
+     * @return the distance in meters
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        return distances[fromIndex][toIndex];
+    }
+
+    public double[][] getWeights() {
+        return weights;
+    }
+
+    public long[][] getTimes() {
+        return times;
+    }
+
+    public double[][] getDistances() {
+        return distances;
+    }
+}
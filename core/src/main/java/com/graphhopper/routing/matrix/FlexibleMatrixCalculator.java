@@ -0,0 +1,133 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.PathExtractor;
+import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+
+/**
+ * Calculates a many-to-many matrix by running one Dijkstra search per source that stops as soon as all targets are
+ * reached. This works for every weighting and traversal mode, but is much slower than {@link CHMatrixCalculator}.
+ */
+public class FlexibleMatrixCalculator implements MatrixCalculator {
+    private final Graph graph;
+    private final Weighting weighting;
+    private final TraversalMode traversalMode;
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private int visitedNodes;
+
+    public FlexibleMatrixCalculator(Graph graph, Weighting weighting, TraversalMode traversalMode) {
+        this.graph = graph;
+        // the weighting needs to handle turns on virtual nodes in case graph is a query graph
+        this.weighting = graph.wrapWeighting(weighting);
+        this.traversalMode = traversalMode;
+    }
+
+    /**
+     * Limits the number of visited nodes of the search for every source. Targets that are not reached until then
+     * are treated as not connected.
+     */
+    public FlexibleMatrixCalculator setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+        return this;
+    }
+
+    @Override
+    public DistanceMatrix calcMatrix(int[] fromNodes, int[] toNodes) {
+        visitedNodes = 0;
+        IntObjectMap<IntArrayList> toIndicesByNode = new GHIntObjectHashMap<>(toNodes.length);
+        for (int toIndex = 0; toIndex < toNodes.length; toIndex++) {
+            if (toNodes[toIndex] < 0)
+                continue;
+            IntArrayList toIndices = toIndicesByNode.get(toNodes[toIndex]);
+            if (toIndices == null) {
+                toIndices = new IntArrayList(1);
+                toIndicesByNode.put(toNodes[toIndex], toIndices);
+            }
+            toIndices.add(toIndex);
+        }
+
+        DistanceMatrix matrix = new DistanceMatrix(fromNodes.length, toNodes.length);
+        if (toIndicesByNode.isEmpty())
+            return matrix;
+        for (int fromIndex = 0; fromIndex < fromNodes.length; fromIndex++) {
+            if (fromNodes[fromIndex] < 0)
+                continue;
+            OneToManyDijkstra algo = new OneToManyDijkstra(toIndicesByNode, toNodes.length);
+            algo.setMaxVisitedNodes(maxVisitedNodes);
+            algo.calcTree(fromNodes[fromIndex]);
+            visitedNodes += algo.getVisitedNodes();
+            for (int toIndex = 0; toIndex < toNodes.length; toIndex++) {
+                SPTEntry entry = algo.targetEntries[toIndex];
+                if (entry == null)
+                    continue;
+                Path path = PathExtractor.extractPath(graph, weighting, entry);
+                matrix.set(fromIndex, toIndex, entry.getWeightOfVisitedPath(), path.getTime(), path.getDistance());
+            }
+        }
+        return matrix;
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private class OneToManyDijkstra extends Dijkstra {
+        private final IntObjectMap<IntArrayList> toIndicesByNode;
+        private final SPTEntry[] targetEntries;
+        private int remainingTargetNodes;
+
+        OneToManyDijkstra(IntObjectMap<IntArrayList> toIndicesByNode, int toCount) {
+            super(FlexibleMatrixCalculator.this.graph, FlexibleMatrixCalculator.this.weighting, FlexibleMatrixCalculator.this.traversalMode);
+            this.toIndicesByNode = toIndicesByNode;
+            this.targetEntries = new SPTEntry[toCount];
+            this.remainingTargetNodes = toIndicesByNode.size();
+        }
+
+        void calcTree(int from) {
+            checkAlreadyRun();
+            currEdge = new SPTEntry(from, 0);
+            if (!traversalMode.isEdgeBased()) {
+                fromMap.put(from, currEdge);
+            }
+            runAlgo();
+        }
+
+        @Override
+        protected boolean finished() {
+            IntArrayList toIndices = toIndicesByNode.get(currEdge.adjNode);
+            // for edge-based traversal the same node can be settled multiple times, but the first time is the best
+            if (toIndices != null && targetEntries[toIndices.get(0)] == null) {
+                for (int i = 0; i < toIndices.size(); i++) {
+                    targetEntries[toIndices.get(i)] = currEdge;
+                }
+                remainingTargetNodes--;
+            }
+            return remainingTargetNodes == 0;
+        }
+    }
+}
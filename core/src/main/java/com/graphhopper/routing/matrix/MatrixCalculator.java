@@ -0,0 +1,39 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+/**
+ * Calculates the shortest path weights, times and distances between all pairs of a set of from and to nodes.
+ *
+ * @see CHMatrixCalculator
+ * @see FlexibleMatrixCalculator
+ */
+public interface MatrixCalculator {
+
+    /**
+     * @param fromNodes the start nodes, negative values are treated as invalid nodes that are not connected to
+     *                  any other node
+     * @param toNodes   the end nodes, negative values are treated like for fromNodes
+     */
+    DistanceMatrix calcMatrix(int[] fromNodes, int[] toNodes);
+
+    /**
+     * @return the number of nodes visited during the last call of {@link #calcMatrix}
+     */
+    int getVisitedNodes();
+}
@@ -58,8 +58,9 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
         this.queryOverlay = queryGraph.getQueryOverlay();
         this.queryGraph = queryGraph;
         this.queryGraphWeighting = queryGraph.wrapWeighting(weighting);
-        virtualOutEdgesAtRealNodes = buildVirtualEdgesAtRealNodes(routingCHGraph.createOutEdgeExplorer());
-        virtualInEdgesAtRealNodes = buildVirtualEdgesAtRealNodes(routingCHGraph.createInEdgeExplorer());
+        // we also keep the edges leading to lower level nodes here, the algorithms filter them like all other edges
+        virtualOutEdgesAtRealNodes = buildVirtualEdgesAtRealNodes(routingCHGraph.createAllLevelsOutEdgeExplorer());
+        virtualInEdgesAtRealNodes = buildVirtualEdgesAtRealNodes(routingCHGraph.createAllLevelsInEdgeExplorer());
         virtualEdgesAtVirtualNodes = buildVirtualEdgesAtVirtualNodes();
         nodes = queryGraph.getNodes();
     }
@@ -100,6 +101,16 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
         return createEdgeExplorer(routingCHGraph.createOutEdgeExplorer(), virtualOutEdgesAtRealNodes);
     }
 
+    @Override
+    public RoutingCHEdgeExplorer createAllLevelsInEdgeExplorer() {
+        return createEdgeExplorer(routingCHGraph.createAllLevelsInEdgeExplorer(), virtualInEdgesAtRealNodes);
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createAllLevelsOutEdgeExplorer() {
+        return createEdgeExplorer(routingCHGraph.createAllLevelsOutEdgeExplorer(), virtualOutEdgesAtRealNodes);
+    }
+
     private RoutingCHEdgeExplorer createEdgeExplorer(final RoutingCHEdgeExplorer explorer, final IntObjectMap<List<RoutingCHEdgeIteratorState>> virtualEdgesAtRealNodes) {
         final VirtualCHEdgeIterator iterator = new VirtualCHEdgeIterator();
         return new RoutingCHEdgeExplorer() {
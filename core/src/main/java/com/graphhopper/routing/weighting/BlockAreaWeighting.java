@@ -24,6 +24,10 @@ public class BlockAreaWeighting extends AbstractAdjustedWeighting {
         return superWeighting.calcEdgeWeight(edgeState, reverse);
     }
 
+    public GraphEdgeIdFinder.BlockArea getBlockArea() {
+        return blockArea;
+    }
+
     @Override
     public String getName() {
         return "block_area";
@@ -0,0 +1,148 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.coll.GHTBitSet;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.Polygon;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Keeps the ids of the edges that intersect the most recently used areas of custom models, such that evaluating an
+ * area entry for an edge of the graph is a bit test instead of a geometry intersection. The edges of an area are
+ * resolved via the {@link LocationIndex} the first time the area is used, and areas defined in the profile or in a
+ * request are treated the same. The cache is limited by the estimated memory of the edge sets and evicts the least
+ * recently used areas. This class is thread-safe.
+ */
+public final class AreaEdgesCache {
+    private static final Logger logger = LoggerFactory.getLogger(AreaEdgesCache.class);
+    private final Graph graph;
+    private final LocationIndex locationIndex;
+    private final int baseEdges;
+    private final long maxBytes;
+    private final LinkedHashMap<String, AreaEdges> edgesByArea = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * @param maxBytes the maximum memory of the cached edge sets. Small areas are stored as a hash set of the edge
+     *                 ids, big areas need up to one bit per edge of the graph
+     */
+    public AreaEdgesCache(Graph graph, LocationIndex locationIndex, long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("The maximum bytes of the area cache must not be negative: " + maxBytes);
+        this.graph = graph;
+        this.locationIndex = locationIndex;
+        this.baseEdges = graph.getEdges();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the ids of all edges of the graph that intersect the specified area
+     */
+    GHBitSet getEdges(Geometry geometry) {
+        // the WKT of the geometry identifies the area, the id of the area can be used for different geometries
+        String key = geometry.toText();
+        synchronized (edgesByArea) {
+            AreaEdges areaEdges = edgesByArea.get(key);
+            if (areaEdges != null)
+                return areaEdges.edges;
+        }
+        // like for CCHMetricCache we do not block requests with other areas while we resolve the edges
+        StopWatch sw = new StopWatch().start();
+        AreaEdges areaEdges = findEdges(new Polygon(new PreparedGeometryFactory().create(geometry)));
+        logger.debug("found " + areaEdges.edges.getCardinality() + " edges for area with " + geometry.getNumPoints()
+                + " points, " + areaEdges.bytes + " bytes, took: " + sw.stop().getSeconds() + "s");
+        // an area that is bigger than the whole cache is still used for the current request
+        if (areaEdges.bytes <= maxBytes)
+            put(key, areaEdges);
+        return areaEdges.edges;
+    }
+
+    private void put(String key, AreaEdges areaEdges) {
+        synchronized (edgesByArea) {
+            AreaEdges old = edgesByArea.put(key, areaEdges);
+            if (old != null)
+                bytes -= old.bytes;
+            bytes += areaEdges.bytes;
+            Iterator<AreaEdges> iter = edgesByArea.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= iter.next().bytes;
+                iter.remove();
+            }
+        }
+    }
+
+    private AreaEdges findEdges(final Polygon polygon) {
+        final GHBitSetImpl edges = new GHBitSetImpl();
+        locationIndex.query(polygon.getBounds(), new LocationIndex.EdgeVisitor(graph.createEdgeExplorer()) {
+            @Override
+            public void onEdge(EdgeIteratorState edge, int nodeA, int nodeB) {
+                if (polygon.intersects(edge.fetchWayGeometry(FetchMode.ALL).makeImmutable()))
+                    edges.add(edge.getEdge());
+            }
+        });
+        // the bit set needs one bit up to the biggest edge id, while a hash set needs roughly 8 bytes per edge
+        long bitSetBytes = edges.size() / 8;
+        long hashSetBytes = 8L * edges.getCardinality();
+        if (hashSetBytes >= bitSetBytes)
+            return new AreaEdges(edges, bitSetBytes);
+        return new AreaEdges(edges.copyTo(new GHTBitSet(edges.getCardinality())), hashSetBytes);
+    }
+
+    /**
+     * @return the number of edges of the graph. Edges with a bigger id, i.e. the virtual edges of a query graph, are
+     * not contained in the edge sets and need to be intersected with the area directly
+     */
+    int getBaseEdges() {
+        return baseEdges;
+    }
+
+    public int size() {
+        synchronized (edgesByArea) {
+            return edgesByArea.size();
+        }
+    }
+
+    long getBytes() {
+        synchronized (edgesByArea) {
+            return bytes;
+        }
+    }
+
+    private static class AreaEdges {
+        final GHBitSet edges;
+        final long bytes;
+
+        AreaEdges(GHBitSet edges, long bytes) {
+            this.edges = edges;
+            this.bytes = bytes;
+        }
+    }
+}
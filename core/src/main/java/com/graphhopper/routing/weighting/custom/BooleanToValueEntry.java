@@ -18,6 +18,7 @@
 package com.graphhopper.routing.weighting.custom;
 
 import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.UnsignedIntEncodedValue;
 import com.graphhopper.util.EdgeIteratorState;
 
 import java.util.Map;
@@ -25,7 +26,7 @@ import java.util.Map;
 import static com.graphhopper.routing.weighting.custom.CustomWeighting.CATCH_ALL;
 import static com.graphhopper.routing.weighting.custom.EnumToValueEntry.getReturnValue;
 
-final class BooleanToValueEntry implements EdgeToValueEntry {
+final class BooleanToValueEntry implements StoredIntToValueEntry {
     private final BooleanEncodedValue bev;
     private final double value, elseValue;
 
@@ -78,6 +79,24 @@ final class BooleanToValueEntry implements EdgeToValueEntry {
         return iter.get(bev) ? value : elseValue;
     }
 
+    @Override
+    public UnsignedIntEncodedValue getEncodedValue() {
+        return bev instanceof UnsignedIntEncodedValue ? (UnsignedIntEncodedValue) bev : null;
+    }
+
+    @Override
+    public boolean isDirected() {
+        // getValue ignores the direction of travel
+        return false;
+    }
+
+    @Override
+    public double[] createTable() {
+        if (Double.isNaN(value))
+            return new double[]{elseValue, elseValue};
+        return new double[]{elseValue, value};
+    }
+
     @Override
     public String toString() {
         return bev.getName() + ": " + value + ", else:" + elseValue;
@@ -0,0 +1,42 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * The edge dependent part of a {@link com.graphhopper.routing.util.CustomModel}. Implementations are generated at
+ * runtime by {@link CustomModelCompiler} and therefore this interface has to be public.
+ */
+public interface CompiledCustomModel {
+
+    /**
+     * @return the product of all priority entries for the specified edge
+     */
+    double calcPriority(EdgeIteratorState edge, boolean reverse);
+
+    /**
+     * @return the product of all speed_factor entries for the specified edge
+     */
+    double calcSpeedFactor(EdgeIteratorState edge, boolean reverse);
+
+    /**
+     * @return the minimum of all max_speed entries for the specified edge or infinity if there are none
+     */
+    double calcMaxSpeed(EdgeIteratorState edge, boolean reverse);
+}
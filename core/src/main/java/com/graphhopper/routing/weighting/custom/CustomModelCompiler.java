@@ -0,0 +1,348 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.UnsignedIntEncodedValue;
+import com.graphhopper.storage.IntsRef;
+import com.graphhopper.util.EdgeIteratorState;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Compiles the entries of a custom model into a single class that is generated at runtime, so that evaluating the
+ * model for an edge does not iterate over lists of {@link EdgeToValueEntry} with a megamorphic call per entry.
+ * <p>
+ * Every {@link StoredIntToValueEntry} becomes a lookup in a table that is indexed by the int that is read straight
+ * from the {@link IntsRef} of the edge. Entries that have the same value for every edge are folded into a single
+ * constant. All other entries, e.g. the areas, are still called via {@link EdgeToValueEntry#getValue}, but from a
+ * monomorphic call site.
+ * <p>
+ * The generated class only depends on the structure of the model, i.e. the bit positions of the encoded values, but
+ * not on the values of the tables or the folded constants, which are passed to its constructor. Therefore the classes
+ * are cached and custom models that only differ in these values reuse the same class.
+ */
+final class CustomModelCompiler {
+    // bigger encoded values are not worth a table and are read via the entry
+    private static final int MAX_TABLE_SIZE = 1 << 12;
+    private static final int MAX_CACHED_CLASSES = 1000;
+    private static final String EDGE = Type.getInternalName(EdgeIteratorState.class);
+    private static final String ENTRY = Type.getInternalName(EdgeToValueEntry.class);
+    private static final String INTS_REF = Type.getInternalName(IntsRef.class);
+    private static final String BOOLEAN_EV = Type.getInternalName(BooleanEncodedValue.class);
+    private static final String GET_VALUE_DESC = "(L" + EDGE + ";Z)D";
+    private static final AtomicInteger classCounter = new AtomicInteger();
+    private static final Map<String, Constructor<?>> classCache = new LinkedHashMap<String, Constructor<?>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Constructor<?>> eldest) {
+            return size() > MAX_CACHED_CLASSES;
+        }
+    };
+
+    private CustomModelCompiler() {
+    }
+
+    static CompiledCustomModel compile(List<EdgeToValueEntry> priorityList, List<EdgeToValueEntry> speedFactorList,
+                                       List<EdgeToValueEntry> maxSpeedList) {
+        List<MethodSpec> methods = new ArrayList<>(3);
+        methods.add(new MethodSpec("calcPriority", false, priorityList));
+        methods.add(new MethodSpec("calcSpeedFactor", false, speedFactorList));
+        methods.add(new MethodSpec("calcMaxSpeed", true, maxSpeedList));
+
+        StringBuilder key = new StringBuilder();
+        double[] constants = new double[methods.size()];
+        List<double[]> tables = new ArrayList<>();
+        List<EdgeToValueEntry> calls = new ArrayList<>();
+        for (int i = 0; i < methods.size(); i++) {
+            MethodSpec method = methods.get(i);
+            key.append(method.getKey()).append('|');
+            constants[i] = method.constant;
+            for (TableEntry entry : method.tables)
+                tables.add(entry.table);
+            calls.addAll(method.calls);
+        }
+
+        Constructor<?> constructor;
+        synchronized (classCache) {
+            constructor = classCache.get(key.toString());
+            if (constructor == null) {
+                constructor = defineClass(methods);
+                classCache.put(key.toString(), constructor);
+            }
+        }
+        try {
+            return (CompiledCustomModel) constructor.newInstance(constants, tables.toArray(new double[0][]), calls.toArray(new EdgeToValueEntry[0]));
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create compiled custom model", ex);
+        }
+    }
+
+    private static Constructor<?> defineClass(List<MethodSpec> methods) {
+        String className = CustomModelCompiler.class.getPackage().getName().replace('.', '/')
+                + "/GeneratedCustomModel" + classCounter.incrementAndGet();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, "java/lang/Object",
+                new String[]{Type.getInternalName(CompiledCustomModel.class)});
+
+        // one field per method for the folded constant and one per table and per remaining entry, they are assigned
+        // in the constructor in the same order
+        MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "([D[[D[L" + ENTRY + ";)V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        int tableIndex = 0, callIndex = 0;
+        for (int m = 0; m < methods.size(); m++) {
+            MethodSpec method = methods.get(m);
+            cw.visitField(ACC_PRIVATE | ACC_FINAL, method.name + "Constant", "D", null, null).visitEnd();
+            init.visitVarInsn(ALOAD, 0);
+            init.visitVarInsn(ALOAD, 1);
+            init.visitLdcInsn(m);
+            init.visitInsn(DALOAD);
+            init.visitFieldInsn(PUTFIELD, className, method.name + "Constant", "D");
+            for (int i = 0; i < method.tables.size(); i++, tableIndex++) {
+                String field = method.name + "Table" + i;
+                cw.visitField(ACC_PRIVATE | ACC_FINAL, field, "[D", null, null).visitEnd();
+                init.visitVarInsn(ALOAD, 0);
+                init.visitVarInsn(ALOAD, 2);
+                init.visitLdcInsn(tableIndex);
+                init.visitInsn(AALOAD);
+                init.visitFieldInsn(PUTFIELD, className, field, "[D");
+            }
+            for (int i = 0; i < method.calls.size(); i++, callIndex++) {
+                String field = method.name + "Entry" + i;
+                cw.visitField(ACC_PRIVATE | ACC_FINAL, field, "L" + ENTRY + ";", null, null).visitEnd();
+                init.visitVarInsn(ALOAD, 0);
+                init.visitVarInsn(ALOAD, 3);
+                init.visitLdcInsn(callIndex);
+                init.visitInsn(AALOAD);
+                init.visitFieldInsn(PUTFIELD, className, field, "L" + ENTRY + ";");
+            }
+        }
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        for (MethodSpec method : methods) {
+            writeMethod(cw, className, method);
+        }
+        cw.visitEnd();
+
+        Class<?> clazz = new GeneratedClassLoader().define(className.replace('/', '.'), cw.toByteArray());
+        try {
+            return clazz.getConstructor(double[].class, double[][].class, EdgeToValueEntry[].class);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void writeMethod(ClassWriter cw, String className, MethodSpec method) {
+        // local variables: 0 this, 1 edge, 2 reverse, 3 ints, 4 offset, 5 the stored direction of the edge,
+        // 6 the direction to read directed values for, 7 the result (two slots)
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, method.name, GET_VALUE_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, className, method.name + "Constant", "D");
+        if (!method.min) {
+            // a folded zero makes the product zero, so we do not even read the flags
+            Label nonZero = new Label();
+            mv.visitInsn(DUP2);
+            mv.visitInsn(DCONST_0);
+            mv.visitInsn(DCMPL);
+            mv.visitJumpInsn(IFNE, nonZero);
+            mv.visitInsn(DCONST_0);
+            mv.visitInsn(DRETURN);
+            mv.visitLabel(nonZero);
+        }
+        mv.visitVarInsn(DSTORE, 7);
+
+        if (!method.tables.isEmpty()) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKEINTERFACE, EDGE, "getFlags", "()L" + INTS_REF + ";", true);
+            mv.visitInsn(DUP);
+            mv.visitFieldInsn(GETFIELD, INTS_REF, "ints", "[I");
+            mv.visitVarInsn(ASTORE, 3);
+            mv.visitFieldInsn(GETFIELD, INTS_REF, "offset", "I");
+            mv.visitVarInsn(ISTORE, 4);
+            // the flags are stored in the direction of the edge in the storage, which can differ from the direction
+            // of the edge state
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitFieldInsn(GETSTATIC, EDGE, "REVERSE_STATE", "L" + BOOLEAN_EV + ";");
+            mv.visitMethodInsn(INVOKEINTERFACE, EDGE, "get", "(L" + BOOLEAN_EV + ";)Z", true);
+            mv.visitInsn(DUP);
+            mv.visitVarInsn(ISTORE, 5);
+            mv.visitVarInsn(ILOAD, 2);
+            mv.visitInsn(IXOR);
+            mv.visitVarInsn(ISTORE, 6);
+        }
+
+        for (int i = 0; i < method.tables.size(); i++) {
+            TableEntry entry = method.tables.get(i);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, method.name + "Table" + i, "[D");
+            if (entry.fwdIndex == entry.bwdIndex && entry.fwdMask == entry.bwdMask && entry.fwdShift == entry.bwdShift) {
+                writeReadInt(mv, entry.fwdIndex, entry.fwdMask, entry.fwdShift);
+            } else {
+                Label forward = new Label(), end = new Label();
+                mv.visitVarInsn(ILOAD, entry.directed ? 6 : 5);
+                mv.visitJumpInsn(IFEQ, forward);
+                writeReadInt(mv, entry.bwdIndex, entry.bwdMask, entry.bwdShift);
+                mv.visitJumpInsn(GOTO, end);
+                mv.visitLabel(forward);
+                writeReadInt(mv, entry.fwdIndex, entry.fwdMask, entry.fwdShift);
+                mv.visitLabel(end);
+            }
+            mv.visitInsn(DALOAD);
+            writeCombine(mv, method.min);
+        }
+
+        for (int i = 0; i < method.calls.size(); i++) {
+            if (!method.min) {
+                // the remaining entries are expensive, e.g. areas, so we skip them once the product is zero
+                Label nonZero = new Label();
+                mv.visitVarInsn(DLOAD, 7);
+                mv.visitInsn(DCONST_0);
+                mv.visitInsn(DCMPL);
+                mv.visitJumpInsn(IFNE, nonZero);
+                mv.visitInsn(DCONST_0);
+                mv.visitInsn(DRETURN);
+                mv.visitLabel(nonZero);
+            }
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, method.name + "Entry" + i, "L" + ENTRY + ";");
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitVarInsn(ILOAD, 2);
+            mv.visitMethodInsn(INVOKEINTERFACE, ENTRY, "getValue", GET_VALUE_DESC, true);
+            writeCombine(mv, method.min);
+        }
+        mv.visitVarInsn(DLOAD, 7);
+        mv.visitInsn(DRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Pushes (ints[offset + index] & mask) >>> shift
+     */
+    private static void writeReadInt(MethodVisitor mv, int index, int mask, int shift) {
+        mv.visitVarInsn(ALOAD, 3);
+        mv.visitVarInsn(ILOAD, 4);
+        mv.visitLdcInsn(index);
+        mv.visitInsn(IADD);
+        mv.visitInsn(IALOAD);
+        mv.visitLdcInsn(mask);
+        mv.visitInsn(IAND);
+        mv.visitLdcInsn(shift);
+        mv.visitInsn(IUSHR);
+    }
+
+    /**
+     * Combines the value on the stack with the result in the local variable 7
+     */
+    private static void writeCombine(MethodVisitor mv, boolean min) {
+        mv.visitVarInsn(DLOAD, 7);
+        if (min)
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "min", "(DD)D", false);
+        else
+            mv.visitInsn(DMUL);
+        mv.visitVarInsn(DSTORE, 7);
+    }
+
+    private static class MethodSpec {
+        final String name;
+        final boolean min;
+        final List<TableEntry> tables = new ArrayList<>();
+        final List<EdgeToValueEntry> calls = new ArrayList<>();
+        double constant;
+
+        MethodSpec(String name, boolean min, List<EdgeToValueEntry> entries) {
+            this.name = name;
+            this.min = min;
+            this.constant = min ? Double.POSITIVE_INFINITY : 1;
+            for (EdgeToValueEntry entry : entries) {
+                UnsignedIntEncodedValue ev = entry instanceof StoredIntToValueEntry ? ((StoredIntToValueEntry) entry).getEncodedValue() : null;
+                if (ev == null || ev.getMaxInt() >= MAX_TABLE_SIZE) {
+                    calls.add(entry);
+                    continue;
+                }
+                StoredIntToValueEntry intEntry = (StoredIntToValueEntry) entry;
+                double[] table = intEntry.createTable();
+                if (isConstant(table))
+                    constant = min ? Math.min(constant, table[0]) : constant * table[0];
+                else
+                    tables.add(new TableEntry(ev, intEntry.isDirected(), table));
+            }
+        }
+
+        String getKey() {
+            StringBuilder sb = new StringBuilder(name);
+            for (TableEntry entry : tables) {
+                sb.append(',').append(entry.directed).append(',').append(entry.fwdIndex).append(',').append(entry.fwdMask)
+                        .append(',').append(entry.fwdShift).append(',').append(entry.bwdIndex).append(',')
+                        .append(entry.bwdMask).append(',').append(entry.bwdShift);
+            }
+            return sb.append(",calls=").append(calls.size()).toString();
+        }
+    }
+
+    private static boolean isConstant(double[] table) {
+        for (int i = 1; i < table.length; i++) {
+            if (Double.compare(table[i], table[0]) != 0)
+                return false;
+        }
+        return table.length > 0;
+    }
+
+    private static class TableEntry {
+        final boolean directed;
+        final double[] table;
+        final int fwdIndex, fwdMask, fwdShift;
+        final int bwdIndex, bwdMask, bwdShift;
+
+        TableEntry(UnsignedIntEncodedValue ev, boolean directed, double[] table) {
+            this.directed = directed;
+            this.table = table;
+            fwdIndex = ev.getDataIndex(false);
+            fwdMask = ev.getMask(false);
+            fwdShift = ev.getShift(false);
+            bwdIndex = ev.getDataIndex(true);
+            bwdMask = ev.getMask(true);
+            bwdShift = ev.getShift(true);
+        }
+    }
+
+    private static class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader() {
+            super(CustomModelCompiler.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
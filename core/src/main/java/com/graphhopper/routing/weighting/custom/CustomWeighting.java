@@ -72,6 +72,7 @@ import com.graphhopper.util.EdgeIteratorState;
  *
  * @see SpeedCalculator for details how speed_factor and max_speed are derived from some given edge properties
  * @see PriorityCalculator for details how priority is derived for some given edge properties
+ * @see CustomModelCompiler for how these calculations are compiled into bytecode
  */
 public final class CustomWeighting extends AbstractWeighting {
     public static final String NAME = "custom";
@@ -87,20 +88,31 @@ public final class CustomWeighting extends AbstractWeighting {
     private final double distanceInfluence;
     private final double headingPenaltySeconds;
     private final SpeedCalculator speedCalculator;
-    private final PriorityCalculator priorityCalculator;
+    private final CompiledCustomModel compiledModel;
 
     public CustomWeighting(FlagEncoder baseFlagEncoder, EncodedValueLookup lookup,
                            TurnCostProvider turnCostProvider, CustomModel customModel) {
+        this(baseFlagEncoder, lookup, turnCostProvider, customModel, null);
+    }
+
+    /**
+     * @param areaEdgesCache if not null the edges of the areas of the custom model are looked up in this cache, which
+     *                       requires that this weighting is used for the graph of the cache or a query graph on top
+     */
+    public CustomWeighting(FlagEncoder baseFlagEncoder, EncodedValueLookup lookup, TurnCostProvider turnCostProvider,
+                           CustomModel customModel, AreaEdgesCache areaEdgesCache) {
         super(baseFlagEncoder, turnCostProvider);
         if (customModel == null)
             throw new IllegalStateException("CustomModel cannot be null");
 
         headingPenaltySeconds = customModel.getHeadingPenalty();
         baseVehicleAccessEnc = baseFlagEncoder.getAccessEnc();
-        speedCalculator = new SpeedCalculator(baseFlagEncoder.getMaxSpeed(), customModel, baseFlagEncoder.getAverageSpeedEnc(), lookup);
+        speedCalculator = new SpeedCalculator(baseFlagEncoder.getMaxSpeed(), customModel, baseFlagEncoder.getAverageSpeedEnc(), lookup, areaEdgesCache);
         maxSpeed = speedCalculator.getMaxSpeed() / SPEED_CONV;
 
-        priorityCalculator = new PriorityCalculator(customModel, lookup);
+        PriorityCalculator priorityCalculator = new PriorityCalculator(customModel, lookup, areaEdgesCache);
+        compiledModel = CustomModelCompiler.compile(priorityCalculator.getPriorityList(),
+                speedCalculator.getSpeedFactorList(), speedCalculator.getMaxSpeedList());
 
         // given unit is s/km -> convert to s/m
         distanceInfluence = customModel.getDistanceInfluence() / 1000;
@@ -122,7 +134,7 @@ public final class CustomWeighting extends AbstractWeighting {
         double distanceCosts = distance * distanceInfluence;
         if (Double.isInfinite(distanceCosts))
             return Double.POSITIVE_INFINITY;
-        return seconds / priorityCalculator.calcPriority(edgeState, reverse) + distanceCosts;
+        return seconds / compiledModel.calcPriority(edgeState, reverse) + distanceCosts;
     }
 
     double calcSeconds(double distance, EdgeIteratorState edgeState, boolean reverse) {
@@ -134,7 +146,7 @@ public final class CustomWeighting extends AbstractWeighting {
         if (reverse ? !edgeState.getReverse(baseVehicleAccessEnc) : !edgeState.get(baseVehicleAccessEnc))
             return Double.POSITIVE_INFINITY;
 
-        double speed = speedCalculator.calcSpeed(edgeState, reverse);
+        double speed = speedCalculator.calcSpeed(edgeState, reverse, compiledModel);
         if (speed == 0)
             return Double.POSITIVE_INFINITY;
         if (speed < 0)
@@ -18,6 +18,8 @@
 package com.graphhopper.routing.weighting.custom;
 
 import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.UnsignedIntEncodedValue;
+import com.graphhopper.storage.IntsRef;
 import com.graphhopper.util.EdgeIteratorState;
 
 import java.util.ArrayList;
@@ -27,7 +29,7 @@ import java.util.Map;
 import static com.graphhopper.routing.weighting.custom.CustomWeighting.CATCH_ALL;
 import static com.graphhopper.routing.weighting.custom.EnumToValueEntry.getReturnValue;
 
-final class DecimalToValueEntry implements EdgeToValueEntry {
+final class DecimalToValueEntry implements StoredIntToValueEntry {
     private final DecimalEncodedValue dev;
     private final double minExclusive, maxExclusive;
     private final double rangeValue;
@@ -47,6 +49,29 @@ final class DecimalToValueEntry implements EdgeToValueEntry {
         return edgeValue < maxExclusive && edgeValue > minExclusive ? rangeValue : fallback;
     }
 
+    @Override
+    public UnsignedIntEncodedValue getEncodedValue() {
+        return dev instanceof UnsignedIntEncodedValue ? (UnsignedIntEncodedValue) dev : null;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return true;
+    }
+
+    @Override
+    public double[] createTable() {
+        UnsignedIntEncodedValue iev = (UnsignedIntEncodedValue) dev;
+        IntsRef ref = new IntsRef(iev.getDataIndex(false) + 1);
+        double[] table = new double[iev.getMaxInt() + 1];
+        for (int i = 0; i < table.length; i++) {
+            iev.setInt(false, ref, i);
+            double edgeValue = dev.getDecimal(false, ref);
+            table[i] = edgeValue < maxExclusive && edgeValue > minExclusive ? rangeValue : fallback;
+        }
+        return table;
+    }
+
     static class Range {
         final double min, max, value;
 
@@ -24,7 +24,7 @@ import com.graphhopper.util.EdgeIteratorState;
  * Implementations of this internal interface represent the conversion rules we use to map {@link EncodedValue}s to
  * numerical values when determining the different parameters for {@link CustomWeighting}.
  */
-interface EdgeToValueEntry {
+public interface EdgeToValueEntry {
 
     /**
      * @return the numeric value that shall be associated with the given (directed) edge
@@ -19,6 +19,7 @@ package com.graphhopper.routing.weighting.custom;
 
 import com.graphhopper.routing.ev.EnumEncodedValue;
 import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.UnsignedIntEncodedValue;
 import com.graphhopper.util.EdgeIteratorState;
 
 import java.util.Arrays;
@@ -26,7 +27,7 @@ import java.util.Map;
 
 import static com.graphhopper.routing.weighting.custom.CustomWeighting.CATCH_ALL;
 
-final class EnumToValueEntry implements EdgeToValueEntry {
+final class EnumToValueEntry implements StoredIntToValueEntry {
     private final IntEncodedValue eev;
     private final double[] values;
 
@@ -41,6 +42,21 @@ final class EnumToValueEntry implements EdgeToValueEntry {
         return values[enumOrdinal];
     }
 
+    @Override
+    public UnsignedIntEncodedValue getEncodedValue() {
+        return (UnsignedIntEncodedValue) eev;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return true;
+    }
+
+    @Override
+    public double[] createTable() {
+        return values.clone();
+    }
+
     /**
      * Example map:
      * <pre>
@@ -17,11 +17,12 @@
  */
 package com.graphhopper.routing.weighting.custom;
 
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.json.geo.JsonFeature;
 import com.graphhopper.routing.util.CustomModel;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.FetchMode;
-import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PointList;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.Polygon;
 import org.locationtech.jts.geom.Geometry;
@@ -31,11 +32,16 @@ final class GeoToValueEntry implements EdgeToValueEntry {
     static final String AREA_PREFIX = "area_";
     private final Polygon ghPolygon;
     private final double value, elseValue;
+    // the edges of the graph that intersect the polygon or null if every edge is intersected directly
+    private final GHBitSet edges;
+    private final int baseEdges;
 
-    private GeoToValueEntry(PreparedGeometry geometry, double value, double elseValue) {
+    private GeoToValueEntry(PreparedGeometry geometry, double value, double elseValue, GHBitSet edges, int baseEdges) {
         this.ghPolygon = new Polygon(geometry);
         this.value = value;
         this.elseValue = elseValue;
+        this.edges = edges;
+        this.baseEdges = baseEdges;
     }
 
     static Geometry pickGeometry(CustomModel customModel, String key) {
@@ -48,24 +54,37 @@ final class GeoToValueEntry implements EdgeToValueEntry {
         return feature.getGeometry();
     }
 
+    /**
+     * @param areaEdgesCache if not null the edges of the graph that intersect the area are looked up in this cache
+     */
     public static EdgeToValueEntry create(String name, PreparedGeometry preparedGeometry, Number value, double defaultValue,
-                                          double minValue, double maxValue) {
+                                          double minValue, double maxValue, AreaEdgesCache areaEdgesCache) {
         double number = value.doubleValue();
         if (number < minValue)
             throw new IllegalArgumentException(name + " cannot be smaller than " + minValue + ", was " + number);
         if (number > maxValue)
             throw new IllegalArgumentException(name + " cannot be bigger than " + maxValue + ", was " + number);
 
-        return new GeoToValueEntry(preparedGeometry, number, defaultValue);
+        if (areaEdgesCache == null)
+            return new GeoToValueEntry(preparedGeometry, number, defaultValue, null, 0);
+        return new GeoToValueEntry(preparedGeometry, number, defaultValue,
+                areaEdgesCache.getEdges(preparedGeometry.getGeometry()), areaEdgesCache.getBaseEdges());
     }
 
     @Override
     public double getValue(EdgeIteratorState edgeState, boolean reverse) {
-        BBox bbox = GHUtility.createBBox(edgeState);
-        if (ghPolygon.getBounds().intersects(bbox)) {
-            if (ghPolygon.intersects(edgeState.fetchWayGeometry(FetchMode.ALL).makeImmutable()))
-                return value;
-        }
+        // virtual edges are not part of the edge set
+        if (edges != null && edgeState.getEdge() < baseEdges)
+            return edges.contains(edgeState.getEdge()) ? value : elseValue;
+
+        // like for the edge set we use the bounds of the full geometry, the pillar nodes can leave the bounds of the
+        // tower nodes
+        PointList points = edgeState.fetchWayGeometry(FetchMode.ALL);
+        BBox bbox = BBox.createInverse(false);
+        for (int i = 0; i < points.size(); i++)
+            bbox.update(points.getLat(i), points.getLon(i));
+        if (ghPolygon.getBounds().intersects(bbox) && ghPolygon.intersects(points.makeImmutable()))
+            return value;
         return elseValue;
     }
 
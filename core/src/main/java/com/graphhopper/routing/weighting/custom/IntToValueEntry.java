@@ -18,6 +18,7 @@
 package com.graphhopper.routing.weighting.custom;
 
 import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.UnsignedIntEncodedValue;
 import com.graphhopper.util.EdgeIteratorState;
 
 import java.util.ArrayList;
@@ -28,7 +29,7 @@ import static com.graphhopper.routing.weighting.custom.CustomWeighting.CATCH_ALL
 import static com.graphhopper.routing.weighting.custom.DecimalToValueEntry.parseRange;
 import static com.graphhopper.routing.weighting.custom.EnumToValueEntry.getReturnValue;
 
-final class IntToValueEntry implements EdgeToValueEntry {
+final class IntToValueEntry implements StoredIntToValueEntry {
     private final IntEncodedValue iev;
     private final double minExclusive, maxExclusive;
     private final double rangeValue;
@@ -48,6 +49,25 @@ final class IntToValueEntry implements EdgeToValueEntry {
         return edgeValue < maxExclusive && edgeValue > minExclusive ? rangeValue : fallback;
     }
 
+    @Override
+    public UnsignedIntEncodedValue getEncodedValue() {
+        return iev instanceof UnsignedIntEncodedValue ? (UnsignedIntEncodedValue) iev : null;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return true;
+    }
+
+    @Override
+    public double[] createTable() {
+        double[] table = new double[iev.getMaxInt() + 1];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = i < maxExclusive && i > minExclusive ? rangeValue : fallback;
+        }
+        return table;
+    }
+
     static EdgeToValueEntry create(String name, IntEncodedValue dev, Map<String, Object> map,
                                    double defaultValue, double minValue, double maxValue) {
         if (map.isEmpty())
@@ -32,6 +32,13 @@ final class PriorityCalculator {
     private final List<EdgeToValueEntry> priorityList = new ArrayList<>();
 
     public PriorityCalculator(CustomModel customModel, EncodedValueLookup lookup) {
+        this(customModel, lookup, null);
+    }
+
+    /**
+     * @param areaEdgesCache the cache to look up the edges of the areas or null to intersect every edge directly
+     */
+    PriorityCalculator(CustomModel customModel, EncodedValueLookup lookup, AreaEdgesCache areaEdgesCache) {
         for (Map.Entry<String, Object> entry : customModel.getPriority().entrySet()) {
             String key = entry.getKey();
             String priorityKey = "priority." + key;
@@ -44,7 +51,7 @@ final class PriorityCalculator {
                     throw new IllegalArgumentException(priorityKey + ": area entry requires number value but was: " + value.getClass().getSimpleName());
                 Geometry geometry = GeoToValueEntry.pickGeometry(customModel, key);
                 priorityList.add(GeoToValueEntry.create(priorityKey, new PreparedGeometryFactory().create(geometry),
-                        (Number) value, 1, 0, 1));
+                        (Number) value, 1, 0, 1, areaEdgesCache));
             } else {
                 if (!(value instanceof LinkedHashMap))
                     throw new IllegalArgumentException(priorityKey + ": non-root entries require a sorted map (LinkedHashMap) but was: " + value.getClass().getSimpleName());
@@ -70,6 +77,10 @@ final class PriorityCalculator {
         }
     }
 
+    List<EdgeToValueEntry> getPriorityList() {
+        return priorityList;
+    }
+
     static EncodedValue getEV(EncodedValueLookup lookup, String name, String key) {
         if (!lookup.hasEncodedValue(key))
             throw new IllegalArgumentException("Cannot find encoded value '" + key + "' specified in '" + name
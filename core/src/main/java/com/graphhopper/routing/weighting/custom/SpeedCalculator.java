@@ -40,6 +40,14 @@ final class SpeedCalculator {
 
     public SpeedCalculator(final double maxSpeed, CustomModel customModel, DecimalEncodedValue avgSpeedEnc,
                            EncodedValueLookup lookup) {
+        this(maxSpeed, customModel, avgSpeedEnc, lookup, null);
+    }
+
+    /**
+     * @param areaEdgesCache the cache to look up the edges of the areas or null to intersect every edge directly
+     */
+    SpeedCalculator(final double maxSpeed, CustomModel customModel, DecimalEncodedValue avgSpeedEnc,
+                    EncodedValueLookup lookup, AreaEdgesCache areaEdgesCache) {
         this.maxSpeed = maxSpeed;
         this.maxSpeedFallback = customModel.getMaxSpeedFallback() == null ? maxSpeed : customModel.getMaxSpeedFallback();
         this.avgSpeedEnc = avgSpeedEnc;
@@ -59,7 +67,7 @@ final class SpeedCalculator {
                     throw new IllegalArgumentException(maxSpeedKey + ": area entry requires number value but was: " + value.getClass().getSimpleName());
                 Geometry geometry = GeoToValueEntry.pickGeometry(customModel, key);
                 maxSpeedList.add(GeoToValueEntry.create(maxSpeedKey, new PreparedGeometryFactory().create(geometry),
-                        (Number) value, maxSpeed, 0, maxSpeed));
+                        (Number) value, maxSpeed, 0, maxSpeed, areaEdgesCache));
             } else {
                 if (!(value instanceof LinkedHashMap))
                     throw new IllegalArgumentException(maxSpeedKey + ": non-root entries require a sorted map (LinkedHashMap), but was: " + value.getClass().getSimpleName());
@@ -97,7 +105,7 @@ final class SpeedCalculator {
                     throw new IllegalArgumentException(speedFactorKey + ": area entry requires number value but was: " + value.getClass().getSimpleName());
                 Geometry geometry = GeoToValueEntry.pickGeometry(customModel, key);
                 speedFactorList.add(GeoToValueEntry.create(speedFactorKey, new PreparedGeometryFactory().create(geometry),
-                        (Number) value, 1, 0, 1));
+                        (Number) value, 1, 0, 1, areaEdgesCache));
             } else {
                 if (!(value instanceof LinkedHashMap))
                     throw new IllegalArgumentException(speedFactorKey + ": non-root entries require a sorted map (LinkedHashMap), but was: " + value.getClass().getSimpleName());
@@ -127,14 +135,19 @@ final class SpeedCalculator {
         return maxSpeed;
     }
 
+    List<EdgeToValueEntry> getSpeedFactorList() {
+        return speedFactorList;
+    }
+
+    List<EdgeToValueEntry> getMaxSpeedList() {
+        return maxSpeedList;
+    }
+
     /**
      * @return speed in km/h
      */
     public double calcSpeed(EdgeIteratorState edge, boolean reverse) {
-        double speed = reverse ? edge.getReverse(avgSpeedEnc) : edge.get(avgSpeedEnc);
-        if (Double.isInfinite(speed) || Double.isNaN(speed) || speed < 0)
-            throw new IllegalStateException("Invalid estimated speed " + speed);
-
+        double speed = getAverageSpeed(edge, reverse);
         for (int i = 0; i < speedFactorList.size(); i++) {
             EdgeToValueEntry entry = speedFactorList.get(i);
             double factorValue = entry.getValue(edge, reverse);
@@ -142,19 +155,40 @@ final class SpeedCalculator {
             if (speed == 0) break;
         }
 
-        boolean applied = false;
+        double maxValue = Double.POSITIVE_INFINITY;
         for (int i = 0; i < maxSpeedList.size(); i++) {
             EdgeToValueEntry entry = maxSpeedList.get(i);
-            double maxValue = entry.getValue(edge, reverse);
-            if (speed > maxValue) {
-                applied = true;
-                speed = maxValue;
-            }
+            maxValue = Math.min(maxValue, entry.getValue(edge, reverse));
         }
+        return limitSpeed(speed, maxValue);
+    }
 
-        if (!applied && speed > maxSpeedFallback)
-            return maxSpeedFallback;
+    /**
+     * Same as {@link #calcSpeed(EdgeIteratorState, boolean)}, but evaluates the speed_factor and max_speed entries via
+     * the specified compiled custom model.
+     *
+     * @return speed in km/h
+     */
+    double calcSpeed(EdgeIteratorState edge, boolean reverse, CompiledCustomModel compiledModel) {
+        double speed = getAverageSpeed(edge, reverse) * compiledModel.calcSpeedFactor(edge, reverse);
+        return limitSpeed(speed, compiledModel.calcMaxSpeed(edge, reverse));
+    }
 
+    private double getAverageSpeed(EdgeIteratorState edge, boolean reverse) {
+        double speed = reverse ? edge.getReverse(avgSpeedEnc) : edge.get(avgSpeedEnc);
+        if (Double.isInfinite(speed) || Double.isNaN(speed) || speed < 0)
+            throw new IllegalStateException("Invalid estimated speed " + speed);
+        return speed;
+    }
+
+    /**
+     * Applying every max_speed entry one after the other is the same as applying their minimum
+     */
+    private double limitSpeed(double speed, double maxValue) {
+        if (speed > maxValue)
+            return Math.min(maxValue, maxSpeed);
+        if (speed > maxSpeedFallback)
+            return maxSpeedFallback;
         return Math.min(speed, maxSpeed);
     }
 }
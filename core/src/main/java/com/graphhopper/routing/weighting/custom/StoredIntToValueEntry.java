@@ -0,0 +1,43 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.routing.ev.UnsignedIntEncodedValue;
+
+/**
+ * An {@link EdgeToValueEntry} whose value only depends on the stored int of a single encoded value. Such an entry can
+ * be replaced by a lookup table that is indexed by the stored int, see {@link CustomModelCompiler}.
+ */
+interface StoredIntToValueEntry extends EdgeToValueEntry {
+
+    /**
+     * @return the encoded value this entry depends on or null if its stored int cannot be read directly
+     */
+    UnsignedIntEncodedValue getEncodedValue();
+
+    /**
+     * @return true if the value depends on the direction in which the edge is traversed. Otherwise the value only
+     * depends on the direction in which the edge is stored.
+     */
+    boolean isDirected();
+
+    /**
+     * @return the value of this entry for every possible stored int of the encoded value
+     */
+    double[] createTable();
+}
@@ -0,0 +1,167 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.util.EdgeFilter;
+
+/**
+ * A compressed sparse row (CSR) representation of the adjacency of a frozen {@link BaseGraph}. The
+ * linked edge lists of the base graph require a dependent random read into the edges area for every
+ * step of an edge iterator. Once the topology no longer changes we can instead store the adjacent
+ * edges of every node in one contiguous block, so iterating the edges of a node becomes a sequential
+ * read.
+ * <p>
+ * The memory layout is |offset_0|offset_1|...|offset_n| followed by one |edge_key|adj_node| entry
+ * per adjacent edge, where the entries of node i are stored in [offset_i, offset_(i+1)). The edge key
+ * is the edge id shifted by one with the lowest bit set if the base node is not nodeA of the edge,
+ * see {@link BaseGraph.EdgeIteratorStateImpl#reverse}. The entries of each node are written in the
+ * same order the linked list would return them, so both representations are interchangeable.
+ */
+class AdjacencyIndex implements Storable<AdjacencyIndex> {
+    private static final int ENTRY_EDGE_KEY = 0;
+    private static final int ENTRY_ADJ_NODE = 4;
+    private static final int BYTES_PER_ENTRY = 8;
+
+    private final BaseGraph baseGraph;
+    private final DataAccess adjacency;
+    private int nodeCount;
+    private int entryCount;
+    private long entriesStart;
+    private boolean created;
+
+    AdjacencyIndex(BaseGraph baseGraph, DataAccess adjacency) {
+        this.baseGraph = baseGraph;
+        this.adjacency = adjacency;
+    }
+
+    void setSegmentSize(int bytes) {
+        adjacency.setSegmentSize(bytes);
+    }
+
+    @Override
+    public AdjacencyIndex create(long initBytes) {
+        adjacency.create(initBytes);
+        return this;
+    }
+
+    /**
+     * Fills this index from the linked edge lists of the base graph, which must be frozen already.
+     */
+    void build() {
+        if (!baseGraph.isFrozen())
+            throw new IllegalStateException("The adjacency index can only be built for a frozen graph");
+        if (created)
+            throw new IllegalStateException("The adjacency index was already built");
+
+        nodeCount = baseGraph.getNodes();
+        entriesStart = ((long) nodeCount + 1) * 4;
+        // loops are only stored once, so this is an upper bound
+        long maxEntries = 2L * baseGraph.getEdges();
+        if (maxEntries > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many edges for the adjacency index: " + baseGraph.getEdges());
+        create(entriesStart + maxEntries * BYTES_PER_ENTRY);
+
+        BaseGraph.EdgeIteratorImpl iter = new BaseGraph.EdgeIteratorImpl(baseGraph, EdgeFilter.ALL_EDGES);
+        int entry = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            adjacency.setInt((long) node * 4, entry);
+            iter.setBaseNode(node);
+            while (iter.next()) {
+                long pointer = entriesStart + (long) entry * BYTES_PER_ENTRY;
+                adjacency.setInt(pointer + ENTRY_EDGE_KEY, (iter.getEdge() << 1) | (iter.reverse ? 1 : 0));
+                adjacency.setInt(pointer + ENTRY_ADJ_NODE, iter.getAdjNode());
+                entry++;
+            }
+        }
+        adjacency.setInt((long) nodeCount * 4, entry);
+        entryCount = entry;
+        created = true;
+    }
+
+    boolean isCreated() {
+        return created;
+    }
+
+    /**
+     * @return the index of the first entry of the given node
+     */
+    int getFirstEntry(int node) {
+        return adjacency.getInt((long) node * 4);
+    }
+
+    /**
+     * @return the index after the last entry of the given node
+     */
+    int getEndEntry(int node) {
+        return adjacency.getInt((long) (node + 1) * 4);
+    }
+
+    int getEdgeKey(int entry) {
+        return adjacency.getInt(entriesStart + (long) entry * BYTES_PER_ENTRY + ENTRY_EDGE_KEY);
+    }
+
+    int getAdjNode(int entry) {
+        return adjacency.getInt(entriesStart + (long) entry * BYTES_PER_ENTRY + ENTRY_ADJ_NODE);
+    }
+
+    @Override
+    public void flush() {
+        if (!created)
+            return;
+        adjacency.setHeader(0, BYTES_PER_ENTRY);
+        adjacency.setHeader(1 * 4, nodeCount);
+        adjacency.setHeader(2 * 4, entryCount);
+        adjacency.flush();
+    }
+
+    @Override
+    public void close() {
+        adjacency.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return adjacency.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return adjacency.getCapacity();
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!adjacency.loadExisting())
+            return false;
+
+        if (adjacency.getHeader(0) != BYTES_PER_ENTRY)
+            throw new IllegalStateException("Number of bytes per adjacency entry does not match the current configuration: " + adjacency.getHeader(0) + " vs. " + BYTES_PER_ENTRY);
+        nodeCount = adjacency.getHeader(1 * 4);
+        if (nodeCount != baseGraph.getNodes())
+            throw new IllegalStateException("The adjacency index does not match the graph: " + nodeCount + " vs. " + baseGraph.getNodes() + " nodes");
+        entryCount = adjacency.getHeader(2 * 4);
+        entriesStart = ((long) nodeCount + 1) * 4;
+        created = true;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "adjacency_index";
+    }
+}
@@ -60,6 +60,8 @@ class BaseGraph implements Graph {
     final StringIndex stringIndex;
     // can be null if turn costs are not supported
     final TurnCostStorage turnCostStorage;
+    // optional CSR adjacency, only available for a frozen graph
+    final AdjacencyIndex adjacencyIndex;
     final BitUtil bitUtil;
     final EncodingManager encodingManager;
     private final int intsForFlags;
@@ -111,6 +113,7 @@ class BaseGraph implements Graph {
         } else {
             turnCostStorage = null;
         }
+        this.adjacencyIndex = new AdjacencyIndex(this, dir.find("adjacency", DAType.getPreferredInt(dir.getDefaultType())));
         if (segmentSize >= 0) {
             setSegmentSize(segmentSize);
         }
@@ -357,6 +360,7 @@ class BaseGraph implements Graph {
         if (supportsTurnCosts()) {
             turnCostStorage.setSegmentSize(bytes);
         }
+        adjacencyIndex.setSegmentSize(bytes);
     }
 
     synchronized void freeze() {
@@ -371,6 +375,18 @@ class BaseGraph implements Graph {
         return frozen;
     }
 
+    /**
+     * Builds the CSR adjacency index for the frozen graph. All edge explorers created afterwards
+     * iterate the adjacent edges of a node sequentially instead of following the linked edge lists.
+     */
+    void createAdjacencyIndex() {
+        adjacencyIndex.build();
+    }
+
+    boolean hasAdjacencyIndex() {
+        return adjacencyIndex.isCreated();
+    }
+
     public void checkFreeze() {
         if (isFrozen())
             throw new IllegalStateException("Cannot add edge or node after baseGraph.freeze was called");
@@ -462,6 +478,7 @@ class BaseGraph implements Graph {
         if (supportsTurnCosts()) {
             turnCostStorage.flush();
         }
+        adjacencyIndex.flush();
     }
 
     public void close() {
@@ -474,11 +491,13 @@ class BaseGraph implements Graph {
         if (supportsTurnCosts()) {
             turnCostStorage.close();
         }
+        adjacencyIndex.close();
     }
 
     long getCapacity() {
         return edges.getCapacity() + nodes.getCapacity() + stringIndex.getCapacity()
-                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0);
+                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0)
+                + adjacencyIndex.getCapacity();
     }
 
     long getMaxGeoRef() {
@@ -512,6 +531,9 @@ class BaseGraph implements Graph {
         loadNodesHeader();
         loadEdgesHeader();
         loadWayGeometryHeader();
+
+        // the adjacency index is optional
+        adjacencyIndex.loadExisting();
     }
 
     /**
@@ -909,6 +931,9 @@ class BaseGraph implements Graph {
     protected static class EdgeIteratorImpl extends EdgeIteratorStateImpl implements EdgeExplorer, EdgeIterator {
         final EdgeFilter filter;
         int nextEdgeId;
+        // null if the adjacency index did not exist when this explorer was created
+        private final AdjacencyIndex adjacencyIndex;
+        private int nextEntry, endEntry, nextEdgeKey;
 
         public EdgeIteratorImpl(BaseGraph baseGraph, EdgeFilter filter) {
             super(baseGraph);
@@ -916,15 +941,29 @@ class BaseGraph implements Graph {
             if (filter == null)
                 throw new IllegalArgumentException("Instead null filter use EdgeFilter.ALL_EDGES");
             this.filter = filter;
+            this.adjacencyIndex = baseGraph.hasAdjacencyIndex() ? baseGraph.adjacencyIndex : null;
         }
 
         @Override
         public EdgeIterator setBaseNode(int baseNode) {
-            nextEdgeId = edgeId = baseGraph.getEdgeRef(baseNode);
+            if (adjacencyIndex != null) {
+                nextEntry = adjacencyIndex.getFirstEntry(baseNode);
+                endEntry = adjacencyIndex.getEndEntry(baseNode);
+                nextEdgeId = edgeId = readNextEdgeId();
+            } else {
+                nextEdgeId = edgeId = baseGraph.getEdgeRef(baseNode);
+            }
             this.baseNode = baseNode;
             return this;
         }
 
+        private int readNextEdgeId() {
+            if (nextEntry >= endEntry)
+                return EdgeIterator.NO_EDGE;
+            nextEdgeKey = adjacencyIndex.getEdgeKey(nextEntry);
+            return nextEdgeKey >>> 1;
+        }
+
         @Override
         public final boolean next() {
             while (true) {
@@ -938,6 +977,17 @@ class BaseGraph implements Graph {
         }
 
         void goToNext() {
+            if (adjacencyIndex != null) {
+                edgeId = nextEdgeId;
+                edgePointer = baseGraph.toPointer(edgeId);
+                adjNode = adjacencyIndex.getAdjNode(nextEntry);
+                reverse = (nextEdgeKey & 1) != 0;
+                freshFlags = false;
+
+                nextEntry++;
+                nextEdgeId = readNextEdgeId();
+                return;
+            }
             edgePointer = baseGraph.toPointer(nextEdgeId);
             edgeId = nextEdgeId;
             int nodeA = baseGraph.getNodeA(edgePointer);
@@ -184,6 +184,20 @@ public class GraphEdgeIdFinder {
             return set;
         }
 
+        /**
+         * @return the ids of all blocked edges of the base graph or null if they are not known for every shape, e.g.
+         * because the area of a shape was too large to look up its edges in advance
+         */
+        public GHIntHashSet getBlockedEdges() {
+            GHIntHashSet result = new GHIntHashSet();
+            for (GHIntHashSet blockedEdges : edgesList) {
+                if (blockedEdges.isEmpty())
+                    return null;
+                result.addAll(blockedEdges);
+            }
+            return result;
+        }
+
         public final boolean contains(GHPoint point) {
             for (Shape shape : blockedShapes) {
                 if (shape.contains(point.lat, point.lon))
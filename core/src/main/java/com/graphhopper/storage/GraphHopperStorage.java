@@ -331,6 +331,20 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         return baseGraph.isFrozen();
     }
 
+    /**
+     * Stores the adjacency of the base graph as compressed sparse rows, which makes iterating the
+     * edges of a node a sequential read. The graph has to be frozen before. See AdjacencyIndex.
+     */
+    public void createAdjacencyIndex() {
+        if (!isFrozen())
+            throw new IllegalStateException("The graph has to be frozen before creating the adjacency index");
+        baseGraph.createAdjacencyIndex();
+    }
+
+    public boolean hasAdjacencyIndex() {
+        return baseGraph.hasAdjacencyIndex();
+    }
+
     @Override
     public String toDetailsString() {
         String str = baseGraph.toDetailsString();
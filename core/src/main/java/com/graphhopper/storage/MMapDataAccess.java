@@ -50,6 +50,11 @@ import java.util.StringTokenizer;
  * This class itself is intended to be as thread-safe as other DataAccess
  * implementations are.
  * <p>
+ * If the file is opened read-only (see DAType.MMAP_RO) the content can no longer change and all
+ * read methods use absolute index access only, i.e. they never touch the position of the
+ * ByteBuffer. In this case no synchronization is necessary and concurrent readers do not contend
+ * on the same segment.
+ * <p>
  * The exact behavior of memory-mapping is reported to be wildly platform-dependent.
  *
  * @author Peter Karich
@@ -346,6 +351,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
         if (index + 4 > segmentSizeInBytes)
             throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
         ByteBuffer byteBuffer = segments.get(bufferIndex);
+        if (!allowWrites)
+            return byteBuffer.getInt(index);
         synchronized (byteBuffer) {
             return byteBuffer.getInt(index);
         }
@@ -377,6 +384,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
         ByteBuffer byteBuffer = segments.get(bufferIndex);
         if (index + 2 > segmentSizeInBytes) {
             ByteBuffer byteBufferNext = segments.get(bufferIndex + 1);
+            if (!allowWrites)
+                return (short) ((byteBufferNext.get(0) & 0xFF) << 8 | byteBuffer.get(index) & 0xFF);
             // never lock byteBuffer and byteBufferNext in a different order to avoid deadlocks (shouldn't happen)
             synchronized (byteBuffer) {
                 synchronized (byteBufferNext) {
@@ -384,6 +393,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
                 }
             }
         }
+        if (!allowWrites)
+            return byteBuffer.getShort(index);
         synchronized (byteBuffer) {
             return byteBuffer.getShort(index);
         }
@@ -421,6 +432,20 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int index = (int) (bytePos & indexDivisor);
         int delta = index + length - segmentSizeInBytes;
         final ByteBuffer bb1 = segments.get(bufferIndex);
+        if (!allowWrites) {
+            // read byte by byte with absolute indices to avoid modifying the shared buffer position
+            int firstLength = delta > 0 ? length - delta : length;
+            for (int i = 0; i < firstLength; i++) {
+                values[i] = bb1.get(index + i);
+            }
+            if (delta > 0) {
+                final ByteBuffer bb2 = segments.get(bufferIndex + 1);
+                for (int i = 0; i < delta; i++) {
+                    values[firstLength + i] = bb2.get(i);
+                }
+            }
+            return;
+        }
         synchronized (bb1) {
             bb1.position(index);
             if (delta > 0) {
@@ -455,6 +480,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         final ByteBuffer bb1 = segments.get(bufferIndex);
+        if (!allowWrites)
+            return bb1.get(index);
         synchronized (bb1) {
             bb1.position(index);
             return bb1.get();
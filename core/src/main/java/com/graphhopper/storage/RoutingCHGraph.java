@@ -34,6 +34,22 @@ public interface RoutingCHGraph {
 
     RoutingCHEdgeExplorer createOutEdgeExplorer();
 
+    /**
+     * Unlike {@link #createInEdgeExplorer()} this explorer always includes the edges coming from nodes with a lower
+     * level, even for graphs that only store the edges needed by the upward and downward searches like
+     * {@link UpDownCHGraph}
+     */
+    default RoutingCHEdgeExplorer createAllLevelsInEdgeExplorer() {
+        return createInEdgeExplorer();
+    }
+
+    /**
+     * @see #createAllLevelsInEdgeExplorer()
+     */
+    default RoutingCHEdgeExplorer createAllLevelsOutEdgeExplorer() {
+        return createOutEdgeExplorer();
+    }
+
     RoutingCHEdgeIteratorState getEdgeIteratorState(int chEdge, int adjNode);
 
     int getLevel(int node);
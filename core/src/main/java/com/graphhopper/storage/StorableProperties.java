@@ -81,6 +81,13 @@ public class StorableProperties implements Storable<StorableProperties> {
         return this;
     }
 
+    /**
+     * @return a copy of all entries
+     */
+    public synchronized Map<String, String> getAll() {
+        return new LinkedHashMap<>(map);
+    }
+
     public synchronized StorableProperties putAll(Map<String, String> externMap) {
         map.putAll(externMap);
         return this;
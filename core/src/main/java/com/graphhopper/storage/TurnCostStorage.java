@@ -21,6 +21,8 @@ import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.TurnCost;
 import com.graphhopper.util.EdgeIterator;
 
+import java.util.function.IntUnaryOperator;
+
 /**
  * A key/value store, where the unique keys are turn relations, and the values are IntRefs.
  * A turn relation is a triple (fromEdge, viaNode, toEdge),
@@ -218,6 +220,25 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
         return turnCostStorage;
     }
 
+    /**
+     * Copies all turn relations into the specified storage and thereby renumbers their nodes and edges, e.g. when
+     * the graph was sorted. Relations whose nodes or edges are mapped to a negative value are skipped.
+     */
+    public TurnCostStorage copyTo(TurnCostStorage turnCostStorage, IntUnaryOperator nodeMapping, IntUnaryOperator edgeMapping) {
+        IntsRef tcFlags = TurnCost.createFlags();
+        Itr iter = new Itr();
+        while (iter.next()) {
+            int viaNode = nodeMapping.applyAsInt(iter.getViaNode());
+            int fromEdge = edgeMapping.applyAsInt(iter.getFromEdge());
+            int toEdge = edgeMapping.applyAsInt(iter.getToEdge());
+            if (viaNode < 0 || fromEdge < 0 || toEdge < 0)
+                continue;
+            tcFlags.ints[0] = turnCosts.getInt(iter.turnCostPtr() + TC_FLAGS);
+            turnCostStorage.merge(tcFlags, fromEdge, viaNode, toEdge);
+        }
+        return turnCostStorage;
+    }
+
     @Override
     public boolean isClosed() {
         return turnCosts.isClosed();
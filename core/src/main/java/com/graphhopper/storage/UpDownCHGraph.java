@@ -0,0 +1,385 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.weighting.Weighting;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * A read-only {@link RoutingCHGraph} that is built from a prepared {@link CHGraph} and only contains what the
+ * bidirectional CH searches need: For every node the upward search (out-edges leading to nodes with the same or a
+ * higher level) and the downward search (in-edges coming from such nodes) each get their own contiguous block of arcs.
+ * The weight of every arc is calculated once when the graph is built and stored as integer like the shortcut weights
+ * of the CHGraph, so the query does neither need to check the CH levels nor to evaluate the {@link Weighting} while it
+ * explores the graph.
+ * <p>
+ * The arcs use the same edge ids as the CHGraph, so everything that is not needed for the exploration, e.g.
+ * {@link #getEdgeIteratorState} which is used to unpack the shortcuts, is delegated to a {@link RoutingCHGraphImpl}.
+ * The edges leading to lower level nodes are still available via {@link #createAllLevelsOutEdgeExplorer()} and
+ * {@link #createAllLevelsInEdgeExplorer()}.
+ * <p>
+ * The memory layout of the nodes is |level|first_up_arc|first_down_arc| per node, followed by the end of the arcs of
+ * the last node. The memory layout of the arcs is |edge|adj_node|weight|skipped_edge1|skipped_edge2| per arc and for
+ * edge-based graphs additionally |orig_edge_first|orig_edge_last|.
+ */
+public class UpDownCHGraph implements RoutingCHGraph, Storable<UpDownCHGraph> {
+    private static final double WEIGHT_FACTOR = 1000;
+    private static final int INFINITE_WEIGHT = Integer.MAX_VALUE;
+    private static final int BYTES_PER_NODE = 12;
+    private static final int N_LEVEL = 0;
+    private static final int N_FIRST_UP = 4;
+    private static final int N_FIRST_DOWN = 8;
+    private static final int A_EDGE = 0;
+    private static final int A_ADJ = 4;
+    private static final int A_WEIGHT = 8;
+    private static final int A_SKIP_EDGE1 = 12;
+    private static final int A_SKIP_EDGE2 = 16;
+    private static final int A_ORIG_FIRST = 20;
+    private static final int A_ORIG_LAST = 24;
+
+    private final CHGraph chGraph;
+    private final RoutingCHGraphImpl routingCHGraph;
+    private final Graph baseGraph;
+    private final Weighting weighting;
+    private final boolean edgeBased;
+    private final int baseEdges;
+    private final int bytesPerArc;
+    private final DataAccess nodes;
+    private final DataAccess arcs;
+    private int nodeCount;
+    private int arcCount;
+    private boolean initialized;
+
+    public UpDownCHGraph(CHGraph chGraph, Directory dir) {
+        this.chGraph = chGraph;
+        this.routingCHGraph = new RoutingCHGraphImpl(chGraph);
+        this.baseGraph = chGraph.getBaseGraph();
+        this.weighting = chGraph.getCHConfig().getWeighting();
+        this.edgeBased = chGraph.getCHConfig().isEdgeBased();
+        this.baseEdges = chGraph.getOriginalEdges();
+        this.bytesPerArc = edgeBased ? A_ORIG_LAST + 4 : A_SKIP_EDGE2 + 4;
+        String name = chGraph.getCHConfig().getName();
+        this.nodes = dir.find("updown_nodes_" + name, DAType.getPreferredInt(dir.getDefaultType()));
+        this.arcs = dir.find("updown_arcs_" + name, DAType.getPreferredInt(dir.getDefaultType()));
+    }
+
+    public void setSegmentSize(int bytes) {
+        nodes.setSegmentSize(bytes);
+        arcs.setSegmentSize(bytes);
+    }
+
+    @Override
+    public UpDownCHGraph create(long initBytes) {
+        nodes.create(initBytes);
+        arcs.create(initBytes);
+        return this;
+    }
+
+    /**
+     * Copies the arcs of the upward and downward searches from the CHGraph, which must be fully prepared.
+     */
+    public void build() {
+        if (initialized)
+            throw new IllegalStateException("The up/down CH graph was already built");
+        nodeCount = chGraph.getNodes();
+        nodes.create((long) (nodeCount + 1) * BYTES_PER_NODE);
+        // start with room for one arc per edge in each direction, we allocate more as needed
+        arcs.create((long) 2 * chGraph.getEdges() * bytesPerArc);
+        long capacity = arcs.getCapacity();
+        RoutingCHEdgeExplorer outExplorer = routingCHGraph.createOutEdgeExplorer();
+        RoutingCHEdgeExplorer inExplorer = routingCHGraph.createInEdgeExplorer();
+        long arc = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int level = chGraph.getLevel(node);
+            long nodePointer = (long) node * BYTES_PER_NODE;
+            nodes.setInt(nodePointer + N_LEVEL, level);
+            for (boolean down : new boolean[]{false, true}) {
+                nodes.setInt(nodePointer + (down ? N_FIRST_DOWN : N_FIRST_UP), (int) arc);
+                RoutingCHEdgeIterator iter = (down ? inExplorer : outExplorer).setBaseNode(node);
+                while (iter.next()) {
+                    // shortcuts are only attached to their lower node, so we only need to check the original edges
+                    if (!iter.isShortcut() && chGraph.getLevel(iter.getAdjNode()) < level)
+                        continue;
+                    double weight = iter.getWeight(down);
+                    if (Double.isInfinite(weight))
+                        continue;
+                    long arcPointer = arc * bytesPerArc;
+                    if (arcPointer + bytesPerArc > capacity) {
+                        arcs.ensureCapacity(arcPointer + bytesPerArc);
+                        capacity = arcs.getCapacity();
+                    }
+                    arcs.setInt(arcPointer + A_EDGE, iter.getEdge());
+                    arcs.setInt(arcPointer + A_ADJ, iter.getAdjNode());
+                    arcs.setInt(arcPointer + A_WEIGHT, weightToInt(weight));
+                    arcs.setInt(arcPointer + A_SKIP_EDGE1, iter.isShortcut() ? iter.getSkippedEdge1() : NO_EDGE);
+                    arcs.setInt(arcPointer + A_SKIP_EDGE2, iter.isShortcut() ? iter.getSkippedEdge2() : NO_EDGE);
+                    if (edgeBased) {
+                        arcs.setInt(arcPointer + A_ORIG_FIRST, iter.getOrigEdgeFirst());
+                        arcs.setInt(arcPointer + A_ORIG_LAST, iter.getOrigEdgeLast());
+                    }
+                    arc++;
+                }
+            }
+            if (arc > Integer.MAX_VALUE)
+                throw new IllegalStateException("Too many arcs for the up/down CH graph: " + arc);
+        }
+        nodes.setInt((long) nodeCount * BYTES_PER_NODE + N_FIRST_UP, (int) arc);
+        arcCount = (int) arc;
+        initialized = true;
+    }
+
+    private static int weightToInt(double weight) {
+        long weightLong = Math.round(weight * WEIGHT_FACTOR);
+        return weightLong >= INFINITE_WEIGHT ? INFINITE_WEIGHT : (int) weightLong;
+    }
+
+    private static double intToWeight(int weightInt) {
+        return weightInt == INFINITE_WEIGHT ? Double.POSITIVE_INFINITY : weightInt / WEIGHT_FACTOR;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public int getArcs() {
+        return arcCount;
+    }
+
+    @Override
+    public int getNodes() {
+        return chGraph.getNodes();
+    }
+
+    @Override
+    public int getEdges() {
+        return chGraph.getEdges();
+    }
+
+    @Override
+    public int getOtherNode(int chEdge, int node) {
+        return chGraph.getOtherNode(chEdge, node);
+    }
+
+    @Override
+    public boolean isAdjacentToNode(int chEdge, int node) {
+        return chGraph.isAdjacentToNode(chEdge, node);
+    }
+
+    /**
+     * @return an explorer for the backward search that only returns the in-edges coming from nodes with the same or a
+     * higher level
+     */
+    @Override
+    public RoutingCHEdgeExplorer createInEdgeExplorer() {
+        return new UpDownEdgeIterator(true);
+    }
+
+    /**
+     * @return an explorer for the forward search that only returns the out-edges leading to nodes with the same or a
+     * higher level
+     */
+    @Override
+    public RoutingCHEdgeExplorer createOutEdgeExplorer() {
+        return new UpDownEdgeIterator(false);
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createAllLevelsInEdgeExplorer() {
+        return routingCHGraph.createInEdgeExplorer();
+    }
+
+    @Override
+    public RoutingCHEdgeExplorer createAllLevelsOutEdgeExplorer() {
+        return routingCHGraph.createOutEdgeExplorer();
+    }
+
+    @Override
+    public RoutingCHEdgeIteratorState getEdgeIteratorState(int chEdge, int adjNode) {
+        return routingCHGraph.getEdgeIteratorState(chEdge, adjNode);
+    }
+
+    @Override
+    public int getLevel(int node) {
+        return nodes.getInt((long) node * BYTES_PER_NODE + N_LEVEL);
+    }
+
+    @Override
+    public double getTurnWeight(int inEdge, int viaNode, int outEdge) {
+        return weighting.calcTurnWeight(inEdge, viaNode, outEdge);
+    }
+
+    @Override
+    public Graph getBaseGraph() {
+        return baseGraph;
+    }
+
+    @Override
+    public boolean hasTurnCosts() {
+        return weighting.hasTurnCosts();
+    }
+
+    @Override
+    public boolean isEdgeBased() {
+        return edgeBased;
+    }
+
+    @Override
+    public Weighting getWeighting() {
+        return weighting;
+    }
+
+    @Override
+    public void flush() {
+        if (!initialized)
+            return;
+        nodes.setHeader(0, BYTES_PER_NODE);
+        nodes.setHeader(1 * 4, nodeCount);
+        nodes.setHeader(2 * 4, arcCount);
+        nodes.setHeader(3 * 4, chGraph.getEdges());
+        nodes.flush();
+        arcs.setHeader(0, bytesPerArc);
+        arcs.flush();
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!nodes.loadExisting() || !arcs.loadExisting())
+            return false;
+
+        if (nodes.getHeader(0) != BYTES_PER_NODE || arcs.getHeader(0) != bytesPerArc)
+            throw new IllegalStateException("Number of bytes per up/down CH node or arc does not match the current configuration: "
+                    + nodes.getHeader(0) + " vs. " + BYTES_PER_NODE + ", " + arcs.getHeader(0) + " vs. " + bytesPerArc);
+        nodeCount = nodes.getHeader(1 * 4);
+        arcCount = nodes.getHeader(2 * 4);
+        int edges = nodes.getHeader(3 * 4);
+        if (nodeCount != chGraph.getNodes() || edges != chGraph.getEdges())
+            throw new IllegalStateException("The up/down CH graph does not match the CHGraph: " + nodeCount + " vs. "
+                    + chGraph.getNodes() + " nodes, " + edges + " vs. " + chGraph.getEdges() + " edges");
+        initialized = true;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        nodes.close();
+        arcs.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return nodes.isClosed() && arcs.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return nodes.getCapacity() + arcs.getCapacity();
+    }
+
+    @Override
+    public String toString() {
+        return "updown|" + chGraph.getCHConfig().getName();
+    }
+
+    private class UpDownEdgeIterator implements RoutingCHEdgeExplorer, RoutingCHEdgeIterator {
+        private final boolean down;
+        private int baseNode;
+        private long arcPointer;
+        private long endPointer;
+
+        UpDownEdgeIterator(boolean down) {
+            this.down = down;
+        }
+
+        @Override
+        public RoutingCHEdgeIterator setBaseNode(int baseNode) {
+            this.baseNode = baseNode;
+            long nodePointer = (long) baseNode * BYTES_PER_NODE;
+            // the down arcs of a node are followed by the up arcs of the next node
+            int firstArc = nodes.getInt(nodePointer + (down ? N_FIRST_DOWN : N_FIRST_UP));
+            int endArc = nodes.getInt(down ? nodePointer + BYTES_PER_NODE + N_FIRST_UP : nodePointer + N_FIRST_DOWN);
+            arcPointer = ((long) firstArc - 1) * bytesPerArc;
+            endPointer = (long) endArc * bytesPerArc;
+            return this;
+        }
+
+        @Override
+        public boolean next() {
+            arcPointer += bytesPerArc;
+            return arcPointer < endPointer;
+        }
+
+        @Override
+        public int getEdge() {
+            return arcs.getInt(arcPointer + A_EDGE);
+        }
+
+        @Override
+        public int getOrigEdge() {
+            return isShortcut() ? NO_EDGE : getEdge();
+        }
+
+        @Override
+        public int getOrigEdgeFirst() {
+            return edgeBased ? arcs.getInt(arcPointer + A_ORIG_FIRST) : getEdge();
+        }
+
+        @Override
+        public int getOrigEdgeLast() {
+            return edgeBased ? arcs.getInt(arcPointer + A_ORIG_LAST) : getEdge();
+        }
+
+        @Override
+        public int getBaseNode() {
+            return baseNode;
+        }
+
+        @Override
+        public int getAdjNode() {
+            return arcs.getInt(arcPointer + A_ADJ);
+        }
+
+        @Override
+        public boolean isShortcut() {
+            return getEdge() >= baseEdges;
+        }
+
+        @Override
+        public int getSkippedEdge1() {
+            return arcs.getInt(arcPointer + A_SKIP_EDGE1);
+        }
+
+        @Override
+        public int getSkippedEdge2() {
+            return arcs.getInt(arcPointer + A_SKIP_EDGE2);
+        }
+
+        @Override
+        public double getWeight(boolean reverse) {
+            if (reverse == down)
+                return intToWeight(arcs.getInt(arcPointer + A_WEIGHT));
+            // we only store the weight in the direction of the search, which is all the queries need
+            return routingCHGraph.getEdgeIteratorState(getEdge(), getAdjNode()).getWeight(reverse);
+        }
+
+        @Override
+        public String toString() {
+            return getEdge() + " " + getBaseNode() + "-" + getAdjNode();
+        }
+    }
+}
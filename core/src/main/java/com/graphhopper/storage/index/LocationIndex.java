@@ -25,6 +25,9 @@ import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.shapes.BBox;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Provides a way to map real world data "lat,lon" to internal ids/indices of a memory efficient graph
  * - often just implemented as an array.
@@ -61,6 +64,21 @@ public interface LocationIndex extends Storable<LocationIndex> {
      */
     Snap findClosest(double lat, double lon, EdgeFilter edgeFilter);
 
+    /**
+     * This method returns the closest Snap for every location (lats[i], lons[i]) in the same order as the
+     * locations, see {@link #findClosest}. Implementations can make this faster than calling findClosest for every
+     * location.
+     */
+    default List<Snap> findClosestBatch(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("The number of latitudes and longitudes must be equal, but was " + lats.length + " and " + lons.length);
+        List<Snap> snaps = new ArrayList<>(lats.length);
+        for (int i = 0; i < lats.length; i++) {
+            snaps.add(findClosest(lats[i], lons[i], edgeFilter));
+        }
+        return snaps;
+    }
+
     /**
      * @param approxDist false if initialization and querying should be faster but less precise.
      */
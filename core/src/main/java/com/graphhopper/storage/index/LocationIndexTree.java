@@ -21,8 +21,12 @@ import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntPredicate;
+import com.carrotsearch.hppc.procedures.IntProcedure;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.GHLongObjectHashMap;
 import com.graphhopper.coll.GHTBitSet;
 import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -78,6 +82,9 @@ public class LocationIndexTree implements LocationIndex {
     private int initSizeLeafEntries = 4;
     private boolean initialized = false;
     private static final Comparator<Snap> SNAP_COMPARATOR = Comparator.comparingDouble(Snap::getQueryDistance);
+    // bound the memory of findClosestBatch, the queries are sorted so that neighbouring tiles are used together anyway
+    private static final int MAX_CACHED_TILES = 1024;
+    private static final int MAX_CACHED_GEOMETRIES = 50_000;
     /**
      * If normed distance is smaller than this value the node or edge is 'identical' and the
      * algorithm can stop search.
@@ -338,20 +345,21 @@ public class LocationIndexTree implements LocationIndex {
     }
 
     /**
-     * This method fills the set with stored node IDs from the given spatial key part (a latitude-longitude prefix).
+     * This method passes the stored node IDs from the given spatial key part (a latitude-longitude prefix) to the
+     * given procedure.
      */
-    final void fillIDs(long keyPart, int intPointer, GHIntHashSet set, int depth) {
+    final void fillIDs(long keyPart, int intPointer, IntProcedure set, int depth) {
         long pointer = (long) intPointer << 2;
         if (depth == entries.length) {
             int nextIntPointer = dataAccess.getInt(pointer);
             if (nextIntPointer < 0) {
                 // single data entries (less disc space)
-                set.add(-(nextIntPointer + 1));
+                set.apply(-(nextIntPointer + 1));
             } else {
                 long max = (long) nextIntPointer * 4;
                 // leaf entry => nextIntPointer is maxPointer
                 for (long leafIndex = pointer + 4; leafIndex < max; leafIndex += 4) {
-                    set.add(dataAccess.getInt(leafIndex));
+                    set.apply(dataAccess.getInt(leafIndex));
                 }
             }
             return;
@@ -515,24 +523,29 @@ public class LocationIndexTree implements LocationIndex {
      */
     final boolean findNetworkEntries(double queryLat, double queryLon,
                                      GHIntHashSet foundEntries, int iteration) {
+        return findNetworkEntries(queryLat, queryLon, foundEntries, iteration, null);
+    }
+
+    private boolean findNetworkEntries(double queryLat, double queryLon,
+                                       GHIntHashSet foundEntries, int iteration, BatchCache cache) {
         // find entries in border of searchbox
         for (int yreg = -iteration; yreg <= iteration; yreg++) {
             double subqueryLat = queryLat + yreg * deltaLat;
             double subqueryLonA = queryLon - iteration * deltaLon;
             double subqueryLonB = queryLon + iteration * deltaLon;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA, cache);
 
             // minor optimization for iteration == 0
             if (iteration > 0)
-                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB);
+                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB, cache);
         }
 
         for (int xreg = -iteration + 1; xreg <= iteration - 1; xreg++) {
             double subqueryLon = queryLon + xreg * deltaLon;
             double subqueryLatA = queryLat - iteration * deltaLat;
             double subqueryLatB = queryLat + iteration * deltaLat;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon);
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon, cache);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon, cache);
         }
 
         if (iteration % 2 != 0) {
@@ -569,9 +582,26 @@ public class LocationIndexTree implements LocationIndex {
         return min;
     }
 
-    final void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon) {
+    final void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon,
+                                              BatchCache cache) {
         long keyPart = createReverseKey(queryLat, queryLon);
-        fillIDs(keyPart, START_POINTER, storedNetworkEntryIds, 0);
+        if (cache == null) {
+            fillIDs(keyPart, START_POINTER, storedNetworkEntryIds::add, 0);
+            return;
+        }
+        int[] tileIds = cache.tiles.get(keyPart);
+        if (tileIds == null) {
+            IntArrayList list = new IntArrayList();
+            fillIDs(keyPart, START_POINTER, list::add, 0);
+            tileIds = list.toArray();
+            if (cache.tiles.size() >= MAX_CACHED_TILES)
+                cache.tiles.clear();
+            cache.tiles.put(keyPart, tileIds);
+        }
+        // adding the IDs in the same order as fillIDs keeps the iteration order of the set and so the result
+        for (int id : tileIds) {
+            storedNetworkEntryIds.add(id);
+        }
     }
 
     @Override
@@ -579,18 +609,50 @@ public class LocationIndexTree implements LocationIndex {
         if (isClosed())
             throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
 
+        return findClosest(queryLat, queryLon, edgeFilter, graph.createEdgeExplorer(), null);
+    }
+
+    /**
+     * Finds the closest Snap for every query point, i.e. the result at index i is the same as for
+     * findClosest(lats[i], lons[i], edgeFilter). The queries are processed in the order of their spatial keys and
+     * share the node IDs read from the tiles, the edge geometries and the edge explorer, which is faster than calling findClosest for
+     * many points that are close to each other.
+     */
+    @Override
+    public List<Snap> findClosestBatch(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("The number of latitudes and longitudes must be equal, but was " + lats.length + " and " + lons.length);
+
+        final long[] keys = new long[lats.length];
+        for (int i = 0; i < lats.length; i++) {
+            keys[i] = keyAlgo.encode(lats[i], lons[i]);
+        }
+        int[] order = IndirectSort.mergesort(0, keys.length, (indexA, indexB) -> Long.compare(keys[indexA], keys[indexB]));
+
+        Snap[] snaps = new Snap[lats.length];
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        BatchCache cache = new BatchCache();
+        for (int i : order) {
+            snaps[i] = findClosest(lats[i], lons[i], edgeFilter, explorer, cache);
+        }
+        return Arrays.asList(snaps);
+    }
+
+    private Snap findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter,
+                             final EdgeExplorer explorer, final BatchCache cache) {
         GHIntHashSet allCollectedEntryIds = new GHIntHashSet();
         final Snap closestMatch = new Snap(queryLat, queryLon);
         for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
             GHIntHashSet storedNetworkEntryIds = new GHIntHashSet();
-            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration);
+            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration, cache);
             storedNetworkEntryIds.removeAll(allCollectedEntryIds);
             allCollectedEntryIds.addAll(storedNetworkEntryIds);
 
             // clone storedIds to avoid interference with forEach
             final GHBitSet checkBitset = new GHTBitSet(new GHIntHashSet(storedNetworkEntryIds));
             // find nodes from the network entries which are close to 'point'
-            final EdgeExplorer explorer = graph.createEdgeExplorer();
             storedNetworkEntryIds.forEach(new IntPredicate() {
                 @Override
                 public boolean apply(int networkEntryNodeId) {
@@ -600,6 +662,20 @@ public class LocationIndexTree implements LocationIndex {
                             return closestMatch.getQueryDistance();
                         }
 
+                        @Override
+                        protected PointList fetchWayGeometry(EdgeIteratorState edge) {
+                            if (cache == null)
+                                return super.fetchWayGeometry(edge);
+                            PointList pointList = cache.geometries.get(edge.getEdgeKey());
+                            if (pointList == null) {
+                                pointList = super.fetchWayGeometry(edge);
+                                if (cache.geometries.size() >= MAX_CACHED_GEOMETRIES)
+                                    cache.geometries.clear();
+                                cache.geometries.put(edge.getEdgeKey(), pointList);
+                            }
+                            return pointList;
+                        }
+
                         @Override
                         protected boolean check(int node, double normedDist, int wayIndex, EdgeIteratorState edge, Snap.Position pos) {
                             if (normedDist < closestMatch.getQueryDistance()) {
@@ -1004,6 +1080,14 @@ public class LocationIndexTree implements LocationIndex {
         }
     }
 
+    /**
+     * The node IDs of the tiles and the edge geometries that are shared by the queries of findClosestBatch
+     */
+    private static class BatchCache {
+        final GHLongObjectHashMap<int[]> tiles = new GHLongObjectHashMap<>();
+        final GHIntObjectHashMap<PointList> geometries = new GHIntObjectHashMap<>();
+    }
+
     /**
      * Make it possible to collect nearby location also for other purposes.
      */
@@ -1065,7 +1149,7 @@ public class LocationIndexTree implements LocationIndex {
             double tmpLat = currLat;
             double tmpLon = currLon;
             double tmpNormedDist;
-            PointList pointList = currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
+            PointList pointList = fetchWayGeometry(currEdge);
             int len = pointList.getSize();
             for (int pointIndex = 0; pointIndex < len; pointIndex++) {
                 double wayLat = pointList.getLatitude(pointIndex);
@@ -1101,6 +1185,13 @@ public class LocationIndexTree implements LocationIndex {
             return getQueryDistance() > equalNormedDelta;
         }
 
+        /**
+         * @return the geometry of the given edge without the base node
+         */
+        protected PointList fetchWayGeometry(EdgeIteratorState edge) {
+            return edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
+        }
+
         protected abstract double getQueryDistance();
 
         protected abstract boolean check(int node, double normedDist, int wayIndex, EdgeIteratorState iter, Snap.Position pos);
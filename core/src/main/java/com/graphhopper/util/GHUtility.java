@@ -296,8 +296,6 @@ public class GHUtility {
     }
 
     public static Graph shuffle(Graph g, Graph sortedGraph) {
-        if (g.getTurnCostStorage() != null)
-            throw new IllegalArgumentException("Shuffling the graph is currently not supported in the presence of turn costs");
         IntArrayList nodes = ArrayUtil.permutation(g.getNodes(), new Random());
         IntArrayList edges = ArrayUtil.permutation(g.getEdges(), new Random());
         return createSortedGraph(g, sortedGraph, nodes, edges);
@@ -308,9 +306,6 @@ public class GHUtility {
      * significant difference (bfs) for querying or are worse (z-curve).
      */
     public static Graph sortDFS(Graph g, Graph sortedGraph) {
-        if (g.getTurnCostStorage() != null) {
-            throw new IllegalArgumentException("Sorting the graph is currently not supported in the presence of turn costs");
-        }
         int nodes = g.getNodes();
         final IntArrayList nodeList = ArrayUtil.constant(nodes, -1);
         final GHBitSetImpl nodeBitset = new GHBitSetImpl(nodes);
@@ -350,11 +345,84 @@ public class GHUtility {
         return createSortedGraph(g, sortedGraph, nodeList, edgeList);
     }
 
+    /**
+     * Sorts the graph along a Hilbert curve over the node coordinates, so that nodes that are close to each other
+     * are usually close in memory too. The edges are grouped by their lower node in the new order. In contrast to
+     * {@link #sortDFS} the order does not depend on the connectivity of the graph and also keeps the nodes of
+     * neighbouring cells of the location index together.
+     */
+    public static Graph sortHilbert(Graph g, Graph sortedGraph) {
+        int nodes = g.getNodes();
+        BBox bounds = g.getBounds();
+        NodeAccess na = g.getNodeAccess();
+        int order = 15;
+        int maxCell = (1 << order) - 1;
+        double latFactor = maxCell / Math.max(bounds.maxLat - bounds.minLat, 1e-9);
+        double lonFactor = maxCell / Math.max(bounds.maxLon - bounds.minLon, 1e-9);
+        // the curve index needs 2 * order bits, so we can keep the node in the lower bits and sort primitive values
+        long[] keys = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            int x = Math.max(0, Math.min(maxCell, (int) ((na.getLongitude(node) - bounds.minLon) * lonFactor)));
+            int y = Math.max(0, Math.min(maxCell, (int) ((na.getLatitude(node) - bounds.minLat) * latFactor)));
+            keys[node] = (hilbertIndex(x, y, order) << 32) | node;
+        }
+        Arrays.sort(keys);
+        IntArrayList nodeList = ArrayUtil.constant(nodes, -1);
+        for (int i = 0; i < nodes; i++) {
+            nodeList.set((int) keys[i], i);
+        }
+
+        // counting sort of the edges by their lower node, the edges of one node keep their relative order
+        int edges = g.getEdges();
+        int[] lowerNodes = new int[edges];
+        int[] offsets = new int[nodes + 1];
+        AllEdgesIterator iter = g.getAllEdges();
+        while (iter.next()) {
+            int lower = Math.min(nodeList.get(iter.getBaseNode()), nodeList.get(iter.getAdjNode()));
+            lowerNodes[iter.getEdge()] = lower;
+            offsets[lower + 1]++;
+        }
+        for (int i = 0; i < nodes; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        IntArrayList edgeList = ArrayUtil.constant(edges, -1);
+        for (int edge = 0; edge < edges; edge++) {
+            edgeList.set(offsets[lowerNodes[edge]]++, edge);
+        }
+        return createSortedGraph(g, sortedGraph, nodeList, edgeList);
+    }
+
+    /**
+     * @return the position of the cell (x, y) along the Hilbert curve that fills a grid of 2^order x 2^order cells
+     */
+    static long hilbertIndex(int x, int y, int order) {
+        int n = 1 << order;
+        long index = 0;
+        for (int s = n >> 1; s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant so that the curve of the next level starts and ends at the right corners
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return index;
+    }
+
     static Graph createSortedGraph(Graph fromGraph, Graph toSortedGraph, final IntIndexedContainer oldToNewNodeList, final IntIndexedContainer newToOldEdgeList) {
-        if (fromGraph.getTurnCostStorage() != null) {
-            throw new IllegalArgumentException("Sorting the graph is currently not supported in the presence of turn costs");
+        if (fromGraph.getTurnCostStorage() != null && toSortedGraph.getTurnCostStorage() == null) {
+            throw new IllegalArgumentException("Sorting the graph requires a turn cost storage for the sorted graph in the presence of turn costs");
         }
         int edges = fromGraph.getEdges();
+        final int[] oldToNewEdges = new int[edges];
+        Arrays.fill(oldToNewEdges, -1);
         for (int i = 0; i < edges; i++) {
             int edgeId = newToOldEdgeList.get(i);
             if (edgeId < 0)
@@ -371,7 +439,7 @@ public class GHUtility {
             if (newBaseIndex < 0 || newAdjIndex < 0)
                 continue;
 
-            toSortedGraph.edge(newBaseIndex, newAdjIndex).copyPropertiesFrom(eIter);
+            oldToNewEdges[edgeId] = toSortedGraph.edge(newBaseIndex, newAdjIndex).copyPropertiesFrom(eIter).getEdge();
         }
 
         int nodes = fromGraph.getNodes();
@@ -384,6 +452,9 @@ public class GHUtility {
             else
                 sna.setNode(newIndex, na.getLatitude(old), na.getLongitude(old));
         }
+
+        if (fromGraph.getTurnCostStorage() != null)
+            fromGraph.getTurnCostStorage().copyTo(toSortedGraph.getTurnCostStorage(), oldToNewNodeList::get, edge -> oldToNewEdges[edge]);
         return toSortedGraph;
     }
 
@@ -414,7 +485,7 @@ public class GHUtility {
         return toGraph;
     }
 
-    static Directory guessDirectory(GraphStorage store) {
+    public static Directory guessDirectory(GraphStorage store) {
         if (store.getDirectory() instanceof MMapDirectory) {
             throw new IllegalStateException("not supported yet: mmap will overwrite existing storage at the same location");
         }
@@ -0,0 +1,69 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class DenseLongIntMapTest {
+    @Test
+    public void testPutAndGet() {
+        DenseLongIntMap map = new DenseLongIntMap(new RAMDirectory());
+        assertEquals(-1, map.get(100));
+        map.put(100, 0);
+        map.put(1_000_000, -50);
+        map.put(150, 7);
+        // smaller than the first key
+        map.put(5, 8);
+        assertEquals(4, map.getSize());
+        assertEquals(0, map.get(100));
+        assertEquals(-50, map.get(1_000_000));
+        assertEquals(7, map.get(150));
+        assertEquals(8, map.get(5));
+        assertEquals(-1, map.get(101));
+        assertEquals(-1, map.get(50_000_000));
+
+        assertEquals(7, map.put(150, -1));
+        assertEquals(-1, map.get(150));
+        assertEquals(3, map.getSize());
+    }
+
+    @Test
+    public void testRandom() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        DenseLongIntMap map = new DenseLongIntMap(new RAMDirectory());
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long key = rnd.nextInt(1_000_000);
+            int value = rnd.nextInt(1000);
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        assertEquals("seed: " + seed, expected.size(), map.getSize());
+        for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+            assertEquals("seed: " + seed, (int) e.getValue(), map.get(e.getKey()));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DoubleMinHeapWithUpdateTest implements BinaryHeapTestInterface {
+
+    private DoubleMinHeapWithUpdate heap;
+
+    @Override
+    public void create(int capacity) {
+        heap = new DoubleMinHeapWithUpdate(capacity);
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    public void push(int id, float val) {
+        heap.push(id, val);
+    }
+
+    @Override
+    public int peekId() {
+        return heap.peekId();
+    }
+
+    @Override
+    public float peekVal() {
+        return (float) heap.peekValue();
+    }
+
+    @Override
+    public void update(int id, float val) {
+        heap.update(id, val);
+    }
+
+    @Override
+    public int poll() {
+        return heap.poll();
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+    }
+
+    @Test
+    void duplicateElements() {
+        create(5);
+        push(1, 0.2f);
+        push(2, 0.1f);
+        assertEquals(2, poll());
+        push(2, 0.6f);
+        assertThrows(IllegalStateException.class, () -> push(2, 0.4f));
+    }
+
+    @Test
+    void growAndRemove() {
+        create(2);
+        heap.ensureCapacity(100);
+        for (int i = 0; i < 100; i++)
+            heap.push(i, 100 - i);
+        heap.remove(0);
+        heap.remove(50);
+        assertThrows(IllegalStateException.class, () -> heap.remove(50));
+        assertEquals(98, heap.size());
+        assertEquals(99, heap.poll());
+        assertFalse(heap.contains(99));
+        assertThrows(IllegalStateException.class, () -> heap.ensureCapacity(1000));
+        heap.clear();
+        heap.ensureCapacity(1000);
+        assertFalse(heap.contains(999));
+    }
+
+    @Test
+    void sameOrderAsPriorityQueue() {
+        // ties are broken the same way as by the java.util.PriorityQueue, this includes updates done via remove+add
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        int ids = 50;
+        create(ids);
+        Entry[] entries = new Entry[ids];
+        PriorityQueue<Entry> pq = new PriorityQueue<>();
+        for (int i = 0; i < 10_000; i++) {
+            int id = rnd.nextInt(ids);
+            // only few distinct values so there are a lot of ties
+            double value = rnd.nextInt(10);
+            if (rnd.nextDouble() < 0.3 && !pq.isEmpty()) {
+                Entry polled = pq.poll();
+                entries[polled.id] = null;
+                assertEquals(polled.id, heap.poll(), "seed: " + seed);
+            } else if (entries[id] == null) {
+                entries[id] = new Entry(id, value);
+                pq.add(entries[id]);
+                heap.push(id, value);
+            } else {
+                pq.remove(entries[id]);
+                entries[id].value = value;
+                pq.add(entries[id]);
+                heap.update(id, value);
+            }
+            assertEquals(pq.size(), heap.size());
+        }
+        while (!pq.isEmpty())
+            assertEquals(pq.poll().id, heap.poll(), "seed: " + seed);
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        final int id;
+        double value;
+
+        Entry(int id, double value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            return Double.compare(value, o.value);
+        }
+    }
+}
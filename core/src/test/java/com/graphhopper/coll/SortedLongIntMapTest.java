@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SortedLongIntMapTest {
+    @Test
+    public void testPutAndGet() {
+        SortedLongIntMap map = new SortedLongIntMap(new RAMDirectory());
+        map.put(9, 0);
+        map.put(10, -50);
+        map.put(20, 6);
+        // larger than an int away from the first key of the page
+        map.put(20 + (1L << 40), 7);
+        assertEquals(4, map.getSize());
+        assertEquals(-1, map.get(8));
+        assertEquals(0, map.get(9));
+        assertEquals(-50, map.get(10));
+        assertEquals(-1, map.get(11));
+        assertEquals(6, map.get(20));
+        assertEquals(7, map.get(20 + (1L << 40)));
+
+        // update and insert keys out of order
+        assertEquals(0, map.put(9, 3));
+        assertEquals(-1, map.put(15, 4));
+        assertEquals(-1, map.put(-Long.MAX_VALUE, 5));
+        assertEquals(3, map.get(9));
+        assertEquals(4, map.get(15));
+        assertEquals(5, map.get(-Long.MAX_VALUE));
+        assertEquals(6, map.getSize());
+    }
+
+    @Test
+    public void testOptimizeRemovesMissingValues() {
+        SortedLongIntMap map = new SortedLongIntMap(new RAMDirectory());
+        for (int i = 0; i < 5000; i++) {
+            map.put(i * 3, -1);
+        }
+        map.put(30, 1);
+        map.put(4500, 2);
+        assertEquals(5000, map.getSize());
+        map.optimize();
+        assertEquals(2, map.getSize());
+        assertEquals(1, map.get(30));
+        assertEquals(2, map.get(4500));
+        assertEquals(-1, map.get(33));
+
+        // keys of the removed range go to the tree, larger keys are appended
+        map.put(33, 3);
+        map.put(20_000, 4);
+        assertEquals(3, map.get(33));
+        assertEquals(4, map.get(20_000));
+        assertEquals(4, map.getSize());
+    }
+
+    @Test
+    public void testRandom() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        SortedLongIntMap map = new SortedLongIntMap(new RAMDirectory());
+        Map<Long, Integer> expected = new HashMap<>();
+        long key = rnd.nextInt(1000);
+        for (int i = 0; i < 20_000; i++) {
+            key += 1 + rnd.nextInt(rnd.nextInt(100) == 0 ? Integer.MAX_VALUE : 10);
+            int value = rnd.nextInt(1000);
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            long k = rnd.nextBoolean() ? rnd.nextInt(100_000) : (long) expected.keySet().toArray()[rnd.nextInt(expected.size())];
+            int value = rnd.nextInt(1000);
+            map.put(k, value);
+            expected.put(k, value);
+        }
+        assertEquals("seed: " + seed, expected.size(), map.getSize());
+        for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+            assertEquals("seed: " + seed, (int) e.getValue(), map.get(e.getKey()));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeightTileCacheTest {
+    private final RAMDirectory dir = new RAMDirectory();
+
+    private HeightTile createTile(String name, int bytes) {
+        HeightTile tile = new HeightTile(0, 0, 10, 10, 1e7, 1, 1);
+        DataAccess heights = dir.find(name);
+        heights.setSegmentSize(128).create(bytes);
+        tile.setHeights(heights);
+        return tile;
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        List<HeightTile> evicted = new ArrayList<>();
+        HeightTileCache<String> cache = new HeightTileCache<String>(evicted::add).setMaxTiles(2);
+        HeightTile a = cache.get("a", key -> createTile(key, 128));
+        a.release();
+        cache.get("b", key -> createTile(key, 128)).release();
+        // a is used more recently than b now
+        assertSame(a, cache.get("a", key -> fail("a is cached")));
+        a.release();
+        cache.get("c", key -> createTile(key, 128)).release();
+
+        assertEquals(1, evicted.size());
+        assertEquals("b", evicted.get(0).getHeights().getName());
+        assertTrue(evicted.get(0).getHeights().isClosed());
+        assertFalse(a.getHeights().isClosed());
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+
+        // b is loaded again
+        cache.get("b", key -> createTile(key + "2", 128)).release();
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    public void evictByBytes() {
+        HeightTileCache<String> cache = new HeightTileCache<String>(tile -> {
+        }).setMaxBytes(300);
+        cache.get("a", key -> createTile(key, 128)).release();
+        cache.get("b", key -> createTile(key, 128)).release();
+        assertEquals(256, cache.getBytes());
+        cache.get("c", key -> createTile(key, 128)).release();
+        assertEquals(2, cache.getSize());
+        assertEquals(256, cache.getBytes());
+
+        // the newest tile is kept even if it is too big
+        cache.get("d", key -> createTile(key, 512)).release();
+        assertEquals(1, cache.getSize());
+        assertEquals(512, cache.getBytes());
+        assertEquals(3, cache.getEvictions());
+    }
+
+    @Test
+    public void evictedTileIsClosedAfterRelease() {
+        HeightTileCache<String> cache = new HeightTileCache<String>(tile -> {
+        }).setMaxTiles(1);
+        HeightTile a = cache.get("a", key -> createTile(key, 128));
+        cache.get("b", key -> createTile(key, 128)).release();
+        // a is still in use
+        assertFalse(a.getHeights().isClosed());
+        a.release();
+        assertTrue(a.getHeights().isClosed());
+        assertFalse(a.acquire());
+    }
+
+    @Test
+    public void noTile() {
+        HeightTileCache<String> cache = new HeightTileCache<>(tile -> {
+        });
+        assertNull(cache.get("a", key -> null));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void loadOnlyOnceFromMultipleThreads() throws Exception {
+        HeightTileCache<Integer> cache = new HeightTileCache<Integer>(tile -> {
+        }).setMaxTiles(3);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    for (int i = 0; i < 1000; i++) {
+                        int key = i % 5;
+                        HeightTile tile = cache.get(key, k -> {
+                            loads.incrementAndGet();
+                            synchronized (dir) {
+                                return createTile("t" + loads.get(), 128);
+                            }
+                        });
+                        assertFalse(tile.getHeights().isClosed());
+                        tile.getHeight(0.5, 0.5);
+                        tile.release();
+                    }
+                    return null;
+                }));
+            }
+            startLatch.countDown();
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(3, cache.getSize());
+        // a tile that is evicted while a thread waits for it is loaded again, then hits + misses can exceed 4000
+        assertTrue(cache.getHits() + cache.getMisses() >= 4000);
+        assertTrue(cache.getHits() <= 4000);
+        assertEquals(loads.get(), cache.getMisses());
+        assertEquals(loads.get() - 3, cache.getEvictions());
+    }
+
+    @Test
+    public void reloadEvictedTileFromDirectory() throws Exception {
+        // like the elevation providers the tiles are loaded from a directory under the same name again and again
+        ElevationTileDirectory tileDir = new ElevationTileDirectory("", DAType.RAM);
+        HeightTileCache<Integer> cache = new HeightTileCache<Integer>(tile -> tileDir.evict(tile.getHeights())).setMaxTiles(2);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int offset = t;
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    for (int i = 0; i < 2000; i++) {
+                        HeightTile tile = cache.get((i + offset) % 5, key -> {
+                            HeightTile newTile = new HeightTile(0, 0, 10, 10, 1e7, 1, 1);
+                            DataAccess heights = tileDir.find("t" + key);
+                            heights.setSegmentSize(128).create(128);
+                            newTile.setHeights(heights);
+                            return newTile;
+                        });
+                        // the DataAccess of a tile that was just evicted must not be closed while it is read
+                        for (int j = 0; j < 10; j++) {
+                            assertFalse(tile.getHeights().isClosed());
+                            tile.getHeight(0.5, 0.5);
+                        }
+                        tile.release();
+                    }
+                    return null;
+                }));
+            }
+            startLatch.countDown();
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.getEvictions() > 0);
+        assertEquals(2, cache.getSize());
+    }
+}
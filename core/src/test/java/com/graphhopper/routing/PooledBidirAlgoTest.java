@@ -0,0 +1,125 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PooledBidirAlgoTest {
+
+    @Test
+    public void sameResultsAsReferenceAlgorithms() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 0);
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).setCHConfigStrings("p|car|fastest|node").create();
+        CHConfig chConfig = graph.getCHGraph().getCHConfig();
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+
+        List<Snap> snaps = new ArrayList<>();
+        BBox bbox = graph.getBounds();
+        while (snaps.size() < 10) {
+            Snap snap = locationIndex.findClosest(bbox.minLat + rnd.nextDouble() * (bbox.maxLat - bbox.minLat),
+                    bbox.minLon + rnd.nextDouble() * (bbox.maxLon - bbox.minLon), EdgeFilter.ALL_EDGES);
+            if (snap.isValid())
+                snaps.add(snap);
+        }
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        Weighting weighting = queryGraph.wrapWeighting(chConfig.getWeighting());
+        RoutingCHGraph chGraph = new QueryRoutingCHGraph(graph.getRoutingCHGraph(chConfig.getName()), queryGraph);
+        for (int i = 0; i < 50; i++) {
+            int from = rnd.nextInt(queryGraph.getNodes());
+            int to = rnd.nextInt(queryGraph.getNodes());
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            compare(msg, from, to, new DijkstraBidirectionRef(queryGraph, weighting, TraversalMode.NODE_BASED),
+                    new PooledNonCHBidirAlgo(queryGraph, weighting));
+            compare(msg, from, to, new AStarBidirection(queryGraph, weighting, TraversalMode.NODE_BASED),
+                    new PooledNonCHBidirAlgo(queryGraph, weighting).setApproximation(createApproximator(queryGraph, weighting)));
+            compare(msg, from, to, new DijkstraBidirectionCH(chGraph), new PooledBidirCHAlgo(chGraph));
+            compare(msg, from, to, new DijkstraBidirectionCHNoSOD(chGraph), new PooledBidirCHAlgo(chGraph).setStallOnDemand(false));
+            compare(msg, from, to, new AStarBidirectionCH(chGraph),
+                    new PooledBidirCHAlgo(chGraph).setStallOnDemand(false).setApproximation(createApproximator(queryGraph, chGraph.getWeighting())));
+        }
+    }
+
+    private BeelineWeightApproximator createApproximator(Graph graph, Weighting weighting) {
+        return new BeelineWeightApproximator(graph.getNodeAccess(), weighting).setDistanceCalc(DistancePlaneProjection.DIST_PLANE);
+    }
+
+    private void compare(String msg, int from, int to, BidirRoutingAlgorithm refAlgo, AbstractPooledBidirAlgo algo) {
+        Path refPath = refAlgo.calcPath(from, to);
+        Path path = algo.calcPath(from, to);
+        msg += ", " + algo.getName();
+        assertEquals(refAlgo.getName(), algo.getName(), msg);
+        assertEquals(refPath.isFound(), path.isFound(), msg);
+        assertEquals(refPath.getWeight(), path.getWeight(), 1.e-6, msg);
+        assertEquals(refPath.calcNodes(), path.calcNodes(), msg);
+        assertEquals(refAlgo.getVisitedNodes(), algo.getVisitedNodes(), msg);
+    }
+
+    @Test
+    public void contextIsReusedAndReset() {
+        BidirSearchContext context = BidirSearchContext.acquire(10);
+        context.fwd.set(3, 1.5, -1, 7);
+        assertTrue(context.fwd.contains(3));
+        // a search running while the context is in use gets a new one
+        BidirSearchContext nested = BidirSearchContext.acquire(10);
+        assertNotSame(context, nested);
+        nested.release();
+        context.release();
+
+        assertSame(context, BidirSearchContext.acquire(20));
+        assertFalse(context.fwd.contains(3));
+        assertEquals(Double.POSITIVE_INFINITY, context.fwd.getWeight(3));
+        context.release();
+    }
+
+    @Test
+    public void edgeRestrictionsAreNotSupported() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        GHUtility.setProperties(graph.edge(0, 1).setDistance(100), encoder, 60, true, true);
+        PooledNonCHBidirAlgo algo = new PooledNonCHBidirAlgo(graph, new FastestWeighting(encoder));
+        assertThrows(IllegalArgumentException.class, () -> algo.calcPath(0, 1, 0, 0));
+    }
+}
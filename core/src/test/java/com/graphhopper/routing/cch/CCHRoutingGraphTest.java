@@ -0,0 +1,215 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.DijkstraBidirectionCH;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.EnumEncodedValue;
+import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.CustomModel;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomWeighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CCHRoutingGraphTest {
+    private static final String DIR = "./target/cch-test";
+    private CarFlagEncoder encoder;
+    private EncodingManager encodingManager;
+    private GraphHopperStorage graph;
+
+    @BeforeEach
+    public void setUp() {
+        Helper.removeDir(new File(DIR));
+        encoder = new CarFlagEncoder().setSpeedTwoDirections(true);
+        encodingManager = EncodingManager.create(encoder);
+        graph = new GraphBuilder(encodingManager).create();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void simpleGraph() {
+        // 0-1-2-3
+        //   |   |
+        //   4---5
+        graph.edge(0, 1, 100, true).set(encoder.getAverageSpeedEnc(), 60);
+        graph.edge(1, 2, 100, true).set(encoder.getAverageSpeedEnc(), 60);
+        graph.edge(2, 3, 100, true).set(encoder.getAverageSpeedEnc(), 60);
+        graph.edge(1, 4, 50, true).set(encoder.getAverageSpeedEnc(), 60);
+        graph.edge(4, 5, 50, true).set(encoder.getAverageSpeedEnc(), 60);
+        graph.edge(5, 3, 50, true).set(encoder.getAverageSpeedEnc(), 60);
+        graph.freeze();
+        CCHStorage storage = new CCHStorage(graph, new RAMDirectory());
+        // contracting the nodes in this order adds the arcs 0-2, 0-4, 2-4 and 3-4 to the six edges
+        storage.build(new int[]{1, 5, 0, 2, 3, 4});
+        assertEquals(10, storage.getArcs());
+        assertTrue(storage.findArc(storage.getRank(3), storage.getRank(4)) >= 0);
+        assertTrue(storage.findArc(storage.getRank(0), storage.getRank(4)) >= 0);
+        assertEquals(-1, storage.findArc(storage.getRank(1), storage.getRank(3)));
+
+        CCHRoutingGraph routingGraph = new CCHRoutingGraph(new CCHMetric(storage, createWeighting(new CustomModel())).customize());
+        Path path = new DijkstraBidirectionCH(routingGraph).calcPath(0, 3);
+        assertTrue(path.isFound());
+        assertEquals(250, path.getDistance(), 1.e-6);
+        assertEquals(IntArrayList.from(0, 1, 4, 5, 3), path.calcNodes());
+    }
+
+    @Test
+    public void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        EnumEncodedValue<RoadClass> roadClassEnc = encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next())
+            iter.set(roadClassEnc, rnd.nextBoolean() ? RoadClass.PRIMARY : RoadClass.RESIDENTIAL);
+        graph.freeze();
+
+        CCHStorage storage = new CCHStorage(graph, new RAMDirectory());
+        storage.build();
+        CustomModel avoidPrimary = new CustomModel();
+        Map<String, Object> priorities = new LinkedHashMap<>();
+        priorities.put("primary", 0.1);
+        avoidPrimary.getPriority().put(RoadClass.KEY, priorities);
+        for (CustomModel customModel : new CustomModel[]{new CustomModel(), new CustomModel().setDistanceInfluence(0), avoidPrimary}) {
+            Weighting weighting = createWeighting(customModel);
+            CCHRoutingGraph routingGraph = new CCHRoutingGraph(new CCHMetric(storage, weighting).customize());
+            compareWithDijkstra(rnd, seed, weighting, routingGraph);
+        }
+    }
+
+    @Test
+    public void randomOrder() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        graph.freeze();
+        int[] nodesByRank = new int[graph.getNodes()];
+        for (int i = 0; i < nodesByRank.length; i++)
+            nodesByRank[i] = i;
+        for (int i = nodesByRank.length - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int tmp = nodesByRank[i];
+            nodesByRank[i] = nodesByRank[j];
+            nodesByRank[j] = tmp;
+        }
+        // the customization yields correct weights for every order, the order only determines the search space
+        CCHStorage storage = new CCHStorage(graph, new RAMDirectory());
+        storage.build(nodesByRank);
+        Weighting weighting = createWeighting(new CustomModel());
+        compareWithDijkstra(rnd, seed, weighting, new CCHRoutingGraph(new CCHMetric(storage, weighting).customize()));
+    }
+
+    @Test
+    public void flushAndLoad() {
+        GHUtility.buildRandomGraph(graph, new Random(123), 50, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        graph.freeze();
+        CCHStorage storage = new CCHStorage(graph, new RAMDirectory(DIR, true).create());
+        storage.build();
+        storage.flush();
+        storage.close();
+
+        CCHStorage loaded = new CCHStorage(graph, new RAMDirectory(DIR, true).create());
+        assertTrue(loaded.loadExisting());
+        CCHStorage expected = new CCHStorage(graph, new RAMDirectory());
+        expected.build();
+        assertEquals(expected.getArcs(), loaded.getArcs());
+        for (int rank = 0; rank < graph.getNodes(); rank++) {
+            assertEquals(expected.getNode(rank), loaded.getNode(rank));
+            assertEquals(rank, loaded.getRank(loaded.getNode(rank)));
+            assertEquals(expected.getFirstArc(rank), loaded.getFirstArc(rank));
+        }
+        for (int arc = 0; arc < expected.getArcs(); arc++)
+            assertEquals(expected.getUpperRank(arc), loaded.getUpperRank(arc));
+    }
+
+    @Test
+    public void cache() {
+        GHUtility.buildRandomGraph(graph, new Random(123), 50, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        graph.freeze();
+        CCHStorage storage = new CCHStorage(graph, new RAMDirectory());
+        storage.build();
+        CCHMetricCache cache = new CCHMetricCache(storage, 2);
+        CustomModel fast = new CustomModel().setDistanceInfluence(0);
+        CustomModel shortest = new CustomModel().setDistanceInfluence(1000);
+        assertNotEquals(CCHMetricCache.createKey("car", fast), CCHMetricCache.createKey("car", shortest));
+        assertEquals(CCHMetricCache.createKey("car", fast), CCHMetricCache.createKey("car", new CustomModel().setDistanceInfluence(0)));
+        assertNotEquals(CCHMetricCache.createKey("car", fast), CCHMetricCache.createKey("bike", fast));
+
+        cache.getRoutingCHGraph(CCHMetricCache.createKey("car", fast), createWeighting(fast));
+        cache.getRoutingCHGraph(CCHMetricCache.createKey("car", fast), createWeighting(fast));
+        assertEquals(1, cache.size());
+        cache.getRoutingCHGraph(CCHMetricCache.createKey("car", shortest), createWeighting(shortest));
+        cache.getRoutingCHGraph(CCHMetricCache.createKey("car", null), createWeighting(new CustomModel()));
+        assertEquals(2, cache.size());
+    }
+
+    private void compareWithDijkstra(Random rnd, long seed, Weighting weighting, CCHRoutingGraph routingGraph) {
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            Path refPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            Path path = new DijkstraBidirectionCH(routingGraph).calcPath(from, to);
+            assertEquals(refPath.isFound(), path.isFound(), msg);
+            if (!refPath.isFound())
+                continue;
+            assertEquals(refPath.getWeight(), path.getWeight(), 1.e-3, msg);
+            // the unpacked path can differ from the reference path if there are several shortest paths, but it has
+            // to be a valid path with the same weight
+            double unpackedWeight = 0;
+            int node = from;
+            for (EdgeIteratorState edge : path.calcEdges()) {
+                assertEquals(node, edge.getBaseNode(), msg);
+                unpackedWeight += weighting.calcEdgeWeight(edge, false);
+                node = edge.getAdjNode();
+            }
+            assertEquals(to, node, msg);
+            assertEquals(refPath.getWeight(), unpackedWeight, 1.e-3, msg);
+        }
+    }
+
+    private Weighting createWeighting(CustomModel customModel) {
+        return new CustomWeighting(encoder, encodingManager, NO_TURN_COST_PROVIDER, customModel);
+    }
+}
@@ -560,6 +560,40 @@ public class PrepareContractionHierarchiesTest {
         assertTrue("reusing node ordering should speed up ch contraction", timeMotorCycle < 0.5 * timeCar);
     }
 
+    @Test
+    public void testParallelContraction() {
+        long seed = System.nanoTime();
+        GraphHopperStorage twoThreads = prepareRandomGraphInParallel(seed, 2);
+        GraphHopperStorage fourThreads = prepareRandomGraphInParallel(seed, 4);
+        CHGraph chTwo = twoThreads.getCHGraph(chConfig.getName());
+        CHGraph chFour = fourThreads.getCHGraph(chConfig.getName());
+        // the result must not depend on the number of threads
+        assertEquals("seed: " + seed, chTwo.getEdges(), chFour.getEdges());
+        for (int node = 0; node < chTwo.getNodes(); node++)
+            assertEquals("seed: " + seed, chTwo.getLevel(node), chFour.getLevel(node));
+
+        Random rnd = new Random(seed);
+        RoutingCHGraph routingCHGraph = fourThreads.getRoutingCHGraph(chConfig.getName());
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(fourThreads.getNodes());
+            int to = rnd.nextInt(fourThreads.getNodes());
+            Path refPath = new Dijkstra(fourThreads, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            Path chPath = new CHRoutingAlgorithmFactory(routingCHGraph).createAlgo(new PMap()).calcPath(from, to);
+            assertEquals("seed: " + seed + ", " + from + "->" + to, refPath.isFound(), chPath.isFound());
+            assertEquals("seed: " + seed + ", " + from + "->" + to, refPath.getWeight(), chPath.getWeight(), 1.e-3);
+        }
+    }
+
+    private GraphHopperStorage prepareRandomGraphInParallel(long seed, int threads) {
+        GraphHopperStorage ghStorage = createGHStorage();
+        GHUtility.buildRandomGraph(ghStorage, new Random(seed), 1_000, 2.2, true, true, carEncoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(ghStorage);
+        prepare.setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, threads));
+        prepare.doWork();
+        assertTrue(prepare.getShortcuts() > 0);
+        return ghStorage;
+    }
+
     private void checkPath(GraphHopperStorage g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         RoutingCHGraph lg = g.getRoutingCHGraph(c.getName());
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
@@ -0,0 +1,141 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.lm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.routing.BidirRoutingAlgorithm;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ch.CHParameters;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BlockAreaWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.Circle;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CoreRoutingAlgorithmFactoryTest {
+    private CarFlagEncoder encoder;
+    private Directory dir;
+    private GraphHopperStorage graph;
+    private CHConfig chConfig;
+    private Weighting weighting;
+
+    @Before
+    public void init() {
+        encoder = new CarFlagEncoder(5, 5, 0);
+        dir = new RAMDirectory();
+        graph = new GraphBuilder(EncodingManager.create(encoder)).setDir(dir).setCHConfigStrings("c_core|car|fastest|node").create();
+        chConfig = graph.getCHGraph().getCHConfig();
+        weighting = chConfig.getWeighting();
+    }
+
+    @Test
+    public void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).useBlockableCore()
+                .setParams(new PMap().putObject(CHParameters.CONTRACTED_NODES, 70)).doWork();
+        PrepareLandmarks lm = new PrepareLandmarks(dir, graph, new LMConfig("c", weighting), 8);
+        lm.setMaximumWeight(10000);
+        lm.doWork();
+        RoutingCHGraph coreGraph = graph.getRoutingCHGraph(chConfig.getName());
+
+        // block some of the edges between two core nodes. the shape is far away from the graph, so only the cached
+        // edge ids are blocked
+        IntArrayList coreEdges = new IntArrayList();
+        IntArrayList otherEdges = new IntArrayList();
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            boolean inCore = coreGraph.getLevel(state.getBaseNode()) == graph.getNodes() && coreGraph.getLevel(state.getAdjNode()) == graph.getNodes();
+            (inCore ? coreEdges : otherEdges).add(edge);
+        }
+        assertFalse("seed: " + seed, coreEdges.isEmpty());
+        GraphEdgeIdFinder.BlockArea blockArea = new GraphEdgeIdFinder.BlockArea(graph);
+        GHIntHashSet blockedEdges = blockArea.add(new Circle(-80, -170, 10));
+        for (int i = 0; i < coreEdges.size(); i += 3)
+            blockedEdges.add(coreEdges.get(i));
+        assertTrue(CoreRoutingAlgorithmFactory.isBlockedInCore(coreGraph, blockArea));
+
+        List<Snap> snaps = new ArrayList<>();
+        BBox bbox = graph.getBounds();
+        while (snaps.size() < 10) {
+            Snap snap = locationIndex.findClosest(bbox.minLat + rnd.nextDouble() * (bbox.maxLat - bbox.minLat),
+                    bbox.minLon + rnd.nextDouble() * (bbox.maxLon - bbox.minLon), EdgeFilter.ALL_EDGES);
+            if (snap.isValid())
+                snaps.add(snap);
+        }
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        CoreRoutingAlgorithmFactory factory = new CoreRoutingAlgorithmFactory(coreGraph, queryGraph, lm.getLandmarkStorage(), blockArea);
+        Weighting blockedWeighting = queryGraph.wrapWeighting(new BlockAreaWeighting(weighting, blockArea));
+        for (int i = 0; i < 100; i++) {
+            int from = i < snaps.size() ? snaps.get(i).getClosestNode() : rnd.nextInt(queryGraph.getNodes());
+            int to = rnd.nextInt(queryGraph.getNodes());
+            Path refPath = new Dijkstra(queryGraph, blockedWeighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            BidirRoutingAlgorithm algo = factory.createAlgo(new PMap());
+            Path path = algo.calcPath(from, to);
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            assertEquals(msg, refPath.isFound(), path.isFound());
+            if (!refPath.isFound())
+                continue;
+            assertEquals(msg, refPath.getWeight(), path.getWeight(), 1.e-2);
+            for (EdgeIteratorState edge : path.calcEdges())
+                assertFalse(msg, blockArea.intersects(edge));
+        }
+
+        if (!otherEdges.isEmpty()) {
+            blockArea.add(new Circle(-80, -170, 10)).add(otherEdges.get(0));
+            assertFalse(CoreRoutingAlgorithmFactory.isBlockedInCore(coreGraph, blockArea));
+        }
+    }
+
+    @Test
+    public void unknownEdgesAreNotInCore() {
+        GHUtility.buildRandomGraph(graph, new Random(123), 50, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTED_NODES, 0)).doWork();
+        GraphEdgeIdFinder.BlockArea blockArea = new GraphEdgeIdFinder.BlockArea(graph);
+        // the edges of large areas are not looked up in advance
+        blockArea.add(new Circle(-80, -170, 10));
+        assertFalse(CoreRoutingAlgorithmFactory.isBlockedInCore(graph.getRoutingCHGraph(chConfig.getName()), blockArea));
+    }
+}
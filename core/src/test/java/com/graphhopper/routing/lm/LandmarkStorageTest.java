@@ -26,10 +26,7 @@ import com.graphhopper.routing.util.spatialrules.SpatialRule;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookup;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleSet;
 import com.graphhopper.routing.weighting.FastestWeighting;
-import com.graphhopper.storage.DataAccess;
-import com.graphhopper.storage.Directory;
-import com.graphhopper.storage.GraphHopperStorage;
-import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.*;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import org.junit.After;
@@ -41,6 +38,7 @@ import org.locationtech.jts.geom.Polygon;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -233,4 +231,34 @@ public class LandmarkStorageTest {
         storage.createLandmarks();
         assertEquals(3, storage.getSubnetworksWithLandmarks());
     }
+
+    @Test
+    public void testParallelWeightsAreIdentical() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(ghStorage, new Random(seed), 500, 2.5, false, true, encoder.getAverageSpeedEnc(), 0.7, 1, 0.8);
+        ghStorage.freeze();
+        // RAM_INT stores the 'from' and 'to' weight of a landmark in the same int
+        for (DAType daType : Arrays.asList(DAType.RAM, DAType.RAM_INT)) {
+            LMConfig lmConfig = new LMConfig("c1", new FastestWeighting(encoder));
+            LandmarkStorage sequential = new LandmarkStorage(ghStorage, new GHDirectory("", daType), lmConfig, 8);
+            sequential.setMinimumNodes(2);
+            sequential.createLandmarks();
+            LandmarkStorage parallel = new LandmarkStorage(ghStorage, new GHDirectory("", daType), lmConfig, 8).setLandmarkThreads(4);
+            parallel.setMinimumNodes(2);
+            parallel.createLandmarks();
+
+            String msg = "seed: " + seed + ", " + daType;
+            assertTrue(msg, sequential.getSubnetworksWithLandmarks() > 1);
+            assertEquals(msg, sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks());
+            for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++) {
+                assertArrayEquals(msg, sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork));
+            }
+            for (int node = 0; node < ghStorage.getNodes(); node++) {
+                for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                    assertEquals(msg, sequential.getFromWeight(lmIdx, node), parallel.getFromWeight(lmIdx, node));
+                    assertEquals(msg, sequential.getToWeight(lmIdx, node), parallel.getToWeight(lmIdx, node));
+                }
+            }
+        }
+    }
 }
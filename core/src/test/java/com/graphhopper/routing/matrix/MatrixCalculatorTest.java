@@ -0,0 +1,156 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MatrixCalculatorTest {
+    private CarFlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private CHConfig chConfig;
+    private Weighting weighting;
+
+    @Before
+    public void init() {
+        encoder = new CarFlagEncoder(5, 5, 0);
+        EncodingManager encodingManager = EncodingManager.create(encoder);
+        graph = new GraphBuilder(encodingManager).setCHConfigStrings("p|car|fastest|node").create();
+        chConfig = graph.getCHGraph().getCHConfig();
+        weighting = chConfig.getWeighting();
+    }
+
+    @Test
+    public void simpleGraph() {
+        // 0-1-2-3
+        //   |   |
+        //   4---5
+        edge(0, 1, 100);
+        edge(1, 2, 100);
+        edge(2, 3, 100);
+        edge(1, 4, 50);
+        edge(4, 5, 50);
+        edge(5, 3, 50);
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+
+        int[] nodes = {0, 3, -1, 5};
+        for (MatrixCalculator calculator : new MatrixCalculator[]{
+                new CHMatrixCalculator(graph.getRoutingCHGraph(chConfig.getName())),
+                new FlexibleMatrixCalculator(graph, weighting, TraversalMode.NODE_BASED)}) {
+            DistanceMatrix matrix = calculator.calcMatrix(nodes, nodes);
+            assertEquals(0, matrix.getDistance(0, 0), 1.e-6);
+            assertEquals(250, matrix.getDistance(0, 1), 1.e-6);
+            assertEquals(250, matrix.getDistance(1, 0), 1.e-6);
+            assertEquals(200, matrix.getDistance(0, 3), 1.e-6);
+            assertEquals(15_000, matrix.getTime(0, 1));
+            assertFalse(matrix.isConnected(0, 2));
+            assertFalse(matrix.isConnected(2, 1));
+            assertEquals(Long.MAX_VALUE, matrix.getTime(2, 2));
+            assertTrue(calculator.getVisitedNodes() > 0);
+        }
+    }
+
+    private void edge(int from, int to, double distance) {
+        graph.edge(from, to, distance, true).set(encoder.getAverageSpeedEnc(), 60);
+    }
+
+    @Test
+    public void edgeBasedCHIsNotSupported() {
+        encoder = new CarFlagEncoder(5, 5, 10);
+        graph = new GraphBuilder(EncodingManager.create(encoder)).setCHConfigStrings("p|car|fastest|edge").create();
+        graph.freeze();
+        try {
+            new CHMatrixCalculator(graph.getRoutingCHGraph("p"));
+            fail("edge-based CH should not be supported");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("ch.disable=true"));
+        }
+    }
+
+    @Test
+    public void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+
+        List<Snap> snaps = new ArrayList<>();
+        BBox bbox = graph.getBounds();
+        while (snaps.size() < 20) {
+            Snap snap = locationIndex.findClosest(bbox.minLat + rnd.nextDouble() * (bbox.maxLat - bbox.minLat),
+                    bbox.minLon + rnd.nextDouble() * (bbox.maxLon - bbox.minLon), EdgeFilter.ALL_EDGES);
+            if (snap.isValid())
+                snaps.add(snap);
+        }
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        int[] fromNodes = new int[30];
+        int[] toNodes = new int[40];
+        for (int i = 0; i < fromNodes.length; i++)
+            fromNodes[i] = i < snaps.size() ? snaps.get(i).getClosestNode() : rnd.nextInt(queryGraph.getNodes());
+        for (int i = 0; i < toNodes.length; i++)
+            toNodes[i] = rnd.nextInt(queryGraph.getNodes());
+
+        DistanceMatrix chMatrix = new CHMatrixCalculator(new QueryRoutingCHGraph(graph.getRoutingCHGraph(chConfig.getName()), queryGraph))
+                .calcMatrix(fromNodes, toNodes);
+        DistanceMatrix flexMatrix = new FlexibleMatrixCalculator(queryGraph, weighting, TraversalMode.NODE_BASED)
+                .calcMatrix(fromNodes, toNodes);
+        Weighting queryGraphWeighting = queryGraph.wrapWeighting(weighting);
+        for (int i = 0; i < fromNodes.length; i++) {
+            for (int j = 0; j < toNodes.length; j++) {
+                Path refPath = new Dijkstra(queryGraph, queryGraphWeighting, TraversalMode.NODE_BASED).calcPath(fromNodes[i], toNodes[j]);
+                String msg = "seed: " + seed + ", " + fromNodes[i] + "->" + toNodes[j];
+                assertEquals(msg, refPath.isFound(), chMatrix.isConnected(i, j));
+                assertEquals(msg, refPath.isFound(), flexMatrix.isConnected(i, j));
+                if (!refPath.isFound())
+                    continue;
+                assertEquals(msg, refPath.getWeight(), chMatrix.getWeight(i, j), 1.e-2);
+                assertEquals(msg, refPath.getWeight(), flexMatrix.getWeight(i, j), 1.e-2);
+                assertEquals(msg, refPath.getDistance(), flexMatrix.getDistance(i, j), 1.e-1);
+                assertEquals(msg, refPath.getTime(), flexMatrix.getTime(i, j));
+                // paths with the same weight can have slightly different distances and times
+                assertEquals(msg, refPath.getDistance(), chMatrix.getDistance(i, j), 0.05 * refPath.getDistance() + 1);
+                assertEquals(msg, refPath.getTime(), chMatrix.getTime(i, j), 0.05 * refPath.getTime() + 50);
+            }
+        }
+    }
+}
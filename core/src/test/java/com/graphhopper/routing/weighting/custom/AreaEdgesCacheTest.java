@@ -0,0 +1,163 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.CustomModel;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AreaEdgesCacheTest {
+
+    @Test
+    public void sameWeightsAsIntersection() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.5, false, false, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        // some edges bend into the area only via their pillar nodes, see pillarNodeOutsideTowerBounds
+        for (int edge = 0; edge < graph.getEdges(); edge += 3) {
+            PointList pillars = new PointList();
+            pillars.add(49.4 + rnd.nextDouble() * 0.01, 9.7 + rnd.nextDouble() * 0.01);
+            graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).setWayGeometry(pillars);
+        }
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+
+        CustomModel model = createModel(9.703, 49.403, 9.706, 49.406);
+
+        AreaEdgesCache cache = new AreaEdgesCache(graph, locationIndex, 1_000_000);
+        Weighting weighting = new CustomWeighting(encoder, graph.getEncodingManager(), NO_TURN_COST_PROVIDER, model);
+        Weighting cachedWeighting = new CustomWeighting(encoder, graph.getEncodingManager(), NO_TURN_COST_PROVIDER, model, cache);
+        // the same area is only resolved once
+        new CustomWeighting(encoder, graph.getEncodingManager(), NO_TURN_COST_PROVIDER, model, cache);
+        assertEquals(1, cache.size());
+
+        List<Snap> snaps = new ArrayList<>();
+        while (snaps.size() < 10) {
+            Snap snap = locationIndex.findClosest(49.4 + rnd.nextDouble() * 0.01, 9.7 + rnd.nextDouble() * 0.01, EdgeFilter.ALL_EDGES);
+            if (snap.isValid())
+                snaps.add(snap);
+        }
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        EdgeExplorer explorer = queryGraph.createEdgeExplorer();
+        int intersectingEdges = 0;
+        for (int node = 0; node < queryGraph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                String msg = "seed: " + seed + ", edge: " + iter;
+                for (boolean reverse : new boolean[]{false, true}) {
+                    assertEquals(weighting.calcEdgeWeight(iter, reverse), cachedWeighting.calcEdgeWeight(iter, reverse), 1.e-9, msg);
+                    assertEquals(weighting.calcEdgeMillis(iter, reverse), cachedWeighting.calcEdgeMillis(iter, reverse), msg);
+                }
+                if (model.getAreas().get("my_area").getGeometry().intersects(iter.fetchWayGeometry(FetchMode.ALL).toLineString(false)))
+                    intersectingEdges++;
+            }
+        }
+        assertTrue(intersectingEdges > 0, "seed: " + seed);
+    }
+
+    @Test
+    public void pillarNodeOutsideTowerBounds() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        graph.getNodeAccess().setNode(0, 49.400, 9.700);
+        graph.getNodeAccess().setNode(1, 49.400, 9.710);
+        graph.getNodeAccess().setNode(2, 49.410, 9.710);
+        graph.edge(1, 2, 1000, true);
+        // the edge leaves the bounds of its tower nodes to pass through the area
+        EdgeIteratorState edge = graph.edge(0, 1, 1000, true).set(encoder.getAverageSpeedEnc(), 60);
+        edge.setWayGeometry(Helper.createPointList(49.405, 9.705));
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+
+        CustomModel model = createModel(9.704, 49.404, 9.706, 49.406);
+        model.setDistanceInfluence(0);
+        Weighting weighting = new CustomWeighting(encoder, graph.getEncodingManager(), NO_TURN_COST_PROVIDER, model);
+        Weighting cachedWeighting = new CustomWeighting(encoder, graph.getEncodingManager(), NO_TURN_COST_PROVIDER, model,
+                new AreaEdgesCache(graph, locationIndex, 1_000_000));
+        // the bounds of the tower nodes do not intersect the area, but the edge does. max_speed 30 and priority 0.5
+        // both double the weight
+        assertEquals(240, weighting.calcEdgeWeight(edge, false), 1.e-6);
+        assertEquals(240, cachedWeighting.calcEdgeWeight(edge, false), 1.e-6);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedAreas() {
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(new CarFlagEncoder())).create();
+        graph.getNodeAccess().setNode(0, 49.400, 9.700);
+        graph.getNodeAccess().setNode(1, 49.400, 9.710);
+        graph.getNodeAccess().setNode(2, 49.410, 9.710);
+        graph.edge(0, 1, 1000, true);
+        graph.edge(1, 2, 1000, true);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+
+        // both areas contain a single edge, so there is only room for one of them
+        AreaEdgesCache cache = new AreaEdgesCache(graph, locationIndex, 8);
+        GHBitSet first = cache.getEdges(createModel(9.704, 49.399, 9.706, 49.401).getAreas().get("my_area").getGeometry());
+        assertEquals(1, first.getCardinality());
+        assertTrue(first.contains(0));
+        assertEquals(1, cache.size());
+        assertEquals(8, cache.getBytes());
+
+        GHBitSet second = cache.getEdges(createModel(9.709, 49.404, 9.711, 49.406).getAreas().get("my_area").getGeometry());
+        assertEquals(1, second.getCardinality());
+        assertTrue(second.contains(1));
+        assertEquals(1, cache.size());
+        assertEquals(8, cache.getBytes());
+    }
+
+    private static CustomModel createModel(double minLon, double minLat, double maxLon, double maxLat) {
+        CustomModel model = new CustomModel();
+        Coordinate[] coordinates = {new Coordinate(minLon, minLat), new Coordinate(minLon, maxLat),
+                new Coordinate(maxLon, maxLat), new Coordinate(maxLon, minLat), null};
+        coordinates[coordinates.length - 1] = coordinates[0];
+        model.getAreas().put("my_area", new JsonFeature("my_area", "Polygon", null,
+                new GeometryFactory().createPolygon(coordinates), Collections.<String, Object>emptyMap()));
+        model.getPriority().put("area_my_area", 0.5);
+        model.getMaxSpeed().put("area_my_area", 30);
+        return model;
+    }
+}
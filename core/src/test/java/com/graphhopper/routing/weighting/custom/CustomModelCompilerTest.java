@@ -0,0 +1,161 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.CustomModel;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeIteratorState;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomModelCompilerTest {
+
+    private final FlagEncoder encoder;
+    private final EncodingManager em;
+    private final UnsignedIntEncodedValue laneEnc;
+
+    CustomModelCompilerTest() {
+        encoder = new CarFlagEncoder().setSpeedTwoDirections(true);
+        laneEnc = new UnsignedIntEncodedValue("lanes", 2, true);
+        em = new EncodingManager.Builder().add(encoder).add(laneEnc).build();
+    }
+
+    @Test
+    public void compiledModelMatchesEntries() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GraphHopperStorage graph = new GraphBuilder(em).create();
+        EnumEncodedValue<RoadClass> roadClassEnc = em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        EnumEncodedValue<RoadEnvironment> roadEnvEnc = em.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
+        BooleanEncodedValue linkEnc = em.getBooleanEncodedValue(RoadClassLink.KEY);
+        DecimalEncodedValue maxSpeedEnc = em.getDecimalEncodedValue(MaxSpeed.KEY);
+        DecimalEncodedValue avgSpeedEnc = encoder.getAverageSpeedEnc();
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 50; node++) {
+            na.setNode(node, 51.05 + rnd.nextDouble() * 0.01, 13.72 + rnd.nextDouble() * 0.01);
+        }
+        for (int i = 0; i < 200; i++) {
+            EdgeIteratorState edge = graph.edge(rnd.nextInt(50), rnd.nextInt(50), 100, true);
+            edge.set(avgSpeedEnc, 5 * rnd.nextInt(20)).setReverse(avgSpeedEnc, 5 * rnd.nextInt(20));
+            edge.set(roadClassEnc, RoadClass.values()[rnd.nextInt(RoadClass.values().length)]);
+            edge.set(roadEnvEnc, RoadEnvironment.values()[rnd.nextInt(RoadEnvironment.values().length)]);
+            edge.set(linkEnc, rnd.nextBoolean());
+            edge.set(maxSpeedEnc, 10 * rnd.nextInt(14)).setReverse(maxSpeedEnc, 10 * rnd.nextInt(14));
+            edge.set(laneEnc, rnd.nextInt(4)).setReverse(laneEnc, rnd.nextInt(4));
+        }
+
+        CustomModel model = new CustomModel();
+        model.getPriority().put(RoadClass.KEY, map(RoadClass.PRIMARY.toString(), 0.5, RoadClass.MOTORWAY.toString(), 0.1));
+        model.getPriority().put(RoadClassLink.KEY, map("true", 0.8));
+        model.getPriority().put("lanes", map("<2", 0.6));
+        model.getPriority().put("area_my_area", 0.3);
+        // a constant factor that is folded
+        model.getPriority().put(RoadEnvironment.KEY, map("*", 0.9));
+        model.getSpeedFactor().put(RoadEnvironment.KEY, map(RoadEnvironment.BRIDGE.toString(), 0.7));
+        model.getSpeedFactor().put(MaxSpeed.KEY, map(">60", 0.9));
+        model.getMaxSpeed().put(RoadClass.KEY, map(RoadClass.RESIDENTIAL.toString(), 30));
+        model.getMaxSpeed().put("area_my_area", 40);
+        Coordinate[] coordinates = {new Coordinate(13.722, 51.053), new Coordinate(13.722, 51.055),
+                new Coordinate(13.726, 51.055), new Coordinate(13.726, 51.053), null};
+        coordinates[coordinates.length - 1] = coordinates[0];
+        model.getAreas().put("my_area", new JsonFeature("my_area", "Polygon", null,
+                new GeometryFactory().createPolygon(coordinates), Collections.<String, Object>emptyMap()));
+
+        PriorityCalculator priorityCalculator = new PriorityCalculator(model, em);
+        SpeedCalculator speedCalculator = new SpeedCalculator(encoder.getMaxSpeed(), model, avgSpeedEnc, em);
+        CompiledCustomModel compiledModel = CustomModelCompiler.compile(priorityCalculator.getPriorityList(),
+                speedCalculator.getSpeedFactorList(), speedCalculator.getMaxSpeedList());
+        for (int edgeId = 0; edgeId < graph.getEdges(); edgeId++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+            // also check the edge state in the opposite of the stored direction
+            for (EdgeIteratorState state : Arrays.asList(edge, graph.getEdgeIteratorState(edgeId, edge.getBaseNode()))) {
+                for (boolean reverse : new boolean[]{false, true}) {
+                    String msg = "seed: " + seed + ", edge: " + state + ", reverse: " + reverse;
+                    assertEquals(priorityCalculator.calcPriority(state, reverse), compiledModel.calcPriority(state, reverse), 1.e-9, msg);
+                    assertEquals(speedCalculator.calcSpeed(state, reverse), speedCalculator.calcSpeed(state, reverse, compiledModel), 1.e-9, msg);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyModel() {
+        CompiledCustomModel compiledModel = CustomModelCompiler.compile(Collections.<EdgeToValueEntry>emptyList(),
+                Collections.<EdgeToValueEntry>emptyList(), Collections.<EdgeToValueEntry>emptyList());
+        EdgeIteratorState edge = new GraphBuilder(em).create().edge(0, 1, 100, true);
+        assertEquals(1, compiledModel.calcPriority(edge, false));
+        assertEquals(1, compiledModel.calcSpeedFactor(edge, true));
+        assertEquals(Double.POSITIVE_INFINITY, compiledModel.calcMaxSpeed(edge, false));
+    }
+
+    @Test
+    public void reuseClassForSameStructure() {
+        EdgeIteratorState edge = new GraphBuilder(em).create().edge(0, 1, 100, true);
+        edge.set(em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class), RoadClass.PRIMARY);
+        CustomModel model = new CustomModel();
+        model.getPriority().put(RoadClass.KEY, map(RoadClass.PRIMARY.toString(), 0.5));
+        model.getPriority().put(RoadEnvironment.KEY, map("*", 0.9));
+        CompiledCustomModel compiledModel = compile(model);
+        assertEquals(0.45, compiledModel.calcPriority(edge, false), 1.e-9);
+
+        // only the values of the table differ, so no new class is necessary
+        model.getPriority().put(RoadClass.KEY, map(RoadClass.PRIMARY.toString(), 0.2, RoadClass.SECONDARY.toString(), 0.3));
+        CompiledCustomModel otherTable = compile(model);
+        assertEquals(0.18, otherTable.calcPriority(edge, false), 1.e-9);
+        assertSame(compiledModel.getClass(), otherTable.getClass());
+
+        // the same for the folded constants
+        model.getPriority().put(RoadEnvironment.KEY, map("*", 0));
+        CompiledCustomModel otherConstant = compile(model);
+        assertEquals(0, otherConstant.calcPriority(edge, false));
+        assertSame(compiledModel.getClass(), otherConstant.getClass());
+
+        // ... but another encoded value requires a new class
+        model.getPriority().put(RoadEnvironment.KEY, map(RoadEnvironment.BRIDGE.toString(), 0.5));
+        CompiledCustomModel otherEncodedValue = compile(model);
+        assertEquals(0.2, otherEncodedValue.calcPriority(edge, false));
+        assertNotSame(compiledModel.getClass(), otherEncodedValue.getClass());
+    }
+
+    private CompiledCustomModel compile(CustomModel model) {
+        SpeedCalculator speedCalculator = new SpeedCalculator(encoder.getMaxSpeed(), model, encoder.getAverageSpeedEnc(), em);
+        return CustomModelCompiler.compile(new PriorityCalculator(model, em).getPriorityList(),
+                speedCalculator.getSpeedFactorList(), speedCalculator.getMaxSpeedList());
+    }
+
+    private static Map<String, Object> map(Object... keyValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -28,7 +28,9 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
 import static com.graphhopper.util.FetchMode.*;
@@ -117,6 +119,54 @@ public class GraphHopperStorageTest extends AbstractGraphStorageTester {
         assertTrue(graph.isFrozen());
     }
 
+    @Test
+    public void testAdjacencyIndex() {
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        graph.edge(0, 1, 10, true);
+        graph.edge(1, 2, 20, false);
+        graph.edge(2, 0, 30, true);
+        // loop and duplicate edge
+        graph.edge(2, 2, 5, true);
+        graph.edge(1, 2, 25, true);
+        graph.edge(4, 1, 15, false);
+        graph.freeze();
+        List<String> expected = adjacencyToList(graph);
+
+        graph.createAdjacencyIndex();
+        assertTrue(graph.hasAdjacencyIndex());
+        assertEquals(expected, adjacencyToList(graph));
+
+        // detaching and reading flags works as for the linked edge lists
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(1);
+        assertTrue(iter.next());
+        EdgeIteratorState detached = iter.detach(false);
+        assertEquals(iter.getEdge(), detached.getEdge());
+        assertEquals(iter.getBaseNode(), detached.getBaseNode());
+        assertEquals(iter.getAdjNode(), detached.getAdjNode());
+        assertEquals(iter.getDistance(), detached.getDistance(), 1.e-6);
+
+        graph.flush();
+        graph.close();
+
+        graph = newGHStorage(new MMapDirectory(defaultGraphLoc), false);
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.hasAdjacencyIndex());
+        assertEquals(expected, adjacencyToList(graph));
+    }
+
+    private List<String> adjacencyToList(Graph graph) {
+        List<String> result = new ArrayList<>();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                result.add(iter.getEdge() + ":" + iter.getBaseNode() + "-" + iter.getAdjNode() + ", " + iter.getDistance()
+                        + ", " + iter.get(carAccessEnc) + "/" + iter.getReverse(carAccessEnc));
+            }
+        }
+        return result;
+    }
+
     protected void checkGraph(Graph g) {
         NodeAccess na = g.getNodeAccess();
         assertTrue(na.is3D());
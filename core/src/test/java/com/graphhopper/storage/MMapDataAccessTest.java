@@ -17,8 +17,15 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.util.BitUtil;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.Assert.*;
 
 /**
@@ -59,4 +66,53 @@ public class MMapDataAccessTest extends DataAccessTest {
         assertEquals(123, da.getInt(7 * 4));
         da.close();
     }
+
+    @Test
+    public void testConcurrentReadOnlyAccess() throws Exception {
+        DataAccess da = createDataAccess(name);
+        da.create(100);
+        int ints = 2000;
+        da.ensureCapacity(ints * 4 + 100);
+        for (int i = 0; i < ints; i++) {
+            da.setInt(i * 4L, i * 7);
+        }
+        // the short and the bytes are split over two segments
+        da.setShort(ints * 4L + 127 - ints * 4L % 128, (short) 12345);
+        da.flush();
+        da.close();
+
+        final DataAccess roDA = new MMapDataAccess(name, directory, defaultOrder, false);
+        assertTrue(roDA.loadExisting());
+        final long shortPos = ints * 4L + 127 - ints * 4L % 128;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                futures.add(executor.submit(() -> {
+                    byte[] bytes = new byte[8];
+                    for (int round = 0; round < 20; round++) {
+                        for (int i = 0; i < ints; i++) {
+                            if (roDA.getInt(i * 4L) != i * 7)
+                                return false;
+                        }
+                        if (roDA.getShort(shortPos) != 12345)
+                            return false;
+                        // 4 bytes in one segment, 4 bytes in the next
+                        roDA.getBytes(124, bytes, 8);
+                        if (BitUtil.LITTLE.toInt(bytes, 0) != 31 * 7 || BitUtil.LITTLE.toInt(bytes, 4) != 32 * 7)
+                            return false;
+                        if (roDA.getByte(4) != 7)
+                            return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+            roDA.close();
+        }
+    }
 }
@@ -0,0 +1,207 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.*;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpDownCHGraphTest {
+    private static final String DIR = "./target/updown-ch-test";
+    private CarFlagEncoder encoder;
+    private EncodingManager encodingManager;
+    private GraphHopperStorage graph;
+    private CHConfig chConfig;
+
+    @BeforeEach
+    public void setUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private void init(boolean edgeBased) {
+        encoder = new CarFlagEncoder(5, 5, edgeBased ? 10 : 0).setSpeedTwoDirections(true);
+        encodingManager = EncodingManager.create(encoder);
+        graph = new GraphBuilder(encodingManager).setDir(new RAMDirectory(DIR, true)).withTurnCosts(edgeBased).build();
+        chConfig = edgeBased
+                ? CHConfig.edgeBased("p", new FastestWeighting(encoder, new DefaultTurnCostProvider(encoder, graph.getTurnCostStorage(), 40)))
+                : CHConfig.nodeBased("p", new FastestWeighting(encoder));
+        graph.addCHGraph(chConfig);
+        graph.create(1000);
+    }
+
+    private long buildAndPrepare(int nodes, boolean edgeBased) {
+        init(edgeBased);
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, nodes, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0);
+        if (edgeBased)
+            GHUtility.addRandomTurnCosts(graph, seed, encodingManager, encoder, 10, graph.getTurnCostStorage());
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        return seed;
+    }
+
+    @Test
+    public void onlyUpwardArcs() {
+        buildAndPrepare(100, false);
+        UpDownCHGraph upDownGraph = new UpDownCHGraph(graph.getCHGraph(chConfig.getName()), new RAMDirectory());
+        upDownGraph.build();
+        RoutingCHGraph routingCHGraph = graph.getRoutingCHGraph(chConfig.getName());
+        RoutingCHEdgeExplorer outExplorer = upDownGraph.createOutEdgeExplorer();
+        RoutingCHEdgeExplorer inExplorer = upDownGraph.createInEdgeExplorer();
+        int arcs = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            assertEquals(routingCHGraph.getLevel(node), upDownGraph.getLevel(node));
+            for (boolean reverse : new boolean[]{false, true}) {
+                RoutingCHEdgeIterator iter = (reverse ? inExplorer : outExplorer).setBaseNode(node);
+                while (iter.next()) {
+                    arcs++;
+                    assertEquals(node, iter.getBaseNode());
+                    assertTrue(upDownGraph.getLevel(node) <= upDownGraph.getLevel(iter.getAdjNode()));
+                    RoutingCHEdgeIteratorState expected = routingCHGraph.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode());
+                    assertEquals(expected.isShortcut(), iter.isShortcut());
+                    if (iter.isShortcut()) {
+                        assertEquals(expected.getSkippedEdge1(), iter.getSkippedEdge1());
+                        assertEquals(expected.getSkippedEdge2(), iter.getSkippedEdge2());
+                    }
+                    // the weights are rounded like the shortcut weights
+                    assertEquals(expected.getWeight(reverse), iter.getWeight(reverse), 1.e-3);
+                    assertEquals(expected.getWeight(!reverse), iter.getWeight(!reverse), 1.e-3);
+                }
+            }
+        }
+        assertEquals(upDownGraph.getArcs(), arcs);
+    }
+
+    @Test
+    public void nodeBasedRandomGraph() {
+        long seed = buildAndPrepare(200, false);
+        UpDownCHGraph upDownGraph = new UpDownCHGraph(graph.getCHGraph(chConfig.getName()), new RAMDirectory());
+        upDownGraph.build();
+        Random rnd = new Random(seed);
+        Weighting weighting = chConfig.getWeighting();
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            Path refPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            for (BidirRoutingAlgorithm algo : new BidirRoutingAlgorithm[]{new DijkstraBidirectionCH(upDownGraph),
+                    new AStarBidirectionCH(upDownGraph), new PooledBidirCHAlgo(upDownGraph)}) {
+                Path path = algo.calcPath(from, to);
+                assertEquals(refPath.isFound(), path.isFound(), msg);
+                assertEquals(refPath.getWeight(), path.getWeight(), 1.e-2, msg);
+                assertEquals(refPath.getDistance(), path.getDistance(), 0.05 * refPath.getDistance() + 1, msg);
+            }
+        }
+    }
+
+    @Test
+    public void edgeBasedRandomGraphWithQueryGraph() {
+        long seed = buildAndPrepare(100, true);
+        UpDownCHGraph upDownGraph = new UpDownCHGraph(graph.getCHGraph(chConfig.getName()), new RAMDirectory());
+        upDownGraph.build();
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        Random rnd = new Random(seed);
+        BBox bounds = graph.getBounds();
+        for (int i = 0; i < 50; i++) {
+            List<Snap> snaps = new ArrayList<>();
+            while (snaps.size() < 2) {
+                Snap snap = index.findClosest(bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat),
+                        bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon), EdgeFilter.ALL_EDGES);
+                if (snap.isValid())
+                    snaps.add(snap);
+            }
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int from = snaps.get(0).getClosestNode();
+            int to = snaps.get(1).getClosestNode();
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            // edge-based CH with virtual nodes can differ from Dijkstra in rare cases, so we compare with the
+            // routing CH graph the up/down graph was built from
+            Path refPath = new DijkstraBidirectionEdgeCHNoSOD(new QueryRoutingCHGraph(graph.getRoutingCHGraph(chConfig.getName()), queryGraph))
+                    .calcPath(from, to);
+            RoutingCHGraph queryCHGraph = new QueryRoutingCHGraph(upDownGraph, queryGraph);
+            for (BidirRoutingAlgorithm algo : new BidirRoutingAlgorithm[]{new DijkstraBidirectionEdgeCHNoSOD(queryCHGraph),
+                    new AStarBidirectionEdgeCHNoSOD(queryCHGraph)}) {
+                Path path = algo.calcPath(from, to);
+                assertEquals(refPath.isFound(), path.isFound(), msg);
+                assertEquals(refPath.getWeight(), path.getWeight(), 1.e-2, msg);
+            }
+        }
+    }
+
+    @Test
+    public void flushAndLoad() {
+        buildAndPrepare(50, true);
+        CHGraph chGraph = graph.getCHGraph(chConfig.getName());
+        UpDownCHGraph upDownGraph = new UpDownCHGraph(chGraph, graph.getDirectory());
+        upDownGraph.build();
+        upDownGraph.flush();
+        upDownGraph.close();
+
+        UpDownCHGraph loaded = new UpDownCHGraph(chGraph, new RAMDirectory(DIR, true));
+        assertTrue(loaded.loadExisting());
+        UpDownCHGraph expected = new UpDownCHGraph(chGraph, new RAMDirectory());
+        expected.build();
+        assertEquals(expected.getArcs(), loaded.getArcs());
+        RoutingCHEdgeExplorer expectedExplorer = expected.createOutEdgeExplorer();
+        RoutingCHEdgeExplorer loadedExplorer = loaded.createOutEdgeExplorer();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            assertEquals(expected.getLevel(node), loaded.getLevel(node));
+            RoutingCHEdgeIterator expectedIter = expectedExplorer.setBaseNode(node);
+            RoutingCHEdgeIterator loadedIter = loadedExplorer.setBaseNode(node);
+            while (expectedIter.next()) {
+                assertTrue(loadedIter.next());
+                assertEquals(expectedIter.getEdge(), loadedIter.getEdge());
+                assertEquals(expectedIter.getOrigEdgeFirst(), loadedIter.getOrigEdgeFirst());
+                assertEquals(expectedIter.getOrigEdgeLast(), loadedIter.getOrigEdgeLast());
+                assertEquals(expectedIter.getWeight(false), loadedIter.getWeight(false));
+            }
+            assertFalse(loadedIter.next());
+        }
+        loaded.close();
+    }
+}
@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -590,4 +591,48 @@ public class LocationIndexTreeTest extends AbstractLocationIndexTester {
                 Arrays.asList(edge4_5.getEdge(), edge4_7.getEdge()), ids);
     }
 
+    @Test
+    public void testFindClosestBatch() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        CarFlagEncoder encoder = (CarFlagEncoder) encodingManager.getEncoder("car");
+        Graph graph = createGHStorage(new RAMDirectory(), encodingManager, false);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.2, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        LocationIndexTree index = createIndexNoPrepare(graph, 100);
+        index.prepareIndex();
+
+        BBox bbox = graph.getBounds();
+        double[] lats = new double[300];
+        double[] lons = new double[300];
+        for (int i = 0; i < lats.length; i++) {
+            // some duplicates to make sure identical points are handled independently
+            int copy = i > 0 && rnd.nextInt(10) == 0 ? rnd.nextInt(i) : -1;
+            lats[i] = copy >= 0 ? lats[copy] : bbox.minLat + rnd.nextDouble() * (bbox.maxLat - bbox.minLat);
+            lons[i] = copy >= 0 ? lons[copy] : bbox.minLon + rnd.nextDouble() * (bbox.maxLon - bbox.minLon);
+        }
+        EdgeFilter edgeFilter = DefaultEdgeFilter.outEdges(encoder.getAccessEnc());
+        List<Snap> snaps = index.findClosestBatch(lats, lons, edgeFilter);
+        assertEquals(lats.length, snaps.size());
+        for (int i = 0; i < lats.length; i++) {
+            Snap expected = index.findClosest(lats[i], lons[i], edgeFilter);
+            Snap snap = snaps.get(i);
+            String msg = "seed: " + seed + ", point: " + i;
+            assertEquals(msg, expected.isValid(), snap.isValid());
+            if (!expected.isValid())
+                continue;
+            assertEquals(msg, expected.getClosestNode(), snap.getClosestNode());
+            assertEquals(msg, expected.getClosestEdge().getEdge(), snap.getClosestEdge().getEdge());
+            assertEquals(msg, expected.getWayIndex(), snap.getWayIndex());
+            assertEquals(msg, expected.getSnappedPosition(), snap.getSnappedPosition());
+            assertEquals(msg, expected.getQueryDistance(), snap.getQueryDistance(), 1.e-6);
+            assertEquals(msg, expected.getSnappedPoint(), snap.getSnappedPoint());
+        }
+
+        try {
+            index.findClosestBatch(new double[1], new double[2], edgeFilter);
+            fail("different numbers of latitudes and longitudes should not be accepted");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("must be equal"));
+        }
+    }
 }
@@ -19,6 +19,8 @@ package com.graphhopper.util;
 
 import com.graphhopper.coll.GHIntLongHashMap;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.TurnCost;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
@@ -122,6 +124,90 @@ public class GHUtilityTest {
         GHUtility.sortDFS(g, createGraph());
     }
 
+    @Test
+    public void testHilbertIndex() {
+        // the curve of order 1 is U-shaped and starts at the lower left cell
+        assertEquals(0, GHUtility.hilbertIndex(0, 0, 1));
+        assertEquals(1, GHUtility.hilbertIndex(0, 1, 1));
+        assertEquals(2, GHUtility.hilbertIndex(1, 1, 1));
+        assertEquals(3, GHUtility.hilbertIndex(1, 0, 1));
+
+        // every cell is visited exactly once and consecutive cells are neighbours
+        int order = 4, n = 1 << order;
+        int[] xs = new int[n * n], ys = new int[n * n];
+        boolean[] visited = new boolean[n * n];
+        for (int x = 0; x < n; x++) {
+            for (int y = 0; y < n; y++) {
+                int index = (int) GHUtility.hilbertIndex(x, y, order);
+                assertFalse(visited[index]);
+                visited[index] = true;
+                xs[index] = x;
+                ys[index] = y;
+            }
+        }
+        for (int i = 1; i < n * n; i++) {
+            assertEquals("cells " + (i - 1) + " and " + i, 1, Math.abs(xs[i] - xs[i - 1]) + Math.abs(ys[i] - ys[i - 1]));
+        }
+    }
+
+    @Test
+    public void testSortHilbert() {
+        Graph g = initUnsorted(createGraph());
+        Graph newG = GHUtility.sortHilbert(g, createGraph());
+        assertEquals(g.getNodes(), newG.getNodes());
+        assertEquals(g.getEdges(), newG.getEdges());
+        assertEquals(getLengthOfAllEdges(g), getLengthOfAllEdges(newG), 1e-4);
+        NodeAccess na = newG.getNodeAccess();
+        // node 0 is in the lower left corner where the curve starts and node 1 in the lower right corner where it ends
+        assertEquals(0, na.getLatitude(0), 1e-4);
+        assertEquals(2.5, na.getLatitude(newG.getNodes() - 1), 1e-4);
+        assertEquals(4.5, na.getLongitude(newG.getNodes() - 1), 1e-4);
+
+        // the edges are grouped by their lower node
+        int prevLowerNode = -1;
+        AllEdgesIterator iter = newG.getAllEdges();
+        while (iter.next()) {
+            int lowerNode = Math.min(iter.getBaseNode(), iter.getAdjNode());
+            assertTrue(lowerNode >= prevLowerNode);
+            prevLowerNode = lowerNode;
+        }
+    }
+
+    @Test
+    public void testSortWithTurnCosts() {
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 1);
+        EncodingManager em = EncodingManager.create(encoder);
+        DecimalEncodedValue turnCostEnc = em.getDecimalEncodedValue(TurnCost.key(encoder.toString()));
+        // 2-1
+        //   |
+        // 3-0
+        Graph g = new GraphBuilder(em).withTurnCosts(true).create();
+        NodeAccess na = g.getNodeAccess();
+        na.setNode(0, 0, 1);
+        na.setNode(1, 1, 1);
+        na.setNode(2, 1, 0);
+        na.setNode(3, 0, 0);
+        g.edge(0, 1, 10, true);
+        g.edge(1, 2, 10, true);
+        g.edge(0, 3, 10, true);
+        g.getTurnCostStorage().set(turnCostEnc, 0, 1, 1, Double.POSITIVE_INFINITY);
+
+        Graph newG = GHUtility.sortHilbert(g, new GraphBuilder(em).withTurnCosts(true).create());
+        NodeAccess newNA = newG.getNodeAccess();
+        TurnCostStorage.TurnRelationIterator iter = newG.getTurnCostStorage().getAllTurnRelations();
+        assertTrue(iter.next());
+        assertEquals(Double.POSITIVE_INFINITY, iter.getCost(turnCostEnc), 0);
+        assertEquals(1, newNA.getLatitude(iter.getViaNode()), 1e-4);
+        assertEquals(1, newNA.getLongitude(iter.getViaNode()), 1e-4);
+        EdgeIteratorState fromEdge = newG.getEdgeIteratorState(iter.getFromEdge(), iter.getViaNode());
+        assertEquals(0, newNA.getLatitude(fromEdge.getBaseNode()), 1e-4);
+        assertEquals(1, newNA.getLongitude(fromEdge.getBaseNode()), 1e-4);
+        EdgeIteratorState toEdge = newG.getEdgeIteratorState(iter.getToEdge(), Integer.MIN_VALUE);
+        assertEquals(1, newNA.getLatitude(toEdge.getAdjNode()), 1e-4);
+        assertEquals(0, newNA.getLongitude(toEdge.getAdjNode()), 1e-4);
+        assertFalse(iter.next());
+    }
+
     @Test
     public void testCopyWithSelfRef() {
         Graph g = initUnsorted(createGraph());
@@ -0,0 +1,323 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Computes a shortest path tree on a node-based {@link RoutingCHGraph} using PHAST, see 'PHAST: Hardware-Accelerated
+ * Shortest Path Trees' by Delling et al. First we run an upward search from the start node, then we sweep over all
+ * nodes in descending level order and relax the edges coming from higher levels. After the sweep the weights of all
+ * nodes are final.
+ * <p>
+ * Unlike {@link ShortestPathTree} the work does not depend on the limit but on the size of the graph: the sweep visits
+ * every node once without any queue operations and the memory is linear in the number of nodes. So this is faster for
+ * large limits, e.g. region-wide isochrones, but slower for small ones. The limit is only applied when the labels are
+ * passed to the consumer. The label ids are the node ids of the graph, the labels are passed in descending level
+ * order, so the parent of a label is not necessarily passed before the label itself.
+ * <p>
+ * The times and distances are calculated by unpacking the shortcuts to the parents, the totals are memoized per edge
+ * such that every edge is only unpacked once.
+ */
+public class PhastShortestPathTree extends ShortestPathTree {
+    private final RoutingCHGraph chGraph;
+    private final Graph graph;
+    private final Weighting weighting;
+    private final boolean reverseFlow;
+    private final RoutingCHEdgeExplorer upwardExplorer;
+    private final RoutingCHEdgeExplorer downwardExplorer;
+    private final int maxNodes;
+    private final double[] weights;
+    private final int[] parentNodes;
+    private final int[] parentEdges;
+    private final long[] times;
+    private final double[] distances;
+    // the unpacked time and distance of every edge we already processed, keyed by edge id and the node the edge is
+    // traversed to
+    private final LongIntHashMap edgeTotalIndices = new LongIntHashMap();
+    private final DoubleArrayList edgeDistances = new DoubleArrayList();
+    private final LongArrayList edgeTimes = new LongArrayList();
+    private RoutingCHEdgeIteratorState skippedEdge1;
+    private RoutingCHEdgeIteratorState skippedEdge2;
+    private int root = NO_LABEL;
+    private int visitedNodes;
+
+    /**
+     * @param reverseFlow if true the weights of the paths from all nodes to the start node are calculated
+     */
+    public PhastShortestPathTree(RoutingCHGraph chGraph, boolean reverseFlow) {
+        super(chGraph.getBaseGraph(), chGraph.getWeighting(), reverseFlow, TraversalMode.NODE_BASED);
+        if (chGraph.isEdgeBased())
+            throw new IllegalArgumentException("PHAST is not supported for edge-based Contraction Hierarchies");
+        this.chGraph = chGraph;
+        this.graph = chGraph.getBaseGraph();
+        this.weighting = chGraph.getWeighting();
+        this.reverseFlow = reverseFlow;
+        upwardExplorer = reverseFlow ? chGraph.createInEdgeExplorer() : chGraph.createOutEdgeExplorer();
+        downwardExplorer = reverseFlow ? chGraph.createOutEdgeExplorer() : chGraph.createInEdgeExplorer();
+        maxNodes = graph.getBaseGraph().getNodes();
+        int nodes = chGraph.getNodes();
+        weights = new double[nodes];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        parentNodes = new int[nodes];
+        parentEdges = new int[nodes];
+        times = new long[nodes];
+        distances = new double[nodes];
+    }
+
+    @Override
+    public void searchLabels(int from, IntConsumer consumer) {
+        checkAlreadyRun();
+        root = from;
+        weights[from] = 0;
+        parentNodes[from] = NO_LABEL;
+        parentEdges[from] = NO_EDGE;
+        runUpwardSearch(from);
+        int[] sweepOrder = createSweepOrder();
+        for (int node : sweepOrder)
+            relaxDownwardEdges(node);
+        visitedNodes += sweepOrder.length;
+        for (int node : sweepOrder) {
+            if (weights[node] < Double.POSITIVE_INFINITY && getExploreValue(weights[node], times[node], distances[node]) <= limit)
+                consumer.accept(node);
+        }
+    }
+
+    /**
+     * Runs an exhaustive Dijkstra search that only follows edges leading to nodes with a higher level. A node is pushed
+     * again if its weight improves after it was polled, so the float values of the heap do not cost any precision.
+     */
+    private void runUpwardSearch(int from) {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(chGraph.getNodes());
+        heap.push(from, 0);
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            visitedNodes++;
+            if (node != from)
+                calcTotals(node);
+            RoutingCHEdgeIterator iter = upwardExplorer.setBaseNode(node);
+            while (iter.next()) {
+                // for node-based traversal we can exclude u-turns already here
+                if (iter.getEdge() == parentEdges[node] || !acceptUpward(iter))
+                    continue;
+                double weight = iter.getWeight(reverseFlow) + weights[node];
+                int adjNode = iter.getAdjNode();
+                if (weight >= weights[adjNode])
+                    continue;
+                weights[adjNode] = weight;
+                parentNodes[adjNode] = node;
+                parentEdges[adjNode] = iter.getEdge();
+                if (heap.contains(adjNode))
+                    heap.update(adjNode, (float) weight);
+                else
+                    heap.push(adjNode, (float) weight);
+            }
+        }
+    }
+
+    private boolean acceptUpward(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in wrong direction are disconnected, so no need to exclude them
+        if (edgeState.isShortcut())
+            return true;
+        return chGraph.getLevel(base) <= chGraph.getLevel(adj);
+    }
+
+    private void relaxDownwardEdges(int node) {
+        int level = chGraph.getLevel(node);
+        boolean improved = false;
+        RoutingCHEdgeIterator iter = downwardExplorer.setBaseNode(node);
+        while (iter.next()) {
+            int adjNode = iter.getAdjNode();
+            if (chGraph.getLevel(adjNode) <= level || Double.isInfinite(weights[adjNode]))
+                continue;
+            double weight = iter.getWeight(!reverseFlow) + weights[adjNode];
+            if (weight < weights[node]) {
+                weights[node] = weight;
+                parentNodes[node] = adjNode;
+                parentEdges[node] = iter.getEdge();
+                improved = true;
+            }
+        }
+        if (improved)
+            calcTotals(node);
+    }
+
+    /**
+     * @return all nodes sorted by descending level, the virtual nodes come first
+     */
+    private int[] createSweepOrder() {
+        int nodes = chGraph.getNodes();
+        int maxLevel = 0;
+        for (int node = 0; node < maxNodes; node++)
+            maxLevel = Math.max(maxLevel, chGraph.getLevel(node));
+        int[] counts = new int[maxLevel + 2];
+        for (int node = 0; node < maxNodes; node++)
+            counts[maxLevel - chGraph.getLevel(node) + 1]++;
+        counts[0] = nodes - maxNodes;
+        for (int i = 1; i < counts.length; i++)
+            counts[i] += counts[i - 1];
+        int[] order = new int[nodes];
+        for (int node = maxNodes; node < nodes; node++)
+            order[node - maxNodes] = node;
+        for (int node = 0; node < maxNodes; node++)
+            order[counts[maxLevel - chGraph.getLevel(node)]++] = node;
+        return order;
+    }
+
+    /**
+     * Calculates the time and distance of the given node from the ones of its parent, which need to be final already.
+     */
+    private void calcTotals(int node) {
+        int parent = parentNodes[node];
+        int index = unpack(chGraph.getEdgeIteratorState(parentEdges[node], reverseFlow ? parent : node));
+        times[node] = times[parent] + edgeTimes.get(index);
+        distances[node] = distances[parent] + edgeDistances.get(index);
+    }
+
+    /**
+     * @param edge the edge state in the direction the edge is traversed, i.e. from the base to the adj node
+     * @return the index of the time and distance of this edge
+     */
+    private int unpack(RoutingCHEdgeIteratorState edge) {
+        long key = ((long) edge.getEdge() << 32) | edge.getAdjNode();
+        int index = edgeTotalIndices.getOrDefault(key, -1);
+        if (index >= 0)
+            return index;
+        double distance;
+        long time;
+        if (edge.isShortcut()) {
+            split(edge);
+            RoutingCHEdgeIteratorState second = skippedEdge2;
+            int firstIndex = unpack(skippedEdge1);
+            int secondIndex = unpack(second);
+            distance = edgeDistances.get(firstIndex) + edgeDistances.get(secondIndex);
+            time = edgeTimes.get(firstIndex) + edgeTimes.get(secondIndex);
+        } else {
+            EdgeIteratorState origEdge = graph.getEdgeIteratorState(edge.getOrigEdge(), edge.getAdjNode());
+            distance = origEdge.getDistance();
+            time = weighting.calcEdgeMillis(origEdge, false);
+        }
+        index = edgeDistances.size();
+        edgeDistances.add(distance);
+        edgeTimes.add(time);
+        edgeTotalIndices.put(key, index);
+        return index;
+    }
+
+    /**
+     * Sets skippedEdge1 and skippedEdge2 to the edge states of the skipped edges of the given shortcut, in the direction
+     * the shortcut is traversed. See {@link com.graphhopper.routing.ch.ShortcutUnpacker}.
+     */
+    private void split(RoutingCHEdgeIteratorState shortcut) {
+        int adj = shortcut.getAdjNode();
+        RoutingCHEdgeIteratorState sk2 = chGraph.getEdgeIteratorState(shortcut.getSkippedEdge2(), adj);
+        RoutingCHEdgeIteratorState sk1;
+        if (sk2 == null) {
+            sk2 = chGraph.getEdgeIteratorState(shortcut.getSkippedEdge1(), adj);
+            sk1 = chGraph.getEdgeIteratorState(shortcut.getSkippedEdge2(), sk2.getBaseNode());
+        } else {
+            sk1 = chGraph.getEdgeIteratorState(shortcut.getSkippedEdge1(), sk2.getBaseNode());
+        }
+        skippedEdge1 = sk1;
+        skippedEdge2 = sk2;
+    }
+
+    /**
+     * @return the original edge state between the given node and its parent node in the direction it is traversed
+     */
+    private RoutingCHEdgeIteratorState findOrigEdge(int node) {
+        int parent = parentNodes[node];
+        RoutingCHEdgeIteratorState edge = chGraph.getEdgeIteratorState(parentEdges[node], reverseFlow ? parent : node);
+        while (edge.isShortcut()) {
+            split(edge);
+            // the node is at the beginning of the traversal for reverse flow and at the end otherwise
+            edge = reverseFlow ? skippedEdge1 : skippedEdge2;
+        }
+        return edge;
+    }
+
+    @Override
+    public int getNode(int label) {
+        return label;
+    }
+
+    @Override
+    public int getEdge(int label) {
+        if (label == root)
+            return NO_EDGE;
+        return findOrigEdge(label).getOrigEdge();
+    }
+
+    /**
+     * @return the node this node is reached from in the original graph, which is not necessarily the parent in the
+     * search tree if the parent is reached via a shortcut, or -1 for the start node
+     */
+    @Override
+    public int getParent(int label) {
+        if (label == root)
+            return NO_LABEL;
+        RoutingCHEdgeIteratorState origEdge = findOrigEdge(label);
+        return reverseFlow ? origEdge.getAdjNode() : origEdge.getBaseNode();
+    }
+
+    @Override
+    public double getWeight(int label) {
+        return weights[label];
+    }
+
+    @Override
+    public long getTime(int label) {
+        return times[label];
+    }
+
+    @Override
+    public double getDistance(int label) {
+        return distances[label];
+    }
+
+    @Override
+    public String getName() {
+        return "phast";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
@@ -17,8 +17,8 @@
  */
 package com.graphhopper.isochrone.algorithm;
 
-import com.carrotsearch.hppc.IntObjectHashMap;
-import com.graphhopper.coll.GHIntObjectHashMap;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
 import com.graphhopper.routing.AbstractRoutingAlgorithm;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -28,11 +28,11 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
 
-import java.util.PriorityQueue;
+import java.util.Arrays;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.*;
-import static java.util.Comparator.comparingDouble;
 
 /**
  * Computes a shortest path tree by a given weighting. Terminates when all shortest paths up to
@@ -41,8 +41,10 @@ import static java.util.Comparator.comparingDouble;
  * the termination criterion.
  *
  * IMPLEMENTATION NOTE:
- * util.PriorityQueue doesn't support efficient removes. We work around this by giving the labels
- * a deleted flag, not remove()ing them, and popping deleted elements off both queues.
+ * The labels are not stored as objects but in parallel primitive arrays indexed by a label id, and the queue is a
+ * binary heap of label ids, so a large search does not create millions of short-lived objects. A label that gets
+ * improved is not updated in place. Instead it is flagged as deleted and a new label is created. Deleted labels are
+ * popped off the queue and skipped.
  * Note to self/others: If you think this optimization is not needed, please test it with a scenario
  * where updates actually occur a lot, such as using finite, non-zero u-turn costs.
  *
@@ -53,6 +55,10 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
 
     enum ExploreType {TIME, DISTANCE, WEIGHT}
 
+    /**
+     * A view of a settled label as it is passed to {@link #search(int, Consumer)}. Use
+     * {@link #searchLabels} and the getters of {@link ShortestPathTree} to avoid creating these objects.
+     */
     public static class IsoLabel {
 
         IsoLabel(int node, int edge, double weight, long time, double distance, IsoLabel parent) {
@@ -84,17 +90,43 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         }
     }
 
-    private IntObjectHashMap<IsoLabel> fromMap;
-    private PriorityQueue<IsoLabel> queueByWeighting;
+    static final int NO_LABEL = -1;
+    // the labels are stored in pages so growing the storage does not copy the existing labels, only the first page
+    // grows until it reaches the page size, so small searches stay cheap
+    private static final int PAGE_BITS = 14;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int INITIAL_CAPACITY = 256;
+    // node, edge and parent label per label
+    private static final int INTS = 3;
+    // weight, distance and time per label, the time is a long but doubles represent all relevant values exactly
+    private static final int DOUBLES = 3;
+    private final IntIntHashMap fromMap;
+    private int[][] intPages;
+    private double[][] doublePages;
+    private boolean[][] deletedPages;
+    private int capacity;
+    private int labelCount;
+    // the queue is a binary heap of label ids and their weights, the 0th element is not used
+    private int[] heapLabels;
+    private double[] heapWeights;
+    private int heapSize;
+    // the settled labels passed to a Consumer<IsoLabel>, we need them to set the parent of the following labels
+    private IsoLabel[] views;
     private int visitedNodes;
-    private double limit = -1;
-    private ExploreType exploreType = TIME;
+    double limit = -1;
+    ExploreType exploreType = TIME;
     private final boolean reverseFlow;
 
     public ShortestPathTree(Graph g, Weighting weighting, boolean reverseFlow, TraversalMode traversalMode) {
         super(g, weighting, traversalMode);
-        queueByWeighting = new PriorityQueue<>(1000, comparingDouble(l -> l.weight));
-        fromMap = new GHIntObjectHashMap<>(1000);
+        intPages = new int[][]{new int[INITIAL_CAPACITY * INTS]};
+        doublePages = new double[][]{new double[INITIAL_CAPACITY * DOUBLES]};
+        deletedPages = new boolean[][]{new boolean[INITIAL_CAPACITY]};
+        capacity = INITIAL_CAPACITY;
+        heapLabels = new int[INITIAL_CAPACITY + 1];
+        heapWeights = new double[INITIAL_CAPACITY + 1];
+        fromMap = new IntIntHashMap(INITIAL_CAPACITY);
         this.reverseFlow = reverseFlow;
     }
 
@@ -124,68 +156,213 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         this.limit = limit;
     }
 
+    /**
+     * Runs the search and passes every settled label to the consumer. The labels and their parents are created for
+     * the consumer only, so prefer {@link #searchLabels} if you do not need to keep them.
+     */
     public void search(int from, final Consumer<IsoLabel> consumer) {
+        views = new IsoLabel[INITIAL_CAPACITY];
+        searchLabels(from, label -> {
+            IsoLabel view = getView(label);
+            consumer.accept(view);
+            view.deleted = true;
+        });
+    }
+
+    private IsoLabel getView(int label) {
+        if (label >= views.length)
+            views = Arrays.copyOf(views, Math.max(views.length * 2, label + 1));
+        if (views[label] != null)
+            return views[label];
+        // the parent of a label is usually passed to the consumer first, but not necessarily, see PhastShortestPathTree
+        int parentLabel = getParent(label);
+        IsoLabel parent = null;
+        if (parentLabel != NO_LABEL) {
+            parent = parentLabel < views.length ? views[parentLabel] : null;
+            if (parent == null) {
+                IntArrayList missing = new IntArrayList();
+                for (int l = parentLabel; l != NO_LABEL && (l >= views.length || views[l] == null); l = getParent(l))
+                    missing.add(l);
+                for (int i = missing.size() - 1; i >= 0; i--)
+                    parent = getView(missing.get(i));
+            }
+        }
+        IsoLabel view = new IsoLabel(getNode(label), getEdge(label), getWeight(label), getTime(label), getDistance(label), parent);
+        views[label] = view;
+        return view;
+    }
+
+    /**
+     * Runs the search and passes the id of every settled label to the consumer. The properties of a label can be
+     * retrieved via {@link #getNode}, {@link #getEdge}, {@link #getWeight}, {@link #getTime}, {@link #getDistance} and
+     * {@link #getParent}.
+     */
+    public void searchLabels(int from, final IntConsumer consumer) {
         checkAlreadyRun();
-        IsoLabel currentLabel = new IsoLabel(from, -1, 0, 0, 0, null);
-        queueByWeighting.add(currentLabel);
+        int currentLabel = createLabel(from, EdgeIterator.NO_EDGE, 0, 0, 0, NO_LABEL);
+        push(currentLabel, 0);
         if (traversalMode == TraversalMode.NODE_BASED) {
             fromMap.put(from, currentLabel);
         }
         EdgeFilter filter = reverseFlow ? inEdgeFilter : outEdgeFilter;
         while (!finished()) {
-            currentLabel = queueByWeighting.poll();
-            if (currentLabel.deleted)
+            currentLabel = poll();
+            if (isDeleted(currentLabel))
                 continue;
             consumer.accept(currentLabel);
-            currentLabel.deleted = true;
+            setDeleted(currentLabel);
             visitedNodes++;
 
-            EdgeIterator iter = edgeExplorer.setBaseNode(currentLabel.node);
+            int currentEdge = getEdge(currentLabel);
+            double currentWeight = getWeight(currentLabel);
+            EdgeIterator iter = edgeExplorer.setBaseNode(getNode(currentLabel));
             while (iter.next()) {
-                if (!accept(iter, currentLabel.edge)) {
+                if (!accept(iter, currentEdge)) {
                     continue;
                 }
 
                 // todo: for #1835 move the access check into weighting
                 double nextWeight = !filter.accept(iter)
                         ? Double.POSITIVE_INFINITY
-                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, currentLabel.edge) + currentLabel.weight);
+                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, currentEdge) + currentWeight);
                 if (Double.isInfinite(nextWeight))
                     continue;
 
-                double nextDistance = iter.getDistance() + currentLabel.distance;
-                long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currentLabel.edge) + currentLabel.time;
                 int nextTraversalId = traversalMode.createTraversalId(iter, reverseFlow);
-                IsoLabel label = fromMap.get(nextTraversalId);
-                if (label == null) {
-                    label = new IsoLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
-                    if (getExploreValue(label) <= limit) {
-                        fromMap.put(nextTraversalId, label);
-                        queueByWeighting.add(label);
-                    }
-                } else if (label.weight > nextWeight) {
-                    label.deleted = true;
-                    label = new IsoLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
-                    if (getExploreValue(label) <= limit) {
-                        fromMap.put(nextTraversalId, label);
-                        queueByWeighting.add(label);
-                    }
+                int label = fromMap.getOrDefault(nextTraversalId, NO_LABEL);
+                if (label != NO_LABEL && getWeight(label) <= nextWeight)
+                    continue;
+
+                double nextDistance = iter.getDistance() + getDistance(currentLabel);
+                long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currentEdge) + getTime(currentLabel);
+                if (label != NO_LABEL)
+                    setDeleted(label);
+                if (getExploreValue(nextWeight, nextTime, nextDistance) <= limit) {
+                    label = createLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
+                    fromMap.put(nextTraversalId, label);
+                    push(label, nextWeight);
                 }
             }
         }
     }
 
-    private double getExploreValue(IsoLabel label) {
+    public int getNode(int label) {
+        return intPages[label >>> PAGE_BITS][(label & PAGE_MASK) * INTS];
+    }
+
+    public int getEdge(int label) {
+        return intPages[label >>> PAGE_BITS][(label & PAGE_MASK) * INTS + 1];
+    }
+
+    /**
+     * @return the id of the label this label was reached from or -1 for the start label
+     */
+    public int getParent(int label) {
+        return intPages[label >>> PAGE_BITS][(label & PAGE_MASK) * INTS + 2];
+    }
+
+    public double getWeight(int label) {
+        return doublePages[label >>> PAGE_BITS][(label & PAGE_MASK) * DOUBLES];
+    }
+
+    public double getDistance(int label) {
+        return doublePages[label >>> PAGE_BITS][(label & PAGE_MASK) * DOUBLES + 1];
+    }
+
+    public long getTime(int label) {
+        return (long) doublePages[label >>> PAGE_BITS][(label & PAGE_MASK) * DOUBLES + 2];
+    }
+
+    private boolean isDeleted(int label) {
+        return deletedPages[label >>> PAGE_BITS][label & PAGE_MASK];
+    }
+
+    private void setDeleted(int label) {
+        deletedPages[label >>> PAGE_BITS][label & PAGE_MASK] = true;
+    }
+
+    double getExploreValue(double weight, long time, double distance) {
         if (exploreType == TIME)
-            return label.time;
+            return time;
         if (exploreType == WEIGHT)
-            return label.weight;
-        return label.distance;
+            return weight;
+        return distance;
+    }
+
+    private int createLabel(int node, int edge, double weight, long time, double distance, int parent) {
+        if (labelCount == capacity)
+            grow();
+        int label = labelCount++;
+        int[] ints = intPages[label >>> PAGE_BITS];
+        int intIndex = (label & PAGE_MASK) * INTS;
+        ints[intIndex] = node;
+        ints[intIndex + 1] = edge;
+        ints[intIndex + 2] = parent;
+        double[] doubles = doublePages[label >>> PAGE_BITS];
+        int doubleIndex = (label & PAGE_MASK) * DOUBLES;
+        doubles[doubleIndex] = weight;
+        doubles[doubleIndex + 1] = distance;
+        doubles[doubleIndex + 2] = time;
+        return label;
+    }
+
+    private void grow() {
+        if (capacity < PAGE_SIZE) {
+            capacity = Math.min(PAGE_SIZE, capacity * 2);
+            intPages[0] = Arrays.copyOf(intPages[0], capacity * INTS);
+            doublePages[0] = Arrays.copyOf(doublePages[0], capacity * DOUBLES);
+            deletedPages[0] = Arrays.copyOf(deletedPages[0], capacity);
+            return;
+        }
+        int pages = intPages.length + 1;
+        intPages = Arrays.copyOf(intPages, pages);
+        doublePages = Arrays.copyOf(doublePages, pages);
+        deletedPages = Arrays.copyOf(deletedPages, pages);
+        intPages[pages - 1] = new int[PAGE_SIZE * INTS];
+        doublePages[pages - 1] = new double[PAGE_SIZE * DOUBLES];
+        deletedPages[pages - 1] = new boolean[PAGE_SIZE];
+        capacity += PAGE_SIZE;
+    }
+
+    private void push(int label, double weight) {
+        if (heapSize + 1 == heapLabels.length) {
+            heapLabels = Arrays.copyOf(heapLabels, heapLabels.length * 2);
+            heapWeights = Arrays.copyOf(heapWeights, heapWeights.length * 2);
+        }
+        int index = ++heapSize;
+        while (index > 1 && weight < heapWeights[index >> 1]) {
+            heapLabels[index] = heapLabels[index >> 1];
+            heapWeights[index] = heapWeights[index >> 1];
+            index >>= 1;
+        }
+        heapLabels[index] = label;
+        heapWeights[index] = weight;
+    }
+
+    private int poll() {
+        int result = heapLabels[1];
+        int last = heapLabels[heapSize];
+        double weight = heapWeights[heapSize];
+        heapSize--;
+        int index = 1;
+        while (index << 1 <= heapSize) {
+            int child = index << 1;
+            if (child != heapSize && heapWeights[child + 1] < heapWeights[child])
+                child++;
+            if (heapWeights[child] >= weight)
+                break;
+            heapLabels[index] = heapLabels[child];
+            heapWeights[index] = heapWeights[child];
+            index = child;
+        }
+        heapLabels[index] = last;
+        heapWeights[index] = weight;
+        return result;
     }
 
     @Override
     protected boolean finished() {
-        return queueByWeighting.isEmpty();
+        return heapSize == 0;
     }
 
     @Override
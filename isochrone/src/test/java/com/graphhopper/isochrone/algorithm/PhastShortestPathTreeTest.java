@@ -0,0 +1,81 @@
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhastShortestPathTreeTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void randomGraph(boolean reverseFlow) {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).setCHConfigStrings("p|car|fastest|node").create();
+        CHConfig chConfig = graph.getCHGraph().getCHConfig();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+
+        for (int run = 0; run < 10; run++) {
+            BBox bbox = graph.getBounds();
+            Snap snap = locationIndex.findClosest(bbox.minLat + rnd.nextDouble() * (bbox.maxLat - bbox.minLat),
+                    bbox.minLon + rnd.nextDouble() * (bbox.maxLon - bbox.minLon), EdgeFilter.ALL_EDGES);
+            if (!snap.isValid())
+                continue;
+            QueryGraph queryGraph = QueryGraph.create(graph, snap);
+            Weighting weighting = queryGraph.wrapWeighting(chConfig.getWeighting());
+            ShortestPathTree dijkstra = new ShortestPathTree(queryGraph, weighting, reverseFlow, TraversalMode.NODE_BASED);
+            dijkstra.setWeightLimit(Double.MAX_VALUE);
+            Map<Integer, ShortestPathTree.IsoLabel> expected = new HashMap<>();
+            dijkstra.search(snap.getClosestNode(), l -> expected.put(l.node, l));
+
+            PhastShortestPathTree phast = new PhastShortestPathTree(new QueryRoutingCHGraph(graph.getRoutingCHGraph(chConfig.getName()), queryGraph), reverseFlow);
+            phast.setWeightLimit(Double.MAX_VALUE);
+            Map<Integer, ShortestPathTree.IsoLabel> labels = new HashMap<>();
+            phast.search(snap.getClosestNode(), l -> labels.put(l.node, l));
+
+            String msg = "seed: " + seed + ", run: " + run;
+            assertEquals(expected.keySet(), labels.keySet(), msg);
+            for (ShortestPathTree.IsoLabel label : labels.values()) {
+                ShortestPathTree.IsoLabel expectedLabel = expected.get(label.node);
+                assertEquals(expectedLabel.weight, label.weight, 1.e-2, msg);
+                // paths with (almost) the same weight can have slightly different times and very different distances
+                assertEquals(expectedLabel.time, label.time, 0.01 * expectedLabel.time + 50, msg);
+                if (label.node == snap.getClosestNode()) {
+                    assertNull(label.parent, msg);
+                    continue;
+                }
+                // the parent and the edge need to be adjacent in the query graph
+                EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edge, label.node);
+                assertEquals(label.parent.node, edge.getBaseNode(), msg);
+                assertTrue(label.parent.weight <= label.weight + 1.e-2, msg);
+            }
+        }
+    }
+}
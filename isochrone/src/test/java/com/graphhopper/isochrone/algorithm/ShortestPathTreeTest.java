@@ -21,6 +21,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * @author Peter Karich
@@ -309,4 +310,36 @@ public class ShortestPathTreeTest {
         );
     }
 
+    @Test
+    public void testSearchLabelsMatchesIsoLabels() {
+        FastestWeighting fastestWeighting = new FastestWeighting(carEncoder, new PMap(), new TimeBasedUTurnCost(20000));
+        List<ShortestPathTree.IsoLabel> expected = new ArrayList<>();
+        ShortestPathTree instance = new ShortestPathTree(graph, fastestWeighting, false, TraversalMode.EDGE_BASED);
+        instance.setTimeLimit(Double.MAX_VALUE);
+        instance.search(0, expected::add);
+
+        ShortestPathTree tree = new ShortestPathTree(graph, fastestWeighting, false, TraversalMode.EDGE_BASED);
+        tree.setTimeLimit(Double.MAX_VALUE);
+        List<Integer> labels = new ArrayList<>();
+        tree.searchLabels(0, labels::add);
+        assertEquals(expected.size(), labels.size());
+        assertEquals(-1, tree.getParent(labels.get(0)));
+        for (int i = 0; i < labels.size(); i++) {
+            ShortestPathTree.IsoLabel label = expected.get(i);
+            int id = labels.get(i);
+            assertEquals(label.node, tree.getNode(id));
+            assertEquals(label.edge, tree.getEdge(id));
+            assertEquals(label.weight, tree.getWeight(id));
+            assertEquals(label.time, tree.getTime(id));
+            assertEquals(label.distance, tree.getDistance(id));
+            if (i == 0) {
+                assertNull(label.parent);
+            } else {
+                assertEquals(label.parent.node, tree.getNode(tree.getParent(id)));
+                assertEquals(label.parent.edge, tree.getEdge(tree.getParent(id)));
+                assertEquals(label.parent.time, tree.getTime(tree.getParent(id)));
+            }
+        }
+    }
+
 }
@@ -213,7 +213,7 @@ class GtfsReader {
             EdgeIterator i = graph.createEdgeExplorer().setBaseNode(stationNode);
             while (i.next()) {
                 if (i.get(ptEncodedValues.getTypeEnc()) == GtfsStorage.EdgeType.EXIT_PT) {
-                    GtfsStorageI.PlatformDescriptor fromPlatformDescriptor = gtfsStorage.getPlatformDescriptorByEdge().get(i.getEdge());
+                    GtfsStorageI.PlatformDescriptor fromPlatformDescriptor = gtfsStorage.getPlatformDescriptor(i.getEdge());
                     if ((createTransferStopsConnectSameOsmNode || fromPlatformDescriptor.stop_id.equals(transfer.from_stop_id)) &&
                             (transfer.from_route_id == null && fromPlatformDescriptor instanceof GtfsStorageI.RouteTypePlatform || transfer.from_route_id != null && GtfsStorageI.PlatformDescriptor.route(id, transfer.from_stop_id, transfer.from_route_id).equals(fromPlatformDescriptor))) {
                         LOGGER.debug("  Creating transfers from stop {}, platform {}", transfer.from_stop_id, fromPlatformDescriptor);
@@ -239,7 +239,7 @@ class GtfsReader {
                     edge.set(accessEnc, true).setReverse(accessEnc, false);
                     setEdgeTypeAndClearDistance(edge, GtfsStorage.EdgeType.TRANSFER);
                     edge.set(timeEnc, tailSet.firstKey() - arrivalTime);
-                    gtfsStorage.getPlatformDescriptorByEdge().put(edge.getEdge(), departurePlatform);
+                    gtfsStorage.putPlatformDescriptor(edge.getEdge(), departurePlatform);
                 }
             }
         }
@@ -331,13 +331,7 @@ class GtfsReader {
             nodeAccess.setNode(departureNode, stop.stop_lat, stop.stop_lon);
             int dayShift = stopTime.departure_time / (24 * 60 * 60);
             GtfsStorage.Validity validOn = new GtfsStorage.Validity(getValidOn(trip.validOnDay, dayShift), zoneId, startDate);
-            int validityId;
-            if (gtfsStorage.getOperatingDayPatterns().containsKey(validOn)) {
-                validityId = gtfsStorage.getOperatingDayPatterns().get(validOn);
-            } else {
-                validityId = gtfsStorage.getOperatingDayPatterns().size();
-                gtfsStorage.getOperatingDayPatterns().put(validOn, validityId);
-            }
+            int validityId = gtfsStorage.getValidityId(validOn);
 
             EdgeIteratorState boardEdge = graph.edge(departureTimelineNode, departureNode);
             boardEdge.setName(getRouteName(feed, trip.trip));
@@ -393,7 +387,7 @@ class GtfsReader {
         setEdgeTypeAndClearDistance(entryEdge, GtfsStorage.EdgeType.ENTER_PT);
         entryEdge.set(ptEncodedValues.getValidityIdEnc(), route_type);
         entryEdge.setName(stop.stop_name);
-        gtfsStorage.getPlatformDescriptorByEdge().put(entryEdge.getEdge(), platformDescriptor);
+        gtfsStorage.putPlatformDescriptor(entryEdge.getEdge(), platformDescriptor);
         wireUpAndConnectTimeline(stop, platformEnterNode, departureTimeline, GtfsStorage.EdgeType.ENTER_TIME_EXPANDED_NETWORK, GtfsStorage.EdgeType.WAIT);
     }
 
@@ -407,7 +401,7 @@ class GtfsReader {
         exitEdge.set(ptEncodedValues.getValidityIdEnc(), route_type);
         exitEdge.setName(stop.stop_name);
         if (platformDescriptorIfStatic != null) {
-            gtfsStorage.getPlatformDescriptorByEdge().put(exitEdge.getEdge(), platformDescriptorIfStatic);
+            gtfsStorage.putPlatformDescriptor(exitEdge.getEdge(), platformDescriptorIfStatic);
         }
         wireUpAndConnectTimeline(stop, platformExitNode, arrivalTimeline, GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK, GtfsStorage.EdgeType.WAIT_ARRIVAL);
     }
@@ -498,7 +492,7 @@ class GtfsReader {
         EdgeIterator i = graph.getBaseGraph().createEdgeExplorer(filter).setBaseNode(stationNode);
         while (i.next()) {
             if (i.get(ptEncodedValues.getTypeEnc()) == edgeType) {
-                if (platformDescriptor.equals(gtfsStorage.getPlatformDescriptorByEdge().get(i.getEdge()))) {
+                if (platformDescriptor.equals(gtfsStorage.getPlatformDescriptor(i.getEdge()))) {
                     return i.getAdjNode();
                 }
             }
@@ -520,13 +514,7 @@ class GtfsReader {
 
         int dayShift = departureTime / (24 * 60 * 60);
         GtfsStorage.Validity validOn = new GtfsStorage.Validity(getValidOn(validOnDay, dayShift), zoneId, startDate);
-        int validityId;
-        if (gtfsStorage.getOperatingDayPatterns().containsKey(validOn)) {
-            validityId = gtfsStorage.getOperatingDayPatterns().get(validOn);
-        } else {
-            validityId = gtfsStorage.getOperatingDayPatterns().size();
-            gtfsStorage.getOperatingDayPatterns().put(validOn, validityId);
-        }
+        int validityId = gtfsStorage.getValidityId(validOn);
 
         EdgeIteratorState boardEdge = graph.edge(departureTimelineNode, departureNode);
         boardEdge.set(accessEnc, true).setReverse(accessEnc, false);
@@ -600,19 +588,13 @@ class GtfsReader {
                 blockTransferValidity.or(validOn.validity);
                 blockTransferValidity.and(accumulatorValidity);
                 GtfsStorage.Validity blockTransferValidOn = new GtfsStorage.Validity(blockTransferValidity, zoneId, startDate);
-                int blockTransferValidityId;
-                if (gtfsStorage.getOperatingDayPatterns().containsKey(blockTransferValidOn)) {
-                    blockTransferValidityId = gtfsStorage.getOperatingDayPatterns().get(blockTransferValidOn);
-                } else {
-                    blockTransferValidityId = gtfsStorage.getOperatingDayPatterns().size();
-                    gtfsStorage.getOperatingDayPatterns().put(blockTransferValidOn, blockTransferValidityId);
-                }
+                int blockTransferValidityId = gtfsStorage.getValidityId(blockTransferValidOn);
                 nodeAccess.setNode(i++, stop.stop_lat, stop.stop_lon);
                 EdgeIteratorState transferEdge = graph.edge(lastTrip.arrivalNode, i - 1);
                 transferEdge.set(accessEnc, true).setReverse(accessEnc, false);
                 setEdgeTypeAndClearDistance(transferEdge, GtfsStorage.EdgeType.TRANSFER);
                 transferEdge.set(timeEnc, dwellTime);
-                gtfsStorage.getPlatformDescriptorByEdge().put(transferEdge.getEdge(), platform);
+                gtfsStorage.putPlatformDescriptor(transferEdge.getEdge(), platform);
                 EdgeIteratorState boardEdge = graph.edge(i - 1, departureNode);
                 boardEdge.set(accessEnc, true).setReverse(accessEnc, false);
                 setEdgeTypeAndClearDistance(boardEdge, GtfsStorage.EdgeType.BOARD);
@@ -630,7 +612,7 @@ class GtfsReader {
         while (i.next()) {
             GtfsStorage.EdgeType edgeType = i.get(ptEncodedValues.getTypeEnc());
             if (edgeType == GtfsStorage.EdgeType.ENTER_PT) {
-                GtfsStorageI.PlatformDescriptor toPlatform = gtfsStorage.getPlatformDescriptorByEdge().get(i.getEdge());
+                GtfsStorageI.PlatformDescriptor toPlatform = gtfsStorage.getPlatformDescriptor(i.getEdge());
                 if (toRouteId == null || toPlatform instanceof GtfsStorageI.RouteTypePlatform || GtfsStorageI.PlatformDescriptor.route(id, toStopId, toRouteId).equals(toPlatform)) {
                     fromStopTimelineNodes.forEach((time, e) -> {
                         EdgeIterator j = graph.getBaseGraph().createEdgeExplorer().setBaseNode(i.getAdjNode());
@@ -645,7 +627,7 @@ class GtfsReader {
                                 edge.set(accessEnc, true).setReverse(accessEnc, false);
                                 setEdgeTypeAndClearDistance(edge, GtfsStorage.EdgeType.TRANSFER);
                                 edge.set(timeEnc, departureTime - time);
-                                gtfsStorage.getPlatformDescriptorByEdge().put(edge.getEdge(), toPlatform);
+                                gtfsStorage.putPlatformDescriptor(edge.getEdge(), toPlatform);
                                 break;
                             }
                         }
@@ -25,7 +25,6 @@ import com.graphhopper.storage.Directory;
 import org.mapdb.Bind;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
-import org.mapdb.HTreeMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -117,13 +116,17 @@ public class GtfsStorage implements GtfsStorageI {
 	private Directory dir;
 	private Set<String> gtfsFeedIds;
 	private Map<String, GTFSFeed> gtfsFeeds = new HashMap<>();
-	private HTreeMap<Validity, Integer> operatingDayPatterns;
+	// only used while the transit graph is built, afterwards they are written to the validity table
+	private Map<Validity, Integer> operatingDayPatterns;
+	private List<Validity> validities;
+	private final ValidityTable validityTable;
 	private Bind.MapWithModificationListener<FeedIdWithTimezone, Integer> timeZones;
 	private Map<Integer, FeedIdWithTimezone> readableTimeZones;
+	// only used while the transit graph is built, afterwards they are written to the trip edge table
 	private Map<Integer, byte[]> tripDescriptors;
 	private Map<Integer, Integer> stopSequences;
-
 	private Map<Integer, PlatformDescriptor> platformDescriptorsByEdge;
+	private TripEdgeTable tripEdgeTable;
 
 	private Map<String, Map<String, Fare>> faresByFeed;
 	private Map<String, int[]> boardEdgesForTrip;
@@ -131,6 +134,8 @@ public class GtfsStorage implements GtfsStorageI {
 
 	private Map<FeedIdWithStopId, Integer> stationNodes;
 
+	private RaptorTimetable raptorTimetable;
+
 	public enum EdgeType {
 		HIGHWAY, ENTER_TIME_EXPANDED_NETWORK, LEAVE_TIME_EXPANDED_NETWORK, ENTER_PT, EXIT_PT, HOP, DWELL, BOARD, ALIGHT, OVERNIGHT, TRANSFER, WAIT, WAIT_ARRIVAL
     }
@@ -139,6 +144,8 @@ public class GtfsStorage implements GtfsStorageI {
 
 	GtfsStorage(Directory dir) {
 		this.dir = dir;
+		this.tripEdgeTable = new TripEdgeTable(dir);
+		this.validityTable = new ValidityTable(dir);
 	}
 
 	boolean loadExisting() {
@@ -148,6 +155,9 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().readOnly().make();
 		init();
+		if (!tripEdgeTable.loadExisting() || !validityTable.loadExisting()) {
+			throw new IllegalStateException("The trip edge or validity table is missing in " + dir.getLocation() + ". Please re-import the transit data.");
+		}
 		for (String gtfsFeedId : this.gtfsFeedIds) {
 			File dbFile = new File(dir.getLocation() + "/" + gtfsFeedId);
 
@@ -174,11 +184,15 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().asyncWriteEnable().make();
 		init();
+		this.tripDescriptors = new HashMap<>();
+		this.stopSequences = new HashMap<>();
+		this.platformDescriptorsByEdge = new HashMap<>();
+		this.operatingDayPatterns = new HashMap<>();
+		this.validities = new ArrayList<>();
 	}
 
     private void init() {
 		this.gtfsFeedIds = data.getHashSet("gtfsFeeds");
-		this.operatingDayPatterns = data.getHashMap("validities");
 		this.timeZones = data.getHashMap("timeZones");
 		Map<Integer, FeedIdWithTimezone> readableTimeZones = new HashMap<>();
 		for (Map.Entry<FeedIdWithTimezone, Integer> entry : this.timeZones.entrySet()) {
@@ -186,12 +200,9 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		Bind.mapInverse(this.timeZones, readableTimeZones);
 		this.readableTimeZones = Collections.unmodifiableMap(readableTimeZones);
-		this.tripDescriptors = data.getTreeMap("tripDescriptors");
-		this.stopSequences = data.getTreeMap("stopSequences");
 		this.boardEdgesForTrip = data.getHashMap("boardEdgesForTrip");
 		this.leaveEdgesForTrip = data.getHashMap("leaveEdgesForTrip");
 		this.stationNodes = data.getHashMap("stationNodes");
-		this.platformDescriptorsByEdge = data.getHashMap("routes");
 	}
 
 	void loadGtfsFromZipFile(String id, ZipFile zipFile) {
@@ -207,6 +218,20 @@ public class GtfsStorage implements GtfsStorageI {
 		this.gtfsFeedIds.add(id);
 	}
 
+	/**
+	 * Writes the stop sequences, trip and platform descriptors collected while building the transit graph to the trip
+	 * edge table and the operating day patterns to the validity table. They cannot be modified afterwards.
+	 */
+	void writeTripEdgeTable(int edgeCount) {
+		tripEdgeTable.build(edgeCount, getStopSequences(), getTripDescriptors(), platformDescriptorsByEdge);
+		validityTable.build(validities);
+		this.tripDescriptors = null;
+		this.stopSequences = null;
+		this.platformDescriptorsByEdge = null;
+		this.operatingDayPatterns = null;
+		this.validities = null;
+	}
+
 	// TODO: Refactor initialization
 	public void postInit() {
 		LocalDate latestStartDate = LocalDate.ofEpochDay(this.gtfsFeeds.values().stream().mapToLong(f -> f.getStartDate().toEpochDay()).max().getAsLong());
@@ -220,16 +245,46 @@ public class GtfsStorage implements GtfsStorageI {
 		if (!isClosed) {
 			isClosed = true;
 			data.close();
+			tripEdgeTable.close();
+			validityTable.close();
 			for (GTFSFeed feed : gtfsFeeds.values()) {
 				feed.close();
 			}
 		}
 	}
 
-    @Override
-	public Map<Validity, Integer> getOperatingDayPatterns() {
-        return operatingDayPatterns;
-    }
+	@Override
+	public int getValidityId(Validity validity) {
+		if (operatingDayPatterns == null) {
+			throw new IllegalStateException("The operating day patterns can only be added while the transit graph is built");
+		}
+		return operatingDayPatterns.computeIfAbsent(validity, v -> {
+			validities.add(v);
+			return validities.size() - 1;
+		});
+	}
+
+	/**
+	 * @return the operating day pattern with the given id of the static transit graph
+	 */
+	Validity getValidity(int validityId) {
+		return validities != null ? validities.get(validityId) : validityTable.get(validityId);
+	}
+
+	/**
+	 * @return the number of operating day patterns of the static transit graph, realtime updates use the ids from
+	 * here on
+	 */
+	int getValidityCount() {
+		return validities != null ? validities.size() : validityTable.getCount();
+	}
+
+	/**
+	 * @return the id of the given operating day pattern of the static transit graph or null if there is none
+	 */
+	Integer findValidityId(Validity validity) {
+		return operatingDayPatterns != null ? operatingDayPatterns.get(validity) : validityTable.findId(validity);
+	}
 
     @Override
 	public Map<Integer, FeedIdWithTimezone> getTimeZones() {
@@ -243,14 +298,35 @@ public class GtfsStorage implements GtfsStorageI {
 
 	@Override
 	public Map<Integer, byte[]> getTripDescriptors() {
+		if (tripDescriptors == null) {
+			throw new IllegalStateException("The trip descriptors can only be modified while the transit graph is built, use getTripDescriptor(edge) instead");
+		}
 		return tripDescriptors;
 	}
 
 	@Override
 	public Map<Integer, Integer> getStopSequences() {
+		if (stopSequences == null) {
+			throw new IllegalStateException("The stop sequences can only be modified while the transit graph is built, use getStopSequence(edge) instead");
+		}
 		return stopSequences;
 	}
 
+	/**
+	 * @return the serialized trip descriptor of the given edge of the static transit graph or null if there is none
+	 */
+	byte[] getTripDescriptor(int edge) {
+		return tripEdgeTable.getTripDescriptor(edge);
+	}
+
+	/**
+	 * @return the stop sequence of the given edge of the static transit graph or
+	 * {@link TripEdgeTable#NO_STOP_SEQUENCE} if there is none
+	 */
+	int getStopSequence(int edge) {
+		return tripEdgeTable.getStopSequence(edge);
+	}
+
 	@Override
 	public Map<String, int[]> getBoardEdgesForTrip() {
 		return boardEdgesForTrip;
@@ -261,10 +337,21 @@ public class GtfsStorage implements GtfsStorageI {
 		return leaveEdgesForTrip;
 	}
 
-    @Override
-    public Map<Integer, PlatformDescriptor> getPlatformDescriptorByEdge() {
-        return platformDescriptorsByEdge;
-    }
+	@Override
+	public void putPlatformDescriptor(int edge, PlatformDescriptor platformDescriptor) {
+		if (platformDescriptorsByEdge == null) {
+			throw new IllegalStateException("The platform descriptors can only be modified while the transit graph is built");
+		}
+		platformDescriptorsByEdge.put(edge, platformDescriptor);
+	}
+
+	/**
+	 * @return the platform descriptor of the given edge of the static transit graph or null if there is none
+	 */
+	@Override
+	public PlatformDescriptor getPlatformDescriptor(int edge) {
+		return platformDescriptorsByEdge != null ? platformDescriptorsByEdge.get(edge) : tripEdgeTable.getPlatformDescriptor(edge);
+	}
 
     @Override
 	public Map<String, Map<String, Fare>> getFares() {
@@ -280,6 +367,17 @@ public class GtfsStorage implements GtfsStorageI {
 		return stationNodes;
 	}
 
+	/**
+	 * The timetable of all feeds for the RAPTOR router. It is created from the feeds when it is needed for the
+	 * first time and not stored.
+	 */
+	synchronized RaptorTimetable getRaptorTimetable() {
+		if (raptorTimetable == null) {
+			raptorTimetable = RaptorTimetable.create(gtfsFeeds, stationNodes);
+		}
+		return raptorTimetable;
+	}
+
 	static String tripKey(GtfsRealtime.TripDescriptor tripDescriptor, boolean isFrequencyBased) {
 		if (isFrequencyBased) {
 			return tripDescriptor.getTripId()+tripDescriptor.getStartTime();
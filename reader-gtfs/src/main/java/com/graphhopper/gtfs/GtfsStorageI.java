@@ -122,7 +122,10 @@ public interface GtfsStorageI {
 
     Map<String, Map<String, Fare>> getFares();
 
-    Map<GtfsStorage.Validity, Integer> getOperatingDayPatterns();
+    /**
+     * @return the id of the given operating day pattern, which is added if it is not known yet
+     */
+    int getValidityId(GtfsStorage.Validity validity);
 
     Map<GtfsStorage.FeedIdWithTimezone, Integer> getWritableTimeZones();
 
@@ -140,5 +143,7 @@ public interface GtfsStorageI {
 
     Map<GtfsStorage.FeedIdWithStopId, Integer> getStationNodes();
 
-    Map<Integer, PlatformDescriptor> getPlatformDescriptorByEdge();
+    void putPlatformDescriptor(int edge, PlatformDescriptor platformDescriptor);
+
+    PlatformDescriptor getPlatformDescriptor(int edge);
 }
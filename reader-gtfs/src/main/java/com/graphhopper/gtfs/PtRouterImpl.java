@@ -58,6 +58,7 @@ public final class PtRouterImpl implements PtRouter {
     private final GtfsStorage gtfsStorage;
     private final RealtimeFeed realtimeFeed;
     private final TripFromLabel tripFromLabel;
+    private final RaptorRouter raptorRouter;
 
     @Inject
     public PtRouterImpl(TranslationMap translationMap, GraphHopperStorage graphHopperStorage, LocationIndex locationIndex, GtfsStorage gtfsStorage, RealtimeFeed realtimeFeed, PathDetailsBuilderFactory pathDetailsBuilderFactory) {
@@ -69,6 +70,7 @@ public final class PtRouterImpl implements PtRouter {
         this.gtfsStorage = gtfsStorage;
         this.realtimeFeed = realtimeFeed;
         this.tripFromLabel = new TripFromLabel(this.graphHopperStorage, this.gtfsStorage, this.realtimeFeed, pathDetailsBuilderFactory);
+        this.raptorRouter = new RaptorRouter(ptEncodedValues, accessEgressWeighting, gtfsStorage, realtimeFeed, tripFromLabel);
     }
 
     public static Factory createFactory(TranslationMap translationMap, GraphHopper graphHopperStorage, LocationIndex locationIndex, GtfsStorage gtfsStorage) {
@@ -110,6 +112,8 @@ public final class PtRouterImpl implements PtRouter {
     }
 
     private class RequestHandler {
+        private final Request request;
+        private final boolean raptor;
         private final int maxVisitedNodesForRequest;
         private final int limitSolutions;
         private final long maxProfileDuration;
@@ -134,6 +138,16 @@ public final class PtRouterImpl implements PtRouter {
         private int visitedNodes;
 
         RequestHandler(Request request) {
+            this.request = request;
+            if (Request.ALGORITHM_RAPTOR.equals(request.getAlgorithm())) {
+                if (request.isArriveBy())
+                    throw new IllegalArgumentException("pt.arrive_by is not supported by the " + Request.ALGORITHM_RAPTOR + " algorithm");
+                raptor = true;
+            } else if (Request.ALGORITHM_LABEL_SETTING.equals(request.getAlgorithm())) {
+                raptor = false;
+            } else {
+                throw new IllegalArgumentException("Unknown pt algorithm: " + request.getAlgorithm());
+            }
             maxVisitedNodesForRequest = request.getMaxVisitedNodes();
             profileQuery = request.isProfileQuery();
             ignoreTransfers = Optional.ofNullable(request.getIgnoreTransfers()).orElse(request.isProfileQuery());
@@ -182,6 +196,10 @@ public final class PtRouterImpl implements PtRouter {
                 startNode = allSnaps.get(0).getClosestNode();
                 destNode = allSnaps.get(1).getClosestNode();
             }
+            if (raptor) {
+                raptorRouter.route(request, queryGraph, startNode, destNode, points, translation, response);
+                return response;
+            }
             List<List<Label.Transition>> solutions = findPaths(startNode, destNode);
             parseSolutionsAndAddToResponse(solutions, points);
             return response;
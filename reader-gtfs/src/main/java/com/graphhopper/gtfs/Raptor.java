@@ -0,0 +1,501 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Round-based public transit search (RAPTOR) on a {@link RaptorTimetable}, see Delling, Pajor and Werneck, "Round-Based
+ * Public Transit Routing", 2012. Round k finds the earliest arrival at every stop with k trips, so the journeys found
+ * in the different rounds form the Pareto set of arrival time and number of trips. Instead of a priority queue every
+ * pattern that serves a stop which was improved in the previous round is scanned once per round.
+ * <p>
+ * {@link #calcProfile} is range RAPTOR: it runs one search for every departure within the time window, latest first,
+ * and every search keeps the arrival times of the later ones because they are still valid for an earlier departure.
+ * <p>
+ * Times are in seconds relative to the start of the query, access, egress and destination times are in milliseconds.
+ */
+final class Raptor {
+    static final int MAX_ROUNDS = 16;
+    private static final int INFINITY = Integer.MAX_VALUE;
+    // we look at the trips of the service day before, of and after the query
+    private static final int DAYS = 3;
+
+    static class Ride {
+        final int trip;
+        final int boardPosition;
+        final int alightPosition;
+        // the start of the service day of the trip in epoch seconds, the stop times are relative to it
+        final long serviceDayStart;
+
+        Ride(int trip, int boardPosition, int alightPosition, long serviceDayStart) {
+            this.trip = trip;
+            this.boardPosition = boardPosition;
+            this.alightPosition = alightPosition;
+            this.serviceDayStart = serviceDayStart;
+        }
+    }
+
+    static class Journey {
+        final int accessStop;
+        final int egressStop;
+        final List<Ride> rides;
+        // epoch milliseconds
+        final long departureTime;
+        final long arrivalTime;
+
+        Journey(int accessStop, int egressStop, List<Ride> rides, long departureTime, long arrivalTime) {
+            this.accessStop = accessStop;
+            this.egressStop = egressStop;
+            this.rides = rides;
+            this.departureTime = departureTime;
+            this.arrivalTime = arrivalTime;
+        }
+
+        @Override
+        public String toString() {
+            return Instant.ofEpochMilli(departureTime) + " -> " + Instant.ofEpochMilli(arrivalTime) + ", trips: " + rides.size();
+        }
+    }
+
+    /**
+     * Every stop has two labels per round: the arrival with the trip of the round and the arrival by a transfer after
+     * it. They are kept apart because a transfer can arrive earlier than a trip at the same stop, while we still need
+     * the trip arrival to transfer from.
+     */
+    private static class Round {
+        final int[] tripArrivals;
+        final int[] trips;
+        final int[] boardPositions;
+        final int[] alightPositions;
+        final byte[] days;
+        // whether the trip was boarded from the transfer label of the previous round
+        final boolean[] boardedAfterTransfer;
+        final int[] transferArrivals;
+        // the stop the transfer to the stop started from, or -1 for the access stops of round 0
+        final int[] transfersFrom;
+
+        Round(int stops) {
+            tripArrivals = new int[stops];
+            Arrays.fill(tripArrivals, INFINITY);
+            trips = new int[stops];
+            boardPositions = new int[stops];
+            alightPositions = new int[stops];
+            days = new byte[stops];
+            boardedAfterTransfer = new boolean[stops];
+            transferArrivals = new int[stops];
+            Arrays.fill(transferArrivals, INFINITY);
+            transfersFrom = new int[stops];
+        }
+    }
+
+    private final RaptorTimetable timetable;
+    private final long startSeconds;
+    private final long startMillis;
+    private final int blockedRouteTypes;
+    private final int[] accessStops;
+    private final long[] accessTimes;
+    private final long[] accessTimesByStop;
+    private final long[] egressTimesByStop;
+    // per zone and day
+    private final int[][] dayStarts;
+    private final long[][] epochDays;
+    // the earliest arrival at every stop, and the earliest arrival with a trip which we can still transfer from
+    private final int[] bestArrivals;
+    private final int[] bestTripArrivals;
+    private final List<Round> rounds = new ArrayList<>();
+    private final long[] destinationArrivals = new long[MAX_ROUNDS + 1];
+    private final int[] destinationStops = new int[MAX_ROUNDS + 1];
+    private final boolean[] destinationsByTransfer = new boolean[MAX_ROUNDS + 1];
+    private long bestDestinationArrival = Long.MAX_VALUE;
+    private final BitSet markedStops;
+    private final int[] patternPositions;
+    private final IntArrayList markedPatterns = new IntArrayList();
+    private int scannedPatterns;
+    private int runs;
+
+    /**
+     * @param accessTimes the milliseconds needed to get from the start to the access stops
+     * @param egressTimes the milliseconds needed to get from the egress stops to the destination
+     */
+    Raptor(RaptorTimetable timetable, Instant startTime, int blockedRouteTypes, int[] accessStops, long[] accessTimes,
+           int[] egressStops, long[] egressTimes) {
+        if (accessStops.length != accessTimes.length || egressStops.length != egressTimes.length)
+            throw new IllegalArgumentException("The stops and times of access and egress must have the same length");
+        this.timetable = timetable;
+        this.startSeconds = Math.floorDiv(startTime.toEpochMilli(), 1000);
+        this.startMillis = startTime.toEpochMilli() - startSeconds * 1000;
+        this.blockedRouteTypes = blockedRouteTypes;
+        int stopCount = timetable.getStopCount();
+        this.accessStops = accessStops;
+        this.accessTimes = accessTimes;
+        accessTimesByStop = new long[stopCount];
+        Arrays.fill(accessTimesByStop, -1);
+        for (int i = 0; i < accessStops.length; i++) {
+            if (accessTimesByStop[accessStops[i]] < 0 || accessTimes[i] < accessTimesByStop[accessStops[i]])
+                accessTimesByStop[accessStops[i]] = accessTimes[i];
+        }
+        egressTimesByStop = new long[stopCount];
+        Arrays.fill(egressTimesByStop, -1);
+        for (int i = 0; i < egressStops.length; i++) {
+            if (egressTimesByStop[egressStops[i]] < 0 || egressTimes[i] < egressTimesByStop[egressStops[i]])
+                egressTimesByStop[egressStops[i]] = egressTimes[i];
+        }
+        dayStarts = new int[timetable.zones.length][DAYS];
+        epochDays = new long[timetable.zones.length][DAYS];
+        for (int zone = 0; zone < timetable.zones.length; zone++) {
+            LocalDate date = startTime.atZone(timetable.zones[zone]).toLocalDate().minusDays(1);
+            for (int day = 0; day < DAYS; day++, date = date.plusDays(1)) {
+                dayStarts[zone][day] = (int) (date.atStartOfDay(timetable.zones[zone]).toEpochSecond() - startSeconds);
+                epochDays[zone][day] = date.toEpochDay();
+            }
+        }
+        bestArrivals = new int[stopCount];
+        Arrays.fill(bestArrivals, INFINITY);
+        bestTripArrivals = new int[stopCount];
+        Arrays.fill(bestTripArrivals, INFINITY);
+        Arrays.fill(destinationArrivals, Long.MAX_VALUE);
+        markedStops = new BitSet(stopCount);
+        patternPositions = new int[timetable.getPatternCount()];
+        Arrays.fill(patternPositions, INFINITY);
+    }
+
+    /**
+     * @return the journeys that depart at the start time and have the earliest arrival for their number of trips,
+     * ordered by the number of trips
+     */
+    List<Journey> calcJourneys() {
+        BitSet improvedRounds = run(startMillis);
+        List<Journey> journeys = new ArrayList<>();
+        long earliestArrival = Long.MAX_VALUE;
+        for (int round = improvedRounds.nextSetBit(0); round >= 0; round = improvedRounds.nextSetBit(round + 1)) {
+            if (destinationArrivals[round] < earliestArrival) {
+                earliestArrival = destinationArrivals[round];
+                journeys.add(createJourney(round));
+            }
+        }
+        return journeys;
+    }
+
+    /**
+     * @return the journeys with the earliest arrival for every departure within the given time window after the start
+     * time and every number of trips. Journeys are not filtered for dominance across departures.
+     */
+    List<Journey> calcProfile(long profileDurationMillis) {
+        LongArrayList departures = new LongArrayList();
+        departures.add(startMillis);
+        for (int i = 0; i < accessStops.length; i++) {
+            int stop = accessStops[i];
+            for (int j = timetable.stopPatternOffsets[stop]; j < timetable.stopPatternOffsets[stop + 1]; j++) {
+                int pattern = timetable.stopPatterns[j];
+                int route = timetable.patternRoutes[pattern];
+                if (isBlocked(route))
+                    continue;
+                int zone = timetable.routeZones[route];
+                for (int trip = timetable.patternTripOffsets[pattern]; trip < timetable.patternTripOffsets[pattern + 1]; trip++) {
+                    int departure = timetable.departures[timetable.getStopTimeIndex(trip, timetable.stopPatternPositions[j])];
+                    for (int day = 0; day < DAYS; day++) {
+                        long startAtDeparture = (dayStarts[zone][day] + departure) * 1000L - accessTimes[i];
+                        if (startAtDeparture >= startMillis && startAtDeparture <= startMillis + profileDurationMillis
+                                && timetable.isActive(trip, epochDays[zone][day]))
+                            departures.add(startAtDeparture);
+                    }
+                }
+            }
+        }
+        long[] sortedDepartures = departures.toArray();
+        Arrays.sort(sortedDepartures);
+        List<Journey> journeys = new ArrayList<>();
+        for (int i = sortedDepartures.length - 1; i >= 0; i--) {
+            if (i < sortedDepartures.length - 1 && sortedDepartures[i] == sortedDepartures[i + 1])
+                continue;
+            BitSet improvedRounds = run(sortedDepartures[i]);
+            for (int round = improvedRounds.nextSetBit(0); round >= 0; round = improvedRounds.nextSetBit(round + 1)) {
+                journeys.add(createJourney(round));
+            }
+        }
+        return journeys;
+    }
+
+    int getScannedPatterns() {
+        return scannedPatterns;
+    }
+
+    int getRuns() {
+        return runs;
+    }
+
+    int getRounds() {
+        return rounds.size() - 1;
+    }
+
+    private BitSet run(long departureMillis) {
+        runs++;
+        BitSet improvedRounds = new BitSet();
+        Round first = getRound(0);
+        markedStops.clear();
+        for (int i = 0; i < accessStops.length; i++) {
+            int stop = accessStops[i];
+            int arrival = (int) ((departureMillis + accessTimes[i] + 999) / 1000);
+            if (arrival < first.transferArrivals[stop]) {
+                first.transferArrivals[stop] = arrival;
+                first.transfersFrom[stop] = -1;
+                bestArrivals[stop] = Math.min(bestArrivals[stop], arrival);
+                markedStops.set(stop);
+            }
+        }
+        for (int k = 1; k <= MAX_ROUNDS && !markedStops.isEmpty(); k++) {
+            Round previous = rounds.get(k - 1);
+            Round current = getRound(k);
+            collectPatterns();
+            for (int i = 0; i < markedPatterns.size(); i++) {
+                int pattern = markedPatterns.get(i);
+                scanPattern(pattern, patternPositions[pattern], previous, current);
+                patternPositions[pattern] = INFINITY;
+            }
+            markedPatterns.clear();
+            relaxTransfers(current);
+            for (int stop = markedStops.nextSetBit(0); stop >= 0; stop = markedStops.nextSetBit(stop + 1)) {
+                if (egressTimesByStop[stop] < 0)
+                    continue;
+                boolean byTransfer = current.transferArrivals[stop] < current.tripArrivals[stop];
+                long arrival = (byTransfer ? current.transferArrivals[stop] : current.tripArrivals[stop]) * 1000L + egressTimesByStop[stop];
+                if (arrival < destinationArrivals[k]) {
+                    destinationArrivals[k] = arrival;
+                    destinationStops[k] = stop;
+                    destinationsByTransfer[k] = byTransfer;
+                    bestDestinationArrival = Math.min(bestDestinationArrival, arrival);
+                    improvedRounds.set(k);
+                }
+            }
+        }
+        return improvedRounds;
+    }
+
+    private Round getRound(int k) {
+        if (k == rounds.size())
+            rounds.add(new Round(timetable.getStopCount()));
+        return rounds.get(k);
+    }
+
+    private boolean isBlocked(int route) {
+        return (blockedRouteTypes & (1 << timetable.routeTypes[route])) != 0;
+    }
+
+    private void collectPatterns() {
+        for (int stop = markedStops.nextSetBit(0); stop >= 0; stop = markedStops.nextSetBit(stop + 1)) {
+            for (int j = timetable.stopPatternOffsets[stop]; j < timetable.stopPatternOffsets[stop + 1]; j++) {
+                int pattern = timetable.stopPatterns[j];
+                if (patternPositions[pattern] == INFINITY) {
+                    if (isBlocked(timetable.patternRoutes[pattern]))
+                        continue;
+                    markedPatterns.add(pattern);
+                }
+                patternPositions[pattern] = Math.min(patternPositions[pattern], timetable.stopPatternPositions[j]);
+            }
+        }
+        markedStops.clear();
+    }
+
+    private void scanPattern(int pattern, int firstPosition, Round previous, Round current) {
+        scannedPatterns++;
+        int route = timetable.patternRoutes[pattern];
+        int zone = timetable.routeZones[route];
+        int stopCount = timetable.getPatternStopCount(pattern);
+        int trip = -1, day = -1, boardPosition = -1, tripDeparture = INFINITY;
+        boolean boardedAfterTransfer = false;
+        for (int position = firstPosition; position < stopCount; position++) {
+            int stop = timetable.getPatternStop(pattern, position);
+            if (trip >= 0) {
+                int arrival = dayStarts[zone][day] + timetable.arrivals[timetable.getStopTimeIndex(trip, position)];
+                if (arrival < bestTripArrivals[stop] && arrival * 1000L < bestDestinationArrival) {
+                    current.tripArrivals[stop] = arrival;
+                    current.trips[stop] = trip;
+                    current.boardPositions[stop] = boardPosition;
+                    current.alightPositions[stop] = position;
+                    current.days[stop] = (byte) day;
+                    current.boardedAfterTransfer[stop] = boardedAfterTransfer;
+                    bestTripArrivals[stop] = arrival;
+                    bestArrivals[stop] = Math.min(bestArrivals[stop], arrival);
+                    markedStops.set(stop);
+                }
+                tripDeparture = dayStarts[zone][day] + timetable.departures[timetable.getStopTimeIndex(trip, position)];
+            }
+            int earliestDeparture = previous.transferArrivals[stop];
+            boolean afterTransfer = true;
+            if (previous.tripArrivals[stop] != INFINITY) {
+                int departureAfterTrip = previous.tripArrivals[stop]
+                        + timetable.getMinTransferTime(stop, timetable.patternRoutes[timetable.tripPatterns[previous.trips[stop]]], route);
+                if (departureAfterTrip < earliestDeparture) {
+                    earliestDeparture = departureAfterTrip;
+                    afterTransfer = false;
+                }
+            }
+            if (earliestDeparture >= tripDeparture)
+                continue;
+            // find the earliest trip we can catch, possibly on a different service day
+            for (int d = 0; d < DAYS; d++) {
+                int t = findFirstActiveTrip(pattern, position, earliestDeparture - dayStarts[zone][d], epochDays[zone][d]);
+                if (t < 0)
+                    continue;
+                int departure = dayStarts[zone][d] + timetable.departures[timetable.getStopTimeIndex(t, position)];
+                if (departure < tripDeparture) {
+                    trip = t;
+                    day = d;
+                    boardPosition = position;
+                    boardedAfterTransfer = afterTransfer;
+                    tripDeparture = departure;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the first trip of the pattern that departs not before the given time of the service day and runs on
+     * the given day or -1
+     */
+    private int findFirstActiveTrip(int pattern, int position, int time, long epochDay) {
+        int low = timetable.patternTripOffsets[pattern], high = timetable.patternTripOffsets[pattern + 1];
+        // the trips of a pattern do not overtake each other, so their departures are sorted at every stop
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timetable.departures[timetable.getStopTimeIndex(mid, position)] < time)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        for (int trip = low; trip < timetable.patternTripOffsets[pattern + 1]; trip++) {
+            if (timetable.isActive(trip, epochDay))
+                return trip;
+        }
+        return -1;
+    }
+
+    private void relaxTransfers(Round current) {
+        // we only transfer from stops that were reached by a trip in this round, so one transfer never follows another
+        int[] stops = markedStops.stream().toArray();
+        for (int stop : stops) {
+            for (int j = timetable.transferOffsets[stop]; j < timetable.transferOffsets[stop + 1]; j++) {
+                int target = timetable.transferTargets[j];
+                int arrival = current.tripArrivals[stop] + timetable.transferTimes[j];
+                if (arrival < bestArrivals[target] && arrival * 1000L < bestDestinationArrival) {
+                    current.transferArrivals[target] = arrival;
+                    current.transfersFrom[target] = stop;
+                    bestArrivals[target] = arrival;
+                    markedStops.set(target);
+                }
+            }
+        }
+    }
+
+    private Journey createJourney(int round) {
+        int egressStop = destinationStops[round];
+        int[] trips = new int[round], days = new int[round], boardPositions = new int[round], alightPositions = new int[round];
+        int stop = egressStop;
+        boolean byTransfer = destinationsByTransfer[round];
+        for (int k = round; k > 0; k--) {
+            Round r = rounds.get(k);
+            if (byTransfer)
+                stop = r.transfersFrom[stop];
+            byTransfer = r.boardedAfterTransfer[stop];
+            trips[k - 1] = r.trips[stop];
+            days[k - 1] = r.days[stop];
+            boardPositions[k - 1] = r.boardPositions[stop];
+            alightPositions[k - 1] = r.alightPositions[stop];
+            stop = timetable.getPatternStop(timetable.tripPatterns[trips[k - 1]], boardPositions[k - 1]);
+        }
+        int accessStop = stop;
+        delayTrips(trips, days, boardPositions, alightPositions, (int) Math.floorDiv(destinationArrivals[round] - egressTimesByStop[egressStop], 1000));
+
+        List<Ride> rides = new ArrayList<>(round);
+        for (int i = 0; i < round; i++) {
+            int zone = timetable.routeZones[timetable.patternRoutes[timetable.tripPatterns[trips[i]]]];
+            rides.add(new Ride(trips[i], boardPositions[i], alightPositions[i], startSeconds + dayStarts[zone][days[i]]));
+        }
+        Ride first = rides.get(0);
+        long departure = (first.serviceDayStart + timetable.departures[timetable.getStopTimeIndex(first.trip, first.boardPosition)]) * 1000L
+                - accessTimesByStop[accessStop];
+        return new Journey(accessStop, egressStop, rides, departure, startSeconds * 1000L + destinationArrivals[round]);
+    }
+
+    /**
+     * RAPTOR boards the earliest trip that can be caught, which can be much earlier than necessary. Going backwards
+     * from the egress stop we replace every trip with the latest trip of the same pattern that still makes the
+     * connection, so the journey departs as late as possible without changing its arrival.
+     */
+    private void delayTrips(int[] trips, int[] days, int[] boardPositions, int[] alightPositions, int latestArrival) {
+        for (int i = trips.length - 1; i >= 0; i--) {
+            int pattern = timetable.tripPatterns[trips[i]];
+            int route = timetable.patternRoutes[pattern];
+            int zone = timetable.routeZones[route];
+            for (int d = 0; d < DAYS; d++) {
+                int t = findLastActiveTrip(pattern, alightPositions[i], latestArrival - dayStarts[zone][d], epochDays[zone][d]);
+                if (t >= 0 && dayStarts[zone][d] + timetable.departures[timetable.getStopTimeIndex(t, boardPositions[i])]
+                        > dayStarts[zone][days[i]] + timetable.departures[timetable.getStopTimeIndex(trips[i], boardPositions[i])]) {
+                    trips[i] = t;
+                    days[i] = d;
+                }
+            }
+            if (i == 0)
+                break;
+            latestArrival = dayStarts[zone][days[i]] + timetable.departures[timetable.getStopTimeIndex(trips[i], boardPositions[i])];
+            int boardStop = timetable.getPatternStop(pattern, boardPositions[i]);
+            int previousPattern = timetable.tripPatterns[trips[i - 1]];
+            int alightStop = timetable.getPatternStop(previousPattern, alightPositions[i - 1]);
+            if (alightStop == boardStop) {
+                latestArrival -= timetable.getMinTransferTime(boardStop, timetable.patternRoutes[previousPattern], route);
+            } else {
+                for (int j = timetable.transferOffsets[alightStop]; j < timetable.transferOffsets[alightStop + 1]; j++) {
+                    if (timetable.transferTargets[j] == boardStop) {
+                        latestArrival -= timetable.transferTimes[j];
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the last trip of the pattern that arrives not after the given time of the service day and runs on the
+     * given day or -1
+     */
+    private int findLastActiveTrip(int pattern, int position, int time, long epochDay) {
+        int low = timetable.patternTripOffsets[pattern], high = timetable.patternTripOffsets[pattern + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timetable.arrivals[timetable.getStopTimeIndex(mid, position)] <= time)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        for (int trip = low - 1; trip >= timetable.patternTripOffsets[pattern]; trip--) {
+            if (timetable.isActive(trip, epochDay))
+                return trip;
+        }
+        return -1;
+    }
+}
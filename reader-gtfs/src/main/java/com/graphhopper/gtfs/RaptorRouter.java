@@ -0,0 +1,240 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.Stop;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.Trip;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.Translation;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Answers departure time queries with {@link Raptor} instead of the label setting search on the time-expanded graph.
+ * The street network is only used to walk to the first stop and from the last one: two walk-only searches find the
+ * stops around the start and the destination, and the walk from the start to the destination. Transfers between stops
+ * come from transfers.txt or from stops at the same station node. Realtime updates are not considered.
+ */
+final class RaptorRouter {
+    // without a limit the walk-only searches would explore the whole street network
+    static final Duration DEFAULT_LIMIT_STREET_TIME = Duration.ofMinutes(30);
+
+    private final PtEncodedValues ptEncodedValues;
+    private final Weighting accessEgressWeighting;
+    private final GtfsStorage gtfsStorage;
+    private final RealtimeFeed realtimeFeed;
+    private final TripFromLabel tripFromLabel;
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    RaptorRouter(PtEncodedValues ptEncodedValues, Weighting accessEgressWeighting, GtfsStorage gtfsStorage, RealtimeFeed realtimeFeed, TripFromLabel tripFromLabel) {
+        this.ptEncodedValues = ptEncodedValues;
+        this.accessEgressWeighting = accessEgressWeighting;
+        this.gtfsStorage = gtfsStorage;
+        this.realtimeFeed = realtimeFeed;
+        this.tripFromLabel = tripFromLabel;
+    }
+
+    void route(Request request, QueryGraph queryGraph, int startNode, int destNode, PointList waypoints, Translation translation, GHResponse response) {
+        StopWatch stopWatch = new StopWatch().start();
+        RaptorTimetable timetable = gtfsStorage.getRaptorTimetable();
+        Instant initialTime = request.getEarliestDepartureTime();
+        boolean profileQuery = request.isProfileQuery();
+        boolean ignoreTransfers = Optional.ofNullable(request.getIgnoreTransfers()).orElse(profileQuery);
+        int limitSolutions = Optional.ofNullable(request.getLimitSolutions()).orElse(profileQuery ? 50 : ignoreTransfers ? 1 : Integer.MAX_VALUE);
+        long limitStreetTime = Optional.ofNullable(request.getLimitStreetTime()).orElse(DEFAULT_LIMIT_STREET_TIME).toMillis();
+
+        WalkSearch access = new WalkSearch(queryGraph, request, false, limitStreetTime);
+        access.run(startNode, destNode, timetable);
+        WalkSearch egress = new WalkSearch(queryGraph, request, true, limitStreetTime);
+        egress.run(destNode, -1, timetable);
+
+        Raptor raptor = new Raptor(timetable, initialTime, request.getBlockedRouteTypes(), access.stops.toArray(), access.times(),
+                egress.stops.toArray(), egress.times());
+        List<Raptor.Journey> journeys = profileQuery ? raptor.calcProfile(request.getMaxProfileDuration().toMillis()) : raptor.calcJourneys();
+        long walkTime = access.destinationLabel == null ? -1 : access.destinationLabel.currentTime - initialTime.toEpochMilli();
+        journeys = filterDominated(journeys, initialTime.toEpochMilli(), walkTime, profileQuery, ignoreTransfers);
+        journeys.sort(Comparator.comparingLong(j -> profileQuery ? j.departureTime : j.arrivalTime));
+
+        int visitedNodes = access.visitedNodes + egress.visitedNodes;
+        response.addDebugInfo("routing:" + stopWatch.stop().getSeconds() + "s");
+        response.addDebugInfo("raptor:" + raptor.getRuns() + " runs, " + raptor.getRounds() + " rounds, " + raptor.getScannedPatterns() + " scanned patterns");
+        response.getHints().putObject("visited_nodes.sum", visitedNodes);
+        response.getHints().putObject("visited_nodes.average", visitedNodes);
+
+        List<ResponsePath> paths = new ArrayList<>();
+        if (walkTime >= 0 && !(ignoreTransfers && !journeys.isEmpty() && journeys.get(0).arrivalTime < initialTime.toEpochMilli() + walkTime)) {
+            List<Label.Transition> solution = Label.getTransitions(access.destinationLabel, false, ptEncodedValues, queryGraph, realtimeFeed);
+            ResponsePath walkPath = tripFromLabel.createResponsePath(translation, waypoints, queryGraph, accessEgressWeighting, solution, request.getPathDetails());
+            walkPath.setTime(walkTime);
+            paths.add(walkPath);
+        }
+        for (Raptor.Journey journey : journeys) {
+            if (paths.size() >= limitSolutions)
+                break;
+            List<Trip.Leg> legs = new ArrayList<>();
+            legs.addAll(access.createWalkLegs(journey.accessStop, translation));
+            for (Raptor.Ride ride : journey.rides)
+                legs.add(createPtLeg(timetable, ride));
+            legs.addAll(egress.createWalkLegs(journey.egressStop, translation));
+            ResponsePath path = tripFromLabel.createResponsePath(translation, waypoints, legs);
+            path.setTime(journey.arrivalTime - initialTime.toEpochMilli());
+            paths.add(path);
+        }
+        paths.forEach(response::add);
+        response.getAll().sort(Comparator.comparingDouble(ResponsePath::getTime));
+        if (paths.isEmpty()) {
+            response.addError(new RuntimeException("No route found"));
+        }
+    }
+
+    /**
+     * Removes journeys that are not better than another one in any criterion. The walk from the start to the
+     * destination counts as a journey without trips that can depart at any time.
+     */
+    private static List<Raptor.Journey> filterDominated(List<Raptor.Journey> journeys, long startTime, long walkTime, boolean profileQuery, boolean ignoreTransfers) {
+        List<Raptor.Journey> result = new ArrayList<>();
+        for (Raptor.Journey journey : journeys) {
+            if (walkTime >= 0 && journey.arrivalTime - (profileQuery ? journey.departureTime : startTime) >= walkTime)
+                continue;
+            boolean dominated = false;
+            for (Raptor.Journey other : journeys) {
+                if (other == journey)
+                    continue;
+                boolean notWorse = (!profileQuery || other.departureTime >= journey.departureTime)
+                        && other.arrivalTime <= journey.arrivalTime
+                        && (ignoreTransfers || other.rides.size() <= journey.rides.size());
+                boolean better = profileQuery && other.departureTime > journey.departureTime
+                        || other.arrivalTime < journey.arrivalTime
+                        || !ignoreTransfers && other.rides.size() < journey.rides.size();
+                // of two equal journeys we keep the first
+                if (notWorse && (better || journeys.indexOf(other) < journeys.indexOf(journey))) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated)
+                result.add(journey);
+        }
+        return result;
+    }
+
+    private Trip.PtLeg createPtLeg(RaptorTimetable timetable, Raptor.Ride ride) {
+        int pattern = timetable.tripPatterns[ride.trip];
+        int route = timetable.patternRoutes[pattern];
+        String feedId = timetable.routeFeedIds[route];
+        GTFSFeed feed = gtfsStorage.getGtfsFeeds().get(feedId);
+        List<Trip.Stop> stops = new ArrayList<>();
+        List<Coordinate> coordinates = new ArrayList<>();
+        double distance = 0;
+        for (int position = ride.boardPosition; position <= ride.alightPosition; position++) {
+            Stop stop = feed.stops.get(timetable.stopIds[timetable.getPatternStop(pattern, position)]);
+            int index = timetable.getStopTimeIndex(ride.trip, position);
+            Date arrival = position == ride.boardPosition ? null : new Date((ride.serviceDayStart + timetable.arrivals[index]) * 1000);
+            Date departure = position == ride.alightPosition ? null : new Date((ride.serviceDayStart + timetable.departures[index]) * 1000);
+            Coordinate coordinate = new Coordinate(stop.stop_lon, stop.stop_lat);
+            stops.add(new Trip.Stop(stop.stop_id, stop.stop_name, geometryFactory.createPoint(coordinate),
+                    arrival, arrival, null, false, departure, departure, null, false));
+            if (!coordinates.isEmpty()) {
+                Coordinate previous = coordinates.get(coordinates.size() - 1);
+                distance += DistanceCalcEarth.DIST_EARTH.calcDist(previous.y, previous.x, coordinate.y, coordinate.x);
+            }
+            coordinates.add(coordinate);
+        }
+        long travelTime = (timetable.arrivals[timetable.getStopTimeIndex(ride.trip, ride.alightPosition)]
+                - timetable.departures[timetable.getStopTimeIndex(ride.trip, ride.boardPosition)]) * 1000L;
+        return new Trip.PtLeg(feedId, false, timetable.tripIds[ride.trip], timetable.routeIds[route], timetable.tripNames[ride.trip],
+                stops, distance, travelTime, geometryFactory.createLineString(coordinates.toArray(new Coordinate[0])));
+    }
+
+    /**
+     * Walks from a node to all stops, or from all stops to a node, within the street time limit.
+     */
+    private class WalkSearch {
+        private final QueryGraph queryGraph;
+        private final Request request;
+        private final boolean reverse;
+        private final long limitStreetTime;
+        final IntArrayList stops = new IntArrayList();
+        final List<Label> labels = new ArrayList<>();
+        Label destinationLabel;
+        int visitedNodes;
+
+        WalkSearch(QueryGraph queryGraph, Request request, boolean reverse, long limitStreetTime) {
+            this.queryGraph = queryGraph;
+            this.request = request;
+            this.reverse = reverse;
+            this.limitStreetTime = limitStreetTime;
+        }
+
+        void run(int node, int destNode, RaptorTimetable timetable) {
+            GraphExplorer explorer = new GraphExplorer(queryGraph, accessEgressWeighting, ptEncodedValues, gtfsStorage, realtimeFeed, reverse, true, request.getWalkSpeedKmH(), false);
+            MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(explorer, ptEncodedValues, reverse, false, false, false, request.getMaxVisitedNodes(), new ArrayList<>());
+            router.setBetaWalkTime(request.getBetaWalkTime());
+            router.setLimitStreetTime(limitStreetTime);
+            Set<Integer> settledNodes = new HashSet<>();
+            Iterator<Label> iterator = router.calcLabels(node, request.getEarliestDepartureTime(), request.getBlockedRouteTypes()).iterator();
+            while (iterator.hasNext()) {
+                Label label = iterator.next();
+                // the labels of a node come in the order of their weight, so the first one is the best
+                if (!settledNodes.add(label.adjNode))
+                    continue;
+                if (label.adjNode == destNode)
+                    destinationLabel = label;
+                IntArrayList stopsAtNode = timetable.stopsByStationNode.get(label.adjNode);
+                if (stopsAtNode == null)
+                    continue;
+                for (int i = 0; i < stopsAtNode.size(); i++) {
+                    stops.add(stopsAtNode.get(i));
+                    labels.add(label);
+                }
+            }
+            visitedNodes = router.getVisitedNodes();
+        }
+
+        long[] times() {
+            long[] times = new long[labels.size()];
+            for (int i = 0; i < times.length; i++)
+                times[i] = Math.abs(labels.get(i).currentTime - request.getEarliestDepartureTime().toEpochMilli());
+            return times;
+        }
+
+        /**
+         * @return the walk leg to or from the given stop, the times are adjusted to the trips later
+         */
+        List<Trip.Leg> createWalkLegs(int stop, Translation translation) {
+            int index = stops.indexOf(stop);
+            if (index < 0)
+                throw new IllegalStateException("Stop " + stop + " was not reached by walking");
+            List<Label.Transition> transitions = Label.getTransitions(labels.get(index), reverse, ptEncodedValues, queryGraph, realtimeFeed);
+            return tripFromLabel.parsePartitionToLegs(transitions, queryGraph, accessEgressWeighting, translation, request.getPathDetails());
+        }
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.*;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * The timetable of all feeds in the array layout that is used by {@link Raptor}. Trips of a route that visit the same
+ * sequence of stops and do not overtake each other form a pattern. The trips of a pattern are sorted by departure and
+ * their stop times are stored trip by trip, so scanning a trip is a sequential read of two int arrays. Frequency-based
+ * trips are expanded into one trip per departure like in the time-expanded graph.
+ * <p>
+ * Transfers between different stops are taken from the transfers of the feeds (which contain the walking time of
+ * transfer_type=0 after the import) and are free between stops that are connected to the same street node. Transfers
+ * at the same stop respect route specific minimum transfer times.
+ */
+final class RaptorTimetable {
+    private static final Logger logger = LoggerFactory.getLogger(RaptorTimetable.class);
+
+    final String[] stopFeedIds;
+    final String[] stopIds;
+    final int[] stopStationNodes;
+    final IntObjectMap<IntArrayList> stopsByStationNode;
+
+    // the stops of pattern p are patternStops[patternStopOffsets[p]..patternStopOffsets[p+1]-1]
+    final int[] patternStopOffsets;
+    final int[] patternStops;
+    // the trips of pattern p are patternTripOffsets[p]..patternTripOffsets[p+1]-1, sorted by departure
+    final int[] patternTripOffsets;
+    // the stop times of the first trip of pattern p start at patternStopTimeOffsets[p]
+    final int[] patternStopTimeOffsets;
+    final int[] patternRoutes;
+    // seconds since the start of the service day
+    final int[] arrivals;
+    final int[] departures;
+
+    // the occurrences of stop s in patterns are stopPatterns[stopPatternOffsets[s]..stopPatternOffsets[s+1]-1]
+    final int[] stopPatternOffsets;
+    final int[] stopPatterns;
+    final int[] stopPatternPositions;
+
+    final int[] tripPatterns;
+    final int[] tripServices;
+    final String[] tripIds;
+    final String[] tripNames;
+
+    final String[] routeFeedIds;
+    final String[] routeIds;
+    final int[] routeTypes;
+    final int[] routeZones;
+    final ZoneId[] zones;
+
+    final BitSet[] serviceDays;
+    final long[] serviceStartDays;
+
+    // the transfers from stop s to other stops are transferTargets[transferOffsets[s]..transferOffsets[s+1]-1]
+    final int[] transferOffsets;
+    final int[] transferTargets;
+    final int[] transferTimes;
+    // the rules for transfers within stop s are at ruleOffsets[s]..ruleOffsets[s+1]-1, routes are -1 if unspecified
+    final int[] ruleOffsets;
+    final int[] ruleFromRoutes;
+    final int[] ruleToRoutes;
+    final int[] ruleTimes;
+
+    private static class TripInstance {
+        final int route;
+        final int service;
+        final String tripId;
+        final String name;
+        final int[] stops;
+        final int[] arrivals;
+        final int[] departures;
+
+        TripInstance(int route, int service, String tripId, String name, int[] stops, int[] arrivals, int[] departures) {
+            this.route = route;
+            this.service = service;
+            this.tripId = tripId;
+            this.name = name;
+            this.stops = stops;
+            this.arrivals = arrivals;
+            this.departures = departures;
+        }
+
+        boolean isNotOvertakenBy(TripInstance other) {
+            for (int i = 0; i < stops.length; i++) {
+                if (other.departures[i] < departures[i] || other.arrivals[i] < arrivals[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    static RaptorTimetable create(Map<String, GTFSFeed> feeds, Map<GtfsStorage.FeedIdWithStopId, Integer> stationNodes) {
+        return new RaptorTimetable(feeds, stationNodes);
+    }
+
+    private RaptorTimetable(Map<String, GTFSFeed> feeds, Map<GtfsStorage.FeedIdWithStopId, Integer> stationNodes) {
+        List<String> feedIds = new ArrayList<>(new TreeSet<>(feeds.keySet()));
+        Map<GtfsStorage.FeedIdWithStopId, Integer> stopIndex = new HashMap<>();
+        List<String> stopFeedIdList = new ArrayList<>(), stopIdList = new ArrayList<>();
+        IntArrayList stationNodeList = new IntArrayList();
+        stopsByStationNode = new GHIntObjectHashMap<>();
+        for (String feedId : feedIds) {
+            for (Stop gtfsStop : feeds.get(feedId).stops.values()) {
+                GtfsStorage.FeedIdWithStopId key = new GtfsStorage.FeedIdWithStopId(feedId, gtfsStop.stop_id);
+                Integer stationNode = stationNodes.get(key);
+                if (stationNode == null)
+                    continue;
+                int stop = stopIdList.size();
+                stopIndex.put(key, stop);
+                stopFeedIdList.add(feedId);
+                stopIdList.add(key.stopId);
+                stationNodeList.add(stationNode);
+                IntArrayList stops = stopsByStationNode.get(stationNode);
+                if (stops == null) {
+                    stops = new IntArrayList(1);
+                    stopsByStationNode.put(stationNode, stops);
+                }
+                stops.add(stop);
+            }
+        }
+        stopFeedIds = stopFeedIdList.toArray(new String[0]);
+        stopIds = stopIdList.toArray(new String[0]);
+        stopStationNodes = stationNodeList.toArray();
+        int stopCount = stopIds.length;
+
+        Map<String, Integer> routeIndex = new HashMap<>();
+        List<String> routeFeedIdList = new ArrayList<>(), routeIdList = new ArrayList<>();
+        IntArrayList routeTypeList = new IntArrayList(), routeZoneList = new IntArrayList();
+        List<ZoneId> zoneList = new ArrayList<>();
+        Map<String, Integer> serviceIndex = new HashMap<>();
+        List<BitSet> serviceDayList = new ArrayList<>();
+        List<Long> serviceStartDayList = new ArrayList<>();
+        // trips with the same route and stops, in the order in which they are found
+        Map<String, List<TripInstance>> tripGroups = new LinkedHashMap<>();
+        for (String feedId : feedIds) {
+            GTFSFeed feed = feeds.get(feedId);
+            LocalDate startDate = feed.getStartDate();
+            LocalDate endDate = feed.getEndDate();
+            for (Route route : feed.routes.values()) {
+                Agency agency = route.agency_id != null ? feed.agency.get(route.agency_id) : feed.agency.values().iterator().next();
+                ZoneId zoneId = ZoneId.of(agency.agency_timezone);
+                if (!zoneList.contains(zoneId))
+                    zoneList.add(zoneId);
+                routeIndex.put(feedId + ":" + route.route_id, routeIdList.size());
+                routeFeedIdList.add(feedId);
+                routeIdList.add(route.route_id);
+                routeTypeList.add(route.route_type);
+                routeZoneList.add(zoneList.indexOf(zoneId));
+            }
+            for (Trip trip : feed.trips.values()) {
+                Integer route = routeIndex.get(feedId + ":" + trip.route_id);
+                if (route == null)
+                    continue;
+                Integer service = serviceIndex.get(feedId + ":" + trip.service_id);
+                if (service == null) {
+                    Service gtfsService = feed.services.get(trip.service_id);
+                    BitSet validOnDay = new BitSet((int) DAYS.between(startDate, endDate));
+                    for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                        if (gtfsService != null && gtfsService.activeOn(date))
+                            validOnDay.set((int) DAYS.between(startDate, date));
+                    }
+                    service = serviceDayList.size();
+                    serviceIndex.put(feedId + ":" + trip.service_id, service);
+                    serviceDayList.add(validOnDay);
+                    serviceStartDayList.add(startDate.toEpochDay());
+                }
+                List<StopTime> stopTimes = new ArrayList<>();
+                feed.getInterpolatedStopTimesForTrip(trip.trip_id).forEach(stopTimes::add);
+                int[] stops = new int[stopTimes.size()];
+                boolean allStopsKnown = stopTimes.size() > 1;
+                for (int i = 0; i < stops.length && allStopsKnown; i++) {
+                    Integer stop = stopIndex.get(new GtfsStorage.FeedIdWithStopId(feedId, stopTimes.get(i).stop_id));
+                    allStopsKnown = stop != null;
+                    stops[i] = allStopsKnown ? stop : -1;
+                }
+                if (!allStopsKnown)
+                    continue;
+                Route gtfsRoute = feed.routes.get(trip.route_id);
+                String name = (gtfsRoute.route_long_name != null ? gtfsRoute.route_long_name : gtfsRoute.route_short_name) + " " + trip.trip_headsign;
+                List<TripInstance> group = tripGroups.computeIfAbsent(route + ":" + Arrays.toString(stops), k -> new ArrayList<>());
+                Collection<Frequency> frequencies = feed.getFrequencies(trip.trip_id);
+                if (frequencies.isEmpty()) {
+                    group.add(createTripInstance(route, service, trip.trip_id, name, stops, stopTimes, 0));
+                } else {
+                    // like GtfsReader, we add the start times to the stop times of frequency-based trips
+                    for (Frequency frequency : frequencies) {
+                        for (int time = frequency.start_time; time < frequency.end_time; time += frequency.headway_secs) {
+                            group.add(createTripInstance(route, service, trip.trip_id, name, stops, stopTimes, time));
+                        }
+                    }
+                }
+            }
+        }
+        routeFeedIds = routeFeedIdList.toArray(new String[0]);
+        routeIds = routeIdList.toArray(new String[0]);
+        routeTypes = routeTypeList.toArray();
+        routeZones = routeZoneList.toArray();
+        zones = zoneList.toArray(new ZoneId[0]);
+        serviceDays = serviceDayList.toArray(new BitSet[0]);
+        serviceStartDays = serviceStartDayList.stream().mapToLong(Long::longValue).toArray();
+
+        // a pattern must not contain trips that overtake each other, so we split the groups if necessary
+        List<List<TripInstance>> patterns = new ArrayList<>();
+        for (List<TripInstance> group : tripGroups.values()) {
+            group.sort(Comparator.comparingInt(t -> t.departures[0]));
+            List<List<TripInstance>> groupPatterns = new ArrayList<>();
+            for (TripInstance trip : group) {
+                List<TripInstance> pattern = null;
+                for (List<TripInstance> p : groupPatterns) {
+                    if (p.get(p.size() - 1).isNotOvertakenBy(trip)) {
+                        pattern = p;
+                        break;
+                    }
+                }
+                if (pattern == null) {
+                    pattern = new ArrayList<>();
+                    groupPatterns.add(pattern);
+                }
+                pattern.add(trip);
+            }
+            patterns.addAll(groupPatterns);
+        }
+
+        int patternCount = patterns.size();
+        patternStopOffsets = new int[patternCount + 1];
+        patternTripOffsets = new int[patternCount + 1];
+        patternStopTimeOffsets = new int[patternCount];
+        patternRoutes = new int[patternCount];
+        int tripCount = 0, stopTimeCount = 0, patternStopCount = 0;
+        for (List<TripInstance> pattern : patterns) {
+            tripCount += pattern.size();
+            stopTimeCount += pattern.size() * pattern.get(0).stops.length;
+            patternStopCount += pattern.get(0).stops.length;
+        }
+        patternStops = new int[patternStopCount];
+        arrivals = new int[stopTimeCount];
+        departures = new int[stopTimeCount];
+        tripPatterns = new int[tripCount];
+        tripServices = new int[tripCount];
+        tripIds = new String[tripCount];
+        tripNames = new String[tripCount];
+        int[] stopPatternCounts = new int[stopCount];
+        int trip = 0, stopTime = 0;
+        for (int p = 0; p < patternCount; p++) {
+            List<TripInstance> pattern = patterns.get(p);
+            int[] stops = pattern.get(0).stops;
+            System.arraycopy(stops, 0, patternStops, patternStopOffsets[p], stops.length);
+            patternStopOffsets[p + 1] = patternStopOffsets[p] + stops.length;
+            for (int stop : stops)
+                stopPatternCounts[stop]++;
+            patternTripOffsets[p] = trip;
+            patternStopTimeOffsets[p] = stopTime;
+            patternRoutes[p] = pattern.get(0).route;
+            for (TripInstance instance : pattern) {
+                tripPatterns[trip] = p;
+                tripServices[trip] = instance.service;
+                tripIds[trip] = instance.tripId;
+                tripNames[trip] = instance.name;
+                System.arraycopy(instance.arrivals, 0, arrivals, stopTime, stops.length);
+                System.arraycopy(instance.departures, 0, departures, stopTime, stops.length);
+                stopTime += stops.length;
+                trip++;
+            }
+        }
+        patternTripOffsets[patternCount] = trip;
+
+        stopPatternOffsets = new int[stopCount + 1];
+        for (int s = 0; s < stopCount; s++)
+            stopPatternOffsets[s + 1] = stopPatternOffsets[s] + stopPatternCounts[s];
+        stopPatterns = new int[stopPatternOffsets[stopCount]];
+        stopPatternPositions = new int[stopPatterns.length];
+        int[] stopPatternFill = Arrays.copyOf(stopPatternOffsets, stopCount);
+        for (int p = 0; p < patternCount; p++) {
+            for (int i = patternStopOffsets[p]; i < patternStopOffsets[p + 1]; i++) {
+                int index = stopPatternFill[patternStops[i]]++;
+                stopPatterns[index] = p;
+                stopPatternPositions[index] = i - patternStopOffsets[p];
+            }
+        }
+
+        transferOffsets = new int[stopCount + 1];
+        ruleOffsets = new int[stopCount + 1];
+        IntArrayList transferTargetList = new IntArrayList(), transferTimeList = new IntArrayList();
+        IntArrayList ruleFromRouteList = new IntArrayList(), ruleToRouteList = new IntArrayList(), ruleTimeList = new IntArrayList();
+        Map<String, Transfers> transfersByFeed = new HashMap<>();
+        for (int s = 0; s < stopCount; s++) {
+            String feedId = stopFeedIds[s];
+            Transfers transfers = transfersByFeed.computeIfAbsent(feedId, id -> new Transfers(feeds.get(id)));
+            // the minimum walking time to every other stop, regardless of the routes
+            Map<Integer, Integer> walkingTimes = new LinkedHashMap<>();
+            for (int other : stopsByStationNode.get(stopStationNodes[s]).toArray()) {
+                if (other != s)
+                    walkingTimes.put(other, 0);
+            }
+            for (Transfer transfer : transfers.getAllTransfersFromStop(stopIds[s])) {
+                Integer target = stopIndex.get(new GtfsStorage.FeedIdWithStopId(feedId, transfer.to_stop_id));
+                if (target == null)
+                    continue;
+                if (target == s) {
+                    addRoute(ruleFromRouteList, routeIndex, feedId, transfer.from_route_id);
+                    addRoute(ruleToRouteList, routeIndex, feedId, transfer.to_route_id);
+                    ruleTimeList.add(transfer.min_transfer_time);
+                } else {
+                    walkingTimes.merge(target, transfer.min_transfer_time, Math::min);
+                }
+            }
+            walkingTimes.forEach((target, time) -> {
+                transferTargetList.add(target);
+                transferTimeList.add(time);
+            });
+            transferOffsets[s + 1] = transferTargetList.size();
+            ruleOffsets[s + 1] = ruleTimeList.size();
+        }
+        transferTargets = transferTargetList.toArray();
+        transferTimes = transferTimeList.toArray();
+        ruleFromRoutes = ruleFromRouteList.toArray();
+        ruleToRoutes = ruleToRouteList.toArray();
+        ruleTimes = ruleTimeList.toArray();
+        logger.info("Created raptor timetable with " + stopCount + " stops, " + patternCount + " patterns, "
+                + tripCount + " trips and " + transferTargets.length + " transfers");
+    }
+
+    private static void addRoute(IntArrayList list, Map<String, Integer> routeIndex, String feedId, String routeId) {
+        Integer route = routeId == null ? null : routeIndex.get(feedId + ":" + routeId);
+        list.add(route == null ? -1 : route);
+    }
+
+    private static TripInstance createTripInstance(int route, int service, String tripId, String name, int[] stops, List<StopTime> stopTimes, int offset) {
+        int[] arrivals = new int[stops.length];
+        int[] departures = new int[stops.length];
+        for (int i = 0; i < stops.length; i++) {
+            arrivals[i] = stopTimes.get(i).arrival_time + offset;
+            departures[i] = stopTimes.get(i).departure_time + offset;
+        }
+        return new TripInstance(route, service, tripId, name, stops, arrivals, departures);
+    }
+
+    int getStopCount() {
+        return stopIds.length;
+    }
+
+    int getPatternCount() {
+        return patternRoutes.length;
+    }
+
+    int getPatternStopCount(int pattern) {
+        return patternStopOffsets[pattern + 1] - patternStopOffsets[pattern];
+    }
+
+    int getPatternStop(int pattern, int position) {
+        return patternStops[patternStopOffsets[pattern] + position];
+    }
+
+    /**
+     * @return the index of the stop time of the given trip at the given position of its pattern
+     */
+    int getStopTimeIndex(int trip, int position) {
+        int pattern = tripPatterns[trip];
+        return patternStopTimeOffsets[pattern] + (trip - patternTripOffsets[pattern]) * getPatternStopCount(pattern) + position;
+    }
+
+    boolean isActive(int trip, long epochDay) {
+        int service = tripServices[trip];
+        long day = epochDay - serviceStartDays[service];
+        return day >= 0 && day < Integer.MAX_VALUE && serviceDays[service].get((int) day);
+    }
+
+    /**
+     * @return the minimum time in seconds to change from the given route to the given route at the given stop. The
+     * most specific rule wins, like for the time-expanded graph.
+     */
+    int getMinTransferTime(int stop, int fromRoute, int toRoute) {
+        int bestScore = -1, time = 0;
+        for (int i = ruleOffsets[stop]; i < ruleOffsets[stop + 1]; i++) {
+            if (ruleFromRoutes[i] >= 0 && ruleFromRoutes[i] != fromRoute || ruleToRoutes[i] >= 0 && ruleToRoutes[i] != toRoute)
+                continue;
+            int score = (ruleFromRoutes[i] >= 0 ? 1 : 0) + (ruleToRoutes[i] >= 0 ? 1 : 0);
+            if (score > bestScore) {
+                bestScore = score;
+                time = ruleTimes[i];
+            }
+        }
+        return time;
+    }
+}
@@ -62,44 +62,364 @@ import static java.time.temporal.ChronoUnit.DAYS;
 public class RealtimeFeed {
     private static final Logger logger = LoggerFactory.getLogger(RealtimeFeed.class);
     private final IntHashSet blockedEdges;
-    private final IntLongHashMap delaysForBoardEdges;
     private final IntLongHashMap delaysForAlightEdges;
-    private final List<VirtualEdgeIteratorState> additionalEdges;
+    private final Overlay overlay;
     public final Map<String, GtfsRealtime.FeedMessage> feedMessages;
+    private final Map<String, FeedState> feedStates;
+    private final int touchedTrips;
     private final GtfsStorage staticGtfs;
-    private final Map<Integer, byte[]> additionalTripDescriptors;
-    private final Map<Integer, Integer> stopSequences;
-    private final Map<Integer, GtfsStorage.Validity> validities;
-    private final Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge;
 
-    private RealtimeFeed(GtfsStorage staticGtfs, Map<String, GtfsRealtime.FeedMessage> feedMessages, IntHashSet blockedEdges,
-                         IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges, List<VirtualEdgeIteratorState> additionalEdges, Map<Integer, byte[]> tripDescriptors, Map<Integer, Integer> stopSequences, Map<GtfsStorage.Validity, Integer> operatingDayPatterns, Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones, Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge) {
+    /**
+     * The trip updates of one feed message, with the derived effects of the SCHEDULED trips
+     */
+    private static class FeedState {
+        final LocalDate date;
+        final Map<GtfsRealtime.TripDescriptor, TripEffects> scheduledTrips;
+        final List<GtfsRealtime.TripUpdate> addedTrips;
+
+        FeedState(LocalDate date, Map<GtfsRealtime.TripDescriptor, TripEffects> scheduledTrips, List<GtfsRealtime.TripUpdate> addedTrips) {
+            this.date = date;
+            this.scheduledTrips = scheduledTrips;
+            this.addedTrips = addedTrips;
+        }
+    }
+
+    /**
+     * What a SCHEDULED trip update changes on the edges of its trip. Delayed departures need additional edges, which
+     * are created with the {@link Overlay}.
+     */
+    private static class TripEffects {
+        final GtfsRealtime.TripUpdate tripUpdate;
+        final IntHashSet blockedEdges = new IntHashSet();
+        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
+        final List<DelayedDeparture> delayedDepartures = new ArrayList<>();
+
+        TripEffects(GtfsRealtime.TripUpdate tripUpdate) {
+            this.tripUpdate = tripUpdate;
+        }
+    }
+
+    private static class DelayedDeparture {
+        final int stopSequence;
+        final int departureTime;
+        final int departureNode;
+        final long delay;
+
+        DelayedDeparture(int stopSequence, int departureTime, int departureNode, long delay) {
+            this.stopSequence = stopSequence;
+            this.departureTime = departureTime;
+            this.departureNode = departureNode;
+            this.delay = delay;
+        }
+    }
+
+    /**
+     * The edges that are added to the graph for delayed departures and added trips, and what is stored for them
+     */
+    private static class Overlay {
+        final List<VirtualEdgeIteratorState> additionalEdges;
+        final IntLongHashMap delaysForBoardEdges;
+        final Map<Integer, byte[]> tripDescriptors;
+        final Map<Integer, Integer> stopSequences;
+        // only the validities and platform descriptors that are not contained in the static tables
+        final Map<Integer, GtfsStorage.Validity> validities;
+        final Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge;
+
+        Overlay(List<VirtualEdgeIteratorState> additionalEdges, IntLongHashMap delaysForBoardEdges, Map<Integer, byte[]> tripDescriptors, Map<Integer, Integer> stopSequences, Map<Integer, GtfsStorage.Validity> validities, Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge) {
+            this.additionalEdges = additionalEdges;
+            this.delaysForBoardEdges = delaysForBoardEdges;
+            this.tripDescriptors = tripDescriptors;
+            this.stopSequences = stopSequences;
+            this.validities = validities;
+            this.platformDescriptorByEdge = platformDescriptorByEdge;
+        }
+    }
+
+    private RealtimeFeed(GtfsStorage staticGtfs, Map<String, GtfsRealtime.FeedMessage> feedMessages, Map<String, FeedState> feedStates, int touchedTrips,
+                         IntHashSet blockedEdges, IntLongHashMap delaysForAlightEdges, Overlay overlay) {
         this.staticGtfs = staticGtfs;
         this.feedMessages = feedMessages;
+        this.feedStates = feedStates;
+        this.touchedTrips = touchedTrips;
         this.blockedEdges = blockedEdges;
-        this.delaysForBoardEdges = delaysForBoardEdges;
         this.delaysForAlightEdges = delaysForAlightEdges;
-        this.additionalEdges = additionalEdges;
-        this.additionalTripDescriptors = tripDescriptors;
-        this.stopSequences = stopSequences;
-        Map<Integer, GtfsStorage.Validity> reverseOperatingDayPatterns = new HashMap<>();
-        for (Map.Entry<GtfsStorage.Validity, Integer> entry : operatingDayPatterns.entrySet()) {
-            reverseOperatingDayPatterns.put(entry.getValue(), entry.getKey());
-        }
-        this.validities = Collections.unmodifiableMap(reverseOperatingDayPatterns);
-        this.platformDescriptorByEdge = platformDescriptorByEdge;
+        this.overlay = overlay;
     }
 
     public static RealtimeFeed empty(GtfsStorage staticGtfs) {
-        return new RealtimeFeed(staticGtfs, Collections.emptyMap(), new IntHashSet(), new IntLongHashMap(), new IntLongHashMap(), Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(), staticGtfs.getOperatingDayPatterns(), staticGtfs.getWritableTimeZones(), staticGtfs.getPlatformDescriptorByEdge());
+        return new RealtimeFeed(staticGtfs, Collections.emptyMap(), Collections.emptyMap(), 0, new IntHashSet(), new IntLongHashMap(),
+                new Overlay(Collections.emptyList(), new IntLongHashMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap()));
     }
 
     public static RealtimeFeed fromProtobuf(GraphHopperStorage graphHopperStorage, GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
-        final IntHashSet blockedEdges = new IntHashSet();
+        return empty(staticGtfs).update(graphHopperStorage, transfers, feedMessages);
+    }
+
+    /**
+     * Creates the realtime feed for the given feed messages from this one, which is not modified. Only the trip updates
+     * that differ from the ones of this feed are derived again. The additional edges for delayed departures and added
+     * trips are wired up with each other, so they are only created again if one of these trips changed.
+     */
+    public RealtimeFeed update(GraphHopperStorage graphHopperStorage, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        Map<String, FeedState> newFeedStates = new HashMap<>();
+        List<TripEffects> removedEffects = new ArrayList<>();
+        List<TripEffects> addedEffects = new ArrayList<>();
+        int touchedTrips = 0;
+        boolean overlayChanged = false;
+        for (Map.Entry<String, FeedState> entry : feedStates.entrySet()) {
+            if (!feedMessages.containsKey(entry.getKey())) {
+                removedEffects.addAll(entry.getValue().scheduledTrips.values());
+                touchedTrips += entry.getValue().scheduledTrips.size() + entry.getValue().addedTrips.size();
+                overlayChanged = true;
+            }
+        }
+        for (Map.Entry<String, GtfsRealtime.FeedMessage> entry : feedMessages.entrySet()) {
+            String feedKey = entry.getKey();
+            GtfsRealtime.FeedMessage feedMessage = entry.getValue();
+            GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
+            ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
+            Instant timestamp = Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp());
+            LocalDate dateToChange = timestamp.atZone(timezone).toLocalDate(); //FIXME
+            FeedState previousState = feedStates.get(feedKey);
+            Map<GtfsRealtime.TripDescriptor, TripEffects> previousTrips = previousState != null ? previousState.scheduledTrips : Collections.emptyMap();
+            Map<GtfsRealtime.TripDescriptor, TripEffects> scheduledTrips = new HashMap<>();
+            List<GtfsRealtime.TripUpdate> addedTrips = new ArrayList<>();
+            for (GtfsRealtime.FeedEntity feedEntity : feedMessage.getEntityList()) {
+                if (!feedEntity.hasTripUpdate()) {
+                    continue;
+                }
+                GtfsRealtime.TripUpdate tripUpdate = feedEntity.getTripUpdate();
+                if (tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED) {
+                    addedTrips.add(tripUpdate);
+                } else if (tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED) {
+                    if (scheduledTrips.containsKey(tripUpdate.getTrip())) {
+                        logger.warn("Ignoring duplicate trip update: {}", tripUpdate.getTrip());
+                        continue;
+                    }
+                    // producers typically refresh the timestamp of every trip update, even if nothing else changed
+                    GtfsRealtime.TripUpdate withoutTimestamp = tripUpdate.toBuilder().clearTimestamp().build();
+                    TripEffects previous = previousTrips.get(tripUpdate.getTrip());
+                    if (previous != null && previous.tripUpdate.equals(withoutTimestamp)) {
+                        scheduledTrips.put(tripUpdate.getTrip(), previous);
+                        continue;
+                    }
+                    TripEffects effects = deriveEffects(graphHopperStorage, staticGtfs, feed, withoutTimestamp);
+                    touchedTrips++;
+                    if (previous != null) {
+                        removedEffects.add(previous);
+                        overlayChanged |= !previous.delayedDepartures.isEmpty();
+                    }
+                    addedEffects.add(effects);
+                    overlayChanged |= !effects.delayedDepartures.isEmpty();
+                    scheduledTrips.put(tripUpdate.getTrip(), effects);
+                }
+            }
+            for (Map.Entry<GtfsRealtime.TripDescriptor, TripEffects> previous : previousTrips.entrySet()) {
+                if (!scheduledTrips.containsKey(previous.getKey())) {
+                    removedEffects.add(previous.getValue());
+                    touchedTrips++;
+                    overlayChanged |= !previous.getValue().delayedDepartures.isEmpty();
+                }
+            }
+            if (previousState == null || !previousState.addedTrips.equals(addedTrips)) {
+                touchedTrips += addedTrips.size();
+                overlayChanged = true;
+            }
+            // the validity of the additional edges is the day of the feed message
+            if (previousState == null || !previousState.date.equals(dateToChange)) {
+                overlayChanged = true;
+            }
+            newFeedStates.put(feedKey, new FeedState(dateToChange, scheduledTrips, addedTrips));
+        }
+
+        IntHashSet blockedEdges = this.blockedEdges;
+        IntLongHashMap delaysForAlightEdges = this.delaysForAlightEdges;
+        if (!removedEffects.isEmpty() || !addedEffects.isEmpty()) {
+            blockedEdges = new IntHashSet(this.blockedEdges);
+            delaysForAlightEdges = new IntLongHashMap(this.delaysForAlightEdges);
+            for (TripEffects effects : removedEffects) {
+                blockedEdges.removeAll(effects.blockedEdges);
+                delaysForAlightEdges.removeAll(effects.delaysForAlightEdges.keys());
+            }
+            for (TripEffects effects : addedEffects) {
+                blockedEdges.addAll(effects.blockedEdges);
+                delaysForAlightEdges.putAll(effects.delaysForAlightEdges);
+            }
+        }
+        Overlay overlay = overlayChanged ? createOverlay(graphHopperStorage, staticGtfs, transfers, newFeedStates) : this.overlay;
+        return new RealtimeFeed(staticGtfs, feedMessages, newFeedStates, touchedTrips, blockedEdges, delaysForAlightEdges, overlay);
+    }
+
+    /**
+     * @return the number of trip updates that were added, changed or removed when this feed was created
+     */
+    public int getTouchedTrips() {
+        return touchedTrips;
+    }
+
+    private static TripEffects deriveEffects(GraphHopperStorage graphHopperStorage, GtfsStorage staticGtfs, GTFSFeed feed, GtfsRealtime.TripUpdate tripUpdate) {
+        TripEffects effects = new TripEffects(tripUpdate);
+        Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
+        int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
+        String key = GtfsStorage.tripKey(tripUpdate.getTrip(), !frequencies.isEmpty());
+        final int[] boardEdges = staticGtfs.getBoardEdgesForTrip().get(key);
+        final int[] leaveEdges = staticGtfs.getAlightEdgesForTrip().get(key);
+        if (boardEdges == null || leaveEdges == null) {
+            logger.warn("Trip not found: {}", tripUpdate.getTrip());
+            return effects;
+        }
+        tripUpdate.getStopTimeUpdateList().stream()
+                .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
+                .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
+                .forEach(skippedStopSequenceNumber -> {
+                    effects.blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
+                    effects.blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
+                });
+        GtfsReader.TripWithStopTimes tripWithStopTimes = toTripWithStopTimes(feed, tripUpdate);
+        tripWithStopTimes.stopTimes.forEach(stopTime -> {
+            if (stopTime.stop_sequence > leaveEdges.length - 1) {
+                logger.warn("Stop sequence number too high {} vs {}", stopTime.stop_sequence, leaveEdges.length);
+                return;
+            }
+            final StopTime originalStopTime = feed.stop_times.get(new Fun.Tuple2(tripUpdate.getTrip().getTripId(), stopTime.stop_sequence));
+            int arrivalDelay = stopTime.arrival_time - originalStopTime.arrival_time;
+            effects.delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
+            int departureDelay = stopTime.departure_time - originalStopTime.departure_time;
+            if (departureDelay > 0) {
+                int boardEdge = boardEdges[stopTime.stop_sequence];
+                int departureNode = graphHopperStorage.getEdgeIteratorState(boardEdge, Integer.MIN_VALUE).getAdjNode();
+                effects.delayedDepartures.add(new DelayedDeparture(stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, departureDelay * 1000));
+            }
+        });
+        return effects;
+    }
+
+    private static Overlay createOverlay(GraphHopperStorage graphHopperStorage, GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, FeedState> feedStates) {
         final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
-        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
         final LinkedList<VirtualEdgeIteratorState> additionalEdges = new LinkedList<>();
-        final Graph overlayGraph = new Graph() {
+        final Graph overlayGraph = createOverlayGraph(graphHopperStorage, additionalEdges);
+
+        // the static operating day patterns and platform descriptors are read from their tables, only the new ones
+        // are kept here
+        final int staticValidityCount = staticGtfs.getValidityCount();
+        Map<GtfsStorage.Validity, Integer> operatingDayPatterns = new HashMap<>();
+        Map<Integer, GtfsStorage.Validity> validities = new HashMap<>();
+        Map<Integer, byte[]> tripDescriptors = new HashMap<>();
+        Map<Integer, Integer> stopSequences = new HashMap<>();
+        Map<String, int[]> boardEdgesForTrip = new HashMap<>();
+        Map<String, int[]> alightEdgesForTrip = new HashMap<>();
+        Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones = new HashMap<>(staticGtfs.getWritableTimeZones());
+        Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge = new HashMap<>();
+
+        feedStates.forEach((feedKey, feedState) -> {
+            GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
+            ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
+            GtfsStorageI gtfsStorage = new GtfsStorageI() {
+                @Override
+                public Map<String, Map<String, Fare>> getFares() {
+                    return null;
+                }
+
+                @Override
+                public int getValidityId(GtfsStorage.Validity validity) {
+                    Integer staticValidityId = staticGtfs.findValidityId(validity);
+                    if (staticValidityId != null)
+                        return staticValidityId;
+                    return operatingDayPatterns.computeIfAbsent(validity, v -> {
+                        int validityId = staticValidityCount + validities.size();
+                        validities.put(validityId, v);
+                        return validityId;
+                    });
+                }
+
+                @Override
+                public Map<GtfsStorage.FeedIdWithTimezone, Integer> getWritableTimeZones() {
+                    return writableTimeZones;
+                }
+
+                @Override
+                public Map<Integer, GtfsStorage.FeedIdWithTimezone> getTimeZones() {
+                    return staticGtfs.getTimeZones();
+                }
+
+                @Override
+                public Map<Integer, byte[]> getTripDescriptors() {
+                    return tripDescriptors;
+                }
+
+                @Override
+                public Map<Integer, Integer> getStopSequences() {
+                    return stopSequences;
+                }
+
+                @Override
+                public Map<String, int[]> getBoardEdgesForTrip() {
+                    return boardEdgesForTrip;
+                }
+
+                @Override
+                public Map<String, int[]> getAlightEdgesForTrip() {
+                    return alightEdgesForTrip;
+                }
+
+                @Override
+                public Map<String, GTFSFeed> getGtfsFeeds() {
+                    HashMap<String, GTFSFeed> stringGTFSFeedHashMap = new HashMap<>();
+                    stringGTFSFeedHashMap.put(feedKey, feed);
+                    return stringGTFSFeedHashMap;
+                }
+
+                @Override
+                public Map<GtfsStorage.FeedIdWithStopId, Integer> getStationNodes() {
+                    return staticGtfs.getStationNodes();
+                }
+
+                @Override
+                public void putPlatformDescriptor(int edge, PlatformDescriptor platformDescriptor) {
+                    platformDescriptorByEdge.put(edge, platformDescriptor);
+                }
+
+                @Override
+                public PlatformDescriptor getPlatformDescriptor(int edge) {
+                    PlatformDescriptor platformDescriptor = staticGtfs.getPlatformDescriptor(edge);
+                    return platformDescriptor != null ? platformDescriptor : platformDescriptorByEdge.get(edge);
+                }
+            };
+            final GtfsReader gtfsReader = new GtfsReader(feedKey, overlayGraph, graphHopperStorage.getEncodingManager(), gtfsStorage, null, transfers.get(feedKey));
+            BitSet validOnDay = new BitSet();
+            LocalDate startDate = feed.getStartDate();
+            validOnDay.set((int) DAYS.between(startDate, feedState.date));
+            feedState.scheduledTrips.values().forEach(effects -> effects.delayedDepartures.forEach(delayedDeparture -> {
+                int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, effects.tripUpdate.getTrip(), delayedDeparture.stopSequence, delayedDeparture.departureTime, delayedDeparture.departureNode, validOnDay);
+                delaysForBoardEdges.put(delayedBoardEdge, delayedDeparture.delay);
+            }));
+            feedState.addedTrips.forEach(tripUpdate -> {
+                Trip trip = new Trip();
+                trip.trip_id = tripUpdate.getTrip().getTripId();
+                trip.route_id = tripUpdate.getTrip().getRouteId();
+                final List<StopTime> stopTimes = tripUpdate.getStopTimeUpdateList().stream()
+                        .map(stopTimeUpdate -> {
+                            final StopTime stopTime = new StopTime();
+                            stopTime.stop_sequence = stopTimeUpdate.getStopSequence();
+                            stopTime.stop_id = stopTimeUpdate.getStopId();
+                            stopTime.trip_id = trip.trip_id;
+                            final ZonedDateTime arrival_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
+                            stopTime.arrival_time = (int) Duration.between(arrival_time.truncatedTo(ChronoUnit.DAYS), arrival_time).getSeconds();
+                            final ZonedDateTime departure_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
+                            stopTime.departure_time = (int) Duration.between(departure_time.truncatedTo(ChronoUnit.DAYS), departure_time).getSeconds();
+                            return stopTime;
+                        })
+                        .collect(Collectors.toList());
+                GtfsReader.TripWithStopTimes tripWithStopTimes = new GtfsReader.TripWithStopTimes(trip, stopTimes, validOnDay, Collections.emptySet(), Collections.emptySet());
+                gtfsReader.addTrip(timezone, 0, new ArrayList<>(), tripWithStopTimes, tripUpdate.getTrip(), false);
+            });
+            gtfsReader.wireUpAdditionalDeparturesAndArrivals(timezone);
+        });
+        return new Overlay(additionalEdges, delaysForBoardEdges, tripDescriptors, stopSequences, validities, platformDescriptorByEdge);
+    }
+
+    private static Graph createOverlayGraph(GraphHopperStorage graphHopperStorage, LinkedList<VirtualEdgeIteratorState> additionalEdges) {
+        return new Graph() {
             int firstEdge = graphHopperStorage.getEdges();
             EncodingManager encodingManager = graphHopperStorage.getEncodingManager();
             final NodeAccess nodeAccess = new NodeAccess() {
@@ -262,149 +582,6 @@ public class RealtimeFeed {
                 throw new UnsupportedOperationException();
             }
         };
-
-        Map<GtfsStorage.Validity, Integer> operatingDayPatterns = new HashMap<>(staticGtfs.getOperatingDayPatterns());
-        Map<Integer, byte[]> tripDescriptors = new HashMap<>();
-        Map<Integer, Integer> stopSequences = new HashMap<>();
-        Map<String, int[]> boardEdgesForTrip = new HashMap<>();
-        Map<String, int[]> alightEdgesForTrip = new HashMap<>();
-        Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones = new HashMap<>(staticGtfs.getWritableTimeZones());
-        Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge = new HashMap<>(staticGtfs.getPlatformDescriptorByEdge()); // FIXME: Too slow for production
-
-        feedMessages.forEach((feedKey, feedMessage) -> {
-            GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
-            ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().agency_timezone);
-            GtfsStorageI gtfsStorage = new GtfsStorageI() {
-                @Override
-                public Map<String, Map<String, Fare>> getFares() {
-                    return null;
-                }
-
-                @Override
-                public Map<GtfsStorage.Validity, Integer> getOperatingDayPatterns() {
-                    return operatingDayPatterns;
-                }
-
-                @Override
-                public Map<GtfsStorage.FeedIdWithTimezone, Integer> getWritableTimeZones() {
-                    return writableTimeZones;
-                }
-
-                @Override
-                public Map<Integer, GtfsStorage.FeedIdWithTimezone> getTimeZones() {
-                    return staticGtfs.getTimeZones();
-                }
-
-                @Override
-                public Map<Integer, byte[]> getTripDescriptors() {
-                    return tripDescriptors;
-                }
-
-                @Override
-                public Map<Integer, Integer> getStopSequences() {
-                    return stopSequences;
-                }
-
-                @Override
-                public Map<String, int[]> getBoardEdgesForTrip() {
-                    return boardEdgesForTrip;
-                }
-
-                @Override
-                public Map<String, int[]> getAlightEdgesForTrip() {
-                    return alightEdgesForTrip;
-                }
-
-                @Override
-                public Map<String, GTFSFeed> getGtfsFeeds() {
-                    HashMap<String, GTFSFeed> stringGTFSFeedHashMap = new HashMap<>();
-                    stringGTFSFeedHashMap.put(feedKey, feed);
-                    return stringGTFSFeedHashMap;
-                }
-
-                @Override
-                public Map<GtfsStorage.FeedIdWithStopId, Integer> getStationNodes() {
-                    return staticGtfs.getStationNodes();
-                }
-
-                @Override
-                public Map<Integer, PlatformDescriptor> getPlatformDescriptorByEdge() {
-                    return platformDescriptorByEdge;
-                }
-            };
-            final GtfsReader gtfsReader = new GtfsReader(feedKey, overlayGraph, graphHopperStorage.getEncodingManager(), gtfsStorage, null, transfers.get(feedKey));
-            Instant timestamp = Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp());
-            LocalDate dateToChange = timestamp.atZone(timezone).toLocalDate(); //FIXME
-            BitSet validOnDay = new BitSet();
-            LocalDate startDate = feed.getStartDate();
-            validOnDay.set((int) DAYS.between(startDate, dateToChange));
-            feedMessage.getEntityList().stream()
-                    .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
-                    .map(GtfsRealtime.FeedEntity::getTripUpdate)
-                    .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED)
-                    .forEach(tripUpdate -> {
-                        Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
-                        int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
-                        String key = GtfsStorage.tripKey(tripUpdate.getTrip(), !frequencies.isEmpty());
-                        final int[] boardEdges = staticGtfs.getBoardEdgesForTrip().get(key);
-                        final int[] leaveEdges = staticGtfs.getAlightEdgesForTrip().get(key);
-                        if (boardEdges == null || leaveEdges == null) {
-                            logger.warn("Trip not found: {}", tripUpdate.getTrip());
-                            return;
-                        }
-                        tripUpdate.getStopTimeUpdateList().stream()
-                                .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
-                                .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
-                                .forEach(skippedStopSequenceNumber -> {
-                                    blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
-                                    blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
-                                });
-                        GtfsReader.TripWithStopTimes tripWithStopTimes = toTripWithStopTimes(feed, tripUpdate);
-                        tripWithStopTimes.stopTimes.forEach(stopTime -> {
-                            if (stopTime.stop_sequence > leaveEdges.length - 1) {
-                                logger.warn("Stop sequence number too high {} vs {}", stopTime.stop_sequence, leaveEdges.length);
-                                return;
-                            }
-                            final StopTime originalStopTime = feed.stop_times.get(new Fun.Tuple2(tripUpdate.getTrip().getTripId(), stopTime.stop_sequence));
-                            int arrivalDelay = stopTime.arrival_time - originalStopTime.arrival_time;
-                            delaysForAlightEdges.put(leaveEdges[stopTime.stop_sequence], arrivalDelay * 1000);
-                            int departureDelay = stopTime.departure_time - originalStopTime.departure_time;
-                            if (departureDelay > 0) {
-                                int boardEdge = boardEdges[stopTime.stop_sequence];
-                                int departureNode = graphHopperStorage.getEdgeIteratorState(boardEdge, Integer.MIN_VALUE).getAdjNode();
-                                int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripUpdate.getTrip(), stopTime.stop_sequence, stopTime.departure_time + timeOffset, departureNode, validOnDay);
-                                delaysForBoardEdges.put(delayedBoardEdge, departureDelay * 1000);
-                            }
-                        });
-                    });
-            feedMessage.getEntityList().stream()
-                    .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
-                    .map(GtfsRealtime.FeedEntity::getTripUpdate)
-                    .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED)
-                    .forEach(tripUpdate -> {
-                        Trip trip = new Trip();
-                        trip.trip_id = tripUpdate.getTrip().getTripId();
-                        trip.route_id = tripUpdate.getTrip().getRouteId();
-                        final List<StopTime> stopTimes = tripUpdate.getStopTimeUpdateList().stream()
-                                .map(stopTimeUpdate -> {
-                                    final StopTime stopTime = new StopTime();
-                                    stopTime.stop_sequence = stopTimeUpdate.getStopSequence();
-                                    stopTime.stop_id = stopTimeUpdate.getStopId();
-                                    stopTime.trip_id = trip.trip_id;
-                                    final ZonedDateTime arrival_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
-                                    stopTime.arrival_time = (int) Duration.between(arrival_time.truncatedTo(ChronoUnit.DAYS), arrival_time).getSeconds();
-                                    final ZonedDateTime departure_time = Instant.ofEpochSecond(stopTimeUpdate.getArrival().getTime()).atZone(timezone);
-                                    stopTime.departure_time = (int) Duration.between(departure_time.truncatedTo(ChronoUnit.DAYS), departure_time).getSeconds();
-                                    return stopTime;
-                                })
-                                .collect(Collectors.toList());
-                        GtfsReader.TripWithStopTimes tripWithStopTimes = new GtfsReader.TripWithStopTimes(trip, stopTimes, validOnDay, Collections.emptySet(), Collections.emptySet());
-                        gtfsReader.addTrip(timezone, 0, new ArrayList<>(), tripWithStopTimes, tripUpdate.getTrip(), false);
-                    });
-            gtfsReader.wireUpAdditionalDeparturesAndArrivals(timezone);
-        });
-
-        return new RealtimeFeed(staticGtfs, feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges, tripDescriptors, stopSequences, operatingDayPatterns, writableTimeZones, platformDescriptorByEdge);
     }
 
     boolean isBlocked(int edgeId) {
@@ -412,7 +589,7 @@ public class RealtimeFeed {
     }
 
     List<VirtualEdgeIteratorState> getAdditionalEdges() {
-        return additionalEdges;
+        return overlay.additionalEdges;
     }
 
     public Optional<GtfsReader.TripWithStopTimes> getTripUpdate(GTFSFeed staticFeed, GtfsRealtime.TripDescriptor tripDescriptor, Label.Transition boardEdge, Instant boardTime) {
@@ -542,7 +719,7 @@ public class RealtimeFeed {
 
     public long getDelayForBoardEdge(EdgeIteratorState edge, Instant now) {
         if (isThisRealtimeUpdateAboutThisLineRun(edge, now)) {
-            return delaysForBoardEdges.getOrDefault(edge.getEdge(), 0);
+            return overlay.delaysForBoardEdges.getOrDefault(edge.getEdge(), 0);
         } else {
             return 0;
         }
@@ -575,11 +752,13 @@ public class RealtimeFeed {
     }
 
     public byte[] getTripDescriptor(int edge) {
-        return staticGtfs.getTripDescriptors().getOrDefault(edge, additionalTripDescriptors.get(edge));
+        byte[] tripDescriptor = staticGtfs.getTripDescriptor(edge);
+        return tripDescriptor != null ? tripDescriptor : overlay.tripDescriptors.get(edge);
     }
 
     public int getStopSequence(int edge) {
-        return staticGtfs.getStopSequences().getOrDefault(edge, stopSequences.get(edge));
+        int stopSequence = staticGtfs.getStopSequence(edge);
+        return stopSequence != TripEdgeTable.NO_STOP_SEQUENCE ? stopSequence : overlay.stopSequences.get(edge);
     }
 
     public StopTime getStopTime(GTFSFeed staticFeed, GtfsRealtime.TripDescriptor tripDescriptor, Label.Transition t, Instant boardTime, int stopSequence) {
@@ -592,11 +771,14 @@ public class RealtimeFeed {
     }
 
     public GtfsStorage.Validity getValidity(int validityId) {
-        return validities.get(validityId);
+        if (validityId < staticGtfs.getValidityCount())
+            return staticGtfs.getValidity(validityId);
+        return overlay.validities.get(validityId);
     }
 
-    public Map<Integer, GtfsStorageI.PlatformDescriptor> getPlatformDescriptorByEdge() {
-        return platformDescriptorByEdge;
+    public GtfsStorageI.PlatformDescriptor getPlatformDescriptor(int edge) {
+        GtfsStorageI.PlatformDescriptor platformDescriptor = staticGtfs.getPlatformDescriptor(edge);
+        return platformDescriptor != null ? platformDescriptor : overlay.platformDescriptorByEdge.get(edge);
     }
 
 }
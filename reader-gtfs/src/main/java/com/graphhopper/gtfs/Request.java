@@ -29,6 +29,16 @@ import java.util.List;
 import java.util.Locale;
 
 public class Request {
+    /**
+     * The multi-criteria label setting search on the time-expanded graph, which supports all options.
+     */
+    public static final String ALGORITHM_LABEL_SETTING = "label_setting";
+    /**
+     * Round-based search directly on the timetable. It only supports departure time queries, ignores realtime
+     * updates and uses the street network only to get to the first and from the last stop.
+     */
+    public static final String ALGORITHM_RAPTOR = "raptor";
+
     private List<GHLocation> points;
     private Instant earliestDepartureTime;
     private int maxVisitedNodes = 1_000_000;
@@ -44,6 +54,7 @@ public class Request {
     private Duration limitStreetTime;
     private Duration maxProfileDuration = Duration.ofHours(1);
     private List<String> pathDetails = new ArrayList<>();
+    private String algorithm = ALGORITHM_LABEL_SETTING;
 
     public Request(List<GHLocation> points, Instant departureTime) {
         this.points = points;
@@ -169,4 +180,12 @@ public class Request {
     public void setPathDetails(List<String> pathDetails) {
         this.pathDetails = pathDetails;
     }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
 }
@@ -107,6 +107,13 @@ public class Transfers {
         return result;
     }
 
+    // All transfers from the stop that are possible, for all routes.
+    List<Transfer> getAllTransfersFromStop(String fromStopId) {
+        return transfersFromStop.getOrDefault(fromStopId, Collections.emptyList()).stream()
+                .filter(t -> t.transfer_type == 0 || t.transfer_type == 2)
+                .collect(Collectors.toList());
+    }
+
     private Transfer findMostSpecificRule(List<Transfer> transfers, String fromRouteId, String toRouteId) {
         final ArrayList<Transfer> transfersBySpecificity = new ArrayList<>(transfers);
         transfersBySpecificity.sort(Comparator.comparingInt(t -> {
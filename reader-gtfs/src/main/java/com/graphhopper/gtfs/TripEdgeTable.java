@@ -0,0 +1,217 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The stop sequences, trip descriptors and platform descriptors of the edges of the transit graph, keyed by edge id.
+ * The edge table has a fixed width of |stop_sequence|trip_descriptor_pointer|platform_descriptor_pointer| per edge.
+ * The trip and platform descriptors are deduplicated and stored as |length|bytes| records in sibling tables. All of
+ * them are kept in {@link DataAccess}es, so a lookup is a read at a computed offset and nothing needs to be
+ * deserialized into the heap when the graph is loaded.
+ */
+class TripEdgeTable {
+    static final int NO_STOP_SEQUENCE = Integer.MIN_VALUE;
+    private static final int BYTES_PER_EDGE = 12;
+    private static final int E_STOP_SEQUENCE = 0;
+    private static final int E_TRIP_DESCRIPTOR = 4;
+    private static final int E_PLATFORM_DESCRIPTOR = 8;
+    private static final byte ROUTE_PLATFORM = 0;
+    private static final byte ROUTE_TYPE_PLATFORM = 1;
+
+    private final DataAccess edges;
+    private final Records tripDescriptors;
+    private final Records platformDescriptors;
+    private int edgeCount;
+
+    TripEdgeTable(Directory dir) {
+        this.edges = dir.find("pt_trip_edges");
+        this.tripDescriptors = new Records(dir.find("pt_trip_descriptors"));
+        this.platformDescriptors = new Records(dir.find("pt_platform_descriptors"));
+    }
+
+    /**
+     * Writes the table for the edges 0 to edgeCount-1. Edges that are not contained in the maps get neither a stop
+     * sequence nor a trip or platform descriptor.
+     */
+    void build(int edgeCount, Map<Integer, Integer> stopSequences, Map<Integer, byte[]> tripDescriptorsByEdge,
+               Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorsByEdge) {
+        this.edgeCount = edgeCount;
+        edges.create((long) edgeCount * BYTES_PER_EDGE);
+        tripDescriptors.create();
+        platformDescriptors.create();
+        for (int edge = 0; edge < edgeCount; edge++) {
+            Integer stopSequence = stopSequences.get(edge);
+            edges.setInt((long) edge * BYTES_PER_EDGE + E_STOP_SEQUENCE, stopSequence == null ? NO_STOP_SEQUENCE : stopSequence);
+            byte[] tripDescriptor = tripDescriptorsByEdge.get(edge);
+            edges.setInt((long) edge * BYTES_PER_EDGE + E_TRIP_DESCRIPTOR, tripDescriptor == null ? Records.NO_RECORD : tripDescriptors.add(tripDescriptor));
+            GtfsStorageI.PlatformDescriptor platformDescriptor = platformDescriptorsByEdge.get(edge);
+            edges.setInt((long) edge * BYTES_PER_EDGE + E_PLATFORM_DESCRIPTOR, platformDescriptor == null ? Records.NO_RECORD : platformDescriptors.add(toBytes(platformDescriptor)));
+        }
+        edges.setHeader(0, edgeCount);
+        edges.flush();
+        tripDescriptors.flush();
+        platformDescriptors.flush();
+    }
+
+    boolean loadExisting() {
+        if (!edges.loadExisting() || !tripDescriptors.loadExisting() || !platformDescriptors.loadExisting())
+            return false;
+        edgeCount = edges.getHeader(0);
+        return true;
+    }
+
+    /**
+     * @return the stop sequence of the given edge or {@link #NO_STOP_SEQUENCE} if there is none, e.g. because
+     * the edge was added by a realtime update
+     */
+    int getStopSequence(int edge) {
+        if (edge >= edgeCount)
+            return NO_STOP_SEQUENCE;
+        return edges.getInt((long) edge * BYTES_PER_EDGE + E_STOP_SEQUENCE);
+    }
+
+    /**
+     * @return the serialized trip descriptor of the given edge or null if there is none
+     */
+    byte[] getTripDescriptor(int edge) {
+        if (edge >= edgeCount)
+            return null;
+        return tripDescriptors.get(edges.getInt((long) edge * BYTES_PER_EDGE + E_TRIP_DESCRIPTOR));
+    }
+
+    /**
+     * @return the platform descriptor of the given edge or null if there is none
+     */
+    GtfsStorageI.PlatformDescriptor getPlatformDescriptor(int edge) {
+        if (edge >= edgeCount)
+            return null;
+        byte[] bytes = platformDescriptors.get(edges.getInt((long) edge * BYTES_PER_EDGE + E_PLATFORM_DESCRIPTOR));
+        return bytes == null ? null : fromBytes(bytes);
+    }
+
+    void close() {
+        edges.close();
+        tripDescriptors.close();
+        platformDescriptors.close();
+    }
+
+    private static byte[] toBytes(GtfsStorageI.PlatformDescriptor platformDescriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (platformDescriptor instanceof GtfsStorageI.RoutePlatform) {
+                out.writeByte(ROUTE_PLATFORM);
+                out.writeUTF(platformDescriptor.feed_id);
+                out.writeUTF(platformDescriptor.stop_id);
+                out.writeUTF(((GtfsStorageI.RoutePlatform) platformDescriptor).route_id);
+            } else {
+                out.writeByte(ROUTE_TYPE_PLATFORM);
+                out.writeUTF(platformDescriptor.feed_id);
+                out.writeUTF(platformDescriptor.stop_id);
+                out.writeInt(((GtfsStorageI.RouteTypePlatform) platformDescriptor).route_type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static GtfsStorageI.PlatformDescriptor fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte type = in.readByte();
+            String feedId = in.readUTF();
+            String stopId = in.readUTF();
+            if (type == ROUTE_PLATFORM)
+                return GtfsStorageI.PlatformDescriptor.route(feedId, stopId, in.readUTF());
+            return GtfsStorageI.PlatformDescriptor.routeType(feedId, stopId, in.readInt());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deduplicated |length|bytes| records in a {@link DataAccess}, referenced by their offset
+     */
+    static class Records {
+        static final int NO_RECORD = -1;
+        private final DataAccess da;
+        // only used while the records are added
+        private Map<ByteBuffer, Integer> pointers;
+        private long size;
+
+        Records(DataAccess da) {
+            this.da = da;
+        }
+
+        void create() {
+            da.create(1 << 16);
+            pointers = new HashMap<>();
+            size = 0;
+        }
+
+        /**
+         * @return the pointer to the record with the given bytes, which is only added if there is none yet
+         */
+        int add(byte[] bytes) {
+            Integer existing = pointers.get(ByteBuffer.wrap(bytes));
+            if (existing != null)
+                return existing;
+            if (size + 4 + bytes.length > Integer.MAX_VALUE)
+                throw new IllegalStateException("Too many records in " + da.getName() + ": " + pointers.size());
+            int pointer = (int) size;
+            da.ensureCapacity(size + 4 + bytes.length);
+            da.setInt(size, bytes.length);
+            da.setBytes(size + 4, bytes, bytes.length);
+            size += 4 + bytes.length;
+            pointers.put(ByteBuffer.wrap(bytes), pointer);
+            return pointer;
+        }
+
+        /**
+         * @return the bytes of the record at the given pointer or null if it is {@link #NO_RECORD}
+         */
+        byte[] get(int pointer) {
+            if (pointer == NO_RECORD)
+                return null;
+            byte[] bytes = new byte[da.getInt(pointer)];
+            da.getBytes(pointer + 4, bytes, bytes.length);
+            return bytes;
+        }
+
+        boolean loadExisting() {
+            return da.loadExisting();
+        }
+
+        void flush() {
+            pointers = null;
+            da.flush();
+        }
+
+        void close() {
+            da.close();
+        }
+    }
+}
@@ -69,8 +69,10 @@ class TripFromLabel {
     }
 
     ResponsePath createResponsePath(Translation tr, PointList waypoints, Graph queryGraph, Weighting accessEgressWeighting, List<Label.Transition> solution, List<String> requestedPathDetails) {
-        final List<Trip.Leg> legs = buildLegs(tr, queryGraph, accessEgressWeighting, solution, requestedPathDetails);
+        return createResponsePath(tr, waypoints, buildLegs(tr, queryGraph, accessEgressWeighting, solution, requestedPathDetails));
+    }
 
+    ResponsePath createResponsePath(Translation tr, PointList waypoints, List<Trip.Leg> legs) {
         if (legs.size() > 1 && legs.get(0) instanceof Trip.WalkLeg) {
             final Trip.WalkLeg accessLeg = (Trip.WalkLeg) legs.get(0);
             legs.set(0, new Trip.WalkLeg(accessLeg.departureLocation, new Date(legs.get(1).getDepartureTime().getTime() - (accessLeg.getArrivalTime().getTime() - accessLeg.getDepartureTime().getTime())),
@@ -322,7 +324,7 @@ class TripFromLabel {
     // One could argue that one should never write a parser
     // by hand, because it is always ugly, but use a parser library.
     // The code would then read like a specification of what paths through the graph mean.
-    private List<Trip.Leg> parsePartitionToLegs(List<Label.Transition> path, Graph graph, Weighting weighting, Translation tr, List<String> requestedPathDetails) {
+    List<Trip.Leg> parsePartitionToLegs(List<Label.Transition> path, Graph graph, Weighting weighting, Translation tr, List<String> requestedPathDetails) {
         if (path.size() <= 1) {
             return Collections.emptyList();
         }
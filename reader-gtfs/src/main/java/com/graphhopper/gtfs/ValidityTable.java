@@ -0,0 +1,131 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.gtfs;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The operating day patterns ({@link GtfsStorage.Validity}) of the board and alight edges, keyed by their validity
+ * id. The index table has a fixed width of |pointer| per validity id and the validities are stored as
+ * |length|start|zone_id|bits| records in a sibling table. A validity is only deserialized when it is requested for
+ * the first time, because the routing needs one for every board and alight edge it explores.
+ */
+class ValidityTable {
+    private final DataAccess index;
+    private final TripEdgeTable.Records records;
+    private int count;
+    private AtomicReferenceArray<GtfsStorage.Validity> cache;
+    // only created if a realtime update needs to look up the id of a validity
+    private Map<GtfsStorage.Validity, Integer> ids;
+
+    ValidityTable(Directory dir) {
+        this.index = dir.find("pt_validity_index");
+        this.records = new TripEdgeTable.Records(dir.find("pt_validities"));
+    }
+
+    /**
+     * Writes the given validities, the list index being the validity id
+     */
+    void build(List<GtfsStorage.Validity> validities) {
+        count = validities.size();
+        index.create(Math.max(4, (long) count * 4));
+        records.create();
+        for (int id = 0; id < count; id++)
+            index.setInt((long) id * 4, records.add(toBytes(validities.get(id))));
+        index.setHeader(0, count);
+        index.flush();
+        records.flush();
+        cache = new AtomicReferenceArray<>(count);
+    }
+
+    boolean loadExisting() {
+        if (!index.loadExisting() || !records.loadExisting())
+            return false;
+        count = index.getHeader(0);
+        cache = new AtomicReferenceArray<>(count);
+        return true;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    GtfsStorage.Validity get(int id) {
+        GtfsStorage.Validity validity = cache.get(id);
+        if (validity == null) {
+            validity = fromBytes(records.get(index.getInt((long) id * 4)));
+            cache.set(id, validity);
+        }
+        return validity;
+    }
+
+    /**
+     * @return the id of the given validity or null if it is not contained in this table
+     */
+    synchronized Integer findId(GtfsStorage.Validity validity) {
+        if (ids == null) {
+            ids = new HashMap<>(count);
+            for (int id = 0; id < count; id++)
+                ids.put(get(id), id);
+        }
+        return ids.get(validity);
+    }
+
+    void close() {
+        index.close();
+        records.close();
+    }
+
+    private static byte[] toBytes(GtfsStorage.Validity validity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(validity.start.toEpochDay());
+            out.writeUTF(validity.zoneId.getId());
+            long[] bits = validity.validity.toLongArray();
+            out.writeInt(bits.length);
+            for (long word : bits)
+                out.writeLong(word);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static GtfsStorage.Validity fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            LocalDate start = LocalDate.ofEpochDay(in.readLong());
+            ZoneId zoneId = ZoneId.of(in.readUTF());
+            long[] bits = new long[in.readInt()];
+            for (int i = 0; i < bits.length; i++)
+                bits[i] = in.readLong();
+            return new GtfsStorage.Validity(BitSet.valueOf(bits), zoneId, start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.File;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
@@ -90,6 +91,31 @@ public class GraphHopperMultimodalIT {
                 .isEqualTo(LocalTime.parse("06:52:02.729"));
     }
 
+    @Test
+    public void testAccessAndEgressLegsWithRaptor() {
+        Request ghRequest = new Request(
+                36.91311729030539, -116.76769495010377,
+                36.91260259593356, -116.76149368286134
+        );
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 40, 0).atZone(zoneId).toInstant());
+        ghRequest.setAlgorithm(Request.ALGORITHM_RAPTOR);
+        // Otherwise walking all the way is faster, and raptor only looks at arrival time and number of trips.
+        ghRequest.setLimitStreetTime(Duration.ofMinutes(5));
+
+        GHResponse response = graphHopper.route(ghRequest);
+
+        assertThat(response.getAll()).hasSize(1);
+        ResponsePath firstTransitSolution = response.getBest();
+        assertThat(firstTransitSolution.getLegs().get(0).getDepartureTime().toInstant().atZone(zoneId).toLocalTime())
+                .isEqualTo(LocalTime.parse("06:41:04.833"));
+        assertThat(firstTransitSolution.getLegs().get(0).getArrivalTime().toInstant())
+                .isEqualTo(firstTransitSolution.getLegs().get(1).getDepartureTime().toInstant());
+        assertThat(firstTransitSolution.getLegs().get(2).getArrivalTime().toInstant().atZone(zoneId).toLocalTime())
+                .isEqualTo(LocalTime.parse("06:52:02.729"));
+        assertThat(firstTransitSolution.getLegs().get(0).distance + firstTransitSolution.getLegs().get(2).distance)
+                .isEqualTo(497.0809678713282); // Total walking distance
+    }
+
     @Test
     public void testDepartureTimeOfAccessLeg() {
         Request ghRequest = new Request(
@@ -0,0 +1,276 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper;
+
+import com.graphhopper.gtfs.*;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.TranslationMap;
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.graphhopper.gtfs.GtfsHelper.time;
+import static org.junit.Assert.*;
+
+public class RaptorIT {
+
+    private static final String GRAPH_LOC = "target/RaptorIT";
+    private static PtRouter ptRouter;
+    private static final ZoneId zoneId = ZoneId.of("America/Los_Angeles");
+    private static GraphHopperGtfs graphHopperGtfs;
+    // the stops of the sample feed, without the one that has no routes
+    private static final List<GHPoint> STOPS = Arrays.asList(
+            new GHPoint(36.425288, -117.133162), // FUR_CREEK_RES
+            new GHPoint(36.868446, -116.784582), // BEATTY_AIRPORT
+            new GHPoint(36.88108, -116.81797), // BULLFROG
+            new GHPoint(36.915682, -116.751677), // STAGECOACH
+            new GHPoint(36.914893, -116.76821), // NADAV
+            new GHPoint(36.914944, -116.761472), // NANAA
+            new GHPoint(36.909489, -116.768242), // DADAN
+            new GHPoint(36.905697, -116.76218), // EMSI
+            new GHPoint(36.641496, -116.40094)); // AMV
+
+    @BeforeClass
+    public static void init() {
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.flag_encoders", "car,foot");
+        ghConfig.putObject("graph.location", GRAPH_LOC);
+        ghConfig.putObject("gtfs.file", "files/sample-feed.zip");
+        Helper.removeDir(new File(GRAPH_LOC));
+        graphHopperGtfs = new GraphHopperGtfs(ghConfig);
+        graphHopperGtfs.init(ghConfig);
+        graphHopperGtfs.importOrLoad();
+        ptRouter = PtRouterImpl.createFactory(new TranslationMap().doImport(), graphHopperGtfs, graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage())
+                .createWithoutRealtimeFeed();
+    }
+
+    @AfterClass
+    public static void close() {
+        graphHopperGtfs.close();
+    }
+
+    private static Request createRequest(GHPoint from, GHPoint to, LocalDateTime time, String algorithm) {
+        Request request = new Request(from.lat, from.lon, to.lat, to.lon);
+        request.setEarliestDepartureTime(time.atZone(zoneId).toInstant());
+        request.setAlgorithm(algorithm);
+        return request;
+    }
+
+    @Test
+    public void testSameEarliestArrivalAsLabelSetting() {
+        StringBuilder mismatches = new StringBuilder();
+        for (LocalDateTime time : Arrays.asList(LocalDateTime.of(2007, 1, 1, 0, 0), LocalDateTime.of(2007, 1, 1, 6, 54),
+                LocalDateTime.of(2007, 1, 1, 8, 30), LocalDateTime.of(2007, 1, 1, 15, 0), LocalDateTime.of(2007, 1, 6, 9, 0))) {
+            for (GHPoint from : STOPS) {
+                for (GHPoint to : STOPS) {
+                    if (from == to)
+                        continue;
+                    Request labelSettingRequest = createRequest(from, to, time, Request.ALGORITHM_LABEL_SETTING);
+                    labelSettingRequest.setIgnoreTransfers(true);
+                    GHResponse expected = ptRouter.route(labelSettingRequest);
+                    Request raptorRequest = createRequest(from, to, time, Request.ALGORITHM_RAPTOR);
+                    raptorRequest.setIgnoreTransfers(true);
+                    GHResponse actual = ptRouter.route(raptorRequest);
+                    String expectedTime = expected.hasErrors() ? "none" : Long.toString(expected.getBest().getTime());
+                    String actualTime = actual.hasErrors() ? "none" : Long.toString(actual.getBest().getTime());
+                    if (!expectedTime.equals(actualTime))
+                        mismatches.append(time).append(" ").append(from).append(" -> ").append(to).append(": ")
+                                .append(expectedTime).append(" != ").append(actualTime).append("\n");
+                }
+            }
+        }
+        assertEquals("", mismatches.toString());
+    }
+
+    @Test
+    public void testSameParetoSetAsLabelSetting() {
+        // raptor treats staying in the vehicle between the trips of a block as a transfer, so we leave out the stops
+        // where this makes a difference
+        List<GHPoint> stops = STOPS.subList(1, STOPS.size() - 1);
+        StringBuilder mismatches = new StringBuilder();
+        LocalDateTime time = LocalDateTime.of(2007, 1, 1, 5, 0);
+        for (GHPoint from : stops) {
+            for (GHPoint to : stops) {
+                if (from == to)
+                    continue;
+                List<String> expected = summarize(ptRouter.route(createRequest(from, to, time, Request.ALGORITHM_LABEL_SETTING)), true);
+                List<String> actual = summarize(ptRouter.route(createRequest(from, to, time, Request.ALGORITHM_RAPTOR)), true);
+                if (!expected.equals(actual))
+                    mismatches.append(from).append(" -> ").append(to).append(": ").append(expected).append(" != ").append(actual).append("\n");
+            }
+        }
+        assertEquals("", mismatches.toString());
+    }
+
+    @Test
+    public void testProfileContainsLabelSettingProfile() {
+        StringBuilder mismatches = new StringBuilder();
+        LocalDateTime time = LocalDateTime.of(2007, 1, 1, 7, 30);
+        for (GHPoint from : STOPS) {
+            for (GHPoint to : STOPS) {
+                if (from == to)
+                    continue;
+                Request labelSettingRequest = createRequest(from, to, time, Request.ALGORITHM_LABEL_SETTING);
+                labelSettingRequest.setProfileQuery(true);
+                Request raptorRequest = createRequest(from, to, time, Request.ALGORITHM_RAPTOR);
+                raptorRequest.setProfileQuery(true);
+                // we only compare the departures within the time window, and the label setting search sometimes
+                // stops before it found all of them
+                List<String> expected = summarize(ptRouter.route(labelSettingRequest), false).stream().filter(d -> d.compareTo("08:30") < 0).collect(Collectors.toList());
+                List<String> actual = summarize(ptRouter.route(raptorRequest), false).stream().filter(d -> d.compareTo("08:30") < 0).collect(Collectors.toList());
+                if (!actual.containsAll(expected))
+                    mismatches.append(from).append(" -> ").append(to).append(": ").append(expected).append(" != ").append(actual).append("\n");
+            }
+        }
+        assertEquals("", mismatches.toString());
+    }
+
+    @Test
+    public void testBlockedRouteTypes() {
+        Request request = createRequest(STOPS.get(4), STOPS.get(5), LocalDateTime.of(2007, 1, 1, 7, 44), Request.ALGORITHM_RAPTOR);
+        request.setBlockedRouteTypes(1); // Blocking trams shouldn't matter, this is a bus.
+        GHResponse response = ptRouter.route(request);
+        assertFalse(response.hasErrors());
+        assertEquals(time(0, 5), response.getBest().getTime());
+
+        request.setBlockedRouteTypes(8);
+        response = ptRouter.route(request);
+        assertTrue("When I block busses, there is no solution", response.getAll().isEmpty());
+    }
+
+    @Test
+    public void testLegs() {
+        // NADAV -> BEATTY_AIRPORT with the city bus and the shuttle
+        GHResponse response = ptRouter.route(createRequest(STOPS.get(4), STOPS.get(1), LocalDateTime.of(2007, 1, 1, 7, 0), Request.ALGORITHM_RAPTOR));
+        assertFalse(response.hasErrors());
+        ResponsePath path = response.getBest();
+        List<Trip.PtLeg> ptLegs = path.getLegs().stream().filter(l -> l instanceof Trip.PtLeg).map(l -> (Trip.PtLeg) l).collect(Collectors.toList());
+        assertEquals(2, ptLegs.size());
+        assertEquals("CITY", ptLegs.get(0).route_id);
+        assertEquals("NADAV", ptLegs.get(0).stops.get(0).stop_id);
+        assertEquals("STAGECOACH", ptLegs.get(0).stops.get(ptLegs.get(0).stops.size() - 1).stop_id);
+        assertEquals("STBA", ptLegs.get(1).route_id);
+        assertEquals("BEATTY_AIRPORT", ptLegs.get(1).stops.get(1).stop_id);
+        assertEquals(1, path.getNumChanges());
+        assertEquals(path.getLegs().get(path.getLegs().size() - 1).getArrivalTime().getTime() - path.getLegs().get(0).getDepartureTime().getTime(),
+                ptLegs.get(1).getArrivalTime().getTime() - ptLegs.get(0).getDepartureTime().getTime());
+    }
+
+    @Test
+    public void testTransferBeatsTripToSameStop() throws IOException {
+        // the SLOW trip reaches STAGECOACH at 8:40, but with the FAST trip and a walk we are there at 8:10 and can
+        // catch the ON trip at 8:20, the next one leaves at 9:20
+        String graphLoc = GRAPH_LOC + "-transfer";
+        Helper.removeDir(new File(graphLoc));
+        new File(graphLoc).mkdirs();
+        String feedFile = graphLoc + "/feed.zip";
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(feedFile))) {
+            addFeedFile(zip, "agency.txt", "agency_id,agency_name,agency_url,agency_timezone",
+                    "DTA,Demo Transit Authority,http://google.com,America/Los_Angeles");
+            addFeedFile(zip, "calendar.txt", "service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date",
+                    "FULLW,1,1,1,1,1,1,1,20070101,20101231");
+            addFeedFile(zip, "stops.txt", "stop_id,stop_name,stop_lat,stop_lon",
+                    "NADAV,North Ave / D Ave N,36.914893,-116.76821",
+                    "NANAA,North Ave / N A Ave,36.914944,-116.761472",
+                    "STAGECOACH,Stagecoach Hotel & Casino,36.915682,-116.751677",
+                    "AMV,Amargosa Valley,36.641496,-116.40094");
+            addFeedFile(zip, "routes.txt", "route_id,agency_id,route_short_name,route_long_name,route_type",
+                    "SLOW,DTA,1,Slow,3",
+                    "FAST,DTA,2,Fast,3",
+                    "ON,DTA,3,Onwards,3");
+            addFeedFile(zip, "trips.txt", "route_id,service_id,trip_id",
+                    "SLOW,FULLW,SLOW1",
+                    "FAST,FULLW,FAST1",
+                    "ON,FULLW,ON1",
+                    "ON,FULLW,ON2");
+            addFeedFile(zip, "stop_times.txt", "trip_id,arrival_time,departure_time,stop_id,stop_sequence",
+                    "SLOW1,8:00:00,8:00:00,NADAV,1",
+                    "SLOW1,8:40:00,8:40:00,STAGECOACH,2",
+                    "FAST1,8:00:00,8:00:00,NADAV,1",
+                    "FAST1,8:05:00,8:05:00,NANAA,2",
+                    "ON1,8:20:00,8:20:00,STAGECOACH,1",
+                    "ON1,9:00:00,9:00:00,AMV,2",
+                    "ON2,9:20:00,9:20:00,STAGECOACH,1",
+                    "ON2,10:00:00,10:00:00,AMV,2");
+            addFeedFile(zip, "transfers.txt", "from_stop_id,to_stop_id,transfer_type,min_transfer_time",
+                    "NANAA,STAGECOACH,2,300");
+        }
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.flag_encoders", "car,foot");
+        ghConfig.putObject("graph.location", graphLoc + "/graph");
+        ghConfig.putObject("gtfs.file", feedFile);
+        GraphHopperGtfs hopper = new GraphHopperGtfs(ghConfig);
+        hopper.init(ghConfig);
+        hopper.importOrLoad();
+        try {
+            PtRouter router = PtRouterImpl.createFactory(new TranslationMap().doImport(), hopper, hopper.getLocationIndex(), hopper.getGtfsStorage())
+                    .createWithoutRealtimeFeed();
+            GHResponse response = router.route(createRequest(STOPS.get(4), STOPS.get(8), LocalDateTime.of(2007, 1, 1, 7, 55), Request.ALGORITHM_RAPTOR));
+            assertFalse(response.hasErrors());
+            ResponsePath path = response.getBest();
+            assertEquals(time(1, 5), path.getTime());
+            List<Trip.PtLeg> ptLegs = path.getLegs().stream().filter(l -> l instanceof Trip.PtLeg).map(l -> (Trip.PtLeg) l).collect(Collectors.toList());
+            assertEquals(Arrays.asList("FAST", "ON"), ptLegs.stream().map(l -> l.route_id).collect(Collectors.toList()));
+            assertEquals("NANAA", ptLegs.get(0).stops.get(ptLegs.get(0).stops.size() - 1).stop_id);
+            assertEquals("STAGECOACH", ptLegs.get(1).stops.get(0).stop_id);
+        } finally {
+            hopper.close();
+        }
+    }
+
+    private static void addFeedFile(ZipOutputStream zip, String name, String... lines) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    @Test
+    public void testArriveByIsNotSupported() {
+        Request request = createRequest(STOPS.get(4), STOPS.get(5), LocalDateTime.of(2007, 1, 1, 7, 44), Request.ALGORITHM_RAPTOR);
+        request.setArriveBy(true);
+        try {
+            ptRouter.route(request);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not supported"));
+        }
+    }
+
+    private static List<String> summarize(GHResponse response, boolean withChanges) {
+        return response.getAll().stream()
+                .map(p -> p.getLegs().get(0).getDepartureTime().toInstant().atZone(zoneId).toLocalTime() + "-"
+                        + p.getLegs().get(p.getLegs().size() - 1).getArrivalTime().toInstant().atZone(zoneId).toLocalTime()
+                        + (withChanges ? "/" + p.getNumChanges() : ""))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -22,9 +22,12 @@ import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.gtfs.GraphHopperGtfs;
 import com.graphhopper.gtfs.PtRouter;
 import com.graphhopper.gtfs.PtRouterImpl;
+import com.graphhopper.gtfs.RealtimeFeed;
 import com.graphhopper.gtfs.Request;
+import com.graphhopper.gtfs.Transfers;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.TranslationMap;
+import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -32,6 +35,9 @@ import org.junit.Test;
 import java.io.File;
 import java.math.BigDecimal;
 import java.time.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import static com.google.transit.realtime.GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED;
 import static com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate.ScheduleRelationship.SCHEDULED;
@@ -730,6 +736,54 @@ public class RealtimeIT {
     }
 
 
+    @Test
+    public void testIncrementalUpdate() {
+        final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
+        final double TO_LAT = 36.914944, TO_LON = -116.761472; // NANAA stop
+        Request ghRequest = new Request(
+                FROM_LAT, FROM_LON,
+                TO_LAT, TO_LON
+        );
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007,1,1,6,44).atZone(zoneId).toInstant());
+
+        Map<String, Transfers> transfers = new HashMap<>();
+        graphHopperGtfs.getGtfsStorage().getGtfsFeeds().forEach((feedId, feed) -> transfers.put(feedId, new Transfers(feed)));
+        final GtfsRealtime.FeedMessage.Builder feedMessageBuilder = GtfsRealtime.FeedMessage.newBuilder();
+        feedMessageBuilder.setHeader(header());
+        feedMessageBuilder.addEntityBuilder()
+                .setId("1")
+                .getTripUpdateBuilder()
+                .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId("CITY2").setStartTime("06:00:00"))
+                .addStopTimeUpdateBuilder()
+                .setScheduleRelationship(SCHEDULED)
+                .setStopSequence(3)
+                .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder().setDelay(3600).build());
+        RealtimeFeed delayed = RealtimeFeed.fromProtobuf(graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getGtfsStorage(), transfers, Collections.singletonMap("gtfs_0", feedMessageBuilder.build()));
+        assertEquals(1, delayed.getTouchedTrips());
+
+        // A minute later, the same trip update is published again
+        feedMessageBuilder.getHeaderBuilder().setTimestamp(feedMessageBuilder.getHeader().getTimestamp() + 60);
+        feedMessageBuilder.getEntityBuilder(0).getTripUpdateBuilder().setTimestamp(feedMessageBuilder.getHeader().getTimestamp());
+        RealtimeFeed stillDelayed = delayed.update(graphHopperGtfs.getGraphHopperStorage(), transfers, Collections.singletonMap("gtfs_0", feedMessageBuilder.build()));
+        assertEquals(0, stillDelayed.getTouchedTrips());
+        GHResponse response = new PtRouterImpl(new TranslationMap().doImport(), graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage(), stillDelayed, new PathDetailsBuilderFactory()).route(ghRequest);
+        Trip.PtLeg bestPtLeg = (Trip.PtLeg) response.getBest().getLegs().get(0);
+        assertEquals(LocalDateTime.parse("2007-01-01T07:19:00").atZone(zoneId).toInstant(), bestPtLeg.stops.get(bestPtLeg.stops.size()-1).plannedArrivalTime.toInstant());
+
+        // The delay is gone
+        feedMessageBuilder.clearEntity();
+        RealtimeFeed onTime = stillDelayed.update(graphHopperGtfs.getGraphHopperStorage(), transfers, Collections.singletonMap("gtfs_0", feedMessageBuilder.build()));
+        assertEquals(1, onTime.getTouchedTrips());
+        response = new PtRouterImpl(new TranslationMap().doImport(), graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage(), onTime, new PathDetailsBuilderFactory()).route(ghRequest);
+        GHResponse staticResponse = graphHopperFactory.createWithoutRealtimeFeed().route(ghRequest);
+        assertEquals(staticResponse.getBest().getTime(), response.getBest().getTime());
+
+        // The feed we started from did not change
+        response = new PtRouterImpl(new TranslationMap().doImport(), graphHopperGtfs.getGraphHopperStorage(), graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage(), delayed, new PathDetailsBuilderFactory()).route(ghRequest);
+        bestPtLeg = (Trip.PtLeg) response.getBest().getLegs().get(0);
+        assertEquals(LocalDateTime.parse("2007-01-01T07:19:00").atZone(zoneId).toInstant(), bestPtLeg.stops.get(bestPtLeg.stops.size()-1).plannedArrivalTime.toInstant());
+    }
+
     public GtfsRealtime.FeedHeader.Builder header() {
         return GtfsRealtime.FeedHeader.newBuilder()
                 .setGtfsRealtimeVersion("1")
@@ -0,0 +1,83 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TripEdgeTableTest {
+    private static final String DIR = "./target/trip-edge-table";
+
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void storeAndLoad() {
+        Map<Integer, Integer> stopSequences = new HashMap<>();
+        Map<Integer, byte[]> tripDescriptors = new HashMap<>();
+        stopSequences.put(0, 0);
+        stopSequences.put(2, 7);
+        stopSequences.put(3, 8);
+        tripDescriptors.put(2, new byte[]{1, 2, 3});
+        tripDescriptors.put(3, new byte[]{1, 2, 3});
+        tripDescriptors.put(4, new byte[]{4});
+        Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptors = new HashMap<>();
+        platformDescriptors.put(1, GtfsStorageI.PlatformDescriptor.route("gtfs_0", "s1", "r1"));
+        platformDescriptors.put(3, GtfsStorageI.PlatformDescriptor.routeType("gtfs_0", "s1", 3));
+        platformDescriptors.put(4, GtfsStorageI.PlatformDescriptor.route("gtfs_0", "s1", "r1"));
+
+        TripEdgeTable table = new TripEdgeTable(new RAMDirectory(DIR, true).create());
+        table.build(5, stopSequences, tripDescriptors, platformDescriptors);
+        table.close();
+
+        table = new TripEdgeTable(new RAMDirectory(DIR, true));
+        assertTrue(table.loadExisting());
+        assertEquals(0, table.getStopSequence(0));
+        assertEquals(TripEdgeTable.NO_STOP_SEQUENCE, table.getStopSequence(1));
+        assertEquals(7, table.getStopSequence(2));
+        assertEquals(8, table.getStopSequence(3));
+        assertEquals(TripEdgeTable.NO_STOP_SEQUENCE, table.getStopSequence(4));
+        // edges added by realtime updates are not contained in the table
+        assertEquals(TripEdgeTable.NO_STOP_SEQUENCE, table.getStopSequence(5));
+
+        assertNull(table.getTripDescriptor(0));
+        assertArrayEquals(new byte[]{1, 2, 3}, table.getTripDescriptor(2));
+        assertArrayEquals(new byte[]{1, 2, 3}, table.getTripDescriptor(3));
+        assertArrayEquals(new byte[]{4}, table.getTripDescriptor(4));
+        assertNull(table.getTripDescriptor(5));
+
+        assertNull(table.getPlatformDescriptor(0));
+        assertEquals(GtfsStorageI.PlatformDescriptor.route("gtfs_0", "s1", "r1"), table.getPlatformDescriptor(1));
+        assertNull(table.getPlatformDescriptor(2));
+        assertEquals(GtfsStorageI.PlatformDescriptor.routeType("gtfs_0", "s1", 3), table.getPlatformDescriptor(3));
+        assertEquals(GtfsStorageI.PlatformDescriptor.route("gtfs_0", "s1", "r1"), table.getPlatformDescriptor(4));
+        assertNull(table.getPlatformDescriptor(5));
+        table.close();
+    }
+}
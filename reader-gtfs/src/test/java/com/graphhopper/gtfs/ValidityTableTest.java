@@ -0,0 +1,68 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.gtfs;
+
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValidityTableTest {
+    private static final String DIR = "./target/validity-table";
+
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void storeAndLoad() {
+        BitSet weekdays = new BitSet();
+        weekdays.set(0, 5);
+        weekdays.set(7, 12);
+        BitSet lateDay = new BitSet();
+        lateDay.set(200);
+        List<GtfsStorage.Validity> validities = Arrays.asList(
+                new GtfsStorage.Validity(weekdays, ZoneId.of("America/Los_Angeles"), LocalDate.of(2007, 1, 1)),
+                new GtfsStorage.Validity(lateDay, ZoneId.of("Europe/Berlin"), LocalDate.of(2020, 3, 1)),
+                new GtfsStorage.Validity(new BitSet(), ZoneId.of("Europe/Berlin"), LocalDate.of(2020, 3, 1)));
+
+        ValidityTable table = new ValidityTable(new RAMDirectory(DIR, true).create());
+        table.build(validities);
+        table.close();
+
+        table = new ValidityTable(new RAMDirectory(DIR, true));
+        assertTrue(table.loadExisting());
+        assertEquals(3, table.getCount());
+        for (int id = 0; id < validities.size(); id++) {
+            assertEquals(validities.get(id), table.get(id));
+            assertEquals(id, table.findId(validities.get(id)));
+        }
+        assertNull(table.findId(new GtfsStorage.Validity(weekdays, ZoneId.of("Europe/Berlin"), LocalDate.of(2007, 1, 1))));
+        table.close();
+    }
+}
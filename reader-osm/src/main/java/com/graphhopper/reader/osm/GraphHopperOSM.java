@@ -18,6 +18,7 @@
 package com.graphhopper.reader.osm;
 
 import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.json.geo.JsonFeatureCollection;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.routing.lm.PrepareLandmarks;
@@ -39,6 +40,8 @@ import java.util.List;
 public class GraphHopperOSM extends GraphHopper {
 
     private final JsonFeatureCollection landmarkSplittingFeatureCollection;
+    private int wayThreads = 1;
+    private String nodeMap = "btree";
 
     public GraphHopperOSM() {
         this(null);
@@ -49,9 +52,33 @@ public class GraphHopperOSM extends GraphHopper {
         this.landmarkSplittingFeatureCollection = landmarkSplittingFeatureCollection;
     }
 
+    @Override
+    public GraphHopper init(GraphHopperConfig ghConfig) {
+        super.init(ghConfig);
+        wayThreads = ghConfig.getInt("datareader.way_threads", wayThreads);
+        nodeMap = ghConfig.getString("datareader.node_map", nodeMap);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads that parse the OSM ways while importing, see {@link OSMReader#setWayThreads(int)}
+     */
+    public GraphHopperOSM setWayThreads(int wayThreads) {
+        this.wayThreads = wayThreads;
+        return this;
+    }
+
+    /**
+     * Sets the map from OSM node ids to internal node ids used while importing, see {@link OSMReader#setNodeMap(String)}
+     */
+    public GraphHopperOSM setNodeMap(String nodeMap) {
+        this.nodeMap = nodeMap;
+        return this;
+    }
+
     @Override
     protected DataReader createReader(GraphHopperStorage ghStorage) {
-        return initDataReader(new OSMReader(ghStorage));
+        return initDataReader(new OSMReader(ghStorage).setWayThreads(wayThreads).setNodeMap(nodeMap));
     }
 
     public String getOSMFile() {
@@ -37,6 +37,10 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -85,6 +89,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     private long skippedLocations;
     private final EncodingManager encodingManager;
     private int workerThreads = 2;
+    private int wayThreads = 1;
     // Using the correct Map<Long, Integer> is hard. We need a memory efficient and fast solution for big data sets!
     //
     // very slow: new SparseLongLongArray
@@ -95,6 +100,8 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     // smaller memory overhead for bigger data sets because of avoiding a "rehash"
     // remember how many times a node was used to identify tower nodes
     private LongIntMap osmNodeIdToInternalNodeMap;
+    // stores the node map off-heap if it is not a GHLongIntBTree
+    private Directory nodeMapDir;
     private GHLongLongHashMap osmNodeIdToNodeFlagsMap;
     private GHLongLongHashMap osmWayIdToRouteWeightMap;
     // stores osm way ids used by relations to identify which edge ids needs to be mapped later
@@ -163,7 +170,12 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
             long tmpRelationCounter = 1;
             ReaderElement item;
             while ((item = in.getNext()) != null) {
-                if (item.isType(ReaderElement.WAY)) {
+                if (item.isType(ReaderElement.NODE)) {
+                    // the node ids arrive in increasing order while the ways introduce them in 'wrong' order, so
+                    // the off-heap maps get all node ids first and the unused ones are removed after this pass
+                    if (nodeMapDir != null)
+                        getNodeMap().put(item.getId(), EMPTY_NODE);
+                } else if (item.isType(ReaderElement.WAY)) {
                     final ReaderWay way = (ReaderWay) item;
                     boolean valid = filterWay(way);
                     if (valid) {
@@ -197,6 +209,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                 }
 
             }
+            getNodeMap().optimize();
         } catch (Exception ex) {
             throw new RuntimeException("Problem while parsing file", ex);
         }
@@ -252,11 +265,14 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
+        WayBatch wayBatch = wayThreads > 1 ? new WayBatch() : null;
         try (OSMInput in = openOsmInputFile(osmFile)) {
             LongIntMap nodeFilter = getNodeMap();
 
             ReaderElement item;
             while ((item = in.getNext()) != null) {
+                if (wayBatch != null && item.getType() != ReaderElement.WAY)
+                    wayBatch.flush();
                 switch (item.getType()) {
                     case ReaderElement.NODE:
                         if (nodeFilter.get(item.getId()) != EMPTY_NODE) {
@@ -269,7 +285,10 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                             LOGGER.info(nf(counter) + ", now parsing ways");
                             wayStart = counter;
                         }
-                        processWay((ReaderWay) item);
+                        if (wayBatch != null)
+                            wayBatch.add((ReaderWay) item);
+                        else
+                            processWay((ReaderWay) item);
                         break;
                     case ReaderElement.RELATION:
                         if (relationStart < 0) {
@@ -288,12 +307,17 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                 }
             }
 
+            if (wayBatch != null)
+                wayBatch.flush();
             if (in.getUnprocessedElements() > 0)
                 throw new IllegalStateException("Still unprocessed elements in reader queue " + in.getUnprocessedElements());
 
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            if (wayBatch != null)
+                wayBatch.close();
         }
 
         finishedReading();
@@ -305,24 +329,99 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).open();
     }
 
+    /**
+     * Collects the ways to parse their tags and to prepare their edges in parallel. The ways are added to the graph in
+     * the order they were read from the file, so the node and edge ids are the same as for the sequential import.
+     */
+    private class WayBatch {
+        private static final int SIZE = 10_000;
+        private final List<ReaderWay> ways = new ArrayList<>(SIZE);
+        private final IntsRef[] edgeFlags = new IntsRef[SIZE];
+        private final WayEdges[] wayEdges = new WayEdges[SIZE];
+        private final ExecutorService executor = Executors.newFixedThreadPool(wayThreads, r -> {
+            Thread thread = new Thread(r, "osm-way-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        void add(ReaderWay way) {
+            ways.add(way);
+            if (ways.size() == SIZE)
+                flush();
+        }
+
+        void flush() {
+            if (ways.isEmpty())
+                return;
+            // the graph is not changed while the ways are parsed. A pillar node belongs to a single way, so only the
+            // ways with barriers depend on the ways added before them and are prepared when they are added
+            List<Future<?>> futures = new ArrayList<>(wayThreads);
+            for (int t = 0; t < wayThreads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    IntsRef relationFlags = encodingManager.createRelationFlags();
+                    for (int i = thread; i < ways.size(); i += wayThreads) {
+                        ReaderWay way = ways.get(i);
+                        edgeFlags[i] = parseWay(way, relationFlags);
+                        if (edgeFlags[i] != null && !hasPassableBarrier(way, edgeFlags[i]))
+                            wayEdges[i] = prepareEdges(way.getNodes(), way.getId());
+                    }
+                }));
+            }
+            try {
+                for (Future<?> future : futures)
+                    future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Parsing ways failed", e.getCause());
+            }
+            for (int i = 0; i < ways.size(); i++) {
+                if (wayEdges[i] != null)
+                    addWay(ways.get(i), edgeFlags[i], wayEdges[i]);
+                else if (edgeFlags[i] != null)
+                    addWay(ways.get(i), edgeFlags[i]);
+                edgeFlags[i] = null;
+                wayEdges[i] = null;
+            }
+            ways.clear();
+        }
+
+        void close() {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Process properties, encode flags and create edges for the way.
      */
     protected void processWay(ReaderWay way) {
+        IntsRef edgeFlags = parseWay(way, tempRelFlags);
+        if (edgeFlags != null)
+            addWay(way, edgeFlags);
+    }
+
+    /**
+     * Processes the properties of the way and encodes its flags. This only reads the graph and the maps of this
+     * reader, so it can run for many ways concurrently.
+     *
+     * @param relationFlags used to read the relation flags of the way
+     * @return the edge flags or null if no edges should be created for the way
+     */
+    private IntsRef parseWay(ReaderWay way, IntsRef relationFlags) {
         if (way.getNodes().size() < 2)
-            return;
+            return null;
 
         // ignore multipolygon geometry
         if (!way.hasTags())
-            return;
-
-        long wayOsmId = way.getId();
+            return null;
 
         EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
         if (!encodingManager.acceptWay(way, acceptWay))
-            return;
+            return null;
 
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        getRelFlagsMap(way.getId(), relationFlags);
 
         // TODO move this after we have created the edge and know the coordinates => encodingManager.applyWayTags
         LongArrayList osmNodeIds = way.getNodes();
@@ -349,9 +448,16 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         }
 
         IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
-        if (edgeFlags.isEmpty())
-            return;
+        return edgeFlags.isEmpty() ? null : edgeFlags;
+    }
 
+    /**
+     * Creates the edges for the way. Barrier nodes and the tower nodes of the way get the next free node ids, so the
+     * ways have to be added one after another in a fixed order.
+     */
+    private void addWay(ReaderWay way, IntsRef edgeFlags) {
+        long wayOsmId = way.getId();
+        LongArrayList osmNodeIds = way.getNodes();
         List<EdgeIteratorState> createdEdges = new ArrayList<>();
         // look for barriers along the way
         final int size = osmNodeIds.size();
@@ -411,6 +517,28 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         }
     }
 
+    /**
+     * Creates the edges of a way without barriers that were prepared by {@link #prepareEdges}.
+     */
+    private void addWay(ReaderWay way, IntsRef edgeFlags, WayEdges wayEdges) {
+        for (EdgeIteratorState edge : addEdges(wayEdges, edgeFlags, way.getId())) {
+            encodingManager.applyWayTags(way, edge);
+        }
+    }
+
+    /**
+     * @return true if the way has to be split at a barrier, see {@link #addWay(ReaderWay, IntsRef)}
+     */
+    private boolean hasPassableBarrier(ReaderWay way, IntsRef edgeFlags) {
+        LongArrayList osmNodeIds = way.getNodes();
+        for (int i = 0; i < osmNodeIds.size(); i++) {
+            long nodeFlags = getNodeFlagsMap().get(osmNodeIds.get(i));
+            if (nodeFlags > 0 && isOnePassable(encodingManager.getAccessEncFromNodeFlags(nodeFlags), edgeFlags))
+                return true;
+        }
+        return false;
+    }
+
     protected void processRelation(ReaderRelation relation) {
         if (tcs != null && relation.hasTag("type", "restriction"))
             storeTurnRelation(createTurnRelations(relation));
@@ -570,100 +698,126 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
      * This method creates from an OSM way (via the osm ids) one or more edges in the graph.
      */
     Collection<EdgeIteratorState> addOSMWay(final LongIndexedContainer osmNodeIds, final IntsRef flags, final long wayOsmId) {
+        return addEdges(prepareEdges(osmNodeIds, wayOsmId), flags, wayOsmId);
+    }
+
+    /**
+     * The edges of an OSM way with their simplified geometry and distance. The pillar nodes that have to become tower
+     * nodes are only recorded, as their ids depend on the ways added before. The tower nodes of the edges are either the
+     * index of an existing tower node or -1 - the index of a recorded pillar node.
+     */
+    private static class WayEdges {
+        private static final int NO_NODE = Integer.MIN_VALUE;
+        private final IntArrayList newTowerPillars = new IntArrayList();
+        private final LongArrayList newTowerOsmIds = new LongArrayList();
+        private final LongIntHashMap newTowerNodes = new LongIntHashMap();
+        private final IntArrayList fromNodes = new IntArrayList();
+        private final IntArrayList toNodes = new IntArrayList();
+        private final DoubleArrayList distances = new DoubleArrayList();
+        private final List<PointList> geometries = new ArrayList<>();
+        private int zeroDistances;
+    }
+
+    /**
+     * Splits the OSM way into edges at its tower nodes and calculates their geometry. This only reads the graph, the
+     * node map and the pillar info, so it can run for many ways concurrently.
+     */
+    private WayEdges prepareEdges(final LongIndexedContainer osmNodeIds, final long wayOsmId) {
+        WayEdges wayEdges = new WayEdges();
         PointList pointList = new PointList(osmNodeIds.size(), nodeAccess.is3D());
-        List<EdgeIteratorState> newEdges = new ArrayList<>(5);
-        int firstNode = -1;
+        int firstNode = WayEdges.NO_NODE;
         int lastIndex = osmNodeIds.size() - 1;
         int lastInBoundsPillarNode = -1;
         try {
             for (int i = 0; i < osmNodeIds.size(); i++) {
                 long osmNodeId = osmNodeIds.get(i);
-                int tmpNode = getNodeMap().get(osmNodeId);
-                if (tmpNode == EMPTY_NODE)
-                    continue;
-
-                // skip osmIds with no associated pillar or tower id (e.g. !OSMReader.isBounds)
-                if (tmpNode == TOWER_NODE)
-                    continue;
-
-                if (tmpNode == PILLAR_NODE) {
-                    // In some cases no node information is saved for the specified osmId.
-                    // ie. a way references a <node> which does not exist in the current file.
-                    // => if the node before was a pillar node then convert into to tower node (as it is also end-standing).
-                    if (!pointList.isEmpty() && lastInBoundsPillarNode > -TOWER_NODE) {
-                        // transform the pillar node to a tower node
-                        tmpNode = lastInBoundsPillarNode;
-                        tmpNode = handlePillarNode(tmpNode, osmNodeId, null, true);
-                        tmpNode = -tmpNode - 3;
-                        if (pointList.getSize() > 1 && firstNode >= 0) {
-                            // TOWER node
-                            newEdges.add(addEdge(firstNode, tmpNode, pointList, flags, wayOsmId));
-                            pointList.clear();
-                            pointList.add(nodeAccess, tmpNode);
+                int towerNode;
+                if (wayEdges.newTowerNodes.containsKey(osmNodeId)) {
+                    towerNode = wayEdges.newTowerNodes.get(osmNodeId);
+                } else {
+                    int tmpNode = getNodeMap().get(osmNodeId);
+                    if (tmpNode == EMPTY_NODE)
+                        continue;
+
+                    // skip osmIds with no associated pillar or tower id (e.g. !OSMReader.isBounds)
+                    if (tmpNode == TOWER_NODE)
+                        continue;
+
+                    if (tmpNode == PILLAR_NODE) {
+                        // In some cases no node information is saved for the specified osmId.
+                        // ie. a way references a <node> which does not exist in the current file.
+                        // => if the node before was a pillar node then convert into to tower node (as it is also end-standing).
+                        if (!pointList.isEmpty() && lastInBoundsPillarNode > -TOWER_NODE) {
+                            // transform the pillar node to a tower node
+                            towerNode = convertPillarNode(wayEdges, lastInBoundsPillarNode, osmNodeId);
+                            if (pointList.getSize() > 1 && firstNode != WayEdges.NO_NODE) {
+                                // TOWER node
+                                prepareEdge(wayEdges, firstNode, towerNode, pointList, wayOsmId);
+                                pointList.clear();
+                                addPoint(wayEdges, towerNode, pointList);
+                            }
+                            firstNode = towerNode;
+                            lastInBoundsPillarNode = -1;
                         }
-                        firstNode = tmpNode;
-                        lastInBoundsPillarNode = -1;
+                        continue;
                     }
-                    continue;
-                }
 
-                if (tmpNode <= -TOWER_NODE && tmpNode >= TOWER_NODE)
-                    throw new AssertionError("Mapped index not in correct bounds " + tmpNode + ", " + osmNodeId);
+                    if (tmpNode <= -TOWER_NODE && tmpNode >= TOWER_NODE)
+                        throw new AssertionError("Mapped index not in correct bounds " + tmpNode + ", " + osmNodeId);
 
-                if (tmpNode > -TOWER_NODE) {
-                    boolean convertToTowerNode = i == 0 || i == lastIndex;
-                    if (!convertToTowerNode) {
-                        lastInBoundsPillarNode = tmpNode;
+                    if (tmpNode > -TOWER_NODE) {
+                        // PILLAR node, but convert to towerNode if end-standing
+                        if (i != 0 && i != lastIndex) {
+                            lastInBoundsPillarNode = tmpNode;
+                            addPillarNode(wayEdges, tmpNode, osmNodeId, pointList);
+                            continue;
+                        }
+                        towerNode = convertPillarNode(wayEdges, tmpNode, osmNodeId);
+                    } else {
+                        towerNode = -tmpNode - 3;
                     }
-
-                    // PILLAR node, but convert to towerNode if end-standing
-                    tmpNode = handlePillarNode(tmpNode, osmNodeId, pointList, convertToTowerNode);
                 }
 
-                if (tmpNode < TOWER_NODE) {
-                    // TOWER node
-                    tmpNode = -tmpNode - 3;
-
-                    if (firstNode >= 0 && firstNode == tmpNode) {
-                        // loop detected. See #1525 and #1533. Insert last OSM ID as tower node. Do this for all loops so that users can manipulate loops later arbitrarily.
-                        long lastOsmNodeId = osmNodeIds.get(i - 1);
-                        int lastGHNodeId = getNodeMap().get(lastOsmNodeId);
-                        if (lastGHNodeId < TOWER_NODE) {
-                            LOGGER.warn("Pillar node " + lastOsmNodeId + " is already a tower node and used in loop, see #1533. " +
-                                    "Fix mapping for way " + wayOsmId + ", nodes:" + osmNodeIds);
-                            break;
-                        }
-
-                        int newEndNode = -handlePillarNode(lastGHNodeId, lastOsmNodeId, pointList, true) - 3;
-                        newEdges.add(addEdge(firstNode, newEndNode, pointList, flags, wayOsmId));
-                        pointList.clear();
-                        pointList.add(nodeAccess, newEndNode);
-                        firstNode = newEndNode;
+                // TOWER node
+                if (firstNode != WayEdges.NO_NODE && firstNode == towerNode) {
+                    // loop detected. See #1525 and #1533. Insert last OSM ID as tower node. Do this for all loops so that users can manipulate loops later arbitrarily.
+                    long lastOsmNodeId = osmNodeIds.get(i - 1);
+                    int lastGHNodeId = getNodeMap().get(lastOsmNodeId);
+                    if (wayEdges.newTowerNodes.containsKey(lastOsmNodeId) || lastGHNodeId < TOWER_NODE) {
+                        LOGGER.warn("Pillar node " + lastOsmNodeId + " is already a tower node and used in loop, see #1533. " +
+                                "Fix mapping for way " + wayOsmId + ", nodes:" + osmNodeIds);
+                        break;
                     }
 
-                    pointList.add(nodeAccess, tmpNode);
-                    if (firstNode >= 0) {
-                        newEdges.add(addEdge(firstNode, tmpNode, pointList, flags, wayOsmId));
-                        pointList.clear();
-                        pointList.add(nodeAccess, tmpNode);
-                    }
-                    firstNode = tmpNode;
+                    int newEndNode = convertPillarNode(wayEdges, lastGHNodeId, lastOsmNodeId);
+                    prepareEdge(wayEdges, firstNode, newEndNode, pointList, wayOsmId);
+                    pointList.clear();
+                    addPoint(wayEdges, newEndNode, pointList);
+                    firstNode = newEndNode;
+                }
+
+                addPoint(wayEdges, towerNode, pointList);
+                if (firstNode != WayEdges.NO_NODE) {
+                    prepareEdge(wayEdges, firstNode, towerNode, pointList, wayOsmId);
+                    pointList.clear();
+                    addPoint(wayEdges, towerNode, pointList);
                 }
+                firstNode = towerNode;
             }
         } catch (RuntimeException ex) {
             LOGGER.error("Couldn't properly add edge with osm ids:" + osmNodeIds, ex);
             throw ex;
         }
-        return newEdges;
+        return wayEdges;
     }
 
-    EdgeIteratorState addEdge(int fromIndex, int toIndex, PointList pointList, IntsRef flags, long wayOsmId) {
-        // sanity checks
-        if (fromIndex < 0 || toIndex < 0)
-            throw new AssertionError("to or from index is invalid for this edge " + fromIndex + "->" + toIndex + ", points:" + pointList);
+    private void prepareEdge(WayEdges wayEdges, int fromNode, int toNode, PointList pointList, long wayOsmId) {
         if (pointList.getDimension() != nodeAccess.getDimension())
             throw new AssertionError("Dimension does not match for pointList vs. nodeAccess " + pointList.getDimension() + " <-> " + nodeAccess.getDimension());
 
+        // the point list is reused for the next edge of the way
+        pointList = pointList.copy(0, pointList.size());
+
         // Smooth the elevation before calculating the distance because the distance will be incorrect if calculated afterwards
         if (this.smoothElevation)
             pointList = GraphElevationSmoothing.smoothElevation(pointList);
@@ -677,7 +831,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         if (towerNodeDistance < 0.001) {
             // As investigation shows often two paths should have crossed via one identical point 
             // but end up in two very close points.
-            zeroCounter++;
+            wayEdges.zeroDistances++;
             towerNodeDistance = 0.001;
         }
 
@@ -694,17 +848,53 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
             towerNodeDistance = maxDistance;
         }
 
-        EdgeIteratorState iter = graph.edge(fromIndex, toIndex).setDistance(towerNodeDistance).setFlags(flags);
-
         if (doSimplify && pointList.size() > 2)
             simplifyAlgo.simplify(pointList);
 
-        // If the entire way is just the first and last point, do not waste space storing an empty way geometry
-        if (pointList.size() > 2)
-            iter.setWayGeometry(pointList.shallowCopy(1, pointList.size() - 1, false));
+        wayEdges.fromNodes.add(fromNode);
+        wayEdges.toNodes.add(toNode);
+        wayEdges.distances.add(towerNodeDistance);
+        wayEdges.geometries.add(pointList);
+    }
 
-        storeOsmWayID(iter.getEdge(), wayOsmId);
-        return iter;
+    /**
+     * Creates the tower nodes and edges prepared by {@link #prepareEdges}. The ids are assigned in the order the ways
+     * are added, so this has to be called for one way after another.
+     */
+    private Collection<EdgeIteratorState> addEdges(WayEdges wayEdges, IntsRef flags, long wayOsmId) {
+        int[] newTowerNodes = new int[wayEdges.newTowerPillars.size()];
+        for (int i = 0; i < newTowerNodes.length; i++) {
+            int pillar = wayEdges.newTowerPillars.get(i);
+            long osmId = wayEdges.newTowerOsmIds.get(i);
+            double lat = pillarInfo.getLatitude(pillar);
+            double lon = pillarInfo.getLongitude(pillar);
+            double ele = pillarInfo.getElevation(pillar);
+            if (lat == Double.MAX_VALUE || lon == Double.MAX_VALUE)
+                throw new RuntimeException("Conversion pillarNode to towerNode already happened!? "
+                        + "osmId:" + osmId + " pillarIndex:" + pillar);
+            // convert pillarNode type to towerNode, make pillar values invalid
+            pillarInfo.setNode(pillar, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+            newTowerNodes[i] = -addTowerNode(osmId, lat, lon, ele) - 3;
+        }
+
+        List<EdgeIteratorState> newEdges = new ArrayList<>(wayEdges.geometries.size());
+        for (int i = 0; i < wayEdges.geometries.size(); i++) {
+            int fromNode = wayEdges.fromNodes.get(i);
+            int toNode = wayEdges.toNodes.get(i);
+            int fromIndex = fromNode >= 0 ? fromNode : newTowerNodes[-fromNode - 1];
+            int toIndex = toNode >= 0 ? toNode : newTowerNodes[-toNode - 1];
+            PointList pointList = wayEdges.geometries.get(i);
+            EdgeIteratorState iter = graph.edge(fromIndex, toIndex).setDistance(wayEdges.distances.get(i)).setFlags(flags);
+
+            // If the entire way is just the first and last point, do not waste space storing an empty way geometry
+            if (pointList.size() > 2)
+                iter.setWayGeometry(pointList.shallowCopy(1, pointList.size() - 1, false));
+
+            storeOsmWayID(iter.getEdge(), wayOsmId);
+            newEdges.add(iter);
+        }
+        zeroCounter += wayEdges.zeroDistances;
+        return newEdges;
     }
 
     /**
@@ -717,27 +907,40 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     }
 
     /**
-     * @return converted tower node
+     * Records that the pillar node becomes a tower node for the specified osmId.
+     *
+     * @return the tower node of the edges of the way
      */
-    private int handlePillarNode(int tmpNode, long osmId, PointList pointList, boolean convertToTowerNode) {
-        tmpNode = tmpNode - 3;
-        double lat = pillarInfo.getLatitude(tmpNode);
-        double lon = pillarInfo.getLongitude(tmpNode);
-        double ele = pillarInfo.getElevation(tmpNode);
-        if (lat == Double.MAX_VALUE || lon == Double.MAX_VALUE)
+    private int convertPillarNode(WayEdges wayEdges, int tmpNode, long osmId) {
+        int pillar = tmpNode - 3;
+        checkPillarNode(wayEdges, pillar, osmId);
+
+        wayEdges.newTowerPillars.add(pillar);
+        wayEdges.newTowerOsmIds.add(osmId);
+        int towerNode = -wayEdges.newTowerPillars.size();
+        wayEdges.newTowerNodes.put(osmId, towerNode);
+        return towerNode;
+    }
+
+    private void checkPillarNode(WayEdges wayEdges, int pillar, long osmId) {
+        if (wayEdges.newTowerPillars.contains(pillar)
+                || pillarInfo.getLatitude(pillar) == Double.MAX_VALUE || pillarInfo.getLongitude(pillar) == Double.MAX_VALUE)
             throw new RuntimeException("Conversion pillarNode to towerNode already happened!? "
-                    + "osmId:" + osmId + " pillarIndex:" + tmpNode);
+                    + "osmId:" + osmId + " pillarIndex:" + pillar);
+    }
 
-        if (convertToTowerNode) {
-            // convert pillarNode type to towerNode, make pillar values invalid
-            pillarInfo.setNode(tmpNode, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
-            tmpNode = addTowerNode(osmId, lat, lon, ele);
-        } else if (pointList.is3D())
-            pointList.add(lat, lon, ele);
-        else
-            pointList.add(lat, lon);
+    private void addPillarNode(WayEdges wayEdges, int tmpNode, long osmId, PointList pointList) {
+        int pillar = tmpNode - 3;
+        checkPillarNode(wayEdges, pillar, osmId);
+        pointList.add(pillarInfo, pillar);
+    }
 
-        return tmpNode;
+    private void addPoint(WayEdges wayEdges, int towerNode, PointList pointList) {
+        if (towerNode >= 0)
+            pointList.add(nodeAccess, towerNode);
+        else
+            // the tower node is created from the pillar node when the edges are added
+            pointList.add(pillarInfo, wayEdges.newTowerPillars.get(-towerNode - 1));
     }
 
     protected void finishedReading() {
@@ -746,6 +949,11 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         encodingManager.releaseParsers();
         eleProvider.release();
         osmNodeIdToInternalNodeMap = null;
+        if (nodeMapDir != null) {
+            nodeMapDir.clear();
+            Helper.removeDir(new File(nodeMapDir.getLocation()));
+            nodeMapDir = null;
+        }
         osmNodeIdToNodeFlagsMap = null;
         osmWayIdToRouteWeightMap = null;
         osmWayIdSet = null;
@@ -880,10 +1088,14 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     }
 
     IntsRef getRelFlagsMap(long osmId) {
+        return getRelFlagsMap(osmId, tempRelFlags);
+    }
+
+    private IntsRef getRelFlagsMap(long osmId, IntsRef relFlags) {
         long relFlagsAsLong = osmWayIdToRouteWeightMap.get(osmId);
-        tempRelFlags.ints[0] = (int) relFlagsAsLong;
-        tempRelFlags.ints[1] = (int) (relFlagsAsLong >> 32);
-        return tempRelFlags;
+        relFlags.ints[0] = (int) relFlagsAsLong;
+        relFlags.ints[1] = (int) (relFlagsAsLong >> 32);
+        return relFlags;
     }
 
     void putRelFlagsMap(long osmId, IntsRef relFlags) {
@@ -922,6 +1134,45 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return this;
     }
 
+    /**
+     * Sets the map from OSM node ids to the internal node ids. "btree" keeps the map on the heap. "sorted" and "dense"
+     * keep it in memory mapped files in the folder of the graph, see {@link SortedLongIntMap} and
+     * {@link DenseLongIntMap}. "dense" needs 4 bytes per node id between the smallest and the largest id of the file
+     * and is meant for the planet file.
+     */
+    public OSMReader setNodeMap(String nodeMap) {
+        if (nodeMapDir != null)
+            nodeMapDir.clear();
+        nodeMapDir = null;
+        switch (nodeMap) {
+            case "btree":
+                osmNodeIdToInternalNodeMap = new GHLongIntBTree(200);
+                break;
+            case "sorted":
+                nodeMapDir = new MMapDirectory(ghStorage.getDirectory().getLocation() + "osm_node_map").create();
+                osmNodeIdToInternalNodeMap = new SortedLongIntMap(nodeMapDir);
+                break;
+            case "dense":
+                nodeMapDir = new MMapDirectory(ghStorage.getDirectory().getLocation() + "osm_node_map").create();
+                osmNodeIdToInternalNodeMap = new DenseLongIntMap(nodeMapDir);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown node map: " + nodeMap + ", use btree, sorted or dense");
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of threads that parse the tags of the ways and encode their flags. The edges are still created
+     * by a single thread in the order of the ways in the file. Default is 1, which processes the ways sequentially.
+     */
+    public OSMReader setWayThreads(int wayThreads) {
+        if (wayThreads < 1)
+            throw new IllegalArgumentException("The number of way threads must be positive, but was " + wayThreads);
+        this.wayThreads = wayThreads;
+        return this;
+    }
+
     @Override
     public OSMReader setElevationProvider(ElevationProvider eleProvider) {
         if (eleProvider == null)
@@ -662,6 +662,49 @@ public class GraphHopperTest {
         assertEquals(Instruction.FINISH, res.getInstructions().get(1).getSign());
     }
 
+    @ParameterizedTest
+    @CsvSource({"true,false", "false,true", "false,false"})
+    public void testMonacoViaConcurrentLegs(boolean withCH, boolean withHeadings) {
+        final String profile = "profile";
+        final String vehicle = "car";
+        final String weighting = "fastest";
+        GraphHopper hopper = createGraphHopper(vehicle).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting(weighting)).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.getRouterConfig().setCHDisablingAllowed(true);
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest().setProfile(profile).setPoints(Arrays.asList(
+                new GHPoint(43.727687, 7.418737),
+                new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.739213, 7.427806),
+                new GHPoint(43.731853, 7.421839),
+                new GHPoint(43.740871, 7.425199),
+                new GHPoint(43.733802, 7.413433)));
+        if (withHeadings)
+            req.setHeadings(Arrays.asList(Double.NaN, 90., Double.NaN, Double.NaN, 270., Double.NaN));
+        req.putHint(CH.DISABLE, !withCH);
+
+        GHResponse sequentialRsp = hopper.route(req);
+        assertFalse(sequentialRsp.getErrors().toString(), sequentialRsp.hasErrors());
+        hopper.getRouterConfig().setLegThreads(3);
+        GHResponse concurrentRsp = hopper.route(req);
+        assertFalse(concurrentRsp.getErrors().toString(), concurrentRsp.hasErrors());
+        hopper.close();
+
+        ResponsePath sequential = sequentialRsp.getBest();
+        ResponsePath concurrent = concurrentRsp.getBest();
+        assertEquals(sequential.getDistance(), concurrent.getDistance(), 1.e-6);
+        assertEquals(sequential.getTime(), concurrent.getTime());
+        assertEquals(sequential.getRouteWeight(), concurrent.getRouteWeight(), 1.e-6);
+        assertEquals(sequential.getPoints(), concurrent.getPoints());
+        assertEquals(sequential.getInstructions().size(), concurrent.getInstructions().size());
+        assertEquals(sequentialRsp.getHints().getLong("visited_nodes.sum", 0), concurrentRsp.getHints().getLong("visited_nodes.sum", -1));
+    }
+
     @Test
     public void testMonacoPathDetails() {
         final String profile = "profile";
@@ -1286,6 +1329,36 @@ public class GraphHopperTest {
         executeCHFootRoute(false);
     }
 
+    @Test
+    public void testAdjacencyIndex() {
+        // route directly after import and after loading the graph with its adjacency index
+        for (int i = 0; i < 2; i++) {
+            final String profile = "profile";
+            final String vehicle = "foot";
+            final String weighting = "shortest";
+            GraphHopper hopper = createGraphHopper(vehicle).
+                    setOSMFile(MONACO).
+                    setProfiles(Collections.singletonList(new Profile(profile).setVehicle(vehicle).setWeighting(weighting))).
+                    setStoreOnFlush(true).
+                    setAdjacencyIndex(true);
+            hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+            hopper.getRouterConfig().setCHDisablingAllowed(true);
+            hopper.importOrLoad();
+            assertTrue(hopper.getGraphHopperStorage().hasAdjacencyIndex());
+
+            // same query as in testMonacoWithInstructions, for CH and flexible routing
+            for (boolean disableCH : new boolean[]{false, true}) {
+                GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+                req.putHint(CH.DISABLE, disableCH);
+                GHResponse rsp = hopper.route(req);
+                assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+                assertEquals(3437.6, rsp.getBest().getDistance(), .1);
+                assertEquals(85, rsp.getBest().getPoints().getSize());
+            }
+            hopper.close();
+        }
+    }
+
     @Test
     public void testRoundTour() {
         final String profile = "profile";
@@ -1685,6 +1758,109 @@ public class GraphHopperTest {
         assertEquals(149496, path.getTime());
     }
 
+    @Test
+    public void testUpDownCH() {
+        final String profile1 = "profile_no_turn_costs";
+        final String profile2 = "profile_turn_costs";
+        final String vehicle = "car";
+        final String weighting = "fastest";
+        GraphHopper hopper = createUpDownCHHopper(profile1, profile2, vehicle, weighting);
+        hopper.importOrLoad();
+        assertTrue(hopper.isUpDownCHEnabled());
+
+        List<GHRequest> requests = new ArrayList<>();
+        for (String profile : Arrays.asList(profile1, profile2)) {
+            requests.add(new GHRequest(55.813357, 37.5958585, 55.811042, 37.594689).setProfile(profile));
+            requests.add(new GHRequest(55.815670, 37.604613, 55.806151, 37.617823).setProfile(profile));
+        }
+        List<ResponsePath> paths = new ArrayList<>();
+        for (GHRequest req : requests) {
+            req.putHint(CH.DISABLE, true);
+            ResponsePath flexPath = hopper.route(req).getBest();
+            req.putHint(CH.DISABLE, false);
+            ResponsePath chPath = hopper.route(req).getBest();
+            // the up/down graph rounds the weights of the original edges like those of the shortcuts
+            assertEquals(flexPath.getRouteWeight(), chPath.getRouteWeight(), 1.e-2);
+            assertEquals(flexPath.getDistance(), chPath.getDistance(), 1);
+            paths.add(chPath);
+        }
+        hopper.close();
+
+        // the up/down graphs are stored next to the CH graphs and loaded again
+        hopper = createUpDownCHHopper(profile1, profile2, vehicle, weighting);
+        hopper.importOrLoad();
+        for (int i = 0; i < requests.size(); i++) {
+            ResponsePath path = hopper.route(requests.get(i)).getBest();
+            assertEquals(paths.get(i).getDistance(), path.getDistance(), 1.e-6);
+            assertEquals(paths.get(i).getRouteWeight(), path.getRouteWeight(), 1.e-6);
+        }
+        hopper.close();
+    }
+
+    private GraphHopper createUpDownCHHopper(String profile1, String profile2, String vehicle, String weighting) {
+        GraphHopper hopper = createGraphHopper("car|turn_costs=true").
+                setOSMFile(MOSCOW).
+                setProfiles(
+                        new Profile(profile1).setVehicle(vehicle).setWeighting(weighting).setTurnCosts(false),
+                        new Profile(profile2).setVehicle(vehicle).setWeighting(weighting).setTurnCosts(true)
+                ).
+                setUpDownCHEnabled(true).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile1), new CHProfile(profile2));
+        hopper.getRouterConfig().setCHDisablingAllowed(true);
+        return hopper;
+    }
+
+    @Test
+    public void testHilbertSortWithTurnCosts() {
+        final String profile1 = "profile_no_turn_costs";
+        final String profile2 = "profile_turn_costs";
+        final String vehicle = "car";
+        final String weighting = "fastest";
+        GraphHopper hopper = createHilbertSortedHopper(profile1, profile2, vehicle, weighting);
+        hopper.importOrLoad();
+        assertEquals("hilbert", hopper.getGraphHopperStorage().getProperties().get("graph.sort_order"));
+        checkHilbertSortedRoutes(hopper, profile1, profile2);
+        hopper.close();
+
+        // the graph is sorted only once, so loading it again works although CH and LM are prepared already
+        hopper = createHilbertSortedHopper(profile1, profile2, vehicle, weighting);
+        hopper.importOrLoad();
+        checkHilbertSortedRoutes(hopper, profile1, profile2);
+        hopper.close();
+    }
+
+    private GraphHopper createHilbertSortedHopper(String profile1, String profile2, String vehicle, String weighting) {
+        GraphHopper hopper = createGraphHopper("car|turn_costs=true").
+                setOSMFile(MOSCOW).
+                setProfiles(
+                        new Profile(profile1).setVehicle(vehicle).setWeighting(weighting).setTurnCosts(false),
+                        new Profile(profile2).setVehicle(vehicle).setWeighting(weighting).setTurnCosts(true)
+                ).
+                setSortGraph(true).
+                setSortOrder("hilbert").
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile1), new CHProfile(profile2));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile1), new LMProfile(profile2));
+        hopper.getRouterConfig().setCHDisablingAllowed(true);
+        hopper.getRouterConfig().setLMDisablingAllowed(true);
+        return hopper;
+    }
+
+    private void checkHilbertSortedRoutes(GraphHopper hopper, String profile1, String profile2) {
+        // same distances as in testTurnCostsOnOff, i.e. the turn restrictions survive the renumbering
+        GHRequest req = new GHRequest(55.813357, 37.5958585, 55.811042, 37.594689);
+        for (boolean disableCH : new boolean[]{false, true}) {
+            req.putHint(CH.DISABLE, disableCH);
+            req.setProfile(profile1);
+            assertEquals(400, hopper.route(req).getBest().getDistance(), 1);
+            req.setProfile(profile2);
+            assertEquals(1044, hopper.route(req).getBest().getDistance(), 1);
+        }
+        req.putHint(Landmark.DISABLE, true);
+        assertEquals(1044, hopper.route(req).getBest().getDistance(), 1);
+    }
+
     @Test
     public void testTurnCostsOnOff() {
         final String profile1 = "profile_no_turn_costs";
@@ -66,6 +66,7 @@ public class OSMReaderTest {
     private final String file6 = "test-osm6.pbf";
     private final String file7 = "test-osm7.xml";
     private final String fileBarriers = "test-barriers.xml";
+    private static final String ANDORRA = "../core/files/andorra.osm.pbf";
     private final String dir = "./target/tmp/test-db";
     private CarFlagEncoder carEncoder;
     private BooleanEncodedValue carAccessEnc;
@@ -900,6 +901,56 @@ public class OSMReaderTest {
         assertEquals("2014-01-02T00:10:14Z", graph.getProperties().get("datareader.data.date"));
     }
 
+    @Test
+    public void testParallelWayProcessingCreatesSameGraph() {
+        assertSameGraph(importGraph(ANDORRA, 1, "btree"), importGraph(ANDORRA, 4, "btree"));
+    }
+
+    @Test
+    public void testOffHeapNodeMapsCreateSameGraph() {
+        assertSameGraph(importGraph(ANDORRA, 1, "btree"), importGraph(ANDORRA, 1, "sorted"));
+        // the node ids of extracts like andorra spread over billions of ids, which makes the dense map slow
+        String file = getClass().getResource(file2).getFile();
+        assertSameGraph(importGraph(file, 1, "btree"), importGraph(file, 1, "dense"));
+    }
+
+    private void assertSameGraph(GraphHopper expectedHopper, GraphHopper actualHopper) {
+        try {
+            GraphHopperStorage expected = expectedHopper.getGraphHopperStorage();
+            GraphHopperStorage actual = actualHopper.getGraphHopperStorage();
+            assertEquals(expected.getNodes(), actual.getNodes());
+            assertEquals(expected.getEdges(), actual.getEdges());
+            for (int node = 0; node < expected.getNodes(); node++) {
+                assertEquals(expected.getNodeAccess().getLat(node), actual.getNodeAccess().getLat(node), 1.e-6);
+                assertEquals(expected.getNodeAccess().getLon(node), actual.getNodeAccess().getLon(node), 1.e-6);
+            }
+            AllEdgesIterator iter = expected.getAllEdges();
+            while (iter.next()) {
+                EdgeIteratorState edge = actual.getEdgeIteratorState(iter.getEdge(), Integer.MIN_VALUE);
+                assertEquals(iter.getBaseNode(), edge.getBaseNode());
+                assertEquals(iter.getAdjNode(), edge.getAdjNode());
+                assertEquals(iter.getDistance(), edge.getDistance(), 1.e-6);
+                assertEquals(iter.getFlags(), edge.getFlags());
+                assertEquals(iter.getName(), edge.getName());
+                assertEquals(iter.fetchWayGeometry(FetchMode.ALL), edge.fetchWayGeometry(FetchMode.ALL));
+            }
+        } finally {
+            expectedHopper.close();
+            actualHopper.close();
+        }
+    }
+
+    private GraphHopper importGraph(String file, int wayThreads, String nodeMap) {
+        return new GraphHopperOSM().setWayThreads(wayThreads).setNodeMap(nodeMap)
+                .setDataReaderFile(file)
+                .setEncodingManager(EncodingManager.create("car,bike,foot"))
+                .setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest"))
+                .setMinNetworkSize(0)
+                .setStoreOnFlush(false)
+                .setGraphHopperLocation(dir + "/" + new File(file).getName() + wayThreads + nodeMap)
+                .importOrLoad();
+    }
+
     @Test
     public void testCrossBoundary_issue667() {
         GraphHopper hopper = new GraphHopperFacade("test-osm-waterway.xml").importOrLoad();
@@ -0,0 +1,76 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Timer;
+import com.graphhopper.config.Profile;
+import com.graphhopper.routing.Router;
+import com.graphhopper.routing.RoutingMetrics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Registers a timer for every stage and a histogram of the visited nodes for every profile, e.g.
+ * com.graphhopper.routing.Router.car.snap, so they are exposed through the admin port. The metrics use
+ * a sliding time window of one minute, because the default exponentially decaying reservoir allocates
+ * an object for every recorded value.
+ */
+public class DropwizardRoutingMetrics implements RoutingMetrics {
+    private final Map<String, ProfileMetrics> metricsByProfile = new HashMap<>();
+
+    public DropwizardRoutingMetrics(MetricRegistry registry, List<Profile> profiles) {
+        for (Profile profile : profiles) {
+            ProfileMetrics metrics = new ProfileMetrics();
+            for (Stage stage : Stage.values()) {
+                metrics.stageTimers[stage.ordinal()] = registry.register(name(Router.class, profile.getName(), stage.name().toLowerCase(Locale.ROOT)),
+                        new Timer(new SlidingTimeWindowArrayReservoir(1, TimeUnit.MINUTES)));
+            }
+            metrics.visitedNodes = registry.register(name(Router.class, profile.getName(), "visited_nodes"),
+                    new Histogram(new SlidingTimeWindowArrayReservoir(1, TimeUnit.MINUTES)));
+            metricsByProfile.put(profile.getName(), metrics);
+        }
+    }
+
+    @Override
+    public void recordStage(String profile, Stage stage, long nanos) {
+        ProfileMetrics metrics = metricsByProfile.get(profile);
+        if (metrics != null)
+            metrics.stageTimers[stage.ordinal()].update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordVisitedNodes(String profile, long visitedNodes) {
+        ProfileMetrics metrics = metricsByProfile.get(profile);
+        if (metrics != null)
+            metrics.visitedNodes.update(visitedNodes);
+    }
+
+    private static class ProfileMetrics {
+        final Timer[] stageTimers = new Timer[Stage.values().length];
+        Histogram visitedNodes;
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.MetricRegistry;
 import com.graphhopper.gtfs.GtfsStorage;
 import com.graphhopper.gtfs.RealtimeFeed;
 import io.dropwizard.ConfiguredBundle;
@@ -55,6 +56,7 @@ public class RealtimeBundle implements ConfiguredBundle<RealtimeBundleConfigurat
                 protected void configure() {
                     bind(httpClient).to(HttpClient.class);
                     bind(configuration).to(RealtimeBundleConfiguration.class);
+                    bind(environment.metrics()).to(MetricRegistry.class);
                     bindFactory(RealtimeFeedLoadingCache.class, Singleton.class).to(RealtimeFeed.class);
                 }
             });
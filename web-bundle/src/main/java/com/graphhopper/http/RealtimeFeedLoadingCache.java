@@ -18,6 +18,9 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.conveyal.gtfs.GTFSFeed;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -53,13 +56,17 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
     private ExecutorService executor;
     private LoadingCache<String, RealtimeFeed> cache;
     private Map<String, Transfers> transfers;
+    private final Timer applyTimer;
+    private final Histogram touchedTrips;
 
     @Inject
-    RealtimeFeedLoadingCache(GraphHopperStorage graphHopperStorage, GtfsStorage gtfsStorage, HttpClient httpClient, RealtimeBundleConfiguration bundleConfiguration) {
+    RealtimeFeedLoadingCache(GraphHopperStorage graphHopperStorage, GtfsStorage gtfsStorage, HttpClient httpClient, RealtimeBundleConfiguration bundleConfiguration, MetricRegistry metricRegistry) {
         this.graphHopperStorage = graphHopperStorage;
         this.gtfsStorage = gtfsStorage;
         this.bundleConfiguration = bundleConfiguration;
         this.httpClient = httpClient;
+        this.applyTimer = metricRegistry.timer(MetricRegistry.name(RealtimeFeedLoadingCache.class, "apply"));
+        this.touchedTrips = metricRegistry.histogram(MetricRegistry.name(RealtimeFeedLoadingCache.class, "touched_trips"));
     }
 
     @Override
@@ -74,12 +81,13 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
                 .refreshAfterWrite(1, TimeUnit.MINUTES)
                 .build(new CacheLoader<String, RealtimeFeed>() {
                     public RealtimeFeed load(String key) {
-                        return fetchFeedsAndCreateGraph();
+                        return fetchFeedsAndCreateGraph(RealtimeFeed.empty(gtfsStorage));
                     }
 
                     @Override
                     public ListenableFuture<RealtimeFeed> reload(String key, RealtimeFeed oldValue) {
-                        ListenableFutureTask<RealtimeFeed> task = ListenableFutureTask.create(() -> fetchFeedsAndCreateGraph());
+                        // only the trip updates that changed since the last refresh are applied again
+                        ListenableFutureTask<RealtimeFeed> task = ListenableFutureTask.create(() -> fetchFeedsAndCreateGraph(oldValue));
                         executor.execute(task);
                         return task;
                     }
@@ -105,7 +113,7 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
     public void stop() {
     }
 
-    private RealtimeFeed fetchFeedsAndCreateGraph() {
+    private RealtimeFeed fetchFeedsAndCreateGraph(RealtimeFeed previous) {
         Map<String, GtfsRealtime.FeedMessage> feedMessageMap = new HashMap<>();
         for (FeedConfiguration configuration : bundleConfiguration.gtfsrealtime().getFeeds()) {
             try {
@@ -115,7 +123,11 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
                 throw new RuntimeException(e);
             }
         }
-        return RealtimeFeed.fromProtobuf(graphHopperStorage, gtfsStorage, this.transfers, feedMessageMap);
+        try (Timer.Context ignored = applyTimer.time()) {
+            RealtimeFeed realtimeFeed = previous.update(graphHopperStorage, this.transfers, feedMessageMap);
+            touchedTrips.update(realtimeFeed.getTouchedTrips());
+            return realtimeFeed;
+        }
     }
 
 }
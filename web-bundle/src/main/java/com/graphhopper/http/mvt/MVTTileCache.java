@@ -0,0 +1,112 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.mvt;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe cache for encoded vector tiles that is limited by the sum of the tile sizes. If the limit is
+ * exceeded the least recently used tiles are evicted. A tile that is requested by several threads at the same time
+ * before it is cached can be created more than once.
+ */
+public class MVTTileCache {
+    private final LinkedHashMap<String, byte[]> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final long maxBytes;
+    private long bytes;
+
+    public MVTTileCache(long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("the maximum bytes of the tile cache must not be negative but was " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    public static String createKey(int z, int x, int y, Iterable<String> details) {
+        return z + "/" + x + "/" + y + "/" + String.join(",", details);
+    }
+
+    /**
+     * Returns the tile for the specified key. If the tile is not cached it is created via the specified
+     * renderer. Tiles larger than the maximum bytes are not cached.
+     */
+    public byte[] get(String key, Supplier<byte[]> renderer) {
+        synchronized (tiles) {
+            byte[] tile = tiles.get(key);
+            if (tile != null) {
+                hits.increment();
+                return tile;
+            }
+        }
+        misses.increment();
+        byte[] tile = renderer.get();
+        if (tile.length <= maxBytes)
+            put(key, tile);
+        return tile;
+    }
+
+    private void put(String key, byte[] tile) {
+        synchronized (tiles) {
+            byte[] old = tiles.put(key, tile);
+            if (old != null)
+                bytes -= old.length;
+            bytes += tile.length;
+            Iterator<Map.Entry<String, byte[]>> iter = tiles.entrySet().iterator();
+            while (bytes > maxBytes) {
+                bytes -= iter.next().getValue().length;
+                iter.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        synchronized (tiles) {
+            return tiles.size();
+        }
+    }
+
+    public long getBytes() {
+        synchronized (tiles) {
+            return bytes;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "tiles: " + getSize() + ", bytes: " + getBytes() + ", hits: " + getHits() + ", misses: " + getMisses()
+                + ", evictions: " + getEvictions();
+    }
+}
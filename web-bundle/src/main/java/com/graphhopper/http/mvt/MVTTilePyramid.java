@@ -0,0 +1,213 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.mvt;
+
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A pyramid of pre-rendered vector tiles for a range of zoom levels and one set of details, stored in a single
+ * file that is memory-mapped for reading. The file starts with a header, followed by the encoded tiles and an index
+ * of (tile key, offset, length) entries sorted by the tile key. Its last 12 bytes are the offset of the index and
+ * the number of tiles. The import date of the graph is stored too, so a pyramid of an older import can be detected.
+ * <p>
+ * The file is limited to 2GB, which are more than enough for the zoom levels 10 to 14 of a country. The tiles are
+ * slices of the mapped buffer and can still be written to a response after the pyramid was dropped, so the mapping is
+ * not released explicitly but by the garbage collector.
+ */
+public class MVTTilePyramid {
+    public static final String FILE_NAME = "mvt_pyramid";
+    private static final Logger logger = LoggerFactory.getLogger(MVTTilePyramid.class);
+    private static final int MAGIC = 0x47484d56;
+    private static final int VERSION = 1;
+    private static final int INDEX_ENTRY_BYTES = 8 + 8 + 4;
+    private final MappedByteBuffer buffer;
+    private final int minZoom;
+    private final int maxZoom;
+    private final List<String> details;
+    private final String importDate;
+    private final long indexOffset;
+    private final int tileCount;
+
+    private MVTTilePyramid(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC)
+            throw new IllegalStateException("Not a vector tile pyramid");
+        if (buffer.getInt(4) != VERSION)
+            throw new IllegalStateException("Incompatible version of the vector tile pyramid, expected " + VERSION + " but was " + buffer.getInt(4) + ". Create the pyramid again");
+        minZoom = buffer.getInt(8);
+        maxZoom = buffer.getInt(12);
+        ByteBuffer header = buffer.duplicate();
+        header.position(16);
+        String detailsString = readString(header);
+        details = detailsString.isEmpty() ? Collections.emptyList() : Arrays.asList(detailsString.split(","));
+        importDate = readString(header);
+        indexOffset = buffer.getLong(buffer.capacity() - 12);
+        tileCount = buffer.getInt(buffer.capacity() - 4);
+    }
+
+    /**
+     * Maps the specified pyramid file into memory.
+     */
+    public static MVTTilePyramid open(File file) {
+        try (RandomAccessFile raFile = new RandomAccessFile(file, "r")) {
+            return new MVTTilePyramid(raFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raFile.length()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open vector tile pyramid " + file, ex);
+        }
+    }
+
+    /**
+     * Renders all tiles of the specified zoom levels that intersect the given bounds and writes them into the
+     * specified file. The file is replaced only after all tiles were written.
+     *
+     * @param details the normalized details, see {@link MVTTileRenderer#normalizeDetails}
+     */
+    public static void write(File file, MVTTileRenderer renderer, BBox bounds, int minZoom, int maxZoom,
+                             List<String> details, String importDate) {
+        if (minZoom < 0 || maxZoom > 29 || minZoom > maxZoom)
+            throw new IllegalArgumentException("Invalid zoom levels " + minZoom + " to " + maxZoom);
+        StopWatch sw = new StopWatch().start();
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try {
+            int tiles = 0;
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            DataOutputStream index = new DataOutputStream(indexBytes);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(minZoom);
+                out.writeInt(maxZoom);
+                writeString(out, String.join(",", details));
+                writeString(out, importDate);
+                long offset = out.size();
+                // the keys are increasing in this order, so the index is sorted
+                for (int z = minZoom; z <= maxZoom; z++) {
+                    int minX = MVTTileRenderer.lon2x(bounds.minLon, z), maxX = MVTTileRenderer.lon2x(bounds.maxLon, z);
+                    int minY = MVTTileRenderer.lat2y(bounds.maxLat, z), maxY = MVTTileRenderer.lat2y(bounds.minLat, z);
+                    for (int x = minX; x <= maxX; x++) {
+                        for (int y = minY; y <= maxY; y++) {
+                            byte[] tile = renderer.render(z, x, y, details);
+                            if (offset + tile.length > Integer.MAX_VALUE)
+                                throw new IllegalStateException("The vector tile pyramid is limited to 2GB, use fewer zoom levels");
+                            out.write(tile);
+                            index.writeLong(createKey(z, x, y));
+                            index.writeLong(offset);
+                            index.writeInt(tile.length);
+                            offset += tile.length;
+                            tiles++;
+                        }
+                    }
+                    logger.info("rendered zoom " + z + ", tiles: " + tiles + ", bytes: " + offset);
+                }
+                if (offset + indexBytes.size() + 12 > Integer.MAX_VALUE)
+                    throw new IllegalStateException("The vector tile pyramid is limited to 2GB, use fewer zoom levels");
+                indexBytes.writeTo(out);
+                out.writeLong(offset);
+                out.writeInt(tiles);
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            logger.info("wrote vector tile pyramid " + file + " with " + tiles + " tiles, took: " + sw.stop().getSeconds() + "s");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            Helper.removeDir(tmpFile);
+        }
+    }
+
+    static long createKey(int z, int x, int y) {
+        return ((long) z << 58) | ((long) x << 29) | y;
+    }
+
+    public boolean contains(int z, List<String> details) {
+        return z >= minZoom && z <= maxZoom && this.details.equals(details);
+    }
+
+    /**
+     * @return a read-only view of the encoded tile, which is not copied from the mapped file, or null if the pyramid
+     * does not contain the tile
+     */
+    public ByteBuffer getTile(int z, int x, int y) {
+        long key = createKey(z, x, y);
+        int low = 0, high = tileCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = indexOffset + (long) mid * INDEX_ENTRY_BYTES;
+            long midKey = buffer.getLong((int) entry);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                int offset = (int) buffer.getLong((int) entry + 8);
+                int length = buffer.getInt((int) entry + 16);
+                ByteBuffer tile = buffer.asReadOnlyBuffer();
+                tile.position(offset);
+                tile.limit(offset + length);
+                return tile.slice();
+            }
+        }
+        return null;
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    public List<String> getDetails() {
+        return details;
+    }
+
+    public String getImportDate() {
+        return importDate;
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
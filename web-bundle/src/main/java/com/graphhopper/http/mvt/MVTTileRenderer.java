@@ -0,0 +1,191 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.mvt;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.BBox;
+import com.wdtinc.mapbox_vector_tile.VectorTile;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.IGeometryFilter;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.JtsAdapter;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.TileGeomResult;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.UserDataKeyValueMapConverter;
+import com.wdtinc.mapbox_vector_tile.build.MvtLayerBuild;
+import com.wdtinc.mapbox_vector_tile.build.MvtLayerParams;
+import com.wdtinc.mapbox_vector_tile.build.MvtLayerProps;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+import java.util.*;
+
+/**
+ * Creates the vector tiles with the roads of the graph for the /mvt endpoint. Tiles up to zoom 9 are always empty,
+ * until zoom 13 only the edges of the bigger road classes are included and from zoom 14 on the full geometry of all
+ * edges is used. This class is thread-safe.
+ */
+public class MVTTileRenderer {
+    private static final byte[] EMPTY_TILE = VectorTile.Tile.newBuilder().build().toByteArray();
+    private final GraphHopper graphHopper;
+
+    public MVTTileRenderer(GraphHopper graphHopper) {
+        this.graphHopper = graphHopper;
+    }
+
+    /**
+     * Returns the sorted distinct details that can be added to the tiles. Details that are not an encoded value of
+     * the graph are ignored. Tiles for the same normalized details are identical.
+     */
+    public List<String> normalizeDetails(List<String> pathDetails) {
+        EncodingManager encodingManager = graphHopper.getEncodingManager();
+        TreeSet<String> details = new TreeSet<>();
+        for (String str : pathDetails) {
+            // how to indicate an erroneous parameter?
+            if (str.contains(",") || !encodingManager.hasEncodedValue(str))
+                continue;
+            details.add(str);
+        }
+        return new ArrayList<>(details);
+    }
+
+    /**
+     * @param pathDetails the normalized details, see {@link #normalizeDetails}
+     * @return the encoded tile
+     */
+    public byte[] render(int zInfo, int xInfo, int yInfo, List<String> pathDetails) {
+        if (zInfo <= 9)
+            return EMPTY_TILE;
+
+        Coordinate nw = num2deg(xInfo, yInfo, zInfo);
+        Coordinate se = num2deg(xInfo + 1, yInfo + 1, zInfo);
+        LocationIndexTree locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
+        final NodeAccess na = graphHopper.getGraphHopperStorage().getNodeAccess();
+        EdgeExplorer edgeExplorer = graphHopper.getGraphHopperStorage().createEdgeExplorer(DefaultEdgeFilter.ALL_EDGES);
+        BBox bbox = new BBox(nw.x, se.x, se.y, nw.y);
+        if (!bbox.isValid())
+            throw new IllegalStateException("Invalid bbox " + bbox);
+
+        final EncodingManager encodingManager = graphHopper.getEncodingManager();
+        final GeometryFactory geometryFactory = new GeometryFactory();
+        VectorTile.Tile.Builder mvtBuilder = VectorTile.Tile.newBuilder();
+        final IGeometryFilter acceptAllGeomFilter = geometry -> true;
+        final Envelope tileEnvelope = new Envelope(se, nw);
+        final MvtLayerParams layerParams = new MvtLayerParams(256, 4096);
+        final UserDataKeyValueMapConverter converter = new UserDataKeyValueMapConverter();
+        if (!encodingManager.hasEncodedValue(RoadClass.KEY))
+            throw new IllegalStateException("You need to configure GraphHopper to store road_class, e.g. graph.encoded_values: road_class,max_speed,... ");
+
+        final EnumEncodedValue<RoadClass> roadClassEnc = encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        final List<EncodedValue> detailEncs = new ArrayList<>(pathDetails.size());
+        for (String str : pathDetails) {
+            detailEncs.add(encodingManager.getEncodedValue(str, EncodedValue.class));
+        }
+        // in toFeatures addTags of the converter is called and layerProps is filled with keys&values => those need to be stored in the layerBuilder
+        // otherwise the decoding won't be successful and "undefined":"undefined" instead of "speed": 30 is the result
+        final MvtLayerProps layerProps = new MvtLayerProps();
+        final VectorTile.Tile.Layer.Builder layerBuilder = MvtLayerBuild.newLayerBuilder("roads", layerParams);
+
+        locationIndex.query(bbox, new LocationIndexTree.EdgeVisitor(edgeExplorer) {
+            @Override
+            public void onEdge(EdgeIteratorState edge, int nodeA, int nodeB) {
+                LineString lineString;
+                RoadClass rc = edge.get(roadClassEnc);
+                if (zInfo >= 14) {
+                    PointList pl = edge.fetchWayGeometry(FetchMode.ALL);
+                    lineString = pl.toLineString(false);
+                } else if (rc == RoadClass.MOTORWAY
+                        || zInfo > 10 && (rc == RoadClass.PRIMARY || rc == RoadClass.TRUNK)
+                        || zInfo > 11 && (rc == RoadClass.SECONDARY)
+                        || zInfo > 12) {
+                    double lat = na.getLatitude(nodeA);
+                    double lon = na.getLongitude(nodeA);
+                    double toLat = na.getLatitude(nodeB);
+                    double toLon = na.getLongitude(nodeB);
+                    lineString = geometryFactory.createLineString(new Coordinate[]{new Coordinate(lon, lat), new Coordinate(toLon, toLat)});
+                } else {
+                    // skip edge for certain zoom
+                    return;
+                }
+
+                Map<String, Object> map = new HashMap<>(2);
+                map.put("name", edge.getName());
+                for (EncodedValue ev : detailEncs) {
+                    if (ev instanceof EnumEncodedValue)
+                        map.put(ev.getName(), edge.get((EnumEncodedValue) ev).toString());
+                    else if (ev instanceof DecimalEncodedValue)
+                        map.put(ev.getName(), edge.get((DecimalEncodedValue) ev));
+                    else if (ev instanceof BooleanEncodedValue)
+                        map.put(ev.getName(), edge.get((BooleanEncodedValue) ev));
+                    else if (ev instanceof IntEncodedValue)
+                        map.put(ev.getName(), edge.get((IntEncodedValue) ev));
+                }
+
+                lineString.setUserData(map);
+
+                // doing some AffineTransformation
+                TileGeomResult tileGeom = JtsAdapter.createTileGeom(lineString, tileEnvelope, geometryFactory, layerParams, acceptAllGeomFilter);
+                List<VectorTile.Tile.Feature> features = JtsAdapter.toFeatures(tileGeom.mvtGeoms, layerProps, converter);
+                layerBuilder.addAllFeatures(features);
+            }
+
+            @Override
+            public void onTile(BBox bbox, int depth) {
+            }
+        });
+
+        MvtLayerBuild.writeProps(layerBuilder, layerProps);
+        mvtBuilder.addLayers(layerBuilder.build());
+        return mvtBuilder.build().toByteArray();
+    }
+
+    static Coordinate num2deg(int xInfo, int yInfo, int zoom) {
+        double n = Math.pow(2, zoom);
+        double lonDeg = xInfo / n * 360.0 - 180.0;
+        // unfortunately latitude numbers goes from north to south
+        double latRad = Math.atan(Math.sinh(Math.PI * (1 - 2 * yInfo / n)));
+        double latDeg = Math.toDegrees(latRad);
+        return new Coordinate(lonDeg, latDeg);
+    }
+
+    /**
+     * @return the x number of the tile that contains the given longitude
+     */
+    static int lon2x(double lon, int zoom) {
+        int n = 1 << zoom;
+        return Math.max(0, Math.min(n - 1, (int) Math.floor((lon + 180) / 360 * n)));
+    }
+
+    /**
+     * @return the y number of the tile that contains the given latitude
+     */
+    static int lat2y(double lat, int zoom) {
+        int n = 1 << zoom;
+        double latRad = Math.toRadians(lat);
+        double y = (1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * n;
+        return Math.max(0, Math.min(n - 1, (int) Math.floor(y)));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.mvt;
+
+import com.graphhopper.GraphHopper;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Provides the vector tiles for the /mvt endpoint. Tiles are taken from the pre-rendered pyramid in the graph
+ * directory if it contains them, otherwise they are rendered and kept in a cache of limited size if the cache is
+ * enabled. This needs to be started after the graph was loaded.
+ */
+public class MVTTileService implements Managed {
+    private static final Logger logger = LoggerFactory.getLogger(MVTTileService.class);
+    private final GraphHopper graphHopper;
+    private final MVTTileCache cache;
+    private MVTTileRenderer renderer;
+    // read by the request threads, the tiles of a pyramid that was dropped stay valid
+    private volatile MVTTilePyramid pyramid;
+    private String eTag;
+
+    /**
+     * @param cacheMaxBytes the maximum size of the cached tiles, 0 disables the cache
+     */
+    public MVTTileService(GraphHopper graphHopper, long cacheMaxBytes) {
+        this.graphHopper = graphHopper;
+        this.cache = cacheMaxBytes > 0 ? new MVTTileCache(cacheMaxBytes) : null;
+    }
+
+    @Override
+    public void start() {
+        renderer = new MVTTileRenderer(graphHopper);
+        String importDate = graphHopper.getGraphHopperStorage().getProperties().get("datareader.import.date");
+        // the tiles only change with a new import
+        eTag = importDate.isEmpty() ? null : Integer.toHexString(importDate.hashCode());
+        File pyramidFile = new File(graphHopper.getGraphHopperLocation(), MVTTilePyramid.FILE_NAME);
+        if (pyramidFile.exists()) {
+            pyramid = MVTTilePyramid.open(pyramidFile);
+            if (!pyramid.getImportDate().equals(importDate)) {
+                logger.warn("Ignoring vector tile pyramid " + pyramidFile + " as it was created for the import from "
+                        + pyramid.getImportDate() + " but the graph was imported " + importDate);
+                pyramid = null;
+            } else {
+                logger.info("Using vector tile pyramid for zoom " + pyramid.getMinZoom() + " to " + pyramid.getMaxZoom()
+                        + " and details " + pyramid.getDetails() + ", tiles: " + pyramid.getTileCount());
+            }
+        }
+    }
+
+    /**
+     * @return the encoded tile as a read-only buffer
+     */
+    public ByteBuffer getTile(int z, int x, int y, List<String> pathDetails) {
+        List<String> details = renderer.normalizeDetails(pathDetails);
+        MVTTilePyramid pyramid = this.pyramid;
+        if (pyramid != null && pyramid.contains(z, details)) {
+            ByteBuffer tile = pyramid.getTile(z, x, y);
+            if (tile != null)
+                return tile;
+        }
+        byte[] tile = cache == null
+                ? renderer.render(z, x, y, details)
+                : cache.get(MVTTileCache.createKey(z, x, y, details), () -> renderer.render(z, x, y, details));
+        return ByteBuffer.wrap(tile).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the entity tag for all tiles of the current graph or null if it is unknown
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    public MVTTileCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void stop() {
+        if (cache != null)
+            logger.info("vector tile cache: " + cache);
+        pyramid = null;
+    }
+}
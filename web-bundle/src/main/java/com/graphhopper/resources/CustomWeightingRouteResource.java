@@ -17,12 +17,14 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.MultiException;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.jackson.CustomRequest;
+import com.graphhopper.routing.RoutingMetrics;
 import com.graphhopper.routing.util.CustomModel;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.util.Helper;
@@ -59,10 +61,12 @@ public class CustomWeightingRouteResource {
     private static final Logger logger = LoggerFactory.getLogger(CustomWeightingRouteResource.class);
 
     private final GraphHopper graphHopper;
+    private final RoutingMetrics routingMetrics;
 
     @Inject
-    public CustomWeightingRouteResource(GraphHopper graphHopper) {
+    public CustomWeightingRouteResource(GraphHopper graphHopper, RoutingMetrics routingMetrics) {
         this.graphHopper = graphHopper;
+        this.routingMetrics = routingMetrics;
     }
 
     @POST
@@ -112,7 +116,10 @@ public class CustomWeightingRouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().getSize()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.ok(WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+            long start = System.nanoTime();
+            ObjectNode json = WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took);
+            routingMetrics.recordStage(request.getProfile(), RoutingMetrics.Stage.SERIALIZATION, System.nanoTime() - start);
+            return Response.ok(json).
                     header("X-GH-Took", "" + Math.round(took)).
                     build();
         }
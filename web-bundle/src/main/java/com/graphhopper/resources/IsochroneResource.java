@@ -7,16 +7,19 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.WebHelper;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.PhastShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.json.geo.JsonFeature;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -109,8 +112,7 @@ public class IsochroneResource {
         if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
             weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
                     Collections.singletonList(point.get()), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
-        TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
+        ShortestPathTree shortestPathTree = createShortestPathTree(graphHopper, profile, hintsMap, queryGraph, weighting, reverseFlow);
 
         double limit;
         if (weightLimit.get() > 0) {
@@ -184,6 +186,24 @@ public class IsochroneResource {
                 build();
     }
 
+    /**
+     * Creates a {@link PhastShortestPathTree} over the CH graph of the profile if the request asks for the phast
+     * algorithm, and a Dijkstra based {@link ShortestPathTree} otherwise.
+     */
+    static ShortestPathTree createShortestPathTree(GraphHopper graphHopper, Profile profile, PMap hintsMap, QueryGraph queryGraph,
+                                                   Weighting weighting, boolean reverseFlow) {
+        if (!Parameters.Algorithms.PHAST.equalsIgnoreCase(hintsMap.getString(Parameters.Routing.ALGORITHM, "")))
+            return new ShortestPathTree(queryGraph, weighting, reverseFlow, profile.isTurnCosts() ? EDGE_BASED : NODE_BASED);
+        if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
+            throw new IllegalArgumentException("The " + Parameters.Algorithms.PHAST + " algorithm does not support " + Parameters.Routing.BLOCK_AREA);
+        RoutingCHGraph chGraph = graphHopper.getGraphHopperStorage().getRoutingCHGraph(profile.getName());
+        if (chGraph == null)
+            throw new IllegalArgumentException("The " + Parameters.Algorithms.PHAST + " algorithm requires a CH preparation for the profile '" + profile.getName() + "'");
+        if (chGraph.isEdgeBased())
+            throw new IllegalArgumentException("The " + Parameters.Algorithms.PHAST + " algorithm does not support profiles with turn costs");
+        return new PhastShortestPathTree(new QueryRoutingCHGraph(chGraph, queryGraph), reverseFlow);
+    }
+
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
         int maxPoints = 0;
         Polygon maxPolygon = null;
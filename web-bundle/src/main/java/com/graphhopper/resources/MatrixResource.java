@@ -0,0 +1,125 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.ValueNode;
+import com.graphhopper.GHMatrixRequest;
+import com.graphhopper.GHMatrixResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.MultiException;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resource to calculate the weights, times and distances between many locations at once. The request format is the
+ * one used by GHMatrixSyncRequester of the client-hc module, i.e. either 'points' or 'from_points' and 'to_points'
+ * in [longitude,latitude] format. The response contains the requested 'out_arrays' indexed by [from][to], where times
+ * are in seconds and distances in meters. If fail_fast is false, entries for points that were not found or that are
+ * not connected are null and listed under 'hints'.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopper graphHopper;
+
+    @Inject
+    public MatrixResource(GraphHopper graphHopper) {
+        this.graphHopper = graphHopper;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull GHMatrixRequest request, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        GHMatrixResponse ghResponse = graphHopper.matrix(request);
+        long took = sw.stop().getNanos() / 1_000_000;
+        String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
+        String logStr = infoStr + " " + request.getFromPoints().size() + "x" + request.getToPoints().size()
+                + ", took: " + String.format("%.1f", (double) took) + " ms, profile: " + request.getProfile();
+        if (ghResponse.hasErrors()) {
+            logger.error(logStr + ", errors:" + ghResponse.getErrors());
+            throw new MultiException(ghResponse.getErrors());
+        }
+        logger.info(logStr + ", hints: " + ghResponse.getHints().toMap());
+
+        List<String> outArrays = request.getOutArrays().isEmpty() ? Collections.singletonList("weights") : request.getOutArrays();
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (outArrays.contains("weights"))
+            json.set("weights", createArray(ghResponse, (i, j) -> json.numberNode(Math.round(ghResponse.getWeights()[i][j] * 10) / 10.0)));
+        if (outArrays.contains("times"))
+            json.set("times", createArray(ghResponse, (i, j) -> json.numberNode(Math.round(ghResponse.getTimes()[i][j] / 1000.0))));
+        if (outArrays.contains("distances"))
+            json.set("distances", createArray(ghResponse, (i, j) -> json.numberNode(Math.round(ghResponse.getDistances()[i][j]))));
+        if (!request.isFailFast()) {
+            ArrayNode hints = json.putArray("hints");
+            if (!ghResponse.getDisconnectedPoints().isEmpty()) {
+                ArrayNode pointPairs = hints.addObject().put("message", "Connection between locations not found").putArray("point_pairs");
+                for (int[] pair : ghResponse.getDisconnectedPoints())
+                    pointPairs.addArray().add(pair[0]).add(pair[1]);
+            }
+            if (!ghResponse.getInvalidFromPoints().isEmpty() || !ghResponse.getInvalidToPoints().isEmpty()) {
+                ObjectNode invalidPoints = hints.addObject().put("message", "Cannot find point");
+                ArrayNode invalidFromPoints = invalidPoints.putArray("invalid_from_points");
+                ghResponse.getInvalidFromPoints().forEach(invalidFromPoints::add);
+                ArrayNode invalidToPoints = invalidPoints.putArray("invalid_to_points");
+                ghResponse.getInvalidToPoints().forEach(invalidToPoints::add);
+            }
+        }
+        WebHelper.jsonResponsePutInfo(json, took);
+        return Response.ok(json).header("X-GH-Took", "" + took).build();
+    }
+
+    private static ArrayNode createArray(GHMatrixResponse ghResponse, EntryCreator entryCreator) {
+        ArrayNode rows = JsonNodeFactory.instance.arrayNode();
+        for (int i = 0; i < ghResponse.getWeights().length; i++) {
+            ArrayNode row = rows.addArray();
+            for (int j = 0; j < ghResponse.getWeights()[i].length; j++) {
+                if (ghResponse.isConnected(i, j))
+                    row.add(entryCreator.create(i, j));
+                else
+                    row.addNull();
+            }
+        }
+        return rows;
+    }
+
+    private interface EntryCreator {
+        ValueNode create(int fromIndex, int toIndex);
+    }
+}
@@ -35,8 +35,6 @@ import java.io.Writer;
 import java.util.*;
 
 import static com.graphhopper.resources.RouteResource.errorIfLegacyParameters;
-import static com.graphhopper.routing.util.TraversalMode.EDGE_BASED;
-import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
 
 /**
  * This resource provides the entire shortest path tree as response. In a simple CSV format discussed at #1577.
@@ -107,8 +105,7 @@ public class SPTResource {
         if (hintsMap.has(Parameters.Routing.BLOCK_AREA))
             weighting = new BlockAreaWeighting(weighting, GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
                     Collections.singletonList(point.get()), hintsMap, DefaultEdgeFilter.allEdges(encoder)));
-        TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
+        ShortestPathTree shortestPathTree = IsochroneResource.createShortestPathTree(graphHopper, profile, hintsMap, queryGraph, weighting, reverseFlow);
 
         if (distanceInMeter.get() > 0) {
             shortestPathTree.setDistanceLimit(distanceInMeter.get());
@@ -143,8 +140,8 @@ public class SPTResource {
                 }
                 sb.append(LINE_SEP);
                 writer.write(sb.toString());
-                shortestPathTree.search(snap.getClosestNode(), l -> {
-                    IsoLabelWithCoordinates label = isoLabelWithCoordinates(nodeAccess, l);
+                shortestPathTree.searchLabels(snap.getClosestNode(), l -> {
+                    IsoLabelWithCoordinates label = isoLabelWithCoordinates(nodeAccess, shortestPathTree, l);
                     sb.setLength(0);
                     for (int colIndex = 0; colIndex < columns.size(); colIndex++) {
                         String col = columns.get(colIndex);
@@ -236,25 +233,26 @@ public class SPTResource {
         return Response.ok(out).type("text/csv").build();
     }
 
-    private IsoLabelWithCoordinates isoLabelWithCoordinates(NodeAccess na, ShortestPathTree.IsoLabel label) {
-        double lat = na.getLatitude(label.node);
-        double lon = na.getLongitude(label.node);
+    private IsoLabelWithCoordinates isoLabelWithCoordinates(NodeAccess na, ShortestPathTree tree, int label) {
+        int nodeId = tree.getNode(label);
+        double lat = na.getLatitude(nodeId);
+        double lon = na.getLongitude(nodeId);
         IsoLabelWithCoordinates isoLabelWC = new IsoLabelWithCoordinates();
-        isoLabelWC.nodeId = label.node;
+        isoLabelWC.nodeId = nodeId;
         isoLabelWC.coordinate = new GHPoint(lat, lon);
-        isoLabelWC.timeMillis = Math.round(label.time);
-        isoLabelWC.distance = (int) Math.round(label.distance);
-        isoLabelWC.edgeId = label.edge;
-        if (label.parent != null) {
-            ShortestPathTree.IsoLabel prevLabel = label.parent;
-            int prevNodeId = prevLabel.node;
+        isoLabelWC.timeMillis = Math.round(tree.getTime(label));
+        isoLabelWC.distance = (int) Math.round(tree.getDistance(label));
+        isoLabelWC.edgeId = tree.getEdge(label);
+        int prevLabel = tree.getParent(label);
+        if (prevLabel >= 0) {
+            int prevNodeId = tree.getNode(prevLabel);
             double prevLat = na.getLatitude(prevNodeId);
             double prevLon = na.getLongitude(prevNodeId);
             isoLabelWC.prevNodeId = prevNodeId;
-            isoLabelWC.prevEdgeId = prevLabel.edge;
+            isoLabelWC.prevEdgeId = tree.getEdge(prevLabel);
             isoLabelWC.prevCoordinate = new GHPoint(prevLat, prevLon);
-            isoLabelWC.prevDistance = (int) Math.round(prevLabel.distance);
-            isoLabelWC.prevTimeMillis = Math.round(prevLabel.time);
+            isoLabelWC.prevDistance = (int) Math.round(tree.getDistance(prevLabel));
+            isoLabelWC.prevTimeMillis = Math.round(tree.getTime(prevLabel));
         }
         return isoLabelWC;
     }
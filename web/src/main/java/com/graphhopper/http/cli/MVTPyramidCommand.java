@@ -0,0 +1,47 @@
+package com.graphhopper.http.cli;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.mvt.MVTTilePyramid;
+import com.graphhopper.http.mvt.MVTTileRenderer;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class MVTPyramidCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public MVTPyramidCommand() {
+        super("mvt-pyramid", "pre-renders the vector tiles of the /mvt endpoint into the graph directory");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--min-zoom").type(Integer.class).setDefault(10).help("the lowest zoom level to render");
+        subparser.addArgument("--max-zoom").type(Integer.class).setDefault(14).help("the highest zoom level to render");
+        subparser.addArgument("--details").setDefault("").help("the comma separated encoded values to include, " +
+                "requests with exactly these details are served from the pyramid");
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace namespace, GraphHopperServerConfiguration configuration) {
+        final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), bootstrap.getObjectMapper());
+        GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        graphHopper.importOrLoad();
+        try {
+            MVTTileRenderer renderer = new MVTTileRenderer(graphHopper);
+            String details = namespace.getString("details");
+            MVTTilePyramid.write(new File(graphHopper.getGraphHopperLocation(), MVTTilePyramid.FILE_NAME), renderer,
+                    graphHopper.getGraphHopperStorage().getBounds(), namespace.getInt("min_zoom"), namespace.getInt("max_zoom"),
+                    renderer.normalizeDetails(details.isEmpty() ? Arrays.asList() : Arrays.asList(details.split(","))),
+                    graphHopper.getGraphHopperStorage().getProperties().get("datareader.import.date"));
+        } finally {
+            graphHopper.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.mvt;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.Profile;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MVTTilePyramidTest {
+    private static final String DIR = "./target/andorra-mvt-gh/";
+    private static GraphHopper hopper;
+
+    @BeforeAll
+    public static void setup() {
+        Helper.removeDir(new File(DIR));
+        hopper = new GraphHopperOSM().
+                setOSMFile("../core/files/andorra.osm.pbf").
+                setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest")).
+                setGraphHopperLocation(DIR).
+                setEncodingManager(EncodingManager.create("car")).
+                importOrLoad();
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        hopper.close();
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testPyramidContainsRenderedTiles() {
+        MVTTileRenderer renderer = new MVTTileRenderer(hopper);
+        List<String> details = renderer.normalizeDetails(Arrays.asList("road_class", "unknown", "max_speed", "road_class"));
+        assertEquals(Arrays.asList("max_speed", "road_class"), details);
+
+        File file = new File(DIR, MVTTilePyramid.FILE_NAME);
+        String importDate = hopper.getGraphHopperStorage().getProperties().get("datareader.import.date");
+        MVTTilePyramid.write(file, renderer, hopper.getGraphHopperStorage().getBounds(), 12, 13, details, importDate);
+        assertFalse(new File(DIR, MVTTilePyramid.FILE_NAME + ".tmp").exists());
+
+        MVTTilePyramid pyramid = MVTTilePyramid.open(file);
+        assertEquals(12, pyramid.getMinZoom());
+        assertEquals(13, pyramid.getMaxZoom());
+        assertEquals(details, pyramid.getDetails());
+        assertEquals(importDate, pyramid.getImportDate());
+        assertTrue(pyramid.getTileCount() > 10);
+        assertTrue(pyramid.contains(13, details));
+        assertFalse(pyramid.contains(14, details));
+        assertFalse(pyramid.contains(13, Collections.emptyList()));
+
+        int x13 = MVTTileRenderer.lon2x(1.5218, 13), y13 = MVTTileRenderer.lat2y(42.5063, 13);
+        assertArrayEquals(renderer.render(13, x13, y13, details), toArray(pyramid.getTile(13, x13, y13)));
+        assertTrue(pyramid.getTile(13, x13, y13).remaining() > 100);
+        // outside of the graph bounds
+        assertNull(pyramid.getTile(13, x13 + 100, y13));
+        assertNull(pyramid.getTile(14, 2 * x13, 2 * y13));
+
+        MVTTileService service = new MVTTileService(hopper, 1 << 20);
+        service.start();
+        try {
+            int x = MVTTileRenderer.lon2x(1.5218, 14), y = MVTTileRenderer.lat2y(42.5063, 14);
+            // served from the pyramid, so the cache is not used
+            assertArrayEquals(renderer.render(12, x / 4, y / 4, details),
+                    toArray(service.getTile(12, x / 4, y / 4, Arrays.asList("road_class", "max_speed"))));
+            assertEquals(0, service.getCache().getMisses());
+
+            byte[] tile = renderer.render(14, x, y, details);
+            assertArrayEquals(tile, toArray(service.getTile(14, x, y, Arrays.asList("road_class", "max_speed"))));
+            assertArrayEquals(tile, toArray(service.getTile(14, x, y, Arrays.asList("max_speed", "road_class"))));
+            assertEquals(1, service.getCache().getMisses());
+            assertEquals(1, service.getCache().getHits());
+            assertNotNull(service.getETag());
+        } finally {
+            service.stop();
+        }
+        Helper.removeDir(file);
+    }
+
+    @Test
+    public void testCacheEviction() {
+        MVTTileCache cache = new MVTTileCache(100);
+        assertEquals(40, cache.get("a", () -> new byte[40]).length);
+        cache.get("b", () -> new byte[40]);
+        cache.get("a", () -> new byte[40]);
+        assertEquals(1, cache.getHits());
+        // b was used least recently
+        cache.get("c", () -> new byte[40]);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+        assertEquals(80, cache.getBytes());
+        cache.get("a", () -> new byte[40]);
+        assertEquals(2, cache.getHits());
+        // too large to be cached
+        cache.get("d", () -> new byte[101]);
+        assertEquals(2, cache.getSize());
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.routing.util.CustomModel;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+
+import static com.graphhopper.http.resources.CustomWeightingRouteResourceTest.yamlToJson;
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class CustomWeightingRouteResourceCCHTest {
+    private static final String DIR = "./target/andorra-cch-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car,foot").
+                putObject("prepare.min_network_size", 0).
+                putObject("prepare.cch.enabled", true).
+                putObject("routing.cch.cache_size", 2).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.encoded_values", "surface").
+                putObject("graph.location", DIR)
+                .setProfiles(Arrays.asList(
+                        new CustomProfile("car_custom").setCustomModel(new CustomModel()).setVehicle("car"),
+                        new CustomProfile("foot_custom").setCustomModel(new CustomModel()).setVehicle("foot")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testCustomWeighting() {
+        String yamlQuery = "points: [[1.529106,42.506567], [1.54006,42.511178]]\n" +
+                "profile: car_custom\n" +
+                "priority:\n" +
+                "  road_class:\n" +
+                "    secondary: 1\n" +
+                "    '*': 0.5\n";
+        JsonNode path = queryYaml(yamlQuery, 200).readEntity(JsonNode.class).get("paths").get(0);
+        assertEquals(1317, path.get("distance").asDouble(), 5);
+
+        yamlQuery = "points: [[1.5274,42.506211], [1.54006,42.511178]]\n" +
+                "profile: car_custom\n" +
+                "priority:\n" +
+                "  road_class: { residential: 0.8, primary: 1, '*': 0.66 }";
+        path = queryYaml(yamlQuery, 200).readEntity(JsonNode.class).get("paths").get(0);
+        assertEquals(1707, path.get("distance").asDouble(), 5);
+    }
+
+    @Test
+    public void testSameResultAsFlexibleMode() {
+        String yamlQuery = "points: [[1.533365, 42.506211], [1.523924, 42.520605]]\n" +
+                "profile: car_custom\n" +
+                "priority:\n" +
+                "  road_environment:\n" +
+                "    tunnel: 0.1\n";
+        JsonNode cchJson = queryYaml(yamlQuery, 200).readEntity(JsonNode.class);
+        JsonNode flexJson = queryYaml(yamlQuery + "cch.disable: true\n", 200).readEntity(JsonNode.class);
+        JsonNode cchPath = cchJson.get("paths").get(0);
+        JsonNode flexPath = flexJson.get("paths").get(0);
+        assertEquals(2437, cchPath.get("distance").asDouble(), 5);
+        assertEquals(flexPath.get("distance").asDouble(), cchPath.get("distance").asDouble(), 1);
+        assertEquals(flexPath.get("time").asLong(), cchPath.get("time").asLong(), 1000);
+        int cchVisitedNodes = cchJson.get("hints").get("visited_nodes.sum").asInt();
+        int flexVisitedNodes = flexJson.get("hints").get("visited_nodes.sum").asInt();
+        assertTrue(cchVisitedNodes < flexVisitedNodes, "the CCH search should be much smaller: " + cchVisitedNodes + " vs. " + flexVisitedNodes);
+    }
+
+    @Test
+    public void testCustomWeightingSimplisticWheelchair() {
+        String yamlQuery = "points: [[1.540875,42.510672], [1.54212,42.511131]]\n" +
+                "profile: foot_custom\n" +
+                "priority:\n" +
+                "  road_class:\n" +
+                "    steps: 0\n";
+        JsonNode path = queryYaml(yamlQuery, 200).readEntity(JsonNode.class).get("paths").get(0);
+        assertEquals(328, path.get("distance").asDouble(), 5);
+    }
+
+    Response queryYaml(String yamlStr, int code) {
+        Response response = clientTarget(app, "/route-custom").request().post(Entity.json(yamlToJson(yamlStr)));
+        assertEquals(code, response.getStatus());
+        return response;
+    }
+}
@@ -19,6 +19,7 @@
 package com.graphhopper.http.resources;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.GraphHopperServerConfiguration;
@@ -40,6 +41,7 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collections;
 
 import static com.graphhopper.http.util.TestUtils.clientTarget;
 import static com.graphhopper.util.Parameters.Routing.BLOCK_AREA;
@@ -60,7 +62,8 @@ public class IsochroneResourceTest {
                         new Profile("fast_car").setVehicle("car").setWeighting("fastest").setTurnCosts(true),
                         new Profile("short_car").setVehicle("car").setWeighting("shortest").setTurnCosts(true),
                         new Profile("fast_car_no_turn_restrictions").setVehicle("car").setWeighting("fastest").setTurnCosts(false)
-                ));
+                )).
+                setCHProfiles(Collections.singletonList(new CHProfile("fast_car_no_turn_restrictions")));
         return config;
     }
 
@@ -116,6 +119,42 @@ public class IsochroneResourceTest {
         assertFalse(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
     }
 
+    @Test
+    public void requestByTimeLimitPhast() {
+        Response rsp = clientTarget(app, "/isochrone")
+                .queryParam("profile", "fast_car_no_turn_restrictions")
+                .queryParam("algorithm", "phast")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("time_limit", 5 * 60)
+                .queryParam("buckets", 2)
+                .queryParam("type", "geojson")
+                .request().buildGet().invoke();
+        JsonFeatureCollection featureCollection = rsp.readEntity(JsonFeatureCollection.class);
+
+        assertEquals(2, featureCollection.getFeatures().size());
+        Geometry polygon0 = featureCollection.getFeatures().get(0).getGeometry();
+        Geometry polygon1 = featureCollection.getFeatures().get(1).getGeometry();
+
+        assertTrue(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.587224, 42.5386))));
+        assertFalse(polygon0.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+
+        assertTrue(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.589756, 42.558012))));
+        assertFalse(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
+    }
+
+    @Test
+    public void requestPhastWithoutCH() {
+        Response rsp = clientTarget(app, "/isochrone")
+                .queryParam("profile", "fast_car")
+                .queryParam("algorithm", "phast")
+                .queryParam("point", "42.531073,1.573792")
+                .queryParam("time_limit", 5 * 60)
+                .request().buildGet().invoke();
+        assertEquals(400, rsp.getStatus());
+        JsonNode json = rsp.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("requires a CH preparation"), json.toString());
+    }
+
     @Test
     public void requestByDistanceLimit() {
         Response rsp = clientTarget(app, "/isochrone")
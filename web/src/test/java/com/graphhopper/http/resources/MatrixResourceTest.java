@@ -0,0 +1,137 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GHMatrixSyncRequester;
+import com.graphhopper.api.GraphHopperMatrixWeb;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Collections;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static com.graphhopper.http.util.TestUtils.clientUrl;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-matrix-gh/";
+    private static final String[] POINTS = {"[1.536198,42.554851]", "[1.548128,42.510071]", "[1.5226,42.5053]"};
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("routing.ch.disabling_allowed", true).
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                setProfiles(Collections.singletonList(new Profile("my_car").setVehicle("car").setWeighting("fastest"))).
+                setCHProfiles(Collections.singletonList(new CHProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testMatrixMatchesRoutes(boolean disableCH) {
+        String jsonQuery = "{\"points\": [" + String.join(",", POINTS) + "], \"profile\": \"my_car\", \"out_arrays\": [\"weights\", \"times\", \"distances\"]," +
+                " \"ch.disable\": " + disableCH + "}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonQuery));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        JsonNode distances = json.get("distances");
+        assertEquals(3, distances.size());
+        assertEquals(3, distances.get(0).size());
+        assertEquals(0, distances.get(1).get(1).asDouble(), 1.e-6);
+
+        for (int[] pair : new int[][]{{0, 1}, {1, 0}, {2, 0}}) {
+            String routeQuery = "{\"points\": [" + POINTS[pair[0]] + "," + POINTS[pair[1]] + "], " +
+                    "\"profile\": \"my_car\", \"ch.disable\": " + disableCH + "}";
+            JsonNode path = clientTarget(app, "/route").request().post(Entity.json(routeQuery)).readEntity(JsonNode.class).get("paths").get(0);
+            assertEquals(path.get("distance").asDouble(), distances.get(pair[0]).get(pair[1]).asDouble(), 1);
+            assertEquals(path.get("time").asLong() / 1000.0, json.get("times").get(pair[0]).get(pair[1]).asDouble(), 1);
+        }
+    }
+
+    @Test
+    public void testClient() {
+        GraphHopperMatrixWeb client = new GraphHopperMatrixWeb(new GHMatrixSyncRequester(clientUrl(app, "/matrix")));
+        GHMRequest request = new GHMRequest();
+        request.putHint("profile", "my_car");
+        request.addFromPoint(new GHPoint(42.554851, 1.536198));
+        request.addFromPoint(new GHPoint(42.510071, 1.548128));
+        request.addToPoint(new GHPoint(42.5053, 1.5226));
+        request.addOutArray("distances");
+        request.addOutArray("times");
+        MatrixResponse rsp = client.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertTrue(rsp.getDistance(0, 0) > rsp.getDistance(1, 0), rsp.toString());
+        assertTrue(rsp.getTime(1, 0) > 0);
+    }
+
+    @Test
+    public void testMissingProfile() {
+        String jsonQuery = "{\"points\": [[1.536198,42.554851],[1.548128,42.510071]]}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonQuery));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("You need to specify a profile"), json.toString());
+    }
+
+    @Test
+    public void testFromAndToPoints() {
+        String jsonQuery = "{\"from_points\": [[1.536198,42.554851]], \"to_points\": [[1.548128,42.510071],[1.5226,42.5053]], " +
+                "\"profile\": \"my_car\"}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonQuery));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertFalse(json.has("distances"));
+        JsonNode weights = json.get("weights");
+        assertEquals(1, weights.size());
+        assertEquals(2, weights.get(0).size());
+        assertTrue(json.get("info").has("took"));
+        assertTrue(weights.get(0).get(0).isNumber());
+        assertTrue(weights.get(0).get(1).isNumber());
+    }
+}
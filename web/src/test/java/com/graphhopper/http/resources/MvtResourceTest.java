@@ -45,8 +45,7 @@ import java.util.List;
 import java.util.Map;
 
 import static com.graphhopper.http.util.TestUtils.clientTarget;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -62,6 +61,7 @@ public class MvtResourceTest {
                 putObject("graph.flag_encoders", "car").
                 putObject("graph.encoded_values", "road_class,road_environment,max_speed,surface").
                 putObject("prepare.min_network_size", 0).
+                putObject("mvt.cache_max_bytes", 1_000_000).
                 putObject("datareader.file", "../core/files/andorra.osm.pbf").
                 putObject("graph.location", DIR).
                 setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
@@ -115,4 +115,21 @@ public class MvtResourceTest {
         map = (Map) ((Geometry) layerGeoList.get(12)).getUserData();
         assertEquals("bridge", map.get("road_environment"));
     }
+
+    @Test
+    public void testETag() {
+        Response response = clientTarget(app, "/mvt/15/16528/12099.mvt").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        String eTag = response.getHeaderString("ETag");
+        assertNotNull(eTag);
+        byte[] tile = response.readEntity(byte[].class);
+        assertEquals(tile.length, response.getLength());
+
+        response = clientTarget(app, "/mvt/15/16528/12099.mvt").request().header("If-None-Match", eTag).buildGet().invoke();
+        assertEquals(304, response.getStatus());
+
+        response = clientTarget(app, "/mvt/15/16528/12099.mvt").request().header("If-None-Match", "\"other\"").buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(tile, response.readEntity(byte[].class));
+    }
 }
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.http.resources;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
@@ -112,6 +114,23 @@ public class RouteResourceTest {
         assertTrue(distance < 9500, "distance wasn't correct:" + distance);
     }
 
+    @Test
+    public void testStageMetrics() {
+        MetricRegistry metrics = app.getEnvironment().metrics();
+        Timer snapTimer = metrics.timer("com.graphhopper.routing.Router.my_car.snap");
+        Timer serializationTimer = metrics.timer("com.graphhopper.routing.Router.my_car.serialization");
+        long snapCount = snapTimer.getCount();
+        long serializationCount = serializationTimer.getCount();
+        final Response response = clientTarget(app, "/route?profile=my_car&" +
+                "point=42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertEquals(snapCount + 1, snapTimer.getCount());
+        assertEquals(serializationCount + 1, serializationTimer.getCount());
+        for (String stage : new String[]{"query_graph", "routing", "path_extraction", "path_merging"})
+            assertTrue(metrics.timer("com.graphhopper.routing.Router.my_car." + stage).getCount() > 0, stage);
+        assertTrue(metrics.histogram("com.graphhopper.routing.Router.my_car.visited_nodes").getSnapshot().getMax() > 0);
+    }
+
     @Test
     public void testBasicPostQuery() {
         String jsonStr = "{ \"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128, 42.510071]] }";